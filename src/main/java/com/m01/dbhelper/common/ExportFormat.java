@@ -0,0 +1,18 @@
+package com.m01.dbhelper.common;
+
+/**
+ * 查询结果导出文件的格式，COLUMNAR 为按列压缩的二进制格式，可用 ColumnarResultReader 读取
+ */
+public enum ExportFormat {
+    CSV("csv"), JSONL("jsonl"), COLUMNAR("dbc");
+
+    private final String extension;
+
+    ExportFormat(String extension) {
+        this.extension = extension;
+    }
+
+    public String getExtension() {
+        return extension;
+    }
+}
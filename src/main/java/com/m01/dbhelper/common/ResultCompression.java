@@ -0,0 +1,23 @@
+package com.m01.dbhelper.common;
+
+/**
+ * 结果文件的压缩方式
+ */
+public enum ResultCompression {
+    NONE(""), GZIP(".gz");
+
+    private final String suffix;
+
+    ResultCompression(String suffix) {
+        this.suffix = suffix;
+    }
+
+    /**
+     * 压缩文件的后缀名
+     *
+     * @return 后缀名，不压缩时为空字符串
+     */
+    public String getSuffix() {
+        return suffix;
+    }
+}
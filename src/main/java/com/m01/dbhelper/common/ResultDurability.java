@@ -0,0 +1,13 @@
+package com.m01.dbhelper.common;
+
+/**
+ * 结果文件的落盘时机
+ */
+public enum ResultDurability {
+    /** 每条语句结束后写出缓冲区 */
+    STATEMENT,
+    /** 每个任务结束后写出缓冲区 */
+    TASK,
+    /** 仅在调度结束时写出缓冲区 */
+    SCHEDULE;
+}
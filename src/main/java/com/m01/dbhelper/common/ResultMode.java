@@ -0,0 +1,15 @@
+package com.m01.dbhelper.common;
+
+/**
+ * 查询结果写入结果文件的方式
+ */
+public enum ResultMode {
+    /** 逐行写入查询结果 */
+    ROWS,
+    /** 只写入按行顺序计算的摘要和行数 */
+    DIGEST,
+    /** 只写入与行顺序无关的摘要和行数 */
+    UNORDERED_DIGEST,
+    /** 只写入每列的统计信息：行数、空值数、去重估计、最小值、最大值和数值列的和 */
+    STATISTICS;
+}
@@ -0,0 +1,13 @@
+package com.m01.dbhelper.common;
+
+/**
+ * 结果文件中逐条语句输出的详细程度
+ */
+public enum ResultVerbosity {
+    /** 每条语句都写出 SQL 和解析、执行状态 */
+    FULL,
+    /** 只写出失败的语句，并在每个任务结束时写出计数汇总 */
+    ERRORS,
+    /** 不写出单条语句，只在每个任务结束时写出计数汇总 */
+    SUMMARY;
+}
@@ -13,6 +13,24 @@ public class SqlSchedule {
     private String dbUser;
     private String dbPassword;
     private String resultFilePath; // 输出结果保存文件的全路径
+    private ResultDurability resultDurability; // 结果文件的落盘时机，默认为 TASK
+    private Long resultRotateBytes; // 结果文件超过该大小后滚动，需要同时指定 resultFilePath
+    private Integer resultRotateMinutes; // 结果文件写入超过该时长后滚动，需要同时指定 resultFilePath
+    private ResultCompression resultCompression; // 结果文件的压缩方式，默认不压缩，需要同时指定 resultFilePath
+    private String eventLogPath; // JSON Lines 格式的执行事件日志路径，为空时不记录
+    private String binaryResultPath; // 二进制结果日志路径，设置后查询结果写入该文件及其 .idx 索引
+    private Integer taskParallelism; // 同时执行的任务数，默认为 1；大于 1 时每个任务使用独立的连接和结果分段，调度结束时按任务顺序合并
+    private ResultVerbosity resultVerbosity; // 结果文件中逐条语句输出的详细程度，默认为 FULL
+    private String validationCachePath; // SQL 校验结果的缓存文件，跨进程复用；为空时只使用进程内缓存
+    private Integer validationParallelism; // 校验阶段并行解析 SQL 的线程数，默认为 CPU 核数；为 1 时在当前线程依次校验
+    private String sqlFileCharset; // SQL 文件的字符集，默认为 UTF-8；文件带 BOM 时以 BOM 为准
+    private Boolean insertFastPath; // 对只含字面量的简单 INSERT 语句做结构校验而不完整解析，默认开启
+    private Integer insertSampleRate; // 结构校验通过的同形态 INSERT 语句中每 N 条完整解析一条，默认为 0 不抽样
+    private Integer parseTimeoutMillis; // 单条语句每次解析尝试的超时毫秒数，默认为 6000；超时的语句按错误策略停止或交给数据库执行
+    private Integer maxParseChars; // 超过这个长度的语句先做结构校验再解析，默认为 1048576
+    private Boolean pipelinedExecution; // 边校验边执行，校验线程经有界队列领先于执行，默认关闭；开启时任务依次执行
+    private Integer pipelineQueueSize; // 边校验边执行时已读取但未执行的语句数上限，默认为 1024
+    private Boolean sqlFileIndex; // 为 SQL 文件在旁边写出 .stmtidx 语句位置索引，之后的运行按字节范围并行读取，默认关闭
     private List<SqlTask> taskList;
 
     public String getScheduleName() {
@@ -71,6 +89,150 @@ public class SqlSchedule {
         this.resultFilePath = resultFilePath;
     }
 
+    public ResultDurability getResultDurability() {
+        return resultDurability;
+    }
+
+    public void setResultDurability(ResultDurability resultDurability) {
+        this.resultDurability = resultDurability;
+    }
+
+    public Long getResultRotateBytes() {
+        return resultRotateBytes;
+    }
+
+    public void setResultRotateBytes(Long resultRotateBytes) {
+        this.resultRotateBytes = resultRotateBytes;
+    }
+
+    public Integer getResultRotateMinutes() {
+        return resultRotateMinutes;
+    }
+
+    public void setResultRotateMinutes(Integer resultRotateMinutes) {
+        this.resultRotateMinutes = resultRotateMinutes;
+    }
+
+    public ResultCompression getResultCompression() {
+        return resultCompression;
+    }
+
+    public void setResultCompression(ResultCompression resultCompression) {
+        this.resultCompression = resultCompression;
+    }
+
+    public String getEventLogPath() {
+        return eventLogPath;
+    }
+
+    public void setEventLogPath(String eventLogPath) {
+        this.eventLogPath = eventLogPath;
+    }
+
+    public String getBinaryResultPath() {
+        return binaryResultPath;
+    }
+
+    public void setBinaryResultPath(String binaryResultPath) {
+        this.binaryResultPath = binaryResultPath;
+    }
+
+    public Integer getTaskParallelism() {
+        return taskParallelism;
+    }
+
+    public void setTaskParallelism(Integer taskParallelism) {
+        this.taskParallelism = taskParallelism;
+    }
+
+    public String getValidationCachePath() {
+        return validationCachePath;
+    }
+
+    public void setValidationCachePath(String validationCachePath) {
+        this.validationCachePath = validationCachePath;
+    }
+
+    public Integer getValidationParallelism() {
+        return validationParallelism;
+    }
+
+    public void setValidationParallelism(Integer validationParallelism) {
+        this.validationParallelism = validationParallelism;
+    }
+
+    public String getSqlFileCharset() {
+        return sqlFileCharset;
+    }
+
+    public void setSqlFileCharset(String sqlFileCharset) {
+        this.sqlFileCharset = sqlFileCharset;
+    }
+
+    public Boolean getInsertFastPath() {
+        return insertFastPath;
+    }
+
+    public void setInsertFastPath(Boolean insertFastPath) {
+        this.insertFastPath = insertFastPath;
+    }
+
+    public Integer getInsertSampleRate() {
+        return insertSampleRate;
+    }
+
+    public void setInsertSampleRate(Integer insertSampleRate) {
+        this.insertSampleRate = insertSampleRate;
+    }
+
+    public Integer getParseTimeoutMillis() {
+        return parseTimeoutMillis;
+    }
+
+    public void setParseTimeoutMillis(Integer parseTimeoutMillis) {
+        this.parseTimeoutMillis = parseTimeoutMillis;
+    }
+
+    public Integer getMaxParseChars() {
+        return maxParseChars;
+    }
+
+    public void setMaxParseChars(Integer maxParseChars) {
+        this.maxParseChars = maxParseChars;
+    }
+
+    public Boolean getPipelinedExecution() {
+        return pipelinedExecution;
+    }
+
+    public void setPipelinedExecution(Boolean pipelinedExecution) {
+        this.pipelinedExecution = pipelinedExecution;
+    }
+
+    public Integer getPipelineQueueSize() {
+        return pipelineQueueSize;
+    }
+
+    public void setPipelineQueueSize(Integer pipelineQueueSize) {
+        this.pipelineQueueSize = pipelineQueueSize;
+    }
+
+    public Boolean getSqlFileIndex() {
+        return sqlFileIndex;
+    }
+
+    public void setSqlFileIndex(Boolean sqlFileIndex) {
+        this.sqlFileIndex = sqlFileIndex;
+    }
+
+    public ResultVerbosity getResultVerbosity() {
+        return resultVerbosity;
+    }
+
+    public void setResultVerbosity(ResultVerbosity resultVerbosity) {
+        this.resultVerbosity = resultVerbosity;
+    }
+
     public List<SqlTask> getTaskList() {
         return taskList;
     }
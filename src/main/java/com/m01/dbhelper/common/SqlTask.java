@@ -8,6 +8,22 @@ public class SqlTask {
     private String policyWhenError;
     ;
     private List<String> sqlList;
+    //查询结果导出格式，为空时查询结果写入结果文件
+    private ExportFormat exportFormat;
+    //查询结果导出目录，每条查询语句生成一个文件
+    private String exportPath;
+    //查询语句的 JDBC fetchSize
+    private Integer fetchSize;
+    //查询结果写入结果文件的方式，默认为 ROWS，摘要和统计模式优先于导出
+    private ResultMode resultMode;
+    //查询结果的输出列表，按名称选择 ResultSink，多个输出共用一次查询；为空时由 resultMode/exportFormat 决定
+    private List<String> resultSinks;
+    //每条查询语句最多写入结果文件的行数，超出的行只计数，为空时不限制
+    private Integer resultRowLimit;
+    //BLOB/CLOB 等大对象列写入结果文件和二进制结果日志的最大字节数或字符数，默认 65536，超出部分截断；摘要、导出、统计和列式输出使用完整值，超出部分先写入临时文件再分块读取
+    private Integer lobPreviewLimit;
+    //超出 lobPreviewLimit 的大对象完整写入该目录下的单独文件，为空时只截断
+    private String lobPath;
 
     public String getTaskName() {
         return taskName;
@@ -33,5 +49,69 @@ public class SqlTask {
         this.sqlList = sqlList;
     }
 
+    public ExportFormat getExportFormat() {
+        return exportFormat;
+    }
+
+    public void setExportFormat(ExportFormat exportFormat) {
+        this.exportFormat = exportFormat;
+    }
+
+    public String getExportPath() {
+        return exportPath;
+    }
+
+    public void setExportPath(String exportPath) {
+        this.exportPath = exportPath;
+    }
+
+    public Integer getFetchSize() {
+        return fetchSize;
+    }
+
+    public void setFetchSize(Integer fetchSize) {
+        this.fetchSize = fetchSize;
+    }
+
+    public ResultMode getResultMode() {
+        return resultMode;
+    }
+
+    public void setResultMode(ResultMode resultMode) {
+        this.resultMode = resultMode;
+    }
+
+    public List<String> getResultSinks() {
+        return resultSinks;
+    }
+
+    public void setResultSinks(List<String> resultSinks) {
+        this.resultSinks = resultSinks;
+    }
+
+    public Integer getResultRowLimit() {
+        return resultRowLimit;
+    }
+
+    public void setResultRowLimit(Integer resultRowLimit) {
+        this.resultRowLimit = resultRowLimit;
+    }
+
+    public Integer getLobPreviewLimit() {
+        return lobPreviewLimit;
+    }
+
+    public void setLobPreviewLimit(Integer lobPreviewLimit) {
+        this.lobPreviewLimit = lobPreviewLimit;
+    }
+
+    public String getLobPath() {
+        return lobPath;
+    }
+
+    public void setLobPath(String lobPath) {
+        this.lobPath = lobPath;
+    }
+
 
 }
@@ -0,0 +1,19 @@
+package com.m01.dbhelper.common;
+
+/**
+ * SQL 语句的类别，决定执行方式
+ */
+public enum StatementKind {
+    /** 返回结果集的查询，如 SELECT、WITH ... SELECT、VALUES、SHOW、EXPLAIN、DESCRIBE */
+    QUERY,
+    /** 修改数据的语句，如 INSERT、UPDATE、DELETE、MERGE，带 RETURNING 子句时也返回结果集 */
+    DML,
+    /** 定义或修改结构的语句，如 CREATE、ALTER、DROP、TRUNCATE */
+    DDL,
+    /** 事务控制语句，如 BEGIN、COMMIT、ROLLBACK、SAVEPOINT */
+    TRANSACTION,
+    /** 改变会话状态的语句，如 SET、USE、RESET */
+    SESSION,
+    /** 其他语句，如 CALL、DECLARE、PRAGMA，是否返回结果集只能在执行时得知 */
+    OTHER;
+}
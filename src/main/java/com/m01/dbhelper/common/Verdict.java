@@ -0,0 +1,13 @@
+package com.m01.dbhelper.common;
+
+/**
+ * 一条语句的校验结论
+ */
+public enum Verdict {
+    /** 语法合法 */
+    VALID,
+    /** 语法不合法 */
+    INVALID,
+    /** 解析超出时间预算或栈深度，未能得出结论，是否交给数据库执行由错误策略决定 */
+    UNVERIFIED;
+}
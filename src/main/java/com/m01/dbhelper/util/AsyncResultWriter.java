@@ -0,0 +1,342 @@
+package com.m01.dbhelper.util;
+
+import com.m01.dbhelper.common.ResultCompression;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Single-writer background appender for result files.
+ * <p>
+ * Producers enqueue lines into a bounded queue and block when it is full; one daemon thread
+ * drains the queue into a single open {@link FileChannel} through a reused encoder and buffer.
+ * Each line is written followed by the platform line separator, so the file format is the same
+ * as writing the lines one by one.
+ * <p>
+ * With a {@link ResultRotation} the active segment is renamed to the next numbered segment
+ * (see {@link ResultSegments}) once it reaches the size or age limit, always at a line boundary,
+ * and segments can be gzip-compressed while they are written.
+ */
+public class AsyncResultWriter implements Closeable {
+    private static final Logger logger = Logger.getLogger(AsyncResultWriter.class.getName());
+    private static final int DEFAULT_QUEUE_CAPACITY = 8192;
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final String LINE_SEPARATOR = System.lineSeparator();
+
+    private final Path resultFile;
+    private final Path path;
+    private final ResultRotation rotation;
+    private final BlockingQueue<Object> queue;
+    private final CharsetEncoder encoder;
+    private final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+    private final Thread worker;
+    private volatile boolean closed;
+    private boolean failed;
+
+    // 以下字段只由写入线程访问
+    private FileChannel channel;
+    private OutputStream compressor;
+    private long segmentBytes;
+    private long segmentOpenedAt;
+    private long nextSequence;
+
+    /**
+     * Opens the file for appending and starts the writer thread
+     *
+     * @param path    the file to append to, created if missing
+     * @param charset the charset used to encode lines
+     * @throws IOException if the file cannot be opened
+     */
+    public AsyncResultWriter(Path path, Charset charset) throws IOException {
+        this(path, charset, DEFAULT_QUEUE_CAPACITY);
+    }
+
+    /**
+     * Opens the file for appending and starts the writer thread
+     *
+     * @param path          the file to append to, created if missing
+     * @param charset       the charset used to encode lines
+     * @param queueCapacity the number of lines that may be pending before producers block
+     * @throws IOException if the file cannot be opened
+     */
+    public AsyncResultWriter(Path path, Charset charset, int queueCapacity) throws IOException {
+        this(path, charset, queueCapacity, ResultRotation.none());
+    }
+
+    /**
+     * Opens the active segment of a result file for appending and starts the writer thread
+     *
+     * @param resultFile    the configured result file, see {@link ResultSegments} for segment names
+     * @param charset       the charset used to encode lines
+     * @param queueCapacity the number of lines that may be pending before producers block
+     * @param rotation      the rotation and compression settings
+     * @throws IOException if the file cannot be opened
+     */
+    public AsyncResultWriter(Path resultFile, Charset charset, int queueCapacity, ResultRotation rotation) throws IOException {
+        this.resultFile = resultFile;
+        this.rotation = rotation;
+        this.path = ResultSegments.activeFile(resultFile, rotation.getCompression());
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        if (rotation.rotates()) {
+            this.nextSequence = ResultSegments.nextSequence(resultFile);
+        }
+        openSegment();
+        this.encoder = charset.newEncoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        this.worker = new Thread(this::drain, "result-writer-" + path.getFileName());
+        this.worker.setDaemon(true);
+        this.worker.start();
+    }
+
+    /**
+     * Gets the active segment this writer appends to
+     *
+     * @return the target file
+     */
+    public Path getPath() {
+        return path;
+    }
+
+    /**
+     * Enqueues one line, blocking while the queue is full
+     *
+     * @param line the line to write, without a trailing line separator
+     */
+    public void writeLine(String line) {
+        if (closed) {
+            throw new IllegalStateException("Result writer is closed: " + path);
+        }
+        enqueue(line);
+    }
+
+    /**
+     * Waits until every line enqueued so far has been handed to the operating system
+     */
+    public void flush() {
+        if (closed) {
+            return;
+        }
+        FlushRequest request = new FlushRequest(false);
+        enqueue(request);
+        request.await();
+    }
+
+    /**
+     * Flushes pending lines, forces them to the storage device and stops the writer thread
+     */
+    @Override
+    public void close() {
+        if (closed) {
+            return;
+        }
+        FlushRequest request = new FlushRequest(true);
+        enqueue(request);
+        closed = true;
+        request.await();
+        try {
+            worker.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void enqueue(Object item) {
+        boolean interrupted = false;
+        while (true) {
+            try {
+                queue.put(item);
+                break;
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void drain() {
+        try {
+            while (true) {
+                Object item = queue.take();
+                if (item instanceof FlushRequest) {
+                    FlushRequest request = (FlushRequest) item;
+                    writeBuffer();
+                    if (request.last) {
+                        closeSegment();
+                        request.done();
+                        return;
+                    }
+                    flushCompressor();
+                    request.done();
+                } else {
+                    if (rotation.rotates() && rotationDue()) {
+                        rotate();
+                    }
+                    encode((String) item);
+                    encode(LINE_SEPARATOR);
+                }
+            }
+        } catch (InterruptedException e) {
+            writeBuffer();
+            closeSegment();
+        }
+    }
+
+    private void openSegment() throws IOException {
+        channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.APPEND);
+        segmentBytes = channel.size();
+        segmentOpenedAt = System.currentTimeMillis();
+        if (segmentBytes > 0 && rotation.getMaxAgeMillis() > 0) {
+            // 追加到已有文件时，按文件创建时间计算已写入时长
+            segmentOpenedAt = Files.readAttributes(path, BasicFileAttributes.class).creationTime().toMillis();
+        }
+        // gzip 文件可以由多个 member 拼接而成，追加时新建一个 member 即可
+        compressor = rotation.getCompression() == ResultCompression.GZIP
+                ? new GZIPOutputStream(Channels.newOutputStream(channel), BUFFER_SIZE, true) : null;
+    }
+
+    private boolean rotationDue() {
+        long pending = segmentBytes + (compressor == null ? buffer.position() : 0);
+        if (pending == 0) {
+            return false;
+        }
+        return (rotation.getMaxBytes() > 0 && pending >= rotation.getMaxBytes())
+                || (rotation.getMaxAgeMillis() > 0 && System.currentTimeMillis() - segmentOpenedAt >= rotation.getMaxAgeMillis());
+    }
+
+    private void rotate() {
+        writeBuffer();
+        closeSegment();
+        if (failed) {
+            return;
+        }
+        try {
+            Path segment = ResultSegments.segmentFile(resultFile, rotation.getCompression(), nextSequence++);
+            Files.move(path, segment);
+            openSegment();
+        } catch (IOException e) {
+            failed = true;
+            logger.log(Level.SEVERE, "Failed to rotate result file: " + path, e);
+        }
+    }
+
+    private void encode(String text) {
+        CharBuffer chars = CharBuffer.wrap(text);
+        while (true) {
+            CoderResult result = encoder.encode(chars, buffer, true);
+            if (result.isOverflow()) {
+                writeBuffer();
+            } else {
+                break;
+            }
+        }
+        encoder.reset();
+    }
+
+    private void writeBuffer() {
+        buffer.flip();
+        try {
+            if (failed || !buffer.hasRemaining()) {
+                return;
+            }
+            if (compressor != null) {
+                compressor.write(buffer.array(), buffer.arrayOffset() + buffer.position(), buffer.remaining());
+                segmentBytes = channel.position();
+            } else {
+                segmentBytes += buffer.remaining();
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+            }
+        } catch (IOException e) {
+            failed = true;
+            logger.log(Level.SEVERE, "Failed to write to result file: " + path, e);
+        } finally {
+            buffer.clear();
+        }
+    }
+
+    private void flushCompressor() {
+        if (compressor == null || failed) {
+            return;
+        }
+        try {
+            compressor.flush();
+            segmentBytes = channel.position();
+        } catch (IOException e) {
+            failed = true;
+            logger.log(Level.SEVERE, "Failed to write to result file: " + path, e);
+        }
+    }
+
+    private void closeSegment() {
+        try {
+            if (!failed) {
+                if (compressor != null) {
+                    ((GZIPOutputStream) compressor).finish();
+                    compressor.flush();
+                }
+                channel.force(false);
+            }
+        } catch (IOException e) {
+            failed = true;
+            logger.log(Level.SEVERE, "Failed to close result file: " + path, e);
+        } finally {
+            try {
+                channel.close();
+            } catch (IOException e) {
+                logger.log(Level.SEVERE, "Failed to close result file: " + path, e);
+            }
+        }
+    }
+
+    private static final class FlushRequest {
+        private final boolean last;
+        private final CountDownLatch latch = new CountDownLatch(1);
+
+        private FlushRequest(boolean last) {
+            this.last = last;
+        }
+
+        private void done() {
+            latch.countDown();
+        }
+
+        private void await() {
+            boolean interrupted = false;
+            while (true) {
+                try {
+                    latch.await();
+                    break;
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+}
@@ -0,0 +1,506 @@
+package com.m01.dbhelper.util;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Compact binary result log with a sidecar offset index.
+ * <p>
+ * The data file starts with an 8-byte header and holds one block per executed statement. A block
+ * is a sequence of records, each an {@code int} payload length, a type byte and the payload:
+ * a statement record (schedule, task, statement ordinal, SQL), then columns and rows for a query
+ * or a message for an update or failure, and finally an end record with the row count. Strings
+ * are an {@code int} UTF-8 byte length followed by the bytes; a length of -1 is SQL NULL.
+ * <p>
+ * The index file ({@link #indexFile(Path)}) has an 8-byte header followed by fixed-size entries:
+ * block offset, block length, the 64-bit Murmur3 hash of schedule and task name, the statement
+ * ordinal and the statement kind. An index entry is only written after its block is on disk, so
+ * every indexed block is complete. Both files are appended to across runs. See
+ * {@link BinaryResultReader} for reading them.
+ * <p>
+ * Every statement collects its records in its own {@link Block} on the thread that produces
+ * them, so concurrent tasks never wait for each other's fetch. A block is kept in memory up to
+ * {@value #BLOCK_MEMORY} bytes and continues in a temporary file next to the log beyond that;
+ * {@link Block#end} appends it to the data file and indexes it in one synchronized step, so blocks
+ * appear in the order their statements completed.
+ */
+public class BinaryResultLog implements Closeable {
+    static final int DATA_MAGIC = 0x44425231; // "DBR1"
+    static final int INDEX_MAGIC = 0x44424931; // "DBI1"
+    static final int VERSION = 1;
+    static final int HEADER_SIZE = 8;
+    static final int INDEX_ENTRY_SIZE = 32;
+
+    static final byte RECORD_STATEMENT = 1;
+    static final byte RECORD_COLUMNS = 2;
+    static final byte RECORD_ROW = 3;
+    static final byte RECORD_MESSAGE = 4;
+    static final byte RECORD_END = 5;
+
+    static final int KIND_UPDATE = 0;
+    static final int KIND_QUERY = 1;
+    static final int KIND_FAILURE = 2;
+
+    static final int BLOCK_MEMORY = 1024 * 1024;
+    private static final String INDEX_SUFFIX = ".idx";
+    private static final Logger logger = Logger.getLogger(BinaryResultLog.class.getName());
+
+    private final Path file;
+    private final FileChannel channel;
+    private final FileChannel indexChannel;
+    private final ByteBuffer indexEntry = ByteBuffer.allocate(INDEX_ENTRY_SIZE);
+    private final long[] hashScratch = new long[2];
+
+    /**
+     * Opens the data and index files for appending, creating them if missing
+     *
+     * @param file the data file
+     * @throws IOException if either file cannot be opened or is not a binary result log
+     */
+    public BinaryResultLog(Path file) throws IOException {
+        this.file = file;
+        this.channel = open(file, DATA_MAGIC);
+        try {
+            this.indexChannel = open(indexFile(file), INDEX_MAGIC);
+            // 丢弃异常中断时写了一半的索引项
+            long partial = (indexChannel.size() - HEADER_SIZE) % INDEX_ENTRY_SIZE;
+            if (partial != 0) {
+                indexChannel.truncate(indexChannel.size() - partial);
+            }
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Gets the sidecar index file of a data file
+     *
+     * @param file the data file
+     * @return the index file, the data file name with {@code .idx} appended
+     */
+    public static Path indexFile(Path file) {
+        return Paths.get(file.toString() + INDEX_SUFFIX);
+    }
+
+    /**
+     * Computes the key under which the blocks of one task are indexed
+     *
+     * @param schedule the schedule name
+     * @param task     the task name
+     * @param scratch  scratch array of length 2
+     * @return the 64-bit task key
+     */
+    static long taskKey(String schedule, String task, long[] scratch) {
+        byte[] bytes = (schedule + '\u0000' + task).getBytes(StandardCharsets.UTF_8);
+        return Murmur3.hash64(bytes, 0, bytes.length, scratch);
+    }
+
+    /**
+     * Gets the data file of this log
+     *
+     * @return the data file
+     */
+    public Path getFile() {
+        return file;
+    }
+
+    /**
+     * Writes all remaining rows of a query result as one block
+     *
+     * @param resultSet the result set, positioned before the first row
+     * @param schedule  the schedule name
+     * @param task      the task name
+     * @param statement the 1-based position of the statement inside the task
+     * @param sql       the executed SQL
+     * @return the number of rows written
+     * @throws SQLException if reading the result set fails
+     * @throws IOException  if the log cannot be written
+     */
+    public long writeQueryResults(ResultSet resultSet, String schedule, String task, int statement, String sql)
+            throws SQLException, IOException {
+        ResultColumns columns = new ResultColumns(resultSet.getMetaData());
+        RowFormatter formatter = new RowFormatter(resultSet.getMetaData());
+        RowBatch batch = new RowBatch(columns.getColumnCount(), ResultPipeline.BATCH_ROWS);
+        Block block = beginQuery(schedule, task, statement, sql, columns);
+        long rowCount = 0;
+        try {
+            int rows;
+            while ((rows = batch.fill(resultSet, formatter, rowCount + 1)) > 0) {
+                block.writeRows(batch);
+                rowCount += rows;
+            }
+        } catch (SQLException | IOException | RuntimeException e) {
+            block.abort();
+            throw e;
+        }
+        block.end(rowCount);
+        return rowCount;
+    }
+
+    /**
+     * Starts the block of a query; rows follow with {@link Block#writeRows} and the block is
+     * appended and indexed by {@link Block#end} or dropped by {@link Block#abort}
+     *
+     * @param schedule  the schedule name
+     * @param task      the task name
+     * @param statement the 1-based position of the statement inside the task
+     * @param sql       the executed SQL
+     * @param columns   the column layout of the result
+     * @return the block
+     * @throws IOException if the temporary file of a large block cannot be written
+     */
+    public Block beginQuery(String schedule, String task, int statement, String sql, ResultColumns columns)
+            throws IOException {
+        Block block = new Block(schedule, task, statement, KIND_QUERY);
+        try {
+            block.writeStatement(sql);
+            int columnCount = columns.getColumnCount();
+            block.beginRecord();
+            block.putInt(columnCount);
+            for (int i = 1; i <= columnCount; i++) {
+                block.putString(columns.getColumnName(i));
+            }
+            block.endRecord(RECORD_COLUMNS);
+        } catch (IOException | RuntimeException e) {
+            block.abort();
+            throw e;
+        }
+        return block;
+    }
+
+    /**
+     * Writes the outcome of an update statement as one block
+     *
+     * @param schedule     the schedule name
+     * @param task         the task name
+     * @param statement    the 1-based position of the statement inside the task
+     * @param sql          the executed SQL
+     * @param rowsAffected the update count
+     * @throws IOException if the log cannot be written
+     */
+    public void writeUpdateCount(String schedule, String task, int statement, String sql, long rowsAffected)
+            throws IOException {
+        writeMessageBlock(schedule, task, statement, sql, "execution success - rows affected: " + rowsAffected,
+                KIND_UPDATE, rowsAffected);
+    }
+
+    /**
+     * Writes a failed statement as one block
+     *
+     * @param schedule  the schedule name
+     * @param task      the task name
+     * @param statement the 1-based position of the statement inside the task
+     * @param sql       the SQL that failed
+     * @param message   the error message
+     * @throws IOException if the log cannot be written
+     */
+    public void writeFailure(String schedule, String task, int statement, String sql, String message)
+            throws IOException {
+        writeMessageBlock(schedule, task, statement, sql, "execution fail: " + message, KIND_FAILURE, 0);
+    }
+
+    /**
+     * Forces both files to the storage device and closes them
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        try {
+            channel.force(false);
+            indexChannel.force(false);
+        } finally {
+            try {
+                channel.close();
+            } finally {
+                indexChannel.close();
+            }
+        }
+    }
+
+    private void writeMessageBlock(String schedule, String task, int statement, String sql, String message,
+                                   int kind, long rowCount) throws IOException {
+        Block block = new Block(schedule, task, statement, kind);
+        try {
+            block.writeStatement(sql);
+            block.beginRecord();
+            block.putString(message);
+            block.endRecord(RECORD_MESSAGE);
+        } catch (IOException | RuntimeException e) {
+            block.abort();
+            throw e;
+        }
+        block.end(rowCount);
+    }
+
+    private synchronized void append(Block block, FileChannel spill, byte[] data, int dataLength) throws IOException {
+        long blockStart = channel.position();
+        try {
+            // 先写出数据块，再写索引项，保证索引只指向完整的数据块
+            if (spill != null) {
+                long size = spill.size();
+                for (long done = 0; done < size; ) {
+                    done += spill.transferTo(done, size - done, channel);
+                }
+            }
+            ByteBuffer bytes = ByteBuffer.wrap(data, 0, dataLength);
+            while (bytes.hasRemaining()) {
+                channel.write(bytes);
+            }
+        } catch (IOException e) {
+            // 写了一半的数据块不会被索引，后续数据块从其后继续追加
+            channel.position(channel.size());
+            throw e;
+        }
+
+        indexEntry.clear();
+        indexEntry.putLong(blockStart);
+        indexEntry.putLong(channel.position() - blockStart);
+        indexEntry.putLong(taskKey(block.schedule, block.task, hashScratch));
+        indexEntry.putInt(block.statement);
+        indexEntry.putInt(block.kind);
+        indexEntry.flip();
+        while (indexEntry.hasRemaining()) {
+            indexChannel.write(indexEntry);
+        }
+    }
+
+    /**
+     * The records of one statement, collected by the thread that produces them and appended to
+     * the log as a whole. A block is used by one thread at a time and must be ended or aborted.
+     */
+    public final class Block {
+        private final String schedule;
+        private final String task;
+        private final int statement;
+        private final int kind;
+        private final StringBuilder cell = new StringBuilder(64);
+        private byte[] record = new byte[1024];
+        private int recordLength;
+        private byte[] data = new byte[8192];
+        private int dataLength;
+        private Path spillFile;
+        private FileChannel spill;
+        private boolean done;
+
+        private Block(String schedule, String task, int statement, int kind) {
+            this.schedule = schedule;
+            this.task = task;
+            this.statement = statement;
+            this.kind = kind;
+        }
+
+        /**
+         * Appends the rows of a batch to the block
+         *
+         * @param batch the rows
+         * @throws IOException if the temporary file of a large block cannot be written
+         */
+        public void writeRows(RowBatch batch) throws IOException {
+            int columnCount = batch.getColumnCount();
+            for (int row = 0; row < batch.getRowCount(); row++) {
+                beginRecord();
+                for (int i = 1; i <= columnCount; i++) {
+                    cell.setLength(0);
+                    if (batch.appendPreview(row, i, cell)) {
+                        putString(cell);
+                    } else {
+                        putInt(-1);
+                    }
+                }
+                endRecord(RECORD_ROW);
+            }
+        }
+
+        /**
+         * Completes the block, appends it to the data file and indexes it
+         *
+         * @param rowCount the number of rows of a query, or the update count
+         * @throws IOException if the log cannot be written
+         */
+        public void end(long rowCount) throws IOException {
+            if (done) {
+                throw new IllegalStateException("The block has already been ended or aborted");
+            }
+            try {
+                beginRecord();
+                putLong(rowCount);
+                endRecord(RECORD_END);
+                append(this, spill, data, dataLength);
+            } finally {
+                release();
+            }
+        }
+
+        /**
+         * Drops the block without writing it
+         */
+        public void abort() {
+            release();
+        }
+
+        private void writeStatement(String sql) throws IOException {
+            beginRecord();
+            putString(schedule);
+            putString(task);
+            putInt(statement);
+            putString(sql);
+            endRecord(RECORD_STATEMENT);
+        }
+
+        private void release() {
+            if (done) {
+                return;
+            }
+            done = true;
+            data = null;
+            if (spill != null) {
+                try {
+                    spill.close();
+                    Files.deleteIfExists(spillFile);
+                } catch (IOException e) {
+                    logger.log(Level.WARNING, "Failed to delete temporary block file: " + spillFile, e);
+                }
+            }
+        }
+
+        private void beginRecord() {
+            recordLength = 0;
+        }
+
+        private void endRecord(byte type) throws IOException {
+            int size = 5 + recordLength;
+            if (dataLength + size > data.length) {
+                if (dataLength + size <= BLOCK_MEMORY) {
+                    byte[] grown = new byte[Math.min(BLOCK_MEMORY, Math.max(data.length * 2, dataLength + size))];
+                    System.arraycopy(data, 0, grown, 0, dataLength);
+                    data = grown;
+                } else {
+                    spill();
+                }
+            }
+            if (dataLength + size > data.length) {
+                // 超过内存上限的单条记录直接写入临时文件
+                ByteBuffer large = ByteBuffer.allocate(size);
+                large.putInt(recordLength).put(type).put(record, 0, recordLength).flip();
+                while (large.hasRemaining()) {
+                    spill.write(large);
+                }
+                return;
+            }
+            setInt(data, dataLength, recordLength);
+            data[dataLength + 4] = type;
+            System.arraycopy(record, 0, data, dataLength + 5, recordLength);
+            dataLength += size;
+        }
+
+        private void spill() throws IOException {
+            if (spill == null) {
+                Path directory = file.toAbsolutePath().getParent();
+                spillFile = Files.createTempFile(directory, file.getFileName() + ".", ".block");
+                spill = FileChannel.open(spillFile, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            }
+            ByteBuffer bytes = ByteBuffer.wrap(data, 0, dataLength);
+            while (bytes.hasRemaining()) {
+                spill.write(bytes);
+            }
+            dataLength = 0;
+        }
+
+        private void putInt(int value) {
+            ensureCapacity(4);
+            setInt(record, recordLength, value);
+            recordLength += 4;
+        }
+
+        private void putLong(long value) {
+            putInt((int) (value >>> 32));
+            putInt((int) value);
+        }
+
+        private void putString(CharSequence value) {
+            if (value == null) {
+                putInt(-1);
+                return;
+            }
+            int length = value.length();
+            ensureCapacity(4 + length * 3);
+            int start = recordLength + 4;
+            int p = start;
+            byte[] bytes = record;
+            for (int i = 0; i < length; i++) {
+                char c = value.charAt(i);
+                if (c < 0x80) {
+                    bytes[p++] = (byte) c;
+                } else if (c < 0x800) {
+                    bytes[p++] = (byte) (0xC0 | (c >>> 6));
+                    bytes[p++] = (byte) (0x80 | (c & 0x3F));
+                } else if (Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(value.charAt(i + 1))) {
+                    int codePoint = Character.toCodePoint(c, value.charAt(++i));
+                    bytes[p++] = (byte) (0xF0 | (codePoint >>> 18));
+                    bytes[p++] = (byte) (0x80 | ((codePoint >>> 12) & 0x3F));
+                    bytes[p++] = (byte) (0x80 | ((codePoint >>> 6) & 0x3F));
+                    bytes[p++] = (byte) (0x80 | (codePoint & 0x3F));
+                } else if (Character.isSurrogate(c)) {
+                    bytes[p++] = '?';
+                } else {
+                    bytes[p++] = (byte) (0xE0 | (c >>> 12));
+                    bytes[p++] = (byte) (0x80 | ((c >>> 6) & 0x3F));
+                    bytes[p++] = (byte) (0x80 | (c & 0x3F));
+                }
+            }
+            putInt(p - start);
+            recordLength = p;
+        }
+
+        private void ensureCapacity(int extra) {
+            if (recordLength + extra > record.length) {
+                byte[] grown = new byte[Math.max(record.length * 2, recordLength + extra)];
+                System.arraycopy(record, 0, grown, 0, recordLength);
+                record = grown;
+            }
+        }
+    }
+
+    private static void setInt(byte[] bytes, int p, int value) {
+        bytes[p] = (byte) (value >>> 24);
+        bytes[p + 1] = (byte) (value >>> 16);
+        bytes[p + 2] = (byte) (value >>> 8);
+        bytes[p + 3] = (byte) value;
+    }
+
+    private static FileChannel open(Path path, int magic) throws IOException {
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        try {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            if (channel.size() == 0) {
+                header.putInt(magic).putInt(VERSION).flip();
+                while (header.hasRemaining()) {
+                    channel.write(header);
+                }
+            } else {
+                channel.read(header, 0);
+                header.flip();
+                if (header.remaining() < HEADER_SIZE || header.getInt() != magic || header.getInt() != VERSION) {
+                    throw new IOException("Not a binary result log: " + path);
+                }
+                channel.position(channel.size());
+            }
+            return channel;
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+    }
+}
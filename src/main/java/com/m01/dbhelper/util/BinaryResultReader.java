@@ -0,0 +1,353 @@
+package com.m01.dbhelper.util;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Random-access reader for a {@link BinaryResultLog}.
+ * <p>
+ * The index file is memory-mapped and grouped by task when the reader is opened, so finding the
+ * blocks of a task or the last blocks of the log does not touch the data file. Each block is then
+ * mapped on its own, which keeps the cost of reading one statement independent of the size of
+ * the log.
+ */
+public class BinaryResultReader implements Closeable {
+    private final FileChannel channel;
+    private final FileChannel indexChannel;
+    private final MappedByteBuffer index;
+    private final int entryCount;
+    private final Map<Long, List<Integer>> entriesByTask = new HashMap<>();
+    private final long[] hashScratch = new long[2];
+    private byte[] stringScratch = new byte[256];
+
+    /**
+     * Opens a binary result log and its index for reading
+     *
+     * @param file the data file
+     * @throws IOException if either file cannot be read or is not a binary result log
+     */
+    public BinaryResultReader(Path file) throws IOException {
+        this.channel = FileChannel.open(file, StandardOpenOption.READ);
+        try {
+            this.indexChannel = FileChannel.open(BinaryResultLog.indexFile(file), StandardOpenOption.READ);
+            ByteBuffer header = ByteBuffer.allocate(BinaryResultLog.HEADER_SIZE);
+            channel.read(header, 0);
+            header.flip();
+            if (header.remaining() < BinaryResultLog.HEADER_SIZE || header.getInt() != BinaryResultLog.DATA_MAGIC
+                    || header.getInt() != BinaryResultLog.VERSION) {
+                throw new IOException("Not a binary result log: " + file);
+            }
+            long indexSize = indexChannel.size();
+            this.index = indexChannel.map(FileChannel.MapMode.READ_ONLY, 0, indexSize);
+            if (indexSize < BinaryResultLog.HEADER_SIZE || index.getInt(0) != BinaryResultLog.INDEX_MAGIC
+                    || index.getInt(4) != BinaryResultLog.VERSION) {
+                throw new IOException("Not a binary result log index: " + BinaryResultLog.indexFile(file));
+            }
+        } catch (IOException e) {
+            close();
+            throw e;
+        }
+        this.entryCount = (int) ((index.capacity() - BinaryResultLog.HEADER_SIZE) / BinaryResultLog.INDEX_ENTRY_SIZE);
+        for (int i = 0; i < entryCount; i++) {
+            entriesByTask.computeIfAbsent(index.getLong(entryPosition(i) + 16), k -> new ArrayList<>()).add(i);
+        }
+    }
+
+    /**
+     * Gets the number of indexed statement blocks
+     *
+     * @return the entry count
+     */
+    public int getEntryCount() {
+        return entryCount;
+    }
+
+    /**
+     * Gets an index entry by position, in the order the statements were written
+     *
+     * @param i the entry position, from 0
+     * @return the entry
+     */
+    public Entry getEntry(int i) {
+        if (i < 0 || i >= entryCount) {
+            throw new IndexOutOfBoundsException("Entry " + i + " of " + entryCount);
+        }
+        int p = entryPosition(i);
+        return new Entry(i, index.getLong(p), index.getLong(p + 8), index.getInt(p + 24), index.getInt(p + 28));
+    }
+
+    /**
+     * Gets the last entries of the log
+     *
+     * @param count the maximum number of entries
+     * @return the entries in write order
+     */
+    public List<Entry> tail(int count) {
+        List<Entry> entries = new ArrayList<>();
+        for (int i = Math.max(0, entryCount - count); i < entryCount; i++) {
+            entries.add(getEntry(i));
+        }
+        return entries;
+    }
+
+    /**
+     * Gets all entries of one task, across all runs appended to the log
+     *
+     * @param schedule the schedule name
+     * @param task     the task name
+     * @return the entries in write order
+     * @throws IOException if a block cannot be read
+     */
+    public List<Entry> findTask(String schedule, String task) throws IOException {
+        List<Integer> positions = entriesByTask.get(BinaryResultLog.taskKey(schedule, task, hashScratch));
+        if (positions == null) {
+            return Collections.emptyList();
+        }
+        List<Entry> entries = new ArrayList<>(positions.size());
+        for (int i : positions) {
+            Entry entry = getEntry(i);
+            if (belongsTo(entry, schedule, task)) {
+                entries.add(entry);
+            }
+        }
+        return entries;
+    }
+
+    /**
+     * Finds the most recent block of one statement
+     *
+     * @param schedule  the schedule name
+     * @param task      the task name
+     * @param statement the 1-based position of the statement inside the task
+     * @return the entry, or null if the statement was not logged
+     * @throws IOException if a block cannot be read
+     */
+    public Entry find(String schedule, String task, int statement) throws IOException {
+        List<Integer> positions = entriesByTask.get(BinaryResultLog.taskKey(schedule, task, hashScratch));
+        if (positions == null) {
+            return null;
+        }
+        for (int i = positions.size() - 1; i >= 0; i--) {
+            Entry entry = getEntry(positions.get(i));
+            if (entry.getStatement() == statement && belongsTo(entry, schedule, task)) {
+                return entry;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Renders one block in the layout of the text result file
+     *
+     * @param entry the entry of the block
+     * @param out   receives the rendered lines
+     * @throws IOException if the block cannot be read or written
+     */
+    public void print(Entry entry, Appendable out) throws IOException {
+        ByteBuffer block = map(entry);
+        String lineSeparator = System.lineSeparator();
+        long rowNumber = 0;
+        while (block.hasRemaining()) {
+            int length = block.getInt();
+            byte type = block.get();
+            int end = block.position() + length;
+            switch (type) {
+                case BinaryResultLog.RECORD_STATEMENT:
+                    out.append("Schedule: ").append(readString(block)).append(" - Task: ").append(readString(block));
+                    out.append(" - Statement ").append(String.valueOf(block.getInt())).append(": ").append(readString(block));
+                    break;
+                case BinaryResultLog.RECORD_COLUMNS:
+                    out.append("Query Results - Columns: ");
+                    int columnCount = block.getInt();
+                    for (int i = 0; i < columnCount; i++) {
+                        if (i > 0) {
+                            out.append(", ");
+                        }
+                        out.append(readString(block));
+                    }
+                    break;
+                case BinaryResultLog.RECORD_ROW:
+                    out.append("Row ").append(String.valueOf(++rowNumber)).append(": ");
+                    for (int i = 0; block.position() < end; i++) {
+                        if (i > 0) {
+                            out.append(", ");
+                        }
+                        out.append(readString(block));
+                    }
+                    break;
+                case BinaryResultLog.RECORD_MESSAGE:
+                    out.append(readString(block));
+                    break;
+                case BinaryResultLog.RECORD_END:
+                    long rowCount = block.getLong();
+                    if (entry.isQuery()) {
+                        out.append("Total rows: ").append(String.valueOf(rowCount));
+                    }
+                    break;
+                default:
+                    throw new IOException("Unknown record type " + type + " at offset " + entry.getOffset());
+            }
+            block.position(end);
+            if (type != BinaryResultLog.RECORD_END || entry.isQuery()) {
+                out.append(lineSeparator);
+            }
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            channel.close();
+        } finally {
+            if (indexChannel != null) {
+                indexChannel.close();
+            }
+        }
+    }
+
+    /**
+     * Prints statement blocks of a binary result log to standard output
+     *
+     * @param args the data file, a command and its arguments
+     * @throws IOException if the log cannot be read
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            usage();
+        }
+        Writer out = new BufferedWriter(new OutputStreamWriter(System.out, Charset.defaultCharset()), 64 * 1024);
+        try (BinaryResultReader reader = new BinaryResultReader(Paths.get(args[0]))) {
+            String command = args[1];
+            if ("list".equals(command) && args.length == 2) {
+                for (int i = 0; i < reader.getEntryCount(); i++) {
+                    reader.printSummary(reader.getEntry(i), out);
+                }
+            } else if ("tail".equals(command) && args.length <= 3) {
+                for (Entry entry : reader.tail(args.length == 3 ? Integer.parseInt(args[2]) : 10)) {
+                    reader.print(entry, out);
+                }
+            } else if ("seek".equals(command) && args.length == 5) {
+                Entry entry = reader.find(args[2], args[3], Integer.parseInt(args[4]));
+                if (entry == null) {
+                    System.err.println("Statement not found: " + args[2] + " - " + args[3] + " - " + args[4]);
+                    System.exit(1);
+                }
+                reader.print(entry, out);
+            } else if ("task".equals(command) && args.length == 4) {
+                for (Entry entry : reader.findTask(args[2], args[3])) {
+                    reader.print(entry, out);
+                }
+            } else {
+                usage();
+            }
+        }
+        out.flush();
+    }
+
+    private static void usage() {
+        System.err.println("Usage: BinaryResultReader <file> list");
+        System.err.println("       BinaryResultReader <file> tail [count]");
+        System.err.println("       BinaryResultReader <file> seek <schedule> <task> <statement>");
+        System.err.println("       BinaryResultReader <file> task <schedule> <task>");
+        System.exit(2);
+    }
+
+    private void printSummary(Entry entry, Appendable out) throws IOException {
+        ByteBuffer block = map(entry);
+        block.position(5);
+        out.append(String.valueOf(entry.getPosition())).append(": ").append(readString(block)).append(" - ");
+        out.append(readString(block)).append(" - statement ").append(String.valueOf(block.getInt()));
+        out.append(" (").append(entry.isQuery() ? "query" : entry.isFailure() ? "failure" : "update");
+        out.append(", ").append(String.valueOf(entry.getLength())).append(" bytes at ").append(String.valueOf(entry.getOffset()));
+        out.append(')').append(System.lineSeparator());
+    }
+
+    private boolean belongsTo(Entry entry, String schedule, String task) throws IOException {
+        // 索引只保存名称的哈希值，读取数据块头部排除哈希冲突
+        ByteBuffer block = map(entry);
+        block.position(5);
+        return schedule.equals(readString(block)) && task.equals(readString(block));
+    }
+
+    private ByteBuffer map(Entry entry) throws IOException {
+        if (entry.getLength() > Integer.MAX_VALUE) {
+            throw new IOException("Block too large to map: " + entry.getLength() + " bytes at offset " + entry.getOffset());
+        }
+        return channel.map(FileChannel.MapMode.READ_ONLY, entry.getOffset(), entry.getLength());
+    }
+
+    private String readString(ByteBuffer block) {
+        int length = block.getInt();
+        if (length < 0) {
+            return "null";
+        }
+        if (length > stringScratch.length) {
+            stringScratch = new byte[Math.max(length, stringScratch.length * 2)];
+        }
+        block.get(stringScratch, 0, length);
+        return new String(stringScratch, 0, length, StandardCharsets.UTF_8);
+    }
+
+    private static int entryPosition(int i) {
+        return BinaryResultLog.HEADER_SIZE + i * BinaryResultLog.INDEX_ENTRY_SIZE;
+    }
+
+    /**
+     * One entry of the offset index, locating the block of one executed statement
+     */
+    public static final class Entry {
+        private final int position;
+        private final long offset;
+        private final long length;
+        private final int statement;
+        private final int kind;
+
+        private Entry(int position, long offset, long length, int statement, int kind) {
+            this.position = position;
+            this.offset = offset;
+            this.length = length;
+            this.statement = statement;
+            this.kind = kind;
+        }
+
+        public int getPosition() {
+            return position;
+        }
+
+        public long getOffset() {
+            return offset;
+        }
+
+        public long getLength() {
+            return length;
+        }
+
+        public int getStatement() {
+            return statement;
+        }
+
+        public boolean isQuery() {
+            return kind == BinaryResultLog.KIND_QUERY;
+        }
+
+        public boolean isFailure() {
+            return kind == BinaryResultLog.KIND_FAILURE;
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package com.m01.dbhelper.util;
+
+import java.io.IOException;
+
+/**
+ * The {@code binary} sink: writes the rows as one block of the schedule's {@link BinaryResultLog}
+ */
+public class BinaryResultSink implements ResultSink {
+    private ResultLogger resultLogger;
+    private BinaryResultLog binaryLog;
+    private BinaryResultLog.Block block;
+
+    @Override
+    public String getName() {
+        return "binary";
+    }
+
+    @Override
+    public boolean previewsLargeObjects() {
+        return true;
+    }
+
+    @Override
+    public void start(ResultSinkContext context, ResultColumns columns) throws IOException {
+        resultLogger = context.getResultLogger();
+        binaryLog = context.getBinaryLog();
+        if (binaryLog == null) {
+            throw new IOException("The binary result sink needs binaryResultPath in the schedule");
+        }
+        block = binaryLog.beginQuery(context.getScheduleName(), context.getTaskName(), context.getStatementIndex(),
+                context.getSql(), columns);
+    }
+
+    @Override
+    public void accept(RowBatch batch) throws IOException {
+        block.writeRows(batch);
+    }
+
+    @Override
+    public void finish(long rowCount) throws IOException {
+        BinaryResultLog.Block finished = block;
+        block = null;
+        finished.end(rowCount);
+        resultLogger.log("Query Results - Wrote " + rowCount + " rows to binary result log " + binaryLog.getFile());
+    }
+
+    @Override
+    public void abort() {
+        if (block != null) {
+            block.abort();
+            block = null;
+        }
+    }
+}
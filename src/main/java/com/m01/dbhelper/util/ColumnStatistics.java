@@ -0,0 +1,260 @@
+package com.m01.dbhelper.util;
+
+import java.io.IOException;
+import java.io.Reader;
+
+/**
+ * Streaming statistics of one result column: value and null counts, minimum, maximum, sum of
+ * numeric columns and a {@link HyperLogLog} distinct estimate.
+ * <p>
+ * Integral and floating point columns are accumulated in primitive fields; text columns compare
+ * their values without copying and only keep copies of the current minimum and maximum. A large
+ * object kept in a {@link LobFile} is hashed chunk by chunk, and only its first
+ * {@value #LARGE_OBJECT_PREFIX} characters take part in the minimum and maximum.
+ */
+public class ColumnStatistics {
+    private static final long TEXT_SEED = 0x57a7;
+    static final int LARGE_OBJECT_PREFIX = 4096;
+
+    private final String name;
+    private final boolean integral;
+    private final boolean floatingPoint;
+    private final HyperLogLog distinct = new HyperLogLog();
+    private long count;
+    private long nullCount;
+
+    private long longMin = Long.MAX_VALUE;
+    private long longMax = Long.MIN_VALUE;
+    private long longSum;
+    private boolean longSumOverflow;
+
+    private double doubleMin = Double.POSITIVE_INFINITY;
+    private double doubleMax = Double.NEGATIVE_INFINITY;
+    private double doubleSum;
+
+    private String textMin;
+    private String textMax;
+
+    /**
+     * Creates empty statistics for one column
+     *
+     * @param name          the column name
+     * @param integral      whether values are added with {@link #addLong(long)}
+     * @param floatingPoint whether values are added with {@link #addDouble(double)}
+     */
+    public ColumnStatistics(String name, boolean integral, boolean floatingPoint) {
+        this.name = name;
+        this.integral = integral;
+        this.floatingPoint = floatingPoint;
+    }
+
+    /**
+     * Counts a SQL NULL
+     */
+    public void addNull() {
+        nullCount++;
+    }
+
+    /**
+     * Adds a value of an integral column
+     *
+     * @param value the value
+     */
+    public void addLong(long value) {
+        count++;
+        if (value < longMin) {
+            longMin = value;
+        }
+        if (value > longMax) {
+            longMax = value;
+        }
+        if (longSumOverflow) {
+            doubleSum += value;
+        } else {
+            long sum = longSum + value;
+            // 同号相加结果变号即为溢出，之后改用 double 累加
+            if (((longSum ^ sum) & (value ^ sum)) < 0) {
+                longSumOverflow = true;
+                doubleSum = (double) longSum + value;
+            } else {
+                longSum = sum;
+            }
+        }
+        distinct.add(Murmur3.fmix64(value));
+    }
+
+    /**
+     * Adds a value of a floating point column
+     *
+     * @param value the value
+     */
+    public void addDouble(double value) {
+        count++;
+        if (value < doubleMin) {
+            doubleMin = value;
+        }
+        if (value > doubleMax) {
+            doubleMax = value;
+        }
+        doubleSum += value;
+        // -0.0 与 0.0 视为同一个值
+        distinct.add(Murmur3.fmix64(Double.doubleToLongBits(value == 0 ? 0.0 : value)));
+    }
+
+    /**
+     * Adds a value of any other column by its text
+     *
+     * @param value   the rendered value
+     * @param scratch scratch buffer for hashing, replaced if too small
+     * @param hash    scratch array of length 2
+     * @return the scratch buffer, possibly grown
+     */
+    public byte[] addText(CharSequence value, byte[] scratch, long[] hash) {
+        count++;
+        updateTextRange(value);
+        int length = value.length();
+        if (scratch.length < length * 2) {
+            scratch = new byte[Math.max(length * 2, scratch.length * 2)];
+        }
+        for (int i = 0; i < length; i++) {
+            char c = value.charAt(i);
+            scratch[2 * i] = (byte) (c >>> 8);
+            scratch[2 * i + 1] = (byte) c;
+        }
+        Murmur3.hash128(scratch, 0, length * 2, TEXT_SEED, hash);
+        distinct.add(hash[0]);
+        return scratch;
+    }
+
+    /**
+     * Adds a value of any other column that is kept in a file, reading it chunk by chunk
+     *
+     * @param value   the file of the value
+     * @param scratch scratch buffer for hashing, replaced if too small
+     * @param hash    scratch array of length 2
+     * @return the scratch buffer, possibly grown
+     * @throws IOException if the file cannot be read
+     */
+    public byte[] addText(LobFile value, byte[] scratch, long[] hash) throws IOException {
+        char[] chunk = new char[4096];
+        if (scratch.length < chunk.length * 2) {
+            scratch = new byte[chunk.length * 2];
+        }
+        StringBuilder prefix = new StringBuilder(LARGE_OBJECT_PREFIX);
+        Murmur3.Hasher hasher = new Murmur3.Hasher(TEXT_SEED);
+        try (Reader in = value.openText()) {
+            int n;
+            while ((n = in.read(chunk)) > 0) {
+                if (prefix.length() < LARGE_OBJECT_PREFIX) {
+                    prefix.append(chunk, 0, Math.min(n, LARGE_OBJECT_PREFIX - prefix.length()));
+                }
+                for (int i = 0; i < n; i++) {
+                    scratch[2 * i] = (byte) (chunk[i] >>> 8);
+                    scratch[2 * i + 1] = (byte) chunk[i];
+                }
+                hasher.update(scratch, 0, n * 2);
+            }
+        }
+        count++;
+        updateTextRange(prefix);
+        hasher.finish(hash);
+        distinct.add(hash[0]);
+        return scratch;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public long getNullCount() {
+        return nullCount;
+    }
+
+    /**
+     * Estimates the number of distinct non-null values
+     *
+     * @return the estimate
+     */
+    public long getDistinctEstimate() {
+        return count == 0 ? 0 : distinct.estimate();
+    }
+
+    /**
+     * Gets the smallest value as text
+     *
+     * @return the minimum, or null if the column had no non-null value
+     */
+    public String getMin() {
+        if (count == 0) {
+            return null;
+        }
+        return integral ? String.valueOf(longMin) : floatingPoint ? String.valueOf(doubleMin) : textMin;
+    }
+
+    /**
+     * Gets the largest value as text
+     *
+     * @return the maximum, or null if the column had no non-null value
+     */
+    public String getMax() {
+        if (count == 0) {
+            return null;
+        }
+        return integral ? String.valueOf(longMax) : floatingPoint ? String.valueOf(doubleMax) : textMax;
+    }
+
+    /**
+     * Gets the sum of a numeric column as text; an integral sum that overflows {@code long} is
+     * continued in floating point
+     *
+     * @return the sum, or null for text columns
+     */
+    public String getSum() {
+        if (integral) {
+            return longSumOverflow ? String.valueOf(doubleSum) : String.valueOf(longSum);
+        }
+        return floatingPoint ? String.valueOf(doubleSum) : null;
+    }
+
+    /**
+     * Renders the statistics as one summary line
+     *
+     * @param out the buffer to append to
+     */
+    public void appendSummary(StringBuilder out) {
+        out.append("Column: ").append(name);
+        out.append(", type: ").append(integral ? "integral" : floatingPoint ? "floating" : "text");
+        out.append(", count: ").append(count);
+        out.append(", nulls: ").append(nullCount);
+        out.append(", distinct: ~").append(getDistinctEstimate());
+        out.append(", min: ").append(getMin());
+        out.append(", max: ").append(getMax());
+        if (integral || floatingPoint) {
+            out.append(", sum: ").append(getSum());
+        }
+    }
+
+    private void updateTextRange(CharSequence value) {
+        if (textMin == null || compare(value, textMin) < 0) {
+            textMin = value.toString();
+        }
+        if (textMax == null || compare(value, textMax) > 0) {
+            textMax = value.toString();
+        }
+    }
+
+    private static int compare(CharSequence a, String b) {
+        int length = Math.min(a.length(), b.length());
+        for (int i = 0; i < length; i++) {
+            int diff = a.charAt(i) - b.charAt(i);
+            if (diff != 0) {
+                return diff;
+            }
+        }
+        return a.length() - b.length();
+    }
+}
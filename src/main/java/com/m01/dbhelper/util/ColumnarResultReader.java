@@ -0,0 +1,544 @@
+package com.m01.dbhelper.util;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+/**
+ * Reads files written by {@link ColumnarResultWriter}.
+ * <p>
+ * Opening a file reads only its footer; {@link #readColumn(int, int)} then reads and decodes the
+ * chunk of one column in one row group, so a projection of a few columns reads only their
+ * bytes. The footer statistics allow skipping row groups without reading any chunk.
+ * <p>
+ * Run as a program to print a file as CSV-like lines, optionally restricted to some columns:
+ * <pre>
+ * ColumnarResultReader &lt;file&gt; [column,column...]
+ * ColumnarResultReader &lt;file&gt; footer
+ * </pre>
+ */
+public class ColumnarResultReader implements Closeable {
+    private final FileChannel channel;
+    private final String[] names;
+    private final int[] sqlTypes;
+    private final byte[] types;
+    private final long rowCount;
+    private final int[] groupRows;
+    private final ChunkInfo[][] chunks;
+    private final Inflater inflater = new Inflater();
+    private long bytesRead;
+
+    /**
+     * Opens a file and reads its footer
+     *
+     * @param file the columnar file
+     * @throws IOException if the file cannot be read or is not a columnar result file
+     */
+    public ColumnarResultReader(Path file) throws IOException {
+        this.channel = FileChannel.open(file, StandardOpenOption.READ);
+        try {
+            long size = channel.size();
+            if (size < 20) {
+                throw new IOException("Not a columnar result file: " + file);
+            }
+            ByteBuffer header = read(0, 8);
+            ByteBuffer trailer = read(size - 12, 12);
+            long footerOffset = trailer.getLong();
+            if (header.getInt() != ColumnarResultWriter.MAGIC || trailer.getInt() != ColumnarResultWriter.FOOTER_MAGIC
+                    || footerOffset < 8 || footerOffset > size - 12) {
+                throw new IOException("Not a columnar result file: " + file);
+            }
+            int version = header.getInt();
+            // 版本 1 的文件没有单精度列，按同样的方式读取
+            if (version < 1 || version > ColumnarResultWriter.VERSION) {
+                throw new IOException("Unsupported columnar result file version " + version + ": " + file);
+            }
+            ByteBuffer footer = read(footerOffset, (int) (size - 12 - footerOffset));
+            int columnCount = (int) readVarint(footer);
+            this.names = new String[columnCount];
+            this.sqlTypes = new int[columnCount];
+            this.types = new byte[columnCount];
+            for (int i = 0; i < columnCount; i++) {
+                names[i] = readString(footer);
+                sqlTypes[i] = (int) readVarint(footer);
+                types[i] = footer.get();
+            }
+            int groupCount = (int) readVarint(footer);
+            this.rowCount = readVarint(footer);
+            this.groupRows = new int[groupCount];
+            this.chunks = new ChunkInfo[groupCount][columnCount];
+            for (int g = 0; g < groupCount; g++) {
+                groupRows[g] = (int) readVarint(footer);
+                for (int c = 0; c < columnCount; c++) {
+                    chunks[g][c] = readChunkInfo(footer, types[c]);
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e instanceof IOException ? (IOException) e : new IOException("Corrupt columnar result file: " + file, e);
+        }
+    }
+
+    public int getColumnCount() {
+        return names.length;
+    }
+
+    /**
+     * Gets the name of a column
+     *
+     * @param column the 0-based column index
+     * @return the column label written by the query
+     */
+    public String getColumnName(int column) {
+        return names[column];
+    }
+
+    /**
+     * Gets the SQL type of a column
+     *
+     * @param column the 0-based column index
+     * @return the type from {@link java.sql.Types}
+     */
+    public int getColumnType(int column) {
+        return sqlTypes[column];
+    }
+
+    /**
+     * Finds a column by name, ignoring case
+     *
+     * @param name the column name
+     * @return the 0-based column index, or -1 if there is no such column
+     */
+    public int getColumnIndex(String name) {
+        for (int i = 0; i < names.length; i++) {
+            if (names[i].equalsIgnoreCase(name)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    public long getRowCount() {
+        return rowCount;
+    }
+
+    public int getRowGroupCount() {
+        return groupRows.length;
+    }
+
+    /**
+     * Gets the number of rows of a row group
+     *
+     * @param group the 0-based row group
+     * @return the row count
+     */
+    public int getRowGroupRows(int group) {
+        return groupRows[group];
+    }
+
+    /**
+     * Gets the number of SQL NULL cells of a column in a row group
+     *
+     * @param group  the 0-based row group
+     * @param column the 0-based column index
+     * @return the null count
+     */
+    public int getNullCount(int group, int column) {
+        return chunks[group][column].nullCount;
+    }
+
+    /**
+     * Gets the smallest value of a column in a row group
+     *
+     * @param group  the 0-based row group
+     * @param column the 0-based column index
+     * @return the minimum as text, or null if the group has no non-null value or the value was
+     * too long to keep in the footer
+     */
+    public String getMin(int group, int column) {
+        return chunks[group][column].min;
+    }
+
+    /**
+     * Gets the largest value of a column in a row group
+     *
+     * @param group  the 0-based row group
+     * @param column the 0-based column index
+     * @return the maximum as text, or null if the group has no non-null value or the value was
+     * too long to keep in the footer
+     */
+    public String getMax(int group, int column) {
+        return chunks[group][column].max;
+    }
+
+    /**
+     * Gets the number of chunk bytes read so far, not counting the footer
+     *
+     * @return the byte count
+     */
+    public long getBytesRead() {
+        return bytesRead;
+    }
+
+    /**
+     * Reads and decodes one column of one row group
+     *
+     * @param group  the 0-based row group
+     * @param column the 0-based column index
+     * @return the column values
+     * @throws IOException if the chunk cannot be read or is corrupt
+     */
+    public ColumnVector readColumn(int group, int column) throws IOException {
+        ChunkInfo info = chunks[group][column];
+        ByteBuffer compressed = read(info.offset, info.length);
+        bytesRead += info.length;
+        byte[] raw = new byte[info.rawLength];
+        inflater.reset();
+        inflater.setInput(compressed.array(), 0, info.length);
+        try {
+            int length = 0;
+            while (length < raw.length) {
+                int n = inflater.inflate(raw, length, raw.length - length);
+                if (n == 0 && (inflater.finished() || inflater.needsInput())) {
+                    break;
+                }
+                length += n;
+            }
+            if (length != raw.length) {
+                throw new IOException("Truncated column chunk: group " + group + ", column " + names[column]);
+            }
+        } catch (DataFormatException e) {
+            throw new IOException("Corrupt column chunk: group " + group + ", column " + names[column], e);
+        }
+        return decode(ByteBuffer.wrap(raw), types[column], groupRows[group]);
+    }
+
+    @Override
+    public void close() throws IOException {
+        inflater.end();
+        channel.close();
+    }
+
+    /**
+     * The decoded values of one column in one row group
+     */
+    public static final class ColumnVector {
+        private final byte type;
+        private final boolean[] nulls;
+        private final long[] longs;
+        private final double[] doubles;
+        private final String[] strings;
+
+        private ColumnVector(byte type, boolean[] nulls, long[] longs, double[] doubles, String[] strings) {
+            this.type = type;
+            this.nulls = nulls;
+            this.longs = longs;
+            this.doubles = doubles;
+            this.strings = strings;
+        }
+
+        public int size() {
+            return nulls.length;
+        }
+
+        public boolean isIntegral() {
+            return type == ColumnarResultWriter.TYPE_LONG;
+        }
+
+        public boolean isFloatingPoint() {
+            return type == ColumnarResultWriter.TYPE_DOUBLE || type == ColumnarResultWriter.TYPE_FLOAT;
+        }
+
+        public boolean isSinglePrecision() {
+            return type == ColumnarResultWriter.TYPE_FLOAT;
+        }
+
+        public boolean isNull(int row) {
+            return nulls[row];
+        }
+
+        /**
+         * Gets the value of an integral column
+         *
+         * @param row the 0-based row inside the row group
+         * @return the value, 0 for SQL NULL
+         */
+        public long getLong(int row) {
+            return longs[row];
+        }
+
+        /**
+         * Gets the value of a floating point column
+         *
+         * @param row the 0-based row inside the row group
+         * @return the value, 0 for SQL NULL
+         */
+        public double getDouble(int row) {
+            return doubles[row];
+        }
+
+        /**
+         * Gets the text of a cell, as the result file would show it
+         *
+         * @param row the 0-based row inside the row group
+         * @return the text, or null for SQL NULL
+         */
+        public String getString(int row) {
+            if (nulls[row]) {
+                return null;
+            }
+            switch (type) {
+                case ColumnarResultWriter.TYPE_LONG:
+                    return String.valueOf(longs[row]);
+                case ColumnarResultWriter.TYPE_DOUBLE:
+                    return String.valueOf(doubles[row]);
+                case ColumnarResultWriter.TYPE_FLOAT:
+                    return String.valueOf((float) doubles[row]);
+                default:
+                    return strings[row];
+            }
+        }
+    }
+
+    private static ColumnVector decode(ByteBuffer raw, byte type, int rows) throws IOException {
+        boolean[] nulls = new boolean[rows];
+        int nullCount = (int) readVarint(raw);
+        if (nullCount > 0) {
+            int bits = 0;
+            for (int r = 0; r < rows; r++) {
+                if ((r & 7) == 0) {
+                    bits = raw.get();
+                }
+                nulls[r] = (bits & (1 << (r & 7))) != 0;
+            }
+        }
+        byte encoding = raw.get();
+        switch (type) {
+            case ColumnarResultWriter.TYPE_LONG: {
+                long[] values = new long[rows];
+                if (encoding == ColumnarResultWriter.ENCODING_RLE) {
+                    long value = 0;
+                    long run = 0;
+                    for (int r = 0; r < rows; r++) {
+                        if (nulls[r]) {
+                            continue;
+                        }
+                        if (run == 0) {
+                            value = unzigzag(readVarint(raw));
+                            run = readVarint(raw);
+                        }
+                        values[r] = value;
+                        run--;
+                    }
+                } else {
+                    checkEncoding(encoding, ColumnarResultWriter.ENCODING_DELTA);
+                    long previous = 0;
+                    for (int r = 0; r < rows; r++) {
+                        if (!nulls[r]) {
+                            previous += unzigzag(readVarint(raw));
+                            values[r] = previous;
+                        }
+                    }
+                }
+                return new ColumnVector(type, nulls, values, null, null);
+            }
+            case ColumnarResultWriter.TYPE_DOUBLE:
+            case ColumnarResultWriter.TYPE_FLOAT: {
+                checkEncoding(encoding, ColumnarResultWriter.ENCODING_PLAIN);
+                double[] values = new double[rows];
+                for (int r = 0; r < rows; r++) {
+                    if (!nulls[r]) {
+                        values[r] = type == ColumnarResultWriter.TYPE_FLOAT ? Float.intBitsToFloat(raw.getInt())
+                                : Double.longBitsToDouble(raw.getLong());
+                    }
+                }
+                return new ColumnVector(type, nulls, null, values, null);
+            }
+            default: {
+                String[] values = new String[rows];
+                if (encoding == ColumnarResultWriter.ENCODING_DICTIONARY) {
+                    String[] dictionary = new String[(int) readVarint(raw)];
+                    for (int i = 0; i < dictionary.length; i++) {
+                        dictionary[i] = readString(raw);
+                    }
+                    String value = null;
+                    long run = 0;
+                    for (int r = 0; r < rows; r++) {
+                        if (nulls[r]) {
+                            continue;
+                        }
+                        if (run == 0) {
+                            value = dictionary[(int) readVarint(raw)];
+                            run = readVarint(raw);
+                        }
+                        values[r] = value;
+                        run--;
+                    }
+                } else {
+                    checkEncoding(encoding, ColumnarResultWriter.ENCODING_PLAIN);
+                    for (int r = 0; r < rows; r++) {
+                        if (!nulls[r]) {
+                            values[r] = readString(raw);
+                        }
+                    }
+                }
+                return new ColumnVector(type, nulls, null, null, values);
+            }
+        }
+    }
+
+    private static void checkEncoding(byte encoding, byte expected) throws IOException {
+        if (encoding != expected) {
+            throw new IOException("Unknown column encoding: " + encoding);
+        }
+    }
+
+    private static ChunkInfo readChunkInfo(ByteBuffer footer, byte type) {
+        ChunkInfo info = new ChunkInfo();
+        info.nullCount = (int) readVarint(footer);
+        if (footer.get() != 0) {
+            switch (type) {
+                case ColumnarResultWriter.TYPE_LONG:
+                    info.min = String.valueOf(footer.getLong());
+                    info.max = String.valueOf(footer.getLong());
+                    break;
+                case ColumnarResultWriter.TYPE_DOUBLE:
+                    info.min = String.valueOf(Double.longBitsToDouble(footer.getLong()));
+                    info.max = String.valueOf(Double.longBitsToDouble(footer.getLong()));
+                    break;
+                case ColumnarResultWriter.TYPE_FLOAT:
+                    info.min = String.valueOf(Float.intBitsToFloat(footer.getInt()));
+                    info.max = String.valueOf(Float.intBitsToFloat(footer.getInt()));
+                    break;
+                default:
+                    info.min = readString(footer);
+                    info.max = readString(footer);
+                    break;
+            }
+        }
+        info.offset = readVarint(footer);
+        info.length = (int) readVarint(footer);
+        info.rawLength = (int) readVarint(footer);
+        return info;
+    }
+
+    private ByteBuffer read(long position, int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new IOException("Unexpected end of columnar result file");
+            }
+        }
+        buffer.flip();
+        return buffer;
+    }
+
+    private static long readVarint(ByteBuffer buffer) {
+        long value = 0;
+        for (int shift = 0; ; shift += 7) {
+            byte b = buffer.get();
+            value |= (long) (b & 0x7F) << shift;
+            if (b >= 0) {
+                return value;
+            }
+        }
+    }
+
+    private static String readString(ByteBuffer buffer) {
+        int length = (int) readVarint(buffer);
+        String value = new String(buffer.array(), buffer.arrayOffset() + buffer.position(), length, StandardCharsets.UTF_8);
+        buffer.position(buffer.position() + length);
+        return value;
+    }
+
+    private static long unzigzag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    private static final class ChunkInfo {
+        long offset;
+        int length;
+        int rawLength;
+        int nullCount;
+        String min;
+        String max;
+    }
+
+    /**
+     * Prints a columnar result file, see the class documentation for the arguments
+     *
+     * @param args the file and an optional column list or {@code footer}
+     * @throws IOException if the file cannot be read
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1 || args.length > 2) {
+            System.err.println("Usage: ColumnarResultReader <file> [column,column...|footer]");
+            System.exit(2);
+        }
+        Writer out = new BufferedWriter(new OutputStreamWriter(System.out, Charset.defaultCharset()), 64 * 1024);
+        try (ColumnarResultReader reader = new ColumnarResultReader(Paths.get(args[0]))) {
+            if (args.length == 2 && "footer".equals(args[1])) {
+                out.write("Rows: " + reader.getRowCount() + ", row groups: " + reader.getRowGroupCount() + "\n");
+                for (int g = 0; g < reader.getRowGroupCount(); g++) {
+                    for (int c = 0; c < reader.getColumnCount(); c++) {
+                        out.write("Group " + g + " - " + reader.getColumnName(c) + ": rows: " + reader.getRowGroupRows(g)
+                                + ", nulls: " + reader.getNullCount(g, c) + ", min: " + reader.getMin(g, c)
+                                + ", max: " + reader.getMax(g, c) + "\n");
+                    }
+                }
+            } else {
+                int[] projection = projection(reader, args.length == 2 ? args[1] : null);
+                StringBuilder line = new StringBuilder(256);
+                for (int c = 0; c < projection.length; c++) {
+                    line.append(c > 0 ? ", " : "").append(reader.getColumnName(projection[c]));
+                }
+                out.append(line).append('\n');
+                ColumnVector[] vectors = new ColumnVector[projection.length];
+                for (int g = 0; g < reader.getRowGroupCount(); g++) {
+                    for (int c = 0; c < projection.length; c++) {
+                        vectors[c] = reader.readColumn(g, projection[c]);
+                    }
+                    for (int r = 0; r < reader.getRowGroupRows(g); r++) {
+                        line.setLength(0);
+                        for (int c = 0; c < vectors.length; c++) {
+                            line.append(c > 0 ? ", " : "").append(vectors[c].getString(r));
+                        }
+                        out.append(line).append('\n');
+                    }
+                }
+            }
+        }
+        out.flush();
+    }
+
+    private static int[] projection(ColumnarResultReader reader, String columns) {
+        if (columns == null) {
+            int[] all = new int[reader.getColumnCount()];
+            for (int i = 0; i < all.length; i++) {
+                all[i] = i;
+            }
+            return all;
+        }
+        String[] names = columns.split(",");
+        int[] projection = new int[names.length];
+        for (int i = 0; i < names.length; i++) {
+            projection[i] = reader.getColumnIndex(names[i].trim());
+            if (projection[i] < 0) {
+                System.err.println("Unknown column: " + names[i].trim());
+                System.exit(1);
+            }
+        }
+        return projection;
+    }
+}
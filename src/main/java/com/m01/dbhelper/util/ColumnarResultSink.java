@@ -0,0 +1,57 @@
+package com.m01.dbhelper.util;
+
+import com.m01.dbhelper.common.ExportFormat;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * The {@code columnar} sink: writes the rows into one {@link ColumnarResultWriter} file per
+ * statement in the task's exportPath (the working directory if unset)
+ */
+public class ColumnarResultSink implements ResultSink {
+    private static final Logger logger = Logger.getLogger(ColumnarResultSink.class.getName());
+
+    private ResultLogger resultLogger;
+    private Path exportFile;
+    private ColumnarResultWriter writer;
+
+    @Override
+    public String getName() {
+        return "columnar";
+    }
+
+    @Override
+    public void start(ResultSinkContext context, ResultColumns columns) throws IOException {
+        resultLogger = context.getResultLogger();
+        String exportPath = context.getTask().getExportPath() != null ? context.getTask().getExportPath() : ".";
+        exportFile = QueryResultExporter.exportFile(Paths.get(exportPath), context.getScheduleName(), context.getTaskName(),
+                context.getStatementIndex(), ExportFormat.COLUMNAR);
+        writer = new ColumnarResultWriter(columns, exportFile);
+    }
+
+    @Override
+    public void accept(RowBatch batch) throws IOException {
+        writer.writeRows(batch);
+    }
+
+    @Override
+    public void finish(long rowCount) throws IOException {
+        writer.close();
+        resultLogger.log("Query Results - Exported " + rowCount + " rows to " + exportFile);
+    }
+
+    @Override
+    public void abort() {
+        if (writer != null) {
+            try {
+                writer.close();
+            } catch (IOException e) {
+                logger.log(Level.WARNING, "Failed to close columnar file: " + exportFile, e);
+            }
+        }
+    }
+}
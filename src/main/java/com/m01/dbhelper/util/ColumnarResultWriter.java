@@ -0,0 +1,582 @@
+package com.m01.dbhelper.util;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.zip.Deflater;
+
+/**
+ * Writes SELECT results into a self-describing columnar file.
+ * <p>
+ * Rows are buffered in row groups of primitive column vectors: {@code long} and {@code double}
+ * arrays for integral and floating point columns, with single precision columns widened to
+ * {@code double}, and one character array with end offsets for
+ * all other columns, which are stored as their rendered text. When a row group is full every
+ * column is encoded into its own chunk and deflated:
+ * <ul>
+ *     <li>integral columns as run-length pairs when runs are long, otherwise as zigzag varint deltas</li>
+ *     <li>floating point columns as raw 8-byte values, single precision columns as raw 4-byte values</li>
+ *     <li>text columns through a dictionary with run-length encoded codes when values repeat,
+ *     otherwise as length-prefixed UTF-8</li>
+ * </ul>
+ * Null cells are kept in a bitmap in front of the non-null values. A large object kept in a
+ * {@link LobFile} is stored the way the result file shows it: its preview followed by the size and
+ * path of a side file, which is copied next to the columnar file unless it already is a side file
+ * in the task's lobPath.
+ * <p>
+ * The file starts with {@link #MAGIC} and a version, followed by the chunks. The footer holds
+ * the column names and types, the row group and row counts, and for every row group its row
+ * count and, per column, the null count, minimum, maximum and the chunk position and sizes. The
+ * file ends with the footer offset and {@link #FOOTER_MAGIC}, so {@link ColumnarResultReader} can
+ * read the footer first and then only the chunks of the projected columns.
+ */
+public class ColumnarResultWriter implements Closeable {
+    static final int MAGIC = 0x44424331; // "DBC1"
+    static final int FOOTER_MAGIC = 0x44424346; // "DBCF"
+    static final int VERSION = 2;
+    static final int DEFAULT_ROW_GROUP_ROWS = 65536;
+
+    static final byte TYPE_LONG = 0;
+    static final byte TYPE_DOUBLE = 1;
+    static final byte TYPE_TEXT = 2;
+    // 版本 2 新增
+    static final byte TYPE_FLOAT = 3;
+
+    static final byte ENCODING_DELTA = 0;
+    static final byte ENCODING_RLE = 1;
+    static final byte ENCODING_PLAIN = 2;
+    static final byte ENCODING_DICTIONARY = 3;
+
+    // 页脚只保存不超过该长度的文本最小值和最大值
+    static final int MAX_STATISTICS_LENGTH = 256;
+
+    private final FileChannel channel;
+    private final Path lobDirectory;
+    private final String lobPrefix;
+    private int lobCount;
+    private final int rowGroupRows;
+    private final String[] names;
+    private final int[] sqlTypes;
+    private final byte[] types;
+    private final long[][] longs;
+    private final double[][] doubles;
+    private final char[][] chars;
+    private final int[][] ends;
+    private final boolean[][] nulls;
+    private final StringBuilder cell = new StringBuilder(64);
+    private final Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION);
+    private final Chunk raw = new Chunk();
+    private final Chunk footer = new Chunk();
+    private byte[] compressed = new byte[64 * 1024];
+    private int rowCount;
+    private int rowGroupCount;
+    private long totalRows;
+    private boolean closed;
+
+    /**
+     * Creates the file, replacing any existing content
+     *
+     * @param columns the column layout of the result
+     * @param file    the target file
+     * @throws IOException if the file cannot be written
+     */
+    public ColumnarResultWriter(ResultColumns columns, Path file) throws IOException {
+        this(columns, file, DEFAULT_ROW_GROUP_ROWS);
+    }
+
+    /**
+     * Creates the file, replacing any existing content
+     *
+     * @param columns      the column layout of the result
+     * @param file         the target file
+     * @param rowGroupRows the maximum number of rows of a row group
+     * @throws IOException if the file cannot be written
+     */
+    public ColumnarResultWriter(ResultColumns columns, Path file, int rowGroupRows) throws IOException {
+        if (rowGroupRows <= 0) {
+            throw new IllegalArgumentException("Row group size must be positive: " + rowGroupRows);
+        }
+        Path parent = file.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        String fileName = file.getFileName().toString();
+        int extension = fileName.lastIndexOf('.');
+        this.lobDirectory = parent;
+        this.lobPrefix = (extension > 0 ? fileName.substring(0, extension) : fileName) + "-lob-";
+        int columnCount = columns.getColumnCount();
+        this.rowGroupRows = rowGroupRows;
+        this.names = new String[columnCount];
+        this.sqlTypes = new int[columnCount];
+        this.types = new byte[columnCount];
+        this.longs = new long[columnCount][];
+        this.doubles = new double[columnCount][];
+        this.chars = new char[columnCount][];
+        this.ends = new int[columnCount][];
+        this.nulls = new boolean[columnCount][rowGroupRows];
+        for (int i = 0; i < columnCount; i++) {
+            names[i] = columns.getColumnLabel(i + 1);
+            sqlTypes[i] = columns.getColumnType(i + 1);
+            if (columns.isIntegral(i + 1)) {
+                types[i] = TYPE_LONG;
+                longs[i] = new long[rowGroupRows];
+            } else if (columns.isFloatingPoint(i + 1)) {
+                types[i] = columns.isSinglePrecision(i + 1) ? TYPE_FLOAT : TYPE_DOUBLE;
+                doubles[i] = new double[rowGroupRows];
+            } else {
+                types[i] = TYPE_TEXT;
+                chars[i] = new char[1024];
+                ends[i] = new int[rowGroupRows];
+            }
+        }
+        this.channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+        ByteBuffer header = ByteBuffer.allocate(8);
+        header.putInt(MAGIC).putInt(VERSION).flip();
+        writeFully(header);
+    }
+
+    /**
+     * Streams all rows of the result set into the given file, replacing any existing content
+     *
+     * @param resultSet the result set to export, positioned before the first row
+     * @param file      the target file
+     * @return the number of rows written
+     * @throws SQLException if reading the result set fails
+     * @throws IOException  if writing the file fails
+     */
+    public static long export(ResultSet resultSet, Path file) throws SQLException, IOException {
+        ResultColumns columns = new ResultColumns(resultSet.getMetaData());
+        RowFormatter formatter = new RowFormatter(resultSet.getMetaData(), new LobHandler(), true);
+        RowBatch batch = new RowBatch(columns.getColumnCount(), ResultPipeline.BATCH_ROWS);
+        long rowCount = 0;
+        try (ColumnarResultWriter writer = new ColumnarResultWriter(columns, file)) {
+            int rows;
+            while ((rows = batch.fill(resultSet, formatter, rowCount + 1)) > 0) {
+                writer.writeRows(batch);
+                rowCount += rows;
+            }
+        } finally {
+            batch.releaseLargeObjects();
+        }
+        return rowCount;
+    }
+
+    /**
+     * Appends all rows of a batch, writing a row group whenever one is full
+     *
+     * @param batch the rows
+     * @throws IOException if writing the file fails
+     */
+    public void writeRows(RowBatch batch) throws IOException {
+        for (int r = 0; r < batch.getRowCount(); r++) {
+            for (int c = 0; c < names.length; c++) {
+                boolean isNull = batch.isNull(r, c + 1);
+                nulls[c][rowCount] = isNull;
+                switch (types[c]) {
+                    case TYPE_LONG:
+                        longs[c][rowCount] = isNull ? 0 : batch.getLong(r, c + 1);
+                        break;
+                    case TYPE_DOUBLE:
+                    case TYPE_FLOAT:
+                        doubles[c][rowCount] = isNull ? 0 : batch.getDouble(r, c + 1);
+                        break;
+                    default:
+                        appendText(c, batch, r);
+                        break;
+                }
+            }
+            if (++rowCount == rowGroupRows) {
+                flushRowGroup();
+            }
+        }
+    }
+
+    /**
+     * Writes the last row group and the footer, and closes the file
+     *
+     * @throws IOException if writing the file fails
+     */
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try {
+            if (rowCount > 0) {
+                flushRowGroup();
+            }
+            long footerOffset = channel.position();
+            Chunk schema = new Chunk();
+            schema.writeVarint(names.length);
+            for (int i = 0; i < names.length; i++) {
+                schema.writeString(names[i]);
+                schema.writeVarint(sqlTypes[i]);
+                schema.write(types[i]);
+            }
+            schema.writeVarint(rowGroupCount);
+            schema.writeVarint(totalRows);
+            writeFully(ByteBuffer.wrap(schema.bytes(), 0, schema.size()));
+            writeFully(ByteBuffer.wrap(footer.bytes(), 0, footer.size()));
+            ByteBuffer end = ByteBuffer.allocate(12);
+            end.putLong(footerOffset).putInt(FOOTER_MAGIC).flip();
+            writeFully(end);
+        } finally {
+            deflater.end();
+            channel.close();
+        }
+    }
+
+    private void appendText(int column, RowBatch batch, int row) throws IOException {
+        int start = rowCount == 0 ? 0 : ends[column][rowCount - 1];
+        LobFile largeObject = batch.getLargeObject(row, column + 1);
+        cell.setLength(0);
+        if (largeObject != null) {
+            if (largeObject.isTemporary()) {
+                largeObject = largeObject.copyTo(lobDirectory.resolve(lobPrefix + (++lobCount)
+                        + (largeObject.isBinary() ? ".bin" : ".txt")));
+            }
+            batch.appendPrefix(row, column + 1, cell);
+            largeObject.appendReference(cell);
+        } else {
+            batch.appendCell(row, column + 1, cell);
+        }
+        int length = cell.length();
+        if (start + length > chars[column].length) {
+            char[] grown = new char[Math.max(chars[column].length * 2, start + length)];
+            System.arraycopy(chars[column], 0, grown, 0, start);
+            chars[column] = grown;
+        }
+        cell.getChars(0, length, chars[column], start);
+        ends[column][rowCount] = start + length;
+    }
+
+    private void flushRowGroup() throws IOException {
+        footer.writeVarint(rowCount);
+        for (int c = 0; c < names.length; c++) {
+            raw.reset();
+            int nullCount = 0;
+            for (int r = 0; r < rowCount; r++) {
+                if (nulls[c][r]) {
+                    nullCount++;
+                }
+            }
+            raw.writeVarint(nullCount);
+            if (nullCount > 0) {
+                writeNullBitmap(nulls[c]);
+            }
+            footer.writeVarint(nullCount);
+            switch (types[c]) {
+                case TYPE_LONG:
+                    encodeLongs(c);
+                    break;
+                case TYPE_DOUBLE:
+                case TYPE_FLOAT:
+                    encodeDoubles(c);
+                    break;
+                default:
+                    encodeText(c);
+                    break;
+            }
+            long offset = channel.position();
+            int length = deflate();
+            writeFully(ByteBuffer.wrap(compressed, 0, length));
+            footer.writeVarint(offset);
+            footer.writeVarint(length);
+            footer.writeVarint(raw.size());
+        }
+        rowGroupCount++;
+        totalRows += rowCount;
+        rowCount = 0;
+    }
+
+    private void writeNullBitmap(boolean[] columnNulls) {
+        int bits = 0;
+        for (int r = 0; r < rowCount; r++) {
+            if (columnNulls[r]) {
+                bits |= 1 << (r & 7);
+            }
+            if ((r & 7) == 7 || r == rowCount - 1) {
+                raw.write(bits);
+                bits = 0;
+            }
+        }
+    }
+
+    private void encodeLongs(int column) {
+        long[] values = longs[column];
+        boolean[] columnNulls = nulls[column];
+        long min = Long.MAX_VALUE;
+        long max = Long.MIN_VALUE;
+        int count = 0;
+        int runs = 0;
+        long previous = 0;
+        for (int r = 0; r < rowCount; r++) {
+            if (columnNulls[r]) {
+                continue;
+            }
+            long value = values[r];
+            min = Math.min(min, value);
+            max = Math.max(max, value);
+            if (count == 0 || value != previous) {
+                runs++;
+            }
+            previous = value;
+            count++;
+        }
+        writeLongStatistics(count, min, max);
+        // 平均每段至少 4 个相同值时，游程编码更小
+        if (runs * 4 <= count) {
+            raw.write(ENCODING_RLE);
+            int run = 0;
+            for (int r = 0; r < rowCount; r++) {
+                if (columnNulls[r]) {
+                    continue;
+                }
+                if (run > 0 && values[r] != previous) {
+                    raw.writeVarint(zigzag(previous));
+                    raw.writeVarint(run);
+                    run = 0;
+                }
+                previous = values[r];
+                run++;
+            }
+            if (run > 0) {
+                raw.writeVarint(zigzag(previous));
+                raw.writeVarint(run);
+            }
+        } else {
+            raw.write(ENCODING_DELTA);
+            previous = 0;
+            for (int r = 0; r < rowCount; r++) {
+                if (!columnNulls[r]) {
+                    raw.writeVarint(zigzag(values[r] - previous));
+                    previous = values[r];
+                }
+            }
+        }
+    }
+
+    private void encodeDoubles(int column) {
+        double[] values = doubles[column];
+        boolean[] columnNulls = nulls[column];
+        double min = Double.POSITIVE_INFINITY;
+        double max = Double.NEGATIVE_INFINITY;
+        int count = 0;
+        for (int r = 0; r < rowCount; r++) {
+            if (!columnNulls[r]) {
+                min = Math.min(min, values[r]);
+                max = Math.max(max, values[r]);
+                count++;
+            }
+        }
+        boolean single = types[column] == TYPE_FLOAT;
+        if (count == 0) {
+            footer.write(0);
+        } else {
+            footer.write(1);
+            writeDouble(footer, min, single);
+            writeDouble(footer, max, single);
+        }
+        raw.write(ENCODING_PLAIN);
+        for (int r = 0; r < rowCount; r++) {
+            if (!columnNulls[r]) {
+                writeDouble(raw, values[r], single);
+            }
+        }
+    }
+
+    private void encodeText(int column) {
+        char[] text = chars[column];
+        int[] columnEnds = ends[column];
+        boolean[] columnNulls = nulls[column];
+        int count = 0;
+        int minRow = -1;
+        int maxRow = -1;
+        for (int r = 0; r < rowCount; r++) {
+            if (columnNulls[r]) {
+                continue;
+            }
+            if (minRow < 0 || compare(text, columnEnds, r, minRow) < 0) {
+                minRow = r;
+            }
+            if (maxRow < 0 || compare(text, columnEnds, r, maxRow) > 0) {
+                maxRow = r;
+            }
+            count++;
+        }
+        if (count == 0 || length(columnEnds, minRow) > MAX_STATISTICS_LENGTH
+                || length(columnEnds, maxRow) > MAX_STATISTICS_LENGTH) {
+            footer.write(0);
+        } else {
+            footer.write(1);
+            footer.writeString(text(text, columnEnds, minRow));
+            footer.writeString(text(text, columnEnds, maxRow));
+        }
+
+        // 不同值不超过非空值的一半时使用字典编码，超过上限后放弃字典
+        int dictionaryLimit = count / 2;
+        Map<String, Integer> dictionary = new HashMap<>();
+        int[] codes = new int[count];
+        int n = 0;
+        for (int r = 0; r < rowCount && dictionary.size() <= dictionaryLimit; r++) {
+            if (!columnNulls[r]) {
+                String value = text(text, columnEnds, r);
+                Integer code = dictionary.get(value);
+                if (code == null) {
+                    code = dictionary.size();
+                    dictionary.put(value, code);
+                }
+                codes[n++] = code;
+            }
+        }
+        if (count > 0 && dictionary.size() <= dictionaryLimit) {
+            raw.write(ENCODING_DICTIONARY);
+            String[] entries = new String[dictionary.size()];
+            for (Map.Entry<String, Integer> entry : dictionary.entrySet()) {
+                entries[entry.getValue()] = entry.getKey();
+            }
+            raw.writeVarint(entries.length);
+            for (String entry : entries) {
+                raw.writeString(entry);
+            }
+            int run = 0;
+            for (int i = 0; i < count; i++) {
+                if (run > 0 && codes[i] != codes[i - 1]) {
+                    raw.writeVarint(codes[i - 1]);
+                    raw.writeVarint(run);
+                    run = 0;
+                }
+                run++;
+            }
+            raw.writeVarint(codes[count - 1]);
+            raw.writeVarint(run);
+        } else {
+            raw.write(ENCODING_PLAIN);
+            for (int r = 0; r < rowCount; r++) {
+                if (!columnNulls[r]) {
+                    int start = r == 0 ? 0 : columnEnds[r - 1];
+                    raw.writeString(new String(text, start, columnEnds[r] - start));
+                }
+            }
+        }
+    }
+
+    private void writeLongStatistics(int count, long min, long max) {
+        if (count == 0) {
+            footer.write(0);
+        } else {
+            footer.write(1);
+            footer.writeLong(min);
+            footer.writeLong(max);
+        }
+    }
+
+    private static void writeDouble(Chunk chunk, double value, boolean single) {
+        if (single) {
+            chunk.writeInt(Float.floatToIntBits((float) value));
+        } else {
+            chunk.writeLong(Double.doubleToLongBits(value));
+        }
+    }
+
+    private int deflate() {
+        deflater.reset();
+        deflater.setInput(raw.bytes(), 0, raw.size());
+        deflater.finish();
+        int length = 0;
+        while (!deflater.finished()) {
+            if (length == compressed.length) {
+                byte[] grown = new byte[compressed.length * 2];
+                System.arraycopy(compressed, 0, grown, 0, length);
+                compressed = grown;
+            }
+            length += deflater.deflate(compressed, length, compressed.length - length);
+        }
+        return length;
+    }
+
+    private void writeFully(ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    private static int length(int[] ends, int row) {
+        return ends[row] - (row == 0 ? 0 : ends[row - 1]);
+    }
+
+    private static String text(char[] text, int[] ends, int row) {
+        int start = row == 0 ? 0 : ends[row - 1];
+        return new String(text, start, ends[row] - start);
+    }
+
+    private static int compare(char[] text, int[] ends, int a, int b) {
+        int aStart = a == 0 ? 0 : ends[a - 1];
+        int bStart = b == 0 ? 0 : ends[b - 1];
+        int aLength = ends[a] - aStart;
+        int bLength = ends[b] - bStart;
+        int length = Math.min(aLength, bLength);
+        for (int i = 0; i < length; i++) {
+            int diff = text[aStart + i] - text[bStart + i];
+            if (diff != 0) {
+                return diff;
+            }
+        }
+        return aLength - bLength;
+    }
+
+    private static long zigzag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    /**
+     * A growable byte buffer with the varint and string encodings of the format
+     */
+    static final class Chunk extends ByteArrayOutputStream {
+        Chunk() {
+            super(1024);
+        }
+
+        byte[] bytes() {
+            return buf;
+        }
+
+        void writeVarint(long value) {
+            while ((value & ~0x7FL) != 0) {
+                write((int) ((value & 0x7F) | 0x80));
+                value >>>= 7;
+            }
+            write((int) value);
+        }
+
+        void writeInt(int value) {
+            for (int shift = 24; shift >= 0; shift -= 8) {
+                write(value >>> shift);
+            }
+        }
+
+        void writeLong(long value) {
+            for (int shift = 56; shift >= 0; shift -= 8) {
+                write((int) (value >>> shift));
+            }
+        }
+
+        void writeString(String value) {
+            byte[] utf8 = value.getBytes(StandardCharsets.UTF_8);
+            writeVarint(utf8.length);
+            write(utf8, 0, utf8.length);
+        }
+    }
+}
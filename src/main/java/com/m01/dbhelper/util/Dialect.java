@@ -0,0 +1,96 @@
+package com.m01.dbhelper.util;
+
+import com.m01.dbhelper.common.DbType;
+import net.sf.jsqlparser.parser.CCJSqlParser;
+
+/**
+ * The rules of one database type for reading, validating and connecting.
+ * <p>
+ * Implementations are discovered with {@link java.util.ServiceLoader} from
+ * {@code META-INF/services/com.m01.dbhelper.util.Dialect} and looked up by {@link DbType} through
+ * {@link Dialects}; one instance serves all statements and threads, so implementations must be
+ * stateless. The default methods describe generic SQL: single and double quotes with backslash
+ * escapes, {@code --} and non-nesting block comments, no rewriting and default parser features.
+ */
+public interface Dialect {
+
+    /**
+     * Gets the database type this dialect describes
+     *
+     * @return the database type, or null for generic SQL
+     */
+    DbType getDbType();
+
+    /**
+     * Gets the JDBC driver class loaded before connecting
+     *
+     * @return the class name, or null if the driver registers itself
+     */
+    default String getDriverClass() {
+        return null;
+    }
+
+    /**
+     * Rewrites a statement into a form JSqlParser accepts; must run in one linear pass
+     *
+     * @param sql the trimmed statement
+     * @return the statement to parse
+     */
+    default String rewrite(String sql) {
+        return sql;
+    }
+
+    /**
+     * Sets the dialect's feature flags on a parser before it parses a statement
+     *
+     * @param parser the parser
+     */
+    default void configure(CCJSqlParser parser) {
+    }
+
+    /**
+     * Adjusts the fetch size of a streaming query to what the driver needs to stream
+     *
+     * @param fetchSize the configured fetch size, positive
+     * @param url       the JDBC URL of the connection
+     * @return the fetch size to set
+     */
+    default int streamingFetchSize(int fetchSize, String url) {
+        return fetchSize;
+    }
+
+    /** Whether a backslash escapes the next character of a string */
+    default boolean backslashEscapes() {
+        return true;
+    }
+
+    /** Whether backticks quote identifiers */
+    default boolean backtickQuotes() {
+        return false;
+    }
+
+    /** Whether square brackets quote identifiers */
+    default boolean bracketQuotes() {
+        return false;
+    }
+
+    /** Whether {@code #} starts a line comment */
+    default boolean hashComments() {
+        return false;
+    }
+
+    /** Whether {@code $tag$ ... $tag$} quotes strings */
+    default boolean dollarQuotes() {
+        return false;
+    }
+
+    /** Whether block comments nest */
+    default boolean nestedComments() {
+        return false;
+    }
+
+    /** Whether a script may change the statement terminator with the client's DELIMITER command */
+    default boolean delimiterCommand() {
+        return false;
+    }
+}
@@ -0,0 +1,45 @@
+package com.m01.dbhelper.util;
+
+import com.m01.dbhelper.common.DbType;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.ServiceLoader;
+
+/**
+ * Looks up the {@link Dialect} of a database type; the dialects are loaded once
+ */
+public final class Dialects {
+    private static final Dialect GENERIC = () -> null;
+    private static final Map<DbType, Dialect> DIALECTS = load();
+
+    private Dialects() {
+    }
+
+    /**
+     * Gets the dialect of a database type
+     *
+     * @param dbType the database type, or null for generic SQL
+     * @return the dialect
+     * @throws IllegalArgumentException if no dialect is registered for the database type
+     */
+    public static Dialect of(DbType dbType) {
+        if (dbType == null) {
+            return GENERIC;
+        }
+        Dialect dialect = DIALECTS.get(dbType);
+        if (dialect == null) {
+            throw new IllegalArgumentException("Unsupported database type: " + dbType);
+        }
+        return dialect;
+    }
+
+    private static Map<DbType, Dialect> load() {
+        Map<DbType, Dialect> dialects = new EnumMap<>(DbType.class);
+        for (Dialect dialect : ServiceLoader.load(Dialect.class, Dialect.class.getClassLoader())) {
+            // 先注册的方言优先，后加入类路径的实现不能替换内置方言
+            dialects.putIfAbsent(dialect.getDbType(), dialect);
+        }
+        return dialects;
+    }
+}
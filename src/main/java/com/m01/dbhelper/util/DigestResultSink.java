@@ -0,0 +1,42 @@
+package com.m01.dbhelper.util;
+
+import java.io.IOException;
+
+/**
+ * The {@code digest} sink: writes only the row-order sensitive {@link ResultDigest} and the row
+ * count to the result file
+ */
+public class DigestResultSink implements ResultSink {
+    private final boolean ordered;
+    private ResultLogger resultLogger;
+    private ResultDigest digest;
+
+    public DigestResultSink() {
+        this(true);
+    }
+
+    protected DigestResultSink(boolean ordered) {
+        this.ordered = ordered;
+    }
+
+    @Override
+    public String getName() {
+        return "digest";
+    }
+
+    @Override
+    public void start(ResultSinkContext context, ResultColumns columns) {
+        resultLogger = context.getResultLogger();
+        digest = new ResultDigest(ordered);
+    }
+
+    @Override
+    public void accept(RowBatch batch) throws IOException {
+        digest.add(batch);
+    }
+
+    @Override
+    public void finish(long rowCount) {
+        resultLogger.log(digest.toResultLine());
+    }
+}
@@ -0,0 +1,230 @@
+package com.m01.dbhelper.util;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.sql.SQLException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Machine-readable execution event stream, one JSON object per line.
+ * <p>
+ * Events are rendered on the calling thread and handed to an {@link AsyncResultWriter}, which
+ * writes them on its own thread. The executor only waits for file I/O when the writer's queue of
+ * pending events is full; emitting then blocks until the writer catches up, so no event is
+ * dropped and the stream stays complete for joining per statement.
+ * <p>
+ * Every event carries {@code ts} (epoch milliseconds), {@code event} and {@code schedule};
+ * durations are in microseconds.
+ */
+public class ExecutionEventLog implements Closeable {
+    private static final ExecutionEventLog DISABLED = new ExecutionEventLog();
+
+    private final AsyncResultWriter writer;
+
+    private ExecutionEventLog() {
+        this.writer = null;
+    }
+
+    /**
+     * Opens an event log that appends to the given file
+     *
+     * @param file the JSON Lines file
+     * @throws IOException if the file cannot be opened
+     */
+    public ExecutionEventLog(Path file) throws IOException {
+        this.writer = new AsyncResultWriter(file, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Gets an event log that discards all events
+     *
+     * @return the disabled event log
+     */
+    public static ExecutionEventLog disabled() {
+        return DISABLED;
+    }
+
+    /**
+     * Whether events are recorded at all
+     *
+     * @return false for the disabled event log
+     */
+    public boolean isEnabled() {
+        return writer != null;
+    }
+
+    /**
+     * Records the start of a schedule
+     *
+     * @param schedule the schedule name
+     */
+    public void scheduleStarted(String schedule) {
+        if (writer != null) {
+            emit(event("schedule_start", schedule));
+        }
+    }
+
+    /**
+     * Records the end of a schedule
+     *
+     * @param schedule     the schedule name
+     * @param elapsedNanos the duration of the whole schedule
+     * @param success      whether the schedule completed successfully
+     */
+    public void scheduleFinished(String schedule, long elapsedNanos, boolean success) {
+        if (writer != null) {
+            StringBuilder event = event("schedule_end", schedule);
+            micros(event, "durationMicros", elapsedNanos);
+            event.append(",\"success\":").append(success);
+            emit(event);
+        }
+    }
+
+    /**
+     * Records the start of a task phase
+     *
+     * @param schedule the schedule name
+     * @param task     the task name
+     * @param phase    {@code validate} or {@code execute}
+     */
+    public void taskStarted(String schedule, String task, String phase) {
+        if (writer != null) {
+            StringBuilder event = event("task_start", schedule);
+            field(event, "task", task);
+            field(event, "phase", phase);
+            emit(event);
+        }
+    }
+
+    /**
+     * Records the end of a task phase
+     *
+     * @param schedule     the schedule name
+     * @param task         the task name
+     * @param phase        {@code validate} or {@code execute}
+     * @param elapsedNanos the duration of the phase
+     * @param statements   the number of statements handled
+     * @param success      whether the phase completed without a stopping failure
+     */
+    public void taskFinished(String schedule, String task, String phase, long elapsedNanos, int statements, boolean success) {
+        if (writer != null) {
+            StringBuilder event = event("task_end", schedule);
+            field(event, "task", task);
+            field(event, "phase", phase);
+            micros(event, "durationMicros", elapsedNanos);
+            event.append(",\"statements\":").append(statements);
+            event.append(",\"success\":").append(success);
+            emit(event);
+        }
+    }
+
+    /**
+     * Records the validation of one statement
+     *
+     * @param schedule     the schedule name
+     * @param task         the task name
+     * @param statement    the 1-based position of the statement inside the task
+     * @param sql          the statement text, truncated in the event
+     * @param elapsedNanos the parse time
+     * @param valid        whether the statement passed validation
+     */
+    public void statementParsed(String schedule, String task, int statement, String sql, long elapsedNanos, boolean valid) {
+        if (writer != null) {
+            StringBuilder event = statementEvent("statement_parse", schedule, task, statement, sql);
+            micros(event, "parseMicros", elapsedNanos);
+            event.append(",\"valid\":").append(valid);
+            emit(event);
+        }
+    }
+
+    /**
+     * Records a successfully executed statement
+     *
+     * @param schedule     the schedule name
+     * @param task         the task name
+     * @param statement    the 1-based position of the statement inside the task
+     * @param sql          the statement text, truncated in the event
+     * @param elapsedNanos the execution time including result handling
+     * @param rows         rows returned by a query or affected by an update
+     * @param query        whether the statement returned rows
+     */
+    public void statementExecuted(String schedule, String task, int statement, String sql, long elapsedNanos, long rows, boolean query) {
+        if (writer != null) {
+            StringBuilder event = statementEvent("statement_execute", schedule, task, statement, sql);
+            micros(event, "executeMicros", elapsedNanos);
+            event.append(query ? ",\"rowsReturned\":" : ",\"rowsAffected\":").append(rows);
+            event.append(",\"success\":true");
+            emit(event);
+        }
+    }
+
+    /**
+     * Records a statement that failed to execute
+     *
+     * @param schedule     the schedule name
+     * @param task         the task name
+     * @param statement    the 1-based position of the statement inside the task
+     * @param sql          the statement text, truncated in the event
+     * @param elapsedNanos the time until the failure
+     * @param error        the failure, whose SQLState and vendor code are recorded for SQL errors
+     */
+    public void statementFailed(String schedule, String task, int statement, String sql, long elapsedNanos, Exception error) {
+        if (writer != null) {
+            StringBuilder event = statementEvent("statement_execute", schedule, task, statement, sql);
+            micros(event, "executeMicros", elapsedNanos);
+            event.append(",\"success\":false");
+            if (error instanceof SQLException) {
+                SQLException sqlError = (SQLException) error;
+                field(event, "sqlState", sqlError.getSQLState());
+                event.append(",\"errorCode\":").append(sqlError.getErrorCode());
+            }
+            field(event, "error", error.getMessage());
+            emit(event);
+        }
+    }
+
+    /**
+     * Hands all pending events to the operating system and closes the file
+     */
+    @Override
+    public void close() {
+        if (writer != null) {
+            writer.close();
+        }
+    }
+
+    private StringBuilder statementEvent(String name, String schedule, String task, int statement, String sql) {
+        StringBuilder event = event(name, schedule);
+        field(event, "task", task);
+        event.append(",\"statement\":").append(statement);
+        field(event, "sql", ResultLogger.truncateSql(sql));
+        return event;
+    }
+
+    private static StringBuilder event(String name, String schedule) {
+        StringBuilder event = new StringBuilder(192);
+        event.append("{\"ts\":").append(System.currentTimeMillis());
+        event.append(",\"event\":\"").append(name).append('"');
+        field(event, "schedule", schedule);
+        return event;
+    }
+
+    private static void field(StringBuilder event, String name, String value) {
+        event.append(",\"").append(name).append("\":");
+        if (value == null) {
+            event.append("null");
+        } else {
+            QueryResultExporter.appendJsonString(value, event);
+        }
+    }
+
+    private static void micros(StringBuilder event, String name, long nanos) {
+        event.append(",\"").append(name).append("\":").append(TimeUnit.NANOSECONDS.toMicros(nanos));
+    }
+
+    private void emit(StringBuilder event) {
+        writer.writeLine(event.append('}').toString());
+    }
+}
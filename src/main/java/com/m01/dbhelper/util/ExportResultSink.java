@@ -0,0 +1,75 @@
+package com.m01.dbhelper.util;
+
+import com.m01.dbhelper.common.ExportFormat;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * The {@code export} sink: streams the rows into one CSV or JSON Lines file per statement, using
+ * the task's exportFormat (CSV if unset) and exportPath (the working directory if unset). With the
+ * COLUMNAR format it writes the same file as the {@link ColumnarResultSink}.
+ */
+public class ExportResultSink implements ResultSink {
+    private static final Logger logger = Logger.getLogger(ExportResultSink.class.getName());
+
+    private ResultLogger resultLogger;
+    private Path exportFile;
+    private QueryResultExporter exporter;
+    private ResultSink columnar;
+
+    @Override
+    public String getName() {
+        return "export";
+    }
+
+    @Override
+    public void start(ResultSinkContext context, ResultColumns columns) throws IOException {
+        ExportFormat format = context.getTask().getExportFormat() != null ? context.getTask().getExportFormat() : ExportFormat.CSV;
+        if (format == ExportFormat.COLUMNAR) {
+            columnar = new ColumnarResultSink();
+            columnar.start(context, columns);
+            return;
+        }
+        resultLogger = context.getResultLogger();
+        String exportPath = context.getTask().getExportPath() != null ? context.getTask().getExportPath() : ".";
+        exportFile = QueryResultExporter.exportFile(Paths.get(exportPath), context.getScheduleName(), context.getTaskName(),
+                context.getStatementIndex(), format);
+        exporter = new QueryResultExporter(format, columns, exportFile);
+    }
+
+    @Override
+    public void accept(RowBatch batch) throws IOException {
+        if (columnar != null) {
+            columnar.accept(batch);
+        } else {
+            exporter.writeRows(batch);
+        }
+    }
+
+    @Override
+    public void finish(long rowCount) throws IOException {
+        if (columnar != null) {
+            columnar.finish(rowCount);
+            return;
+        }
+        exporter.close();
+        resultLogger.log("Query Results - Exported " + rowCount + " rows to " + exportFile);
+    }
+
+    @Override
+    public void abort() {
+        if (columnar != null) {
+            columnar.abort();
+        } else if (exporter != null) {
+            try {
+                exporter.close();
+            } catch (IOException e) {
+                logger.log(Level.WARNING, "Failed to close export file: " + exportFile, e);
+            }
+        }
+    }
+}
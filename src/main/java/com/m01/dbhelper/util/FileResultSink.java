@@ -0,0 +1,71 @@
+package com.m01.dbhelper.util;
+
+/**
+ * The {@code file} sink: writes the rows to the result file, in the layout of
+ * {@link ResultLogger#logResults}; with a task resultRowLimit only the first rows are written and
+ * the rest are counted, without being rendered when no other sink needs them
+ */
+public class FileResultSink implements ResultSink {
+    private final StringBuilder row = new StringBuilder(256);
+    private ResultLogger resultLogger;
+    private long rowLimit;
+
+    @Override
+    public String getName() {
+        return "file";
+    }
+
+    @Override
+    public boolean previewsLargeObjects() {
+        return true;
+    }
+
+    @Override
+    public void start(ResultSinkContext context, ResultColumns columns) {
+        resultLogger = context.getResultLogger();
+        Integer resultRowLimit = context.getTask().getResultRowLimit();
+        rowLimit = resultRowLimit != null && resultRowLimit >= 0 ? resultRowLimit : Long.MAX_VALUE;
+        StringBuilder columnNames = new StringBuilder("Query Results - Columns: ");
+        int columnCount = columns.getColumnCount();
+        for (int i = 1; i <= columnCount; i++) {
+            columnNames.append(columns.getColumnName(i));
+            if (i < columnCount) {
+                columnNames.append(", ");
+            }
+        }
+        resultLogger.log(columnNames.toString());
+    }
+
+    @Override
+    public long getRowLimit() {
+        return rowLimit;
+    }
+
+    @Override
+    public void accept(RowBatch batch) {
+        int columnCount = batch.getColumnCount();
+        long remaining = rowLimit - batch.getFirstRowNumber() + 1;
+        int rows = (int) Math.max(0, Math.min(batch.getRowCount(), remaining));
+        for (int r = 0; r < rows; r++) {
+            row.setLength(0);
+            row.append("Row ").append(batch.getFirstRowNumber() + r).append(": ");
+            for (int i = 1; i <= columnCount; i++) {
+                if (i > 1) {
+                    row.append(", ");
+                }
+                if (!batch.appendPreview(r, i, row)) {
+                    row.append("null");
+                }
+            }
+            resultLogger.log(row.toString());
+        }
+    }
+
+    @Override
+    public void finish(long rowCount) {
+        if (rowCount > rowLimit) {
+            resultLogger.log("Rows not written: " + (rowCount - rowLimit) + " (resultRowLimit " + rowLimit + ")");
+        }
+        resultLogger.log("Total rows: " + rowCount);
+    }
+}
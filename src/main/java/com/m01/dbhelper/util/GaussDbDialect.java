@@ -0,0 +1,14 @@
+package com.m01.dbhelper.util;
+
+import com.m01.dbhelper.common.DbType;
+
+/**
+ * GaussDB: the PostgreSQL rules, connected through the PostgreSQL driver
+ */
+public class GaussDbDialect extends PostgreSqlDialect {
+
+    @Override
+    public DbType getDbType() {
+        return DbType.GAUSSDB;
+    }
+}
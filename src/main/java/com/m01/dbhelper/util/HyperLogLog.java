@@ -0,0 +1,100 @@
+package com.m01.dbhelper.util;
+
+/**
+ * HyperLogLog distinct-count sketch over 64-bit hashes.
+ * <p>
+ * The sketch has 2^precision one-byte registers, so its size does not depend on the number of
+ * values added. The standard error is about {@code 1.04 / sqrt(2^precision)}, 0.8% at the default
+ * precision of 14; small cardinalities use linear counting, which is close to exact.
+ */
+public final class HyperLogLog {
+    static final int DEFAULT_PRECISION = 14;
+
+    private final int precision;
+    private final byte[] registers;
+
+    /**
+     * Creates an empty sketch with the default precision
+     */
+    public HyperLogLog() {
+        this(DEFAULT_PRECISION);
+    }
+
+    /**
+     * Creates an empty sketch
+     *
+     * @param precision the number of index bits, between 4 and 18
+     */
+    public HyperLogLog(int precision) {
+        if (precision < 4 || precision > 18) {
+            throw new IllegalArgumentException("Precision must be between 4 and 18: " + precision);
+        }
+        this.precision = precision;
+        this.registers = new byte[1 << precision];
+    }
+
+    /**
+     * Adds a value by its hash; the hash must be well distributed, see {@link Murmur3}
+     *
+     * @param hash the 64-bit hash of the value
+     */
+    public void add(long hash) {
+        int index = (int) (hash >>> (64 - precision));
+        // 剩余位最前面的 0 的个数加 1，末尾补 1 保证结果不超过 64 - precision + 1
+        int rank = Long.numberOfLeadingZeros((hash << precision) | (1L << (precision - 1))) + 1;
+        if (rank > registers[index]) {
+            registers[index] = (byte) rank;
+        }
+    }
+
+    /**
+     * Adds all values of another sketch with the same precision
+     *
+     * @param other the other sketch
+     */
+    public void merge(HyperLogLog other) {
+        if (other.precision != precision) {
+            throw new IllegalArgumentException("Precision mismatch: " + precision + " and " + other.precision);
+        }
+        for (int i = 0; i < registers.length; i++) {
+            if (other.registers[i] > registers[i]) {
+                registers[i] = other.registers[i];
+            }
+        }
+    }
+
+    /**
+     * Estimates the number of distinct values added
+     *
+     * @return the estimate
+     */
+    public long estimate() {
+        int m = registers.length;
+        double sum = 0;
+        int zeros = 0;
+        for (byte register : registers) {
+            sum += 1.0 / (1L << register);
+            if (register == 0) {
+                zeros++;
+            }
+        }
+        double estimate = alpha(m) * m * m / sum;
+        if (estimate <= 2.5 * m && zeros > 0) {
+            estimate = m * Math.log((double) m / zeros);
+        }
+        return Math.round(estimate);
+    }
+
+    private static double alpha(int m) {
+        switch (m) {
+            case 16:
+                return 0.673;
+            case 32:
+                return 0.697;
+            case 64:
+                return 0.709;
+            default:
+                return 0.7213 / (1 + 1.079 / m);
+        }
+    }
+}
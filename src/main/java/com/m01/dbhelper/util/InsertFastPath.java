@@ -0,0 +1,353 @@
+package com.m01.dbhelper.util;
+
+import com.m01.dbhelper.common.DbType;
+import com.m01.dbhelper.common.StatementKind;
+import com.m01.dbhelper.common.Verdict;
+import net.sf.jsqlparser.parser.ParserKeywordsUtils;
+
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Logger;
+
+/**
+ * Validates simple bulk INSERT statements structurally instead of parsing them.
+ * <p>
+ * A statement of the form {@code INSERT INTO t [(c1, c2, ...)] VALUES (v1, v2, ...)[, (...)]}
+ * whose values are number, string, NULL, TRUE or FALSE literals is accepted after one scan that
+ * checks the tokens, the parentheses and that every row has as many values as the column list
+ * (or as the first row). A row with the wrong number of values is rejected. Anything else,
+ * including comments, expressions, functions, trailing clauses such as ON DUPLICATE KEY and
+ * unquoted table or column names that are reserved words of the parser, is handed to the
+ * {@link ValidationCache} for a full parse.
+ * <p>
+ * Statements with the same text before VALUES have the same shape. With a sample rate of N, the
+ * first statement of a shape and then one in N are parsed fully as well; if the parser rejects a
+ * statement the scan accepted, the shape is parsed fully from then on. All methods are
+ * thread-safe.
+ */
+public class InsertFastPath {
+    private static final Logger logger = Logger.getLogger(InsertFastPath.class.getName());
+
+    // 超过这个数量的语句形态共用一个采样计数
+    static final int MAX_SHAPES = 10_000;
+
+    // 解析器的保留字作为未加引号的表名或列名时可能被拒绝，交给完整解析判断
+    private static final Set<String> RESERVED_WORDS = reservedWords();
+
+    static final int NOT_SIMPLE = -1;
+    static final int WRONG_COUNT = -2;
+
+    private final ValidationCache cache;
+    private final int sampleRate;
+    private final ConcurrentMap<String, Shape> shapes = new ConcurrentHashMap<>();
+    private final Shape otherShapes = new Shape();
+    private final AtomicLong scanned = new AtomicLong();
+    private final AtomicLong sampled = new AtomicLong();
+
+    /**
+     * Creates a fast path
+     *
+     * @param cache      the cache that validates the statements the scan does not accept
+     * @param sampleRate parse one in this many statements of a shape fully as well; 0 parses none
+     */
+    public InsertFastPath(ValidationCache cache, int sampleRate) {
+        this.cache = cache;
+        this.sampleRate = Math.max(0, sampleRate);
+    }
+
+    /**
+     * Validates a statement, structurally if it is a simple INSERT and through the cache otherwise
+     *
+     * @param statement the statement
+     * @param dbType    the database type
+     * @return true if the statement is valid
+     */
+    public boolean isValid(ParsedStatement statement, DbType dbType) {
+        return check(statement, dbType, ParseBudget.DEFAULT) == Verdict.VALID;
+    }
+
+    /**
+     * Validates a statement like {@link #isValid(ParsedStatement, DbType)}, parsing it within a budget
+     *
+     * @param statement the statement
+     * @param dbType    the database type
+     * @param budget    the budget of a full parse
+     * @return the verdict
+     */
+    public Verdict check(ParsedStatement statement, DbType dbType, ParseBudget budget) {
+        String sql = statement.getSql();
+        if (statement.hasAst() || sql == null || dbType == null) {
+            return cache.check(statement, dbType, budget);
+        }
+        int valuesAt = scan(sql, Dialects.of(dbType).backslashEscapes());
+        if (valuesAt == WRONG_COUNT) {
+            return Verdict.INVALID;
+        }
+        if (valuesAt == NOT_SIMPLE) {
+            return cache.check(statement, dbType, budget);
+        }
+        Shape shape = shape(sql.substring(0, valuesAt).trim());
+        if (shape.parseFully || sampleRate > 0 && shape.count.getAndIncrement() % sampleRate == 0) {
+            sampled.incrementAndGet();
+            Verdict verdict = cache.check(statement, dbType, budget);
+            if (verdict == Verdict.INVALID && !shape.parseFully) {
+                shape.parseFully = true;
+                logger.warning("Structurally valid INSERT rejected by the parser, parsing its shape fully from now on: "
+                        + ResultLogger.truncateSql(sql));
+            }
+            // 抽样解析超出预算时以结构校验的结论为准
+            return verdict == Verdict.UNVERIFIED ? Verdict.VALID : verdict;
+        }
+        scanned.incrementAndGet();
+        statement.classify(StatementKind.DML, Boolean.FALSE);
+        return Verdict.VALID;
+    }
+
+    /**
+     * Gets the number of statements accepted by the scan alone
+     *
+     * @return the count
+     */
+    public long getScanned() {
+        return scanned.get();
+    }
+
+    /**
+     * Gets the number of simple INSERT statements that were parsed fully as samples
+     *
+     * @return the count
+     */
+    public long getSampled() {
+        return sampled.get();
+    }
+
+    private Shape shape(String prefix) {
+        Shape shape = shapes.get(prefix);
+        if (shape == null) {
+            if (shapes.size() >= MAX_SHAPES) {
+                return otherShapes;
+            }
+            Shape created = new Shape();
+            shape = shapes.putIfAbsent(prefix, created);
+            if (shape == null) {
+                shape = created;
+            }
+        }
+        return shape;
+    }
+
+    /**
+     * Scans a statement for the simple INSERT shape
+     *
+     * @param sql              the statement
+     * @param backslashEscapes whether a backslash escapes the next character of a string
+     * @return the index of VALUES, {@link #NOT_SIMPLE} or {@link #WRONG_COUNT}
+     */
+    static int scan(String sql, boolean backslashEscapes) {
+        Scanner s = new Scanner(sql, backslashEscapes);
+        if (!s.keyword("INSERT") || !s.keyword("INTO") || !s.name()) {
+            return NOT_SIMPLE;
+        }
+        int columns = 0;
+        if (s.skip('(')) {
+            do {
+                if (!s.identifier()) {
+                    return NOT_SIMPLE;
+                }
+                columns++;
+            } while (s.skip(','));
+            if (!s.skip(')')) {
+                return NOT_SIMPLE;
+            }
+        }
+        s.whitespace();
+        int valuesAt = s.at;
+        if (!s.keyword("VALUES")) {
+            return NOT_SIMPLE;
+        }
+        do {
+            if (!s.skip('(')) {
+                return NOT_SIMPLE;
+            }
+            int values = 0;
+            do {
+                if (!s.literal()) {
+                    return NOT_SIMPLE;
+                }
+                values++;
+            } while (s.skip(','));
+            if (!s.skip(')')) {
+                return NOT_SIMPLE;
+            }
+            if (columns == 0) {
+                columns = values;
+            } else if (values != columns) {
+                return WRONG_COUNT;
+            }
+        } while (s.skip(','));
+        s.whitespace();
+        return s.at == sql.length() ? valuesAt : NOT_SIMPLE;
+    }
+
+    private static Set<String> reservedWords() {
+        Set<String> words = new HashSet<>();
+        for (Object[] keyword : ParserKeywordsUtils.ALL_RESERVED_KEYWORDS) {
+            words.add(((String) keyword[0]).toUpperCase(Locale.ROOT));
+        }
+        return words;
+    }
+
+    private static final class Shape {
+        final AtomicLong count = new AtomicLong();
+        volatile boolean parseFully;
+    }
+
+    private static final class Scanner {
+        private final String sql;
+        private final int length;
+        private final boolean backslashEscapes;
+        int at;
+
+        Scanner(String sql, boolean backslashEscapes) {
+            this.sql = sql;
+            this.length = sql.length();
+            this.backslashEscapes = backslashEscapes;
+        }
+
+        void whitespace() {
+            while (at < length && Character.isWhitespace(sql.charAt(at))) {
+                at++;
+            }
+        }
+
+        boolean skip(char c) {
+            whitespace();
+            if (at < length && sql.charAt(at) == c) {
+                at++;
+                return true;
+            }
+            return false;
+        }
+
+        boolean keyword(String keyword) {
+            whitespace();
+            int end = at + keyword.length();
+            if (end > length || !sql.regionMatches(true, at, keyword, 0, keyword.length())
+                    || end < length && isWordChar(sql.charAt(end))) {
+                return false;
+            }
+            at = end;
+            return true;
+        }
+
+        boolean name() {
+            if (!identifier()) {
+                return false;
+            }
+            // 最多三段的限定名，如 schema.table
+            for (int parts = 1; parts < 3 && at < length && sql.charAt(at) == '.'; parts++) {
+                at++;
+                if (!identifier()) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        boolean identifier() {
+            whitespace();
+            if (at >= length) {
+                return false;
+            }
+            char c = sql.charAt(at);
+            if (c == '"' || c == '`') {
+                int close = sql.indexOf(c, at + 1);
+                if (close <= at + 1) {
+                    return false;
+                }
+                at = close + 1;
+                return true;
+            }
+            if (!Character.isLetter(c) && c != '_') {
+                return false;
+            }
+            int start = at;
+            while (at < length && (isWordChar(sql.charAt(at)) || sql.charAt(at) == '$')) {
+                at++;
+            }
+            return !RESERVED_WORDS.contains(sql.substring(start, at).toUpperCase(Locale.ROOT));
+        }
+
+        boolean literal() {
+            whitespace();
+            if (at >= length) {
+                return false;
+            }
+            char c = sql.charAt(at);
+            if (c == '\'') {
+                return string();
+            }
+            if (c == '-' || c == '+' || c == '.' || c >= '0' && c <= '9') {
+                return number();
+            }
+            return keyword("NULL") || keyword("TRUE") || keyword("FALSE");
+        }
+
+        private boolean string() {
+            at++;
+            while (at < length) {
+                char c = sql.charAt(at++);
+                if (backslashEscapes && c == '\\') {
+                    at++;
+                } else if (c == '\'') {
+                    if (at < length && sql.charAt(at) == '\'') {
+                        at++;
+                    } else {
+                        return true;
+                    }
+                }
+            }
+            return false;
+        }
+
+        private boolean number() {
+            if (sql.charAt(at) == '-' || sql.charAt(at) == '+') {
+                at++;
+            }
+            int digits = digits();
+            if (at < length && sql.charAt(at) == '.') {
+                at++;
+                digits += digits();
+            }
+            if (digits == 0) {
+                return false;
+            }
+            if (at < length && (sql.charAt(at) == 'e' || sql.charAt(at) == 'E')) {
+                at++;
+                if (at < length && (sql.charAt(at) == '-' || sql.charAt(at) == '+')) {
+                    at++;
+                }
+                if (digits() == 0) {
+                    return false;
+                }
+            }
+            return at >= length || !isWordChar(sql.charAt(at));
+        }
+
+        private int digits() {
+            int start = at;
+            while (at < length && sql.charAt(at) >= '0' && sql.charAt(at) <= '9') {
+                at++;
+            }
+            return at - start;
+        }
+
+        private static boolean isWordChar(char c) {
+            return Character.isLetterOrDigit(c) || c == '_';
+        }
+    }
+}
@@ -0,0 +1,188 @@
+package com.m01.dbhelper.util;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+
+/**
+ * The whole value of a large object that is longer than the preview limit, kept in a file by
+ * {@link LobHandler} instead of the heap.
+ * <p>
+ * Binary values are stored as their raw bytes and character values as UTF-8.
+ * {@link #openText()} reads the value back the way {@link RowFormatter} renders it, binary
+ * values as {@code 0x}-prefixed hex, so consumers can stream it chunk by chunk. A side file in
+ * the task's lobPath is kept and referred to from the result file; a temporary file only lives
+ * as long as the {@link RowBatch} holding the value.
+ */
+public final class LobFile {
+    private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+
+    private final Path path;
+    private final boolean binary;
+    private final long size;
+    private final boolean temporary;
+
+    LobFile(Path path, boolean binary, long size, boolean temporary) {
+        this.path = path;
+        this.binary = binary;
+        this.size = size;
+        this.temporary = temporary;
+    }
+
+    public Path getPath() {
+        return path;
+    }
+
+    /**
+     * Whether the value is binary and renders as hex
+     *
+     * @return true for binary values, false for character values
+     */
+    public boolean isBinary() {
+        return binary;
+    }
+
+    /**
+     * Gets the size of the value
+     *
+     * @return the number of bytes of a binary value or characters of a character value
+     */
+    public long getSize() {
+        return size;
+    }
+
+    /**
+     * Whether the file is deleted once the value has been consumed
+     *
+     * @return false for a side file in the task's lobPath
+     */
+    public boolean isTemporary() {
+        return temporary;
+    }
+
+    /**
+     * Gets the number of characters {@link #openText()} returns
+     *
+     * @return the length of the rendered value
+     */
+    public long getTextLength() {
+        return binary ? 2 + size * 2 : size;
+    }
+
+    /**
+     * Opens the value as rendered text; the caller closes the reader
+     *
+     * @return the reader
+     * @throws IOException if the file cannot be opened
+     */
+    public Reader openText() throws IOException {
+        return binary ? new HexReader(Files.newInputStream(path)) : Files.newBufferedReader(path, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Appends the whole rendered value; this holds the value in memory, which streaming
+     * consumers avoid with {@link #openText()}
+     *
+     * @param out the buffer to append to
+     */
+    public void appendTo(StringBuilder out) {
+        char[] buffer = new char[8192];
+        try (Reader in = openText()) {
+            int n;
+            while ((n = in.read(buffer)) > 0) {
+                out.append(buffer, 0, n);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to read large object file " + path, e);
+        }
+    }
+
+    /**
+     * Appends what the result file shows after the preview: the size and path of a side file,
+     * or the truncation marker for a temporary file
+     *
+     * @param out the buffer to append to
+     */
+    public void appendReference(StringBuilder out) {
+        if (temporary) {
+            out.append("...[truncated]");
+        } else {
+            out.append("...[").append(size).append(binary ? " bytes: " : " chars: ").append(path).append(']');
+        }
+    }
+
+    /**
+     * Copies the value into a side file that is kept
+     *
+     * @param target the side file
+     * @return the copy
+     * @throws IOException if the file cannot be copied
+     */
+    public LobFile copyTo(Path target) throws IOException {
+        Files.copy(path, target, StandardCopyOption.REPLACE_EXISTING);
+        return new LobFile(target, binary, size, false);
+    }
+
+    void deleteIfTemporary() {
+        if (temporary) {
+            try {
+                Files.deleteIfExists(path);
+            } catch (IOException e) {
+                // 临时文件删除失败不影响结果，留给系统清理
+                path.toFile().deleteOnExit();
+            }
+        }
+    }
+
+    private static final class HexReader extends Reader {
+        private final InputStream in;
+        private final byte[] bytes = new byte[4096];
+        private int prefix = 2;
+        private int pending = -1;
+
+        private HexReader(InputStream in) {
+            this.in = in;
+        }
+
+        @Override
+        public int read(char[] buffer, int offset, int length) throws IOException {
+            if (length == 0) {
+                return 0;
+            }
+            int n = 0;
+            while (prefix > 0 && n < length) {
+                buffer[offset + n++] = prefix-- == 2 ? '0' : 'x';
+            }
+            if (pending >= 0 && n < length) {
+                buffer[offset + n++] = HEX_DIGITS[pending];
+                pending = -1;
+            }
+            while (n < length) {
+                int read = in.read(bytes, 0, Math.min(bytes.length, Math.max(1, (length - n) / 2)));
+                if (read < 0) {
+                    break;
+                }
+                for (int i = 0; i < read; i++) {
+                    int b = bytes[i] & 0xFF;
+                    buffer[offset + n++] = HEX_DIGITS[b >> 4];
+                    if (n < length) {
+                        buffer[offset + n++] = HEX_DIGITS[b & 0xF];
+                    } else {
+                        pending = b & 0xF;
+                    }
+                }
+            }
+            return n == 0 ? -1 : n;
+        }
+
+        @Override
+        public void close() throws IOException {
+            in.close();
+        }
+    }
+}
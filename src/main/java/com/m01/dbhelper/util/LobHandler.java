@@ -0,0 +1,274 @@
+package com.m01.dbhelper.util;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * Reads large object columns (BLOB, CLOB, bytea, LONGVARCHAR ...) through
+ * {@link ResultSet#getBinaryStream(int)} and {@link ResultSet#getCharacterStream(int)} with a
+ * fixed-size buffer, so a value never has to fit into the heap.
+ * <p>
+ * At most {@code previewLimit} bytes or characters of a value are rendered into the cell. The
+ * rest is either dropped, marked with {@code ...[truncated]}, or, when a side file directory is
+ * configured, the whole value is copied into its own file and the cell ends with the size and
+ * the path of that file. Values within the limit render exactly like before: text as is and
+ * binary values as {@code 0x}-prefixed hex.
+ * <p>
+ * The preview is meant for the human-readable outputs. Outputs that need the whole value pass
+ * an array that receives a {@link LobFile}: a longer value is then copied into a file while it
+ * is read, the side file if one is configured and a temporary file otherwise, and the cell only
+ * holds the preview, without the marker, which {@link LobFile#appendReference} adds.
+ * <p>
+ * An instance keeps its buffers between values and is not thread-safe; every
+ * {@link RowFormatter} has its own.
+ */
+public class LobHandler {
+    /** The preview limit used when a task does not configure one */
+    public static final int DEFAULT_PREVIEW_LIMIT = 65536;
+
+    private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+    private static final int BUFFER_SIZE = 8192;
+    private static final String TEMP_PREFIX = "dbhelper-lob-";
+
+    private final int previewLimit;
+    private final Path directory;
+    private final String filePrefix;
+    private final byte[] bytes = new byte[BUFFER_SIZE];
+    private final char[] chars = new char[BUFFER_SIZE];
+    private int fileCount;
+
+    /**
+     * Creates a handler that truncates values at the default limit and writes no side files
+     */
+    public LobHandler() {
+        this(DEFAULT_PREVIEW_LIMIT, null, null);
+    }
+
+    /**
+     * Creates a handler
+     *
+     * @param previewLimit the maximum number of bytes or characters rendered into a cell
+     * @param directory    the directory for side files of longer values, or null to truncate them
+     * @param filePrefix   the name prefix of the side files, see {@link #forStatement}
+     */
+    public LobHandler(int previewLimit, Path directory, String filePrefix) {
+        if (previewLimit < 0) {
+            throw new IllegalArgumentException("LOB preview limit must not be negative: " + previewLimit);
+        }
+        this.previewLimit = previewLimit;
+        this.directory = directory;
+        this.filePrefix = filePrefix;
+    }
+
+    /**
+     * Creates the handler of one statement of a task
+     *
+     * @param previewLimit   the configured preview limit, or null for the default
+     * @param lobPath        the configured side file directory, or null to truncate long values
+     * @param scheduleName   the name of the schedule
+     * @param taskName       the name of the task
+     * @param statementIndex the 1-based position of the statement inside the task
+     * @return the handler
+     */
+    public static LobHandler forStatement(Integer previewLimit, String lobPath, String scheduleName,
+                                          String taskName, int statementIndex) {
+        String prefix = QueryResultExporter.sanitize(scheduleName) + "-" + QueryResultExporter.sanitize(taskName)
+                + "-" + statementIndex + "-lob-";
+        return new LobHandler(previewLimit != null ? previewLimit : DEFAULT_PREVIEW_LIMIT,
+                lobPath != null ? Paths.get(lobPath) : null, prefix);
+    }
+
+    public int getPreviewLimit() {
+        return previewLimit;
+    }
+
+    /**
+     * Appends a binary value as hex, appending nothing for SQL NULL
+     *
+     * @param resultSet the result set positioned on a row
+     * @param column    the 1-based column index
+     * @param out       the buffer to append to
+     * @return false if the value is SQL NULL
+     * @throws SQLException if the value cannot be read or a side file cannot be written
+     */
+    public boolean appendBinary(ResultSet resultSet, int column, StringBuilder out) throws SQLException {
+        return appendBinary(resultSet, column, out, null, 0);
+    }
+
+    /**
+     * Appends a binary value as hex, appending nothing for SQL NULL; with {@code files} a value
+     * longer than the preview is kept in a file and only its preview is appended
+     *
+     * @param resultSet the result set positioned on a row
+     * @param column    the 1-based column index
+     * @param out       the buffer to append to
+     * @param files     receives the file of a longer value, or null when the value fits the
+     *                  preview; null to mark the cut in {@code out} instead
+     * @param slot      the index into {@code files}
+     * @return false if the value is SQL NULL
+     * @throws SQLException if the value cannot be read or its file cannot be written
+     */
+    public boolean appendBinary(ResultSet resultSet, int column, StringBuilder out, LobFile[] files, int slot)
+            throws SQLException {
+        if (files != null) {
+            files[slot] = null;
+        }
+        try (InputStream in = resultSet.getBinaryStream(column)) {
+            if (in == null) {
+                return false;
+            }
+            out.append("0x");
+            long total = 0;
+            int n;
+            while (total < previewLimit && (n = in.read(bytes, 0, (int) Math.min(bytes.length, previewLimit - total))) > 0) {
+                appendHex(bytes, n, out);
+                total += n;
+            }
+            int next = in.read();
+            if (next < 0) {
+                return true;
+            }
+            if (directory == null && files == null) {
+                out.append("...[truncated]");
+                return true;
+            }
+            Path file = directory != null ? nextFile(".bin") : Files.createTempFile(TEMP_PREFIX, ".bin");
+            // 预览部分已经追加到 out，需要从中还原后再写入文件
+            try (OutputStream sideFile = Files.newOutputStream(file)) {
+                writeHexPreview(out, total, sideFile);
+                sideFile.write(next);
+                total++;
+                while ((n = in.read(bytes)) >= 0) {
+                    sideFile.write(bytes, 0, n);
+                    total += n;
+                }
+            } catch (IOException e) {
+                deleteTemporary(file);
+                throw e;
+            }
+            store(new LobFile(file, true, total, directory == null), out, files, slot);
+            return true;
+        } catch (IOException e) {
+            throw new SQLException("Failed to read binary column " + column + ": " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Appends a character value, appending nothing for SQL NULL
+     *
+     * @param resultSet the result set positioned on a row
+     * @param column    the 1-based column index
+     * @param out       the buffer to append to
+     * @return false if the value is SQL NULL
+     * @throws SQLException if the value cannot be read or a side file cannot be written
+     */
+    public boolean appendText(ResultSet resultSet, int column, StringBuilder out) throws SQLException {
+        return appendText(resultSet, column, out, null, 0);
+    }
+
+    /**
+     * Appends a character value, appending nothing for SQL NULL; with {@code files} a value
+     * longer than the preview is kept in a file and only its preview is appended
+     *
+     * @param resultSet the result set positioned on a row
+     * @param column    the 1-based column index
+     * @param out       the buffer to append to
+     * @param files     receives the file of a longer value, or null when the value fits the
+     *                  preview; null to mark the cut in {@code out} instead
+     * @param slot      the index into {@code files}
+     * @return false if the value is SQL NULL
+     * @throws SQLException if the value cannot be read or its file cannot be written
+     */
+    public boolean appendText(ResultSet resultSet, int column, StringBuilder out, LobFile[] files, int slot)
+            throws SQLException {
+        if (files != null) {
+            files[slot] = null;
+        }
+        try (Reader in = resultSet.getCharacterStream(column)) {
+            if (in == null) {
+                return false;
+            }
+            int start = out.length();
+            long total = 0;
+            int n;
+            while (total < previewLimit && (n = in.read(chars, 0, (int) Math.min(chars.length, previewLimit - total))) > 0) {
+                out.append(chars, 0, n);
+                total += n;
+            }
+            int next = in.read();
+            if (next < 0) {
+                return true;
+            }
+            if (directory == null && files == null) {
+                out.append("...[truncated]");
+                return true;
+            }
+            Path file = directory != null ? nextFile(".txt") : Files.createTempFile(TEMP_PREFIX, ".txt");
+            try (Writer sideFile = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+                sideFile.append(out, start, out.length());
+                sideFile.write(next);
+                total++;
+                while ((n = in.read(chars)) >= 0) {
+                    sideFile.write(chars, 0, n);
+                    total += n;
+                }
+            } catch (IOException e) {
+                deleteTemporary(file);
+                throw e;
+            }
+            store(new LobFile(file, false, total, directory == null), out, files, slot);
+            return true;
+        } catch (IOException e) {
+            throw new SQLException("Failed to read character column " + column + ": " + e.getMessage(), e);
+        }
+    }
+
+    private static void store(LobFile value, StringBuilder out, LobFile[] files, int slot) {
+        if (files != null) {
+            files[slot] = value;
+        } else {
+            value.appendReference(out);
+        }
+    }
+
+    private void deleteTemporary(Path file) throws IOException {
+        if (directory == null) {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    private Path nextFile(String extension) throws IOException {
+        Files.createDirectories(directory);
+        return directory.resolve(filePrefix + (++fileCount) + extension);
+    }
+
+    private void writeHexPreview(StringBuilder out, long byteCount, OutputStream sideFile) throws IOException {
+        int hexStart = out.length() - (int) byteCount * 2;
+        int filled = 0;
+        for (int i = hexStart; i < out.length(); i += 2) {
+            bytes[filled++] = (byte) (Character.digit(out.charAt(i), 16) << 4 | Character.digit(out.charAt(i + 1), 16));
+            if (filled == bytes.length) {
+                sideFile.write(bytes, 0, filled);
+                filled = 0;
+            }
+        }
+        sideFile.write(bytes, 0, filled);
+    }
+
+    static void appendHex(byte[] value, int length, StringBuilder out) {
+        out.ensureCapacity(out.length() + length * 2);
+        for (int i = 0; i < length; i++) {
+            byte b = value[i];
+            out.append(HEX_DIGITS[(b >> 4) & 0xF]).append(HEX_DIGITS[b & 0xF]);
+        }
+    }
+}
@@ -0,0 +1,235 @@
+package com.m01.dbhelper.util;
+
+/**
+ * MurmurHash3 x64 variant, used for row digests and distinct-count sketches
+ */
+public final class Murmur3 {
+    private static final long C1 = 0x87c37b91114253d5L;
+    private static final long C2 = 0x4cf5ad432745937fL;
+
+    private Murmur3() {
+    }
+
+    /**
+     * Computes the 128-bit MurmurHash3_x64_128 of a byte range
+     *
+     * @param data   the bytes to hash
+     * @param offset the first byte
+     * @param length the number of bytes
+     * @param seed   the hash seed
+     * @param out    receives the low 64 bits at index 0 and the high 64 bits at index 1
+     */
+    public static void hash128(byte[] data, int offset, int length, long seed, long[] out) {
+        long h1 = seed;
+        long h2 = seed;
+        int blocks = length >>> 4;
+        for (int i = 0; i < blocks; i++) {
+            int p = offset + (i << 4);
+            long k1 = getLong(data, p);
+            long k2 = getLong(data, p + 8);
+
+            k1 *= C1;
+            k1 = Long.rotateLeft(k1, 31);
+            k1 *= C2;
+            h1 ^= k1;
+            h1 = Long.rotateLeft(h1, 27);
+            h1 += h2;
+            h1 = h1 * 5 + 0x52dce729;
+
+            k2 *= C2;
+            k2 = Long.rotateLeft(k2, 33);
+            k2 *= C1;
+            h2 ^= k2;
+            h2 = Long.rotateLeft(h2, 31);
+            h2 += h1;
+            h2 = h2 * 5 + 0x38495ab5;
+        }
+
+        finish(h1, h2, data, offset + (blocks << 4), length, out);
+    }
+
+    /**
+     * Computes the 64-bit hash of a byte range, the low half of {@link #hash128}
+     *
+     * @param data   the bytes to hash
+     * @param offset the first byte
+     * @param length the number of bytes
+     * @param out    scratch array of length 2
+     * @return the hash
+     */
+    public static long hash64(byte[] data, int offset, int length, long[] out) {
+        hash128(data, offset, length, 0, out);
+        return out[0];
+    }
+
+    /**
+     * Mixes a 64-bit value into a well-distributed hash, the Murmur3 finalizer
+     *
+     * @param k the value
+     * @return the hash
+     */
+    public static long fmix64(long k) {
+        k ^= k >>> 33;
+        k *= 0xff51afd7ed558ccdL;
+        k ^= k >>> 33;
+        k *= 0xc4ceb9fe1a85ec53L;
+        k ^= k >>> 33;
+        return k;
+    }
+
+    private static void finish(long h1, long h2, byte[] data, int tail, long length, long[] out) {
+        long k1 = 0;
+        long k2 = 0;
+        switch ((int) length & 15) {
+            case 15:
+                k2 ^= (long) (data[tail + 14] & 0xff) << 48;
+            case 14:
+                k2 ^= (long) (data[tail + 13] & 0xff) << 40;
+            case 13:
+                k2 ^= (long) (data[tail + 12] & 0xff) << 32;
+            case 12:
+                k2 ^= (long) (data[tail + 11] & 0xff) << 24;
+            case 11:
+                k2 ^= (long) (data[tail + 10] & 0xff) << 16;
+            case 10:
+                k2 ^= (long) (data[tail + 9] & 0xff) << 8;
+            case 9:
+                k2 ^= data[tail + 8] & 0xff;
+                k2 *= C2;
+                k2 = Long.rotateLeft(k2, 33);
+                k2 *= C1;
+                h2 ^= k2;
+            case 8:
+                k1 ^= (long) (data[tail + 7] & 0xff) << 56;
+            case 7:
+                k1 ^= (long) (data[tail + 6] & 0xff) << 48;
+            case 6:
+                k1 ^= (long) (data[tail + 5] & 0xff) << 40;
+            case 5:
+                k1 ^= (long) (data[tail + 4] & 0xff) << 32;
+            case 4:
+                k1 ^= (long) (data[tail + 3] & 0xff) << 24;
+            case 3:
+                k1 ^= (long) (data[tail + 2] & 0xff) << 16;
+            case 2:
+                k1 ^= (long) (data[tail + 1] & 0xff) << 8;
+            case 1:
+                k1 ^= data[tail] & 0xff;
+                k1 *= C1;
+                k1 = Long.rotateLeft(k1, 31);
+                k1 *= C2;
+                h1 ^= k1;
+            default:
+                break;
+        }
+
+        h1 ^= length;
+        h2 ^= length;
+        h1 += h2;
+        h2 += h1;
+        h1 = fmix64(h1);
+        h2 = fmix64(h2);
+        h1 += h2;
+        h2 += h1;
+        out[0] = h1;
+        out[1] = h2;
+    }
+
+    private static long getLong(byte[] data, int p) {
+        return (data[p] & 0xffL)
+                | (data[p + 1] & 0xffL) << 8
+                | (data[p + 2] & 0xffL) << 16
+                | (data[p + 3] & 0xffL) << 24
+                | (data[p + 4] & 0xffL) << 32
+                | (data[p + 5] & 0xffL) << 40
+                | (data[p + 6] & 0xffL) << 48
+                | (data[p + 7] & 0xffL) << 56;
+    }
+
+    /**
+     * Incremental MurmurHash3_x64_128 of bytes that arrive in pieces; the result equals
+     * {@link #hash128} of all pieces concatenated. An instance is not thread-safe and starts over
+     * after {@link #finish}.
+     */
+    public static final class Hasher {
+        private final long seed;
+        private final byte[] block = new byte[16];
+        private int blockLength;
+        private long h1;
+        private long h2;
+        private long length;
+
+        /**
+         * Creates an empty hasher
+         *
+         * @param seed the hash seed
+         */
+        public Hasher(long seed) {
+            this.seed = seed;
+            this.h1 = seed;
+            this.h2 = seed;
+        }
+
+        /**
+         * Adds a byte range
+         *
+         * @param data   the bytes to hash
+         * @param offset the first byte
+         * @param count  the number of bytes
+         */
+        public void update(byte[] data, int offset, int count) {
+            length += count;
+            if (blockLength > 0) {
+                int take = Math.min(16 - blockLength, count);
+                System.arraycopy(data, offset, block, blockLength, take);
+                blockLength += take;
+                offset += take;
+                count -= take;
+                if (blockLength < 16) {
+                    return;
+                }
+                mix(block, 0);
+                blockLength = 0;
+            }
+            for (; count >= 16; offset += 16, count -= 16) {
+                mix(data, offset);
+            }
+            System.arraycopy(data, offset, block, 0, count);
+            blockLength = count;
+        }
+
+        /**
+         * Completes the hash of all bytes added since the last call and starts over
+         *
+         * @param out receives the low 64 bits at index 0 and the high 64 bits at index 1
+         */
+        public void finish(long[] out) {
+            Murmur3.finish(h1, h2, block, 0, length, out);
+            h1 = seed;
+            h2 = seed;
+            length = 0;
+            blockLength = 0;
+        }
+
+        private void mix(byte[] data, int p) {
+            long k1 = getLong(data, p);
+            long k2 = getLong(data, p + 8);
+
+            k1 *= C1;
+            k1 = Long.rotateLeft(k1, 31);
+            k1 *= C2;
+            h1 ^= k1;
+            h1 = Long.rotateLeft(h1, 27);
+            h1 += h2;
+            h1 = h1 * 5 + 0x52dce729;
+
+            k2 *= C2;
+            k2 = Long.rotateLeft(k2, 33);
+            k2 *= C1;
+            h2 ^= k2;
+            h2 = Long.rotateLeft(h2, 31);
+            h2 += h1;
+            h2 = h2 * 5 + 0x38495ab5;
+        }
+    }
+}
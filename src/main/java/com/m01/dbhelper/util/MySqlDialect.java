@@ -0,0 +1,47 @@
+package com.m01.dbhelper.util;
+
+import com.m01.dbhelper.common.DbType;
+import net.sf.jsqlparser.parser.CCJSqlParser;
+
+/**
+ * MySQL: backslash escapes and backtick identifiers, {@code #} comments, the DELIMITER command of
+ * the mysql client and row-by-row streaming unless the URL asks for cursor fetch
+ */
+public class MySqlDialect implements Dialect {
+
+    @Override
+    public DbType getDbType() {
+        return DbType.MYSQL;
+    }
+
+    @Override
+    public String getDriverClass() {
+        return "com.mysql.cj.jdbc.Driver";
+    }
+
+    @Override
+    public void configure(CCJSqlParser parser) {
+        parser.withBackslashEscapeCharacter(true);
+    }
+
+    @Override
+    public int streamingFetchSize(int fetchSize, String url) {
+        // Connector/J 只在 useCursorFetch=true 时按 fetchSize 分批读取，否则需要 Integer.MIN_VALUE 才逐行读取
+        return url != null && url.toLowerCase().contains("usecursorfetch=true") ? fetchSize : Integer.MIN_VALUE;
+    }
+
+    @Override
+    public boolean backtickQuotes() {
+        return true;
+    }
+
+    @Override
+    public boolean hashComments() {
+        return true;
+    }
+
+    @Override
+    public boolean delimiterCommand() {
+        return true;
+    }
+}
@@ -0,0 +1,415 @@
+package com.m01.dbhelper.util;
+
+import com.m01.dbhelper.common.DbType;
+import com.m01.dbhelper.common.SqlTask;
+import com.m01.dbhelper.common.Verdict;
+
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * Validates the statements of all tasks of a schedule ahead of the validation phase, on a
+ * fork-join pool.
+ * <p>
+ * SQL files are read and parsed concurrently, then the statements of all tasks are validated
+ * by splitting them into ranges. With {@link SqlScriptIndex indexed} files, a single file is read
+ * by several threads, each from its own byte range. The verdicts are kept per SQL list entry in the original order,
+ * so the validation phase can log and count them task by task as if it had validated them itself.
+ * <p>
+ * A failure that stops its task cancels the statements after it in the same task; if the schedule
+ * stops too, it cancels every statement after it. Statements before a failure are always
+ * validated, so the first failure seen in order is the one the sequential validation would have
+ * stopped at.
+ * <p>
+ * All statements of the schedule are held until the validation phase has used them, so memory
+ * grows with the size of the SQL files; {@link PipelinedValidator} keeps it bounded instead.
+ */
+public class ParallelValidator {
+    // 每个叶子任务最多校验的语句数，单条语句的解析耗时足以抵消拆分开销
+    static final int LEAF_STATEMENTS = 4;
+
+    private static final byte UNCHECKED = 0;
+    private static final byte VALID = 1;
+    private static final byte INVALID = 2;
+    private static final byte UNVERIFIED = 3;
+
+    private final ValidationCache cache;
+    private final DbType dbType;
+    private final int parallelism;
+    private final Charset charset;
+    private final InsertFastPath insertFastPath;
+    private final ParseBudget budget;
+    private final boolean indexFiles;
+
+    /**
+     * Creates a validator for UTF-8 SQL files
+     *
+     * @param cache       the cache the verdicts are looked up in
+     * @param dbType      the database type of the schedule
+     * @param parallelism the number of worker threads; 1 validates on the calling thread
+     */
+    public ParallelValidator(ValidationCache cache, DbType dbType, int parallelism) {
+        this(cache, dbType, parallelism, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Creates a validator
+     *
+     * @param cache       the cache the verdicts are looked up in
+     * @param dbType      the database type of the schedule
+     * @param parallelism the number of worker threads; 1 validates on the calling thread
+     * @param charset     the charset of SQL files without a byte order mark
+     */
+    public ParallelValidator(ValidationCache cache, DbType dbType, int parallelism, Charset charset) {
+        this(cache, dbType, parallelism, charset, null, ParseBudget.DEFAULT);
+    }
+
+    /**
+     * Creates a validator that checks simple INSERT statements structurally
+     *
+     * @param cache          the cache the verdicts are looked up in
+     * @param dbType         the database type of the schedule
+     * @param parallelism    the number of worker threads; 1 validates on the calling thread
+     * @param charset        the charset of SQL files without a byte order mark
+     * @param insertFastPath the fast path for bulk INSERT statements, or null to parse every statement
+     * @param budget         the time and size budget of parsing one statement
+     */
+    public ParallelValidator(ValidationCache cache, DbType dbType, int parallelism, Charset charset,
+                             InsertFastPath insertFastPath, ParseBudget budget) {
+        this(cache, dbType, parallelism, charset, insertFastPath, budget, false);
+    }
+
+    /**
+     * Creates a validator that may read SQL files through their statement index
+     *
+     * @param cache          the cache the verdicts are looked up in
+     * @param dbType         the database type of the schedule
+     * @param parallelism    the number of worker threads; 1 validates on the calling thread
+     * @param charset        the charset of SQL files without a byte order mark
+     * @param insertFastPath the fast path for bulk INSERT statements, or null to parse every statement
+     * @param budget         the time and size budget of parsing one statement
+     * @param indexFiles     whether SQL files are read through a {@link SqlScriptIndex}, built on first use
+     */
+    public ParallelValidator(ValidationCache cache, DbType dbType, int parallelism, Charset charset,
+                             InsertFastPath insertFastPath, ParseBudget budget, boolean indexFiles) {
+        this.cache = cache;
+        this.dbType = dbType;
+        this.parallelism = Math.max(1, parallelism);
+        this.charset = charset;
+        this.insertFastPath = insertFastPath;
+        this.budget = budget;
+        this.indexFiles = indexFiles;
+    }
+
+    /**
+     * Reads and validates the SQL lists of the tasks
+     *
+     * @param tasks         the tasks of the schedule
+     * @param taskStops     for each task, whether its first invalid statement ends its validation
+     * @param scheduleStops whether the end of a task's validation ends the schedule's validation
+     * @return for each task, one entry per element of its SQL list
+     */
+    public List<List<Entry>> validate(List<SqlTask> tasks, boolean[] taskStops, boolean scheduleStops) {
+        List<List<Entry>> result = new ArrayList<>(tasks.size());
+        List<Entry> files = new ArrayList<>();
+        for (SqlTask task : tasks) {
+            List<Entry> entries = new ArrayList<>();
+            if (task.getSqlList() != null) {
+                for (String sqlEntry : task.getSqlList()) {
+                    Entry entry = new Entry(sqlEntry);
+                    if (entry.isFile()) {
+                        files.add(entry);
+                    } else {
+                        String statement = sqlEntry.trim();
+                        entry.setStatements(statement.isEmpty()
+                                ? Collections.<ParsedStatement>emptyList()
+                                : Collections.singletonList(new ParsedStatement(statement)));
+                    }
+                    entries.add(entry);
+                }
+            }
+            result.add(entries);
+        }
+
+        ForkJoinPool pool = parallelism > 1 ? new ForkJoinPool(parallelism) : null;
+        try {
+            readFiles(files, pool);
+
+            // 把所有任务的语句按原顺序展开，失败时按位置取消其后的语句；先计数再按确切长度分配，避免逐条装箱
+            int total = 0;
+            for (List<Entry> entries : result) {
+                for (Entry entry : entries) {
+                    total += entry.getStatements().size();
+                }
+            }
+            Entry[] owners = new Entry[total];
+            int[] positions = new int[total];
+            int[] owningTasks = new int[total];
+            AtomicIntegerArray taskCutoffs = new AtomicIntegerArray(tasks.size());
+            AtomicInteger scheduleCutoff = new AtomicInteger(Integer.MAX_VALUE);
+            int index = 0;
+            for (int t = 0; t < result.size(); t++) {
+                taskCutoffs.set(t, Integer.MAX_VALUE);
+                for (Entry entry : result.get(t)) {
+                    if (entry.getError() != null && taskStops[t]) {
+                        cancelAfter(index - 1, t, taskCutoffs, scheduleStops ? scheduleCutoff : null);
+                    }
+                    int size = entry.getStatements().size();
+                    for (int i = 0; i < size; i++, index++) {
+                        owners[index] = entry;
+                        positions[index] = i;
+                        owningTasks[index] = t;
+                    }
+                }
+            }
+
+            Validation validation = new Validation(owners, positions, owningTasks, taskStops, scheduleStops,
+                    taskCutoffs, scheduleCutoff);
+            if (pool != null) {
+                pool.invoke(validation.range(0, total));
+            } else {
+                for (int i = 0; i < total; i++) {
+                    validation.validate(i);
+                }
+            }
+        } finally {
+            if (pool != null) {
+                pool.shutdown();
+            }
+        }
+        return result;
+    }
+
+    private void readFiles(List<Entry> files, ForkJoinPool pool) {
+        if (pool == null || files.size() < 2) {
+            for (Entry entry : files) {
+                read(entry, pool);
+            }
+            return;
+        }
+        List<Callable<Void>> reads = new ArrayList<>(files.size());
+        for (Entry entry : files) {
+            reads.add(() -> {
+                read(entry, null);
+                return null;
+            });
+        }
+        for (Future<Void> read : pool.invokeAll(reads)) {
+            try {
+                read.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RuntimeException("SQL validation interrupted", e);
+            } catch (ExecutionException e) {
+                throw new RuntimeException("SQL validation error", e.getCause());
+            }
+        }
+    }
+
+    private void read(Entry entry, ForkJoinPool pool) {
+        try {
+            String file = entry.getSqlEntry().trim();
+            entry.setStatements(indexFiles ? readIndexed(SqlScriptIndex.open(Paths.get(file), charset, dbType), pool)
+                    : SqlValidator.readStatements(file, charset, dbType));
+        } catch (IOException e) {
+            entry.setError(e);
+        }
+    }
+
+    private List<ParsedStatement> readIndexed(SqlScriptIndex index, ForkJoinPool pool) throws IOException {
+        int[] bounds = index.split(pool != null ? parallelism : 1);
+        if (bounds.length <= 2) {
+            return index.read(0, index.size());
+        }
+        List<Callable<List<ParsedStatement>>> ranges = new ArrayList<>(bounds.length - 1);
+        for (int i = 0; i + 1 < bounds.length; i++) {
+            int from = bounds[i];
+            int to = bounds[i + 1];
+            ranges.add(() -> index.read(from, to));
+        }
+        List<ParsedStatement> statements = new ArrayList<>(index.size());
+        for (Future<List<ParsedStatement>> range : pool.invokeAll(ranges)) {
+            try {
+                statements.addAll(range.get());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RuntimeException("SQL validation interrupted", e);
+            } catch (ExecutionException e) {
+                if (e.getCause() instanceof IOException) {
+                    throw (IOException) e.getCause();
+                }
+                throw new RuntimeException("SQL validation error", e.getCause());
+            }
+        }
+        return statements;
+    }
+
+    private static void cancelAfter(int index, int task, AtomicIntegerArray taskCutoffs, AtomicInteger scheduleCutoff) {
+        taskCutoffs.accumulateAndGet(task, index, Math::min);
+        if (scheduleCutoff != null) {
+            scheduleCutoff.accumulateAndGet(index, Math::min);
+        }
+    }
+
+    /**
+     * The validation outcome of one element of a task's SQL list: a single statement, or the
+     * statements of a SQL file or the error reading it
+     */
+    public static final class Entry {
+        private final String sqlEntry;
+        private final boolean file;
+        private List<ParsedStatement> statements = Collections.emptyList();
+        private IOException error;
+        private byte[] verdicts = new byte[0];
+        private long[] parseNanos = new long[0];
+
+        Entry(String sqlEntry) {
+            this.sqlEntry = sqlEntry;
+            this.file = sqlEntry.trim().toLowerCase().endsWith(".sql");
+        }
+
+        public String getSqlEntry() {
+            return sqlEntry;
+        }
+
+        public boolean isFile() {
+            return file;
+        }
+
+        public List<ParsedStatement> getStatements() {
+            return statements;
+        }
+
+        public IOException getError() {
+            return error;
+        }
+
+        /**
+         * Whether a statement was validated before its validation was cancelled
+         *
+         * @param statement the index of the statement in this entry
+         * @return true if {@link #isValid(int)} holds the verdict
+         */
+        public boolean isChecked(int statement) {
+            return verdicts[statement] != UNCHECKED;
+        }
+
+        public boolean isValid(int statement) {
+            return verdicts[statement] == VALID;
+        }
+
+        /**
+         * Gets the verdict of a statement
+         *
+         * @param statement the index of the statement in this entry
+         * @return the verdict, or null if the statement was not checked
+         */
+        public Verdict getVerdict(int statement) {
+            switch (verdicts[statement]) {
+                case VALID:
+                    return Verdict.VALID;
+                case INVALID:
+                    return Verdict.INVALID;
+                case UNVERIFIED:
+                    return Verdict.UNVERIFIED;
+                default:
+                    return null;
+            }
+        }
+
+        public long getParseNanos(int statement) {
+            return parseNanos[statement];
+        }
+
+        private void setStatements(List<ParsedStatement> statements) {
+            this.statements = statements;
+            this.verdicts = new byte[statements.size()];
+            this.parseNanos = new long[statements.size()];
+        }
+
+        private void setError(IOException error) {
+            this.error = error;
+        }
+    }
+
+    private final class Validation {
+        private final Entry[] owners;
+        private final int[] positions;
+        private final int[] owningTasks;
+        private final boolean[] taskStops;
+        private final boolean scheduleStops;
+        private final AtomicIntegerArray taskCutoffs;
+        private final AtomicInteger scheduleCutoff;
+
+        Validation(Entry[] owners, int[] positions, int[] owningTasks, boolean[] taskStops, boolean scheduleStops,
+                   AtomicIntegerArray taskCutoffs, AtomicInteger scheduleCutoff) {
+            this.owners = owners;
+            this.positions = positions;
+            this.owningTasks = owningTasks;
+            this.taskStops = taskStops;
+            this.scheduleStops = scheduleStops;
+            this.taskCutoffs = taskCutoffs;
+            this.scheduleCutoff = scheduleCutoff;
+        }
+
+        Range range(int from, int to) {
+            return new Range(from, to);
+        }
+
+        private void validate(int index) {
+            int task = owningTasks[index];
+            if (index > scheduleCutoff.get() || index > taskCutoffs.get(task)) {
+                return;
+            }
+            Entry entry = owners[index];
+            int position = positions[index];
+            long start = System.nanoTime();
+            ParsedStatement statement = entry.statements.get(position);
+            Verdict verdict = insertFastPath != null ? insertFastPath.check(statement, dbType, budget)
+                    : cache.check(statement, dbType, budget);
+            entry.parseNanos[position] = System.nanoTime() - start;
+            entry.verdicts[position] = verdict == Verdict.VALID ? VALID : verdict == Verdict.INVALID ? INVALID : UNVERIFIED;
+            // 在停止策略下，无法判断的语句与非法语句一样结束校验
+            if (verdict != Verdict.VALID && taskStops[task]) {
+                cancelAfter(index, task, taskCutoffs, scheduleStops ? scheduleCutoff : null);
+            }
+        }
+
+        private final class Range extends RecursiveAction {
+            private final int from;
+            private final int to;
+
+            Range(int from, int to) {
+                this.from = from;
+                this.to = to;
+            }
+
+            @Override
+            protected void compute() {
+                if (from > scheduleCutoff.get()) {
+                    return;
+                }
+                if (to - from <= LEAF_STATEMENTS) {
+                    for (int i = from; i < to; i++) {
+                        validate(i);
+                    }
+                    return;
+                }
+                int middle = (from + to) >>> 1;
+                invokeAll(new Range(from, middle), new Range(middle, to));
+            }
+        }
+    }
+}
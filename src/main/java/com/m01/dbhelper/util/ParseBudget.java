@@ -0,0 +1,185 @@
+package com.m01.dbhelper.util;
+
+import net.sf.jsqlparser.JSQLParserException;
+import net.sf.jsqlparser.parser.CCJSqlParser;
+import net.sf.jsqlparser.parser.CCJSqlParserUtil;
+import net.sf.jsqlparser.statement.Statement;
+import net.sf.jsqlparser.statement.Statements;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Bounds the time and the size of parsing one statement.
+ * <p>
+ * Every parse runs on a shared pool of daemon worker threads with a large stack, so deeply nested
+ * statements do not overflow it, and the calling thread waits at most {@link #getTimeoutMillis()}
+ * for each of the simple and the complex parsing attempts. JSqlParser stops a parse that ran out
+ * of time at its next check. A parse that timed out or still overflowed the stack is
+ * {@link #isExhausted(JSQLParserException) exhausted}: it says nothing about the statement.
+ * <p>
+ * A statement longer than {@link #getMaxChars()} or nested deeper than {@link #getMaxNesting()}
+ * is oversized; the validator tries the structural check of {@link InsertFastPath} on it before
+ * parsing it.
+ */
+public class ParseBudget {
+    static final long DEFAULT_TIMEOUT_MILLIS = 6000;
+    static final int DEFAULT_MAX_CHARS = 1 << 20;
+    static final int DEFAULT_MAX_NESTING = 100;
+    // 解析线程的栈大小，JSqlParser 递归下降解析的深度与括号嵌套层数成正比
+    private static final long WORKER_STACK_BYTES = 64L << 20;
+
+    /**
+     * The budget of JSqlParser's own default timeout
+     */
+    public static final ParseBudget DEFAULT = new ParseBudget(DEFAULT_TIMEOUT_MILLIS, DEFAULT_MAX_CHARS);
+
+    private static final ExecutorService WORKERS = workers();
+
+    private final long timeoutMillis;
+    private final int maxChars;
+    private final int maxNesting;
+
+    /**
+     * Creates a budget
+     *
+     * @param timeoutMillis the time one parsing attempt may take
+     * @param maxChars      the length above which a statement is oversized
+     */
+    public ParseBudget(long timeoutMillis, int maxChars) {
+        this(timeoutMillis, maxChars, DEFAULT_MAX_NESTING);
+    }
+
+    ParseBudget(long timeoutMillis, int maxChars, int maxNesting) {
+        this.timeoutMillis = timeoutMillis;
+        this.maxChars = maxChars;
+        this.maxNesting = maxNesting;
+    }
+
+    public long getTimeoutMillis() {
+        return timeoutMillis;
+    }
+
+    public int getMaxChars() {
+        return maxChars;
+    }
+
+    public int getMaxNesting() {
+        return maxNesting;
+    }
+
+    /**
+     * Whether a statement is longer or nested deeper than the budget allows for parsing it first
+     *
+     * @param sql the statement
+     * @return true if the statement is oversized
+     */
+    public boolean isOversized(String sql) {
+        if (sql.length() > maxChars) {
+            return true;
+        }
+        int depth = 0;
+        for (int i = 0; i < sql.length(); i++) {
+            char c = sql.charAt(i);
+            if (c == '(') {
+                if (++depth > maxNesting) {
+                    return true;
+                }
+            } else if (c == ')') {
+                depth--;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Parses one statement with default parser features, see {@link #parse(String, Dialect)}
+     *
+     * @param sql the statement
+     * @return the AST
+     * @throws JSQLParserException if the statement is invalid or the budget is exhausted
+     */
+    public Statement parse(String sql) throws JSQLParserException {
+        return parse(sql, Dialects.of(null));
+    }
+
+    /**
+     * Parses one statement with the feature flags of a dialect, first without and then with
+     * complex parsing like {@link CCJSqlParserUtil#parse(String)}; an exhausted attempt is not retried
+     *
+     * @param sql     the statement
+     * @param dialect the dialect that configures the parser
+     * @return the AST
+     * @throws JSQLParserException if the statement is invalid or the budget is exhausted
+     */
+    public Statement parse(String sql, Dialect dialect) throws JSQLParserException {
+        try {
+            return CCJSqlParserUtil.parseStatement(newParser(sql, false, dialect), WORKERS);
+        } catch (JSQLParserException e) {
+            if (isExhausted(e)) {
+                throw e;
+            }
+            return CCJSqlParserUtil.parseStatement(newParser(sql, true, dialect), WORKERS);
+        }
+    }
+
+    /**
+     * Parses a script of statements in one attempt
+     *
+     * @param sql the script
+     * @return the ASTs
+     * @throws JSQLParserException if the script is invalid or the budget is exhausted
+     */
+    public Statements parseStatements(String sql) throws JSQLParserException {
+        return parseStatements(sql, Dialects.of(null));
+    }
+
+    /**
+     * Parses a script of statements in one attempt with the feature flags of a dialect
+     *
+     * @param sql     the script, already rewritten by the dialect
+     * @param dialect the dialect that configures the parser
+     * @return the ASTs
+     * @throws JSQLParserException if the script is invalid or the budget is exhausted
+     */
+    public Statements parseStatements(String sql, Dialect dialect) throws JSQLParserException {
+        return CCJSqlParserUtil.parseStatements(newParser(sql, true, dialect), WORKERS);
+    }
+
+    /**
+     * Whether a parse failed because it ran out of time or stack rather than on the statement
+     *
+     * @param e the failure
+     * @return true if the parse was cut short
+     */
+    public static boolean isExhausted(JSQLParserException e) {
+        for (Throwable cause = e.getCause(); cause != null; cause = cause.getCause()) {
+            if (cause instanceof TimeoutException || cause instanceof StackOverflowError) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private CCJSqlParser newParser(String sql, boolean complex, Dialect dialect) {
+        CCJSqlParser parser = CCJSqlParserUtil.newParser(sql).withAllowComplexParsing(complex).withTimeOut(timeoutMillis);
+        dialect.configure(parser);
+        return parser;
+    }
+
+    private static ExecutorService workers() {
+        AtomicInteger count = new AtomicInteger();
+        ThreadGroup group = Thread.currentThread().getThreadGroup();
+        ThreadPoolExecutor workers = new ThreadPoolExecutor(0, Integer.MAX_VALUE, 30, TimeUnit.SECONDS,
+                new SynchronousQueue<>(), task -> {
+            Thread thread = new Thread(group, task, "sql-parser-" + count.incrementAndGet(), WORKER_STACK_BYTES);
+            thread.setDaemon(true);
+            return thread;
+        });
+        return workers;
+    }
+}
@@ -0,0 +1,254 @@
+package com.m01.dbhelper.util;
+
+import com.m01.dbhelper.common.DbType;
+import com.m01.dbhelper.common.StatementKind;
+import net.sf.jsqlparser.JSQLParserException;
+import net.sf.jsqlparser.statement.Commit;
+import net.sf.jsqlparser.statement.DescribeStatement;
+import net.sf.jsqlparser.statement.ExplainStatement;
+import net.sf.jsqlparser.statement.ResetStatement;
+import net.sf.jsqlparser.statement.RollbackStatement;
+import net.sf.jsqlparser.statement.SavepointStatement;
+import net.sf.jsqlparser.statement.SetStatement;
+import net.sf.jsqlparser.statement.ShowColumnsStatement;
+import net.sf.jsqlparser.statement.ShowStatement;
+import net.sf.jsqlparser.statement.Statement;
+import net.sf.jsqlparser.statement.UseStatement;
+import net.sf.jsqlparser.statement.alter.Alter;
+import net.sf.jsqlparser.statement.alter.sequence.AlterSequence;
+import net.sf.jsqlparser.statement.comment.Comment;
+import net.sf.jsqlparser.statement.create.index.CreateIndex;
+import net.sf.jsqlparser.statement.create.schema.CreateSchema;
+import net.sf.jsqlparser.statement.create.sequence.CreateSequence;
+import net.sf.jsqlparser.statement.create.table.CreateTable;
+import net.sf.jsqlparser.statement.create.view.AlterView;
+import net.sf.jsqlparser.statement.create.view.CreateView;
+import net.sf.jsqlparser.statement.delete.Delete;
+import net.sf.jsqlparser.statement.drop.Drop;
+import net.sf.jsqlparser.statement.insert.Insert;
+import net.sf.jsqlparser.statement.merge.Merge;
+import net.sf.jsqlparser.statement.select.Select;
+import net.sf.jsqlparser.statement.show.ShowIndexStatement;
+import net.sf.jsqlparser.statement.show.ShowTablesStatement;
+import net.sf.jsqlparser.statement.truncate.Truncate;
+import net.sf.jsqlparser.statement.update.Update;
+import net.sf.jsqlparser.statement.upsert.Upsert;
+
+import java.lang.ref.SoftReference;
+
+/**
+ * One SQL statement on its way from the task's SQL list or file through validation to execution.
+ * <p>
+ * The statement keeps its original text, where it came from, and the JSqlParser AST of the parse
+ * that split or validated it, so that no later step has to parse it again. The AST is only
+ * softly referenced: under memory pressure it is dropped and {@link #getAst(DbType, ParseBudget)} parses the text
+ * again when it is needed.
+ * <p>
+ * Validation also classifies the statement: its {@link #getKind() kind} and whether it
+ * {@link #returnsRows() returns rows} come from the AST when the statement was parsed, and from
+ * the leading keyword otherwise. The executor picks the JDBC call by them.
+ * <p>
+ * Validation numbers the statements of a task in order, invalid ones included, and the events of
+ * both phases carry this {@link #getOrdinal() ordinal}, so they can be joined per statement.
+ */
+public class ParsedStatement {
+    private final String sql;
+    private final String source;
+    private final long offset;
+    private volatile SoftReference<Statement> ast;
+    private volatile StatementKind kind;
+    private volatile Boolean returnsRows;
+    private volatile int ordinal;
+
+    /**
+     * Creates a statement that has not been parsed yet
+     *
+     * @param sql    the statement text
+     * @param source the SQL file the statement was read from, or null for a statement of the
+     *               task's SQL list
+     * @param offset the position of the statement inside its source: the byte offset in the SQL
+     *               file, or the character offset in text split by
+     *               {@link SqlValidator#parseStatements(String, String, com.m01.dbhelper.common.DbType)}; -1 if unknown
+     */
+    public ParsedStatement(String sql, String source, long offset) {
+        this.sql = sql;
+        this.source = source;
+        this.offset = offset;
+    }
+
+    /**
+     * Creates a statement of the task's SQL list that has not been parsed yet
+     *
+     * @param sql the statement text
+     */
+    public ParsedStatement(String sql) {
+        this(sql, null, -1);
+    }
+
+    public String getSql() {
+        return sql;
+    }
+
+    public String getSource() {
+        return source;
+    }
+
+    public long getOffset() {
+        return offset;
+    }
+
+    /**
+     * Gets the position of the statement inside its task
+     *
+     * @return the 1-based position in validation order, 0 before validation
+     */
+    public int getOrdinal() {
+        return ordinal;
+    }
+
+    void setOrdinal(int ordinal) {
+        this.ordinal = ordinal;
+    }
+
+    /**
+     * Whether the AST of a successful parse is still held
+     *
+     * @return true if {@link #getAst(DbType, ParseBudget)} returns without parsing
+     */
+    public boolean hasAst() {
+        SoftReference<Statement> reference = ast;
+        return reference != null && reference.get() != null;
+    }
+
+    /**
+     * Gets the AST, parsing the text again if it was never parsed or the AST was dropped; the
+     * text is rewritten and parsed the way {@link SqlValidator#check(ParsedStatement, DbType, ParseBudget)}
+     * parses it, within the budget
+     *
+     * @param dbType the database type whose dialect rewrites and parses the text
+     * @param budget the parse budget
+     * @return the AST, or null if the text does not parse within the budget
+     */
+    public Statement getAst(DbType dbType, ParseBudget budget) {
+        SoftReference<Statement> reference = ast;
+        Statement statement = reference != null ? reference.get() : null;
+        if (statement == null) {
+            try {
+                Dialect dialect = Dialects.of(dbType);
+                statement = budget.parse(dialect.rewrite(sql.trim()), dialect);
+                setAst(statement);
+            } catch (JSQLParserException e) {
+                return null;
+            }
+        }
+        return statement;
+    }
+
+    /**
+     * Keeps the AST of a successful parse of this statement and classifies the statement by it
+     *
+     * @param statement the AST
+     */
+    public void setAst(Statement statement) {
+        this.ast = new SoftReference<>(statement);
+        classify(statement);
+    }
+
+    /**
+     * Gets the kind of the statement, from the AST if it was parsed and from the leading keyword
+     * otherwise
+     *
+     * @return the statement kind
+     */
+    public StatementKind getKind() {
+        StatementKind result = kind;
+        if (result == null) {
+            classify();
+            result = kind;
+        }
+        return result;
+    }
+
+    /**
+     * Whether executing the statement returns a result set rather than an update count
+     *
+     * @return true for queries and DML with a RETURNING clause, false for statements that only
+     * return an update count, null if only executing the statement tells
+     */
+    public Boolean returnsRows() {
+        if (kind == null) {
+            classify();
+        }
+        return returnsRows;
+    }
+
+    /**
+     * Classifies a statement that was validated without being parsed
+     *
+     * @param kind        the statement kind
+     * @param returnsRows whether it returns a result set, null if unknown
+     */
+    void classify(StatementKind kind, Boolean returnsRows) {
+        // 先写结果集标志，读取方先读类别
+        this.returnsRows = returnsRows;
+        this.kind = kind;
+    }
+
+    private void classify() {
+        SoftReference<Statement> reference = ast;
+        Statement statement = reference != null ? reference.get() : null;
+        if (statement != null) {
+            classify(statement);
+            return;
+        }
+        StatementKind keywordKind = kindOf(sql);
+        // 只凭关键字看不出 DML 是否带 RETURNING 子句
+        classify(keywordKind, keywordKind == StatementKind.QUERY ? Boolean.TRUE
+                : keywordKind == StatementKind.DML || keywordKind == StatementKind.OTHER ? null : Boolean.FALSE);
+    }
+
+    private void classify(Statement statement) {
+        if (statement instanceof Select || statement instanceof ShowStatement || statement instanceof ShowColumnsStatement
+                || statement instanceof ShowTablesStatement || statement instanceof ShowIndexStatement
+                || statement instanceof DescribeStatement || statement instanceof ExplainStatement) {
+            classify(StatementKind.QUERY, Boolean.TRUE);
+        } else if (statement instanceof Insert) {
+            Insert insert = (Insert) statement;
+            classify(StatementKind.DML, insert.getReturningClause() != null || insert.getOutputClause() != null);
+        } else if (statement instanceof Update) {
+            classify(StatementKind.DML, ((Update) statement).getReturningClause() != null);
+        } else if (statement instanceof Delete) {
+            classify(StatementKind.DML, ((Delete) statement).getReturningClause() != null);
+        } else if (statement instanceof Merge || statement instanceof Upsert) {
+            classify(StatementKind.DML, Boolean.FALSE);
+        } else if (statement instanceof CreateTable || statement instanceof CreateIndex || statement instanceof CreateView
+                || statement instanceof CreateSchema || statement instanceof CreateSequence || statement instanceof Alter
+                || statement instanceof AlterView || statement instanceof AlterSequence || statement instanceof Drop
+                || statement instanceof Truncate || statement instanceof Comment) {
+            classify(StatementKind.DDL, Boolean.FALSE);
+        } else if (statement instanceof Commit || statement instanceof RollbackStatement
+                || statement instanceof SavepointStatement) {
+            classify(StatementKind.TRANSACTION, Boolean.FALSE);
+        } else if (statement instanceof SetStatement || statement instanceof UseStatement
+                || statement instanceof ResetStatement) {
+            classify(StatementKind.SESSION, Boolean.FALSE);
+        } else {
+            classify(StatementKind.OTHER, null);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return sql;
+    }
+
+    /**
+     * Derives the kind from the leading keyword, for statements without an AST
+     *
+     * @param sql the statement text
+     * @return the statement kind
+     */
+    static StatementKind kindOf(String sql) {
+        return SqlLexer.kindOf(SqlLexer.leadingKeyword(sql));
+    }
+}
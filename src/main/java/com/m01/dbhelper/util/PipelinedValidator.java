@@ -0,0 +1,255 @@
+package com.m01.dbhelper.util;
+
+import com.m01.dbhelper.common.DbType;
+import com.m01.dbhelper.common.SqlTask;
+import com.m01.dbhelper.common.Verdict;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.Charset;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Validates the statements of a schedule's tasks while they are being executed.
+ * <p>
+ * A reader thread walks the SQL lists of the tasks in order, streaming SQL files statement by
+ * statement, and hands every statement to a pool of validator threads. The pending validations
+ * are queued in statement order in a bounded queue, so the reader runs at most the queue's
+ * capacity ahead of the executor, which {@link #take() takes} the verdicts in order. Every task
+ * ends with an item for which {@link Item#isTaskEnd()} holds.
+ * <p>
+ * Unlike {@link ParallelValidator}, a SQL file that fails to read part way yields the statements
+ * read before the error and then the error.
+ */
+public class PipelinedValidator implements Closeable {
+    static final int DEFAULT_CAPACITY = 1024;
+
+    private final ValidationCache cache;
+    private final DbType dbType;
+    private final Charset charset;
+    private final InsertFastPath insertFastPath;
+    private final ParseBudget budget;
+    private final BlockingQueue<Future<Item>> queue;
+    private final ExecutorService validators;
+    private volatile int skippedTask = -1;
+    private volatile boolean closed;
+    private Thread reader;
+
+    /**
+     * Creates a validator
+     *
+     * @param cache          the cache the verdicts are looked up in
+     * @param dbType         the database type of the schedule
+     * @param parallelism    the number of validator threads
+     * @param charset        the charset of SQL files without a byte order mark
+     * @param insertFastPath the fast path for bulk INSERT statements, or null to parse every statement
+     * @param budget         the time and size budget of parsing one statement
+     * @param capacity       the number of statements read ahead of the executor
+     */
+    public PipelinedValidator(ValidationCache cache, DbType dbType, int parallelism, Charset charset,
+                              InsertFastPath insertFastPath, ParseBudget budget, int capacity) {
+        this.cache = cache;
+        this.dbType = dbType;
+        this.charset = charset;
+        this.insertFastPath = insertFastPath;
+        this.budget = budget;
+        this.queue = new ArrayBlockingQueue<>(Math.max(1, capacity));
+        AtomicInteger count = new AtomicInteger();
+        this.validators = Executors.newFixedThreadPool(Math.max(1, parallelism), runnable -> {
+            Thread thread = new Thread(runnable, "sql-pipeline-validator-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Starts reading and validating the SQL lists of the tasks
+     *
+     * @param tasks the tasks of the schedule
+     * @param name  the name of the reader thread
+     */
+    public void start(List<SqlTask> tasks, String name) {
+        reader = new Thread(() -> read(tasks), name);
+        reader.setDaemon(true);
+        reader.start();
+    }
+
+    /**
+     * Takes the next item in statement order, waiting for its validation
+     *
+     * @return the item
+     * @throws InterruptedException if the calling thread is interrupted while waiting
+     */
+    public Item take() throws InterruptedException {
+        return get(queue.take());
+    }
+
+    /**
+     * Stops reading a task and discards its remaining items, up to and including its end
+     *
+     * @param task the index of the task
+     * @throws InterruptedException if the calling thread is interrupted while waiting
+     */
+    public void skipTask(int task) throws InterruptedException {
+        skippedTask = task;
+        while (true) {
+            Future<Item> item = queue.take();
+            // 尚未开始的校验不再需要
+            item.cancel(false);
+            if (!item.isCancelled() && get(item).isTaskEnd()) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Stops the reader and the validator threads; items still queued are discarded
+     */
+    @Override
+    public void close() {
+        closed = true;
+        if (reader != null) {
+            reader.interrupt();
+        }
+        validators.shutdownNow();
+        queue.clear();
+    }
+
+    private static Item get(Future<Item> item) throws InterruptedException {
+        try {
+            return item.get();
+        } catch (ExecutionException e) {
+            throw new RuntimeException("SQL validation error", e.getCause());
+        }
+    }
+
+    private void read(List<SqlTask> tasks) {
+        try {
+            for (int t = 0; t < tasks.size() && !closed; t++) {
+                List<String> sqlList = tasks.get(t).getSqlList();
+                if (sqlList != null) {
+                    for (String sqlEntry : sqlList) {
+                        if (t <= skippedTask || closed) {
+                            break;
+                        }
+                        readEntry(t, sqlEntry);
+                    }
+                }
+                queue.put(CompletableFuture.completedFuture(Item.taskEnd(t)));
+            }
+        } catch (InterruptedException e) {
+            // 执行端已关闭流水线
+        } catch (RuntimeException e) {
+            CompletableFuture<Item> failure = new CompletableFuture<>();
+            failure.completeExceptionally(e);
+            try {
+                queue.put(failure);
+            } catch (InterruptedException interrupted) {
+                // 执行端已关闭流水线
+            }
+        }
+    }
+
+    private void readEntry(int task, String sqlEntry) throws InterruptedException {
+        String trimmed = sqlEntry.trim();
+        if (!isFile(sqlEntry)) {
+            if (!trimmed.isEmpty()) {
+                submit(task, sqlEntry, new ParsedStatement(trimmed));
+            }
+            return;
+        }
+        try (SqlScriptReader statements = new SqlScriptReader(Paths.get(trimmed), charset, dbType)) {
+            while (statements.hasNext() && task > skippedTask && !closed) {
+                submit(task, sqlEntry, statements.next());
+            }
+        } catch (IOException e) {
+            queue.put(CompletableFuture.completedFuture(Item.readError(task, sqlEntry, e)));
+        } catch (UncheckedIOException e) {
+            queue.put(CompletableFuture.completedFuture(Item.readError(task, sqlEntry, e.getCause())));
+        }
+    }
+
+    private void submit(int task, String sqlEntry, ParsedStatement statement) throws InterruptedException {
+        queue.put(validators.submit(() -> {
+            long start = System.nanoTime();
+            Verdict verdict = insertFastPath != null ? insertFastPath.check(statement, dbType, budget)
+                    : cache.check(statement, dbType, budget);
+            return new Item(task, sqlEntry, statement, verdict, System.nanoTime() - start, null);
+        }));
+    }
+
+    static boolean isFile(String sqlEntry) {
+        return sqlEntry.trim().toLowerCase().endsWith(".sql");
+    }
+
+    /**
+     * One statement of a task with its verdict, the error reading a SQL file, or the end of a task
+     */
+    public static final class Item {
+        private final int task;
+        private final String sqlEntry;
+        private final ParsedStatement statement;
+        private final Verdict verdict;
+        private final long parseNanos;
+        private final IOException error;
+
+        Item(int task, String sqlEntry, ParsedStatement statement, Verdict verdict, long parseNanos, IOException error) {
+            this.task = task;
+            this.sqlEntry = sqlEntry;
+            this.statement = statement;
+            this.verdict = verdict;
+            this.parseNanos = parseNanos;
+            this.error = error;
+        }
+
+        static Item readError(int task, String sqlEntry, IOException error) {
+            return new Item(task, sqlEntry, null, null, 0, error);
+        }
+
+        static Item taskEnd(int task) {
+            return new Item(task, null, null, null, 0, null);
+        }
+
+        public int getTask() {
+            return task;
+        }
+
+        public String getSqlEntry() {
+            return sqlEntry;
+        }
+
+        public boolean isFile() {
+            return sqlEntry != null && PipelinedValidator.isFile(sqlEntry);
+        }
+
+        public ParsedStatement getStatement() {
+            return statement;
+        }
+
+        public Verdict getVerdict() {
+            return verdict;
+        }
+
+        public long getParseNanos() {
+            return parseNanos;
+        }
+
+        public IOException getError() {
+            return error;
+        }
+
+        public boolean isTaskEnd() {
+            return statement == null && error == null;
+        }
+    }
+}
@@ -0,0 +1,43 @@
+package com.m01.dbhelper.util;
+
+import com.m01.dbhelper.common.DbType;
+
+/**
+ * PostgreSQL: double-quoted identifiers, dollar-quoted strings, nested block comments and no
+ * backslash escapes in standard strings
+ */
+public class PostgreSqlDialect implements Dialect {
+
+    @Override
+    public DbType getDbType() {
+        return DbType.POSTGRESQL;
+    }
+
+    @Override
+    public String getDriverClass() {
+        return "org.postgresql.Driver";
+    }
+
+    /**
+     * Turns double-quoted identifiers into backtick-quoted ones for JSqlParser
+     */
+    @Override
+    public String rewrite(String sql) {
+        return sql.indexOf('"') < 0 ? sql : sql.replace('"', '`');
+    }
+
+    @Override
+    public boolean backslashEscapes() {
+        return false;
+    }
+
+    @Override
+    public boolean dollarQuotes() {
+        return true;
+    }
+
+    @Override
+    public boolean nestedComments() {
+        return true;
+    }
+}
@@ -0,0 +1,333 @@
+package com.m01.dbhelper.util;
+
+import com.m01.dbhelper.common.ExportFormat;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.CharBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Types;
+
+/**
+ * Streams SELECT results straight into CSV or JSON Lines files.
+ * <p>
+ * An instance writes the rows of one statement, batch by batch, so it can serve as the target of
+ * the {@code export} {@link ResultSink}; {@link #export(ResultSet, ExportFormat, Path)} drives one
+ * directly from a result set. Large objects kept in a {@link LobFile} are copied into the file
+ * chunk by chunk instead of being rendered into a row in memory.
+ */
+public class QueryResultExporter implements Closeable {
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final byte JSON_STRING = 0;
+    private static final byte JSON_NUMBER = 1;
+    private static final byte JSON_BOOLEAN = 2;
+
+    private final ExportFormat format;
+    private final Writer writer;
+    private final int columnCount;
+    private final String[] jsonKeys;
+    private final byte[] jsonTypes;
+    private final StringBuilder line = new StringBuilder(256);
+    private final StringBuilder cell = new StringBuilder(64);
+    private final char[] chunk = new char[8192];
+
+    /**
+     * Opens the export file, replacing any existing content, and writes the CSV header
+     *
+     * @param format  the export format, CSV or JSONL; COLUMNAR files are written by
+     *                {@link ColumnarResultWriter}
+     * @param columns the column layout of the result
+     * @param file    the target file
+     * @throws IOException if the file cannot be written
+     */
+    public QueryResultExporter(ExportFormat format, ResultColumns columns, Path file) throws IOException {
+        if (format == ExportFormat.COLUMNAR) {
+            throw new IllegalArgumentException("COLUMNAR exports are written by the columnar result sink");
+        }
+        Path parent = file.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        this.format = format;
+        this.columnCount = columns.getColumnCount();
+        this.jsonTypes = new byte[columnCount];
+        this.jsonKeys = new String[columnCount];
+        for (int i = 0; i < columnCount; i++) {
+            String label = columns.getColumnLabel(i + 1);
+            jsonTypes[i] = jsonType(columns.getColumnType(i + 1));
+            // 列名在每一行中都会重复出现，提前转义一次
+            StringBuilder key = new StringBuilder(label.length() + 4);
+            key.append(i == 0 ? "{" : ",");
+            appendJsonString(label, key);
+            key.append(':');
+            jsonKeys[i] = key.toString();
+        }
+        this.writer = new BufferedWriter(new OutputStreamWriter(Files.newOutputStream(file), StandardCharsets.UTF_8), BUFFER_SIZE);
+
+        if (format == ExportFormat.CSV) {
+            line.setLength(0);
+            for (int i = 0; i < columnCount; i++) {
+                if (i > 0) {
+                    line.append(',');
+                }
+                appendCsvField(columns.getColumnLabel(i + 1), line);
+            }
+            line.append("\r\n");
+            writer.append(line);
+        }
+    }
+
+    /**
+     * Builds the export file for one statement of a task
+     *
+     * @param exportDir      the directory that receives the export files
+     * @param scheduleName   the name of the schedule
+     * @param taskName       the name of the task
+     * @param statementIndex the 1-based position of the statement inside the task
+     * @param format         the export format
+     * @return the path of the export file
+     */
+    public static Path exportFile(Path exportDir, String scheduleName, String taskName, int statementIndex, ExportFormat format) {
+        String fileName = sanitize(scheduleName) + "-" + sanitize(taskName) + "-" + statementIndex + "." + format.getExtension();
+        return exportDir.resolve(fileName);
+    }
+
+    /**
+     * Streams all rows of the result set into the given file, replacing any existing content
+     *
+     * @param resultSet the result set to export, positioned before the first row
+     * @param format    the export format
+     * @param file      the target file
+     * @return the number of rows written
+     * @throws SQLException if reading the result set fails
+     * @throws IOException  if writing the file fails
+     */
+    public static long export(ResultSet resultSet, ExportFormat format, Path file) throws SQLException, IOException {
+        if (format == ExportFormat.COLUMNAR) {
+            return ColumnarResultWriter.export(resultSet, file);
+        }
+        ResultColumns columns = new ResultColumns(resultSet.getMetaData());
+        RowFormatter formatter = new RowFormatter(resultSet.getMetaData(), new LobHandler(), true);
+        RowBatch batch = new RowBatch(columns.getColumnCount(), ResultPipeline.BATCH_ROWS);
+        long rowCount = 0;
+        try (QueryResultExporter exporter = new QueryResultExporter(format, columns, file)) {
+            int rows;
+            while ((rows = batch.fill(resultSet, formatter, rowCount + 1)) > 0) {
+                exporter.writeRows(batch);
+                rowCount += rows;
+            }
+        } finally {
+            batch.releaseLargeObjects();
+        }
+        return rowCount;
+    }
+
+    /**
+     * Appends all rows of a batch to the export file
+     *
+     * @param batch the rows
+     * @throws IOException if writing the file fails
+     */
+    public void writeRows(RowBatch batch) throws IOException {
+        for (int row = 0; row < batch.getRowCount(); row++) {
+            line.setLength(0);
+            if (format == ExportFormat.CSV) {
+                appendCsvRow(batch, row);
+            } else {
+                appendJsonRow(batch, row);
+            }
+            writer.append(line);
+        }
+    }
+
+    /**
+     * Flushes and closes the export file
+     */
+    @Override
+    public void close() throws IOException {
+        writer.close();
+    }
+
+    private void appendCsvRow(RowBatch batch, int row) throws IOException {
+        for (int i = 1; i <= columnCount; i++) {
+            if (i > 1) {
+                line.append(',');
+            }
+            LobFile largeObject = batch.getLargeObject(row, i);
+            cell.setLength(0);
+            if (largeObject != null) {
+                appendCsvField(largeObject);
+            } else if (batch.appendCell(row, i, cell)) {
+                appendCsvField(cell, line);
+            }
+        }
+        line.append("\r\n");
+    }
+
+    private void appendCsvField(LobFile value) throws IOException {
+        // 是否加引号取决于整个值，先扫描一遍文件；十六进制渲染的二进制值不需要引号
+        boolean quote = false;
+        if (!value.isBinary()) {
+            try (Reader in = value.openText()) {
+                int n;
+                while (!quote && (n = in.read(chunk)) > 0) {
+                    for (int i = 0; i < n && !quote; i++) {
+                        quote = needsQuote(chunk[i]);
+                    }
+                }
+            }
+        }
+        if (quote) {
+            line.append('"');
+        }
+        try (Reader in = value.openText()) {
+            int n;
+            while ((n = in.read(chunk)) > 0) {
+                for (int i = 0; i < n; i++) {
+                    if (quote && chunk[i] == '"') {
+                        line.append('"');
+                    }
+                    line.append(chunk[i]);
+                }
+                flushLine();
+            }
+        }
+        if (quote) {
+            line.append('"');
+        }
+    }
+
+    private static boolean needsQuote(char c) {
+        return c == ',' || c == '"' || c == '\n' || c == '\r';
+    }
+
+    private static void appendCsvField(CharSequence value, StringBuilder out) {
+        boolean quote = false;
+        for (int i = 0; i < value.length() && !quote; i++) {
+            quote = needsQuote(value.charAt(i));
+        }
+        if (!quote) {
+            out.append(value);
+            return;
+        }
+        out.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"') {
+                out.append('"');
+            }
+            out.append(c);
+        }
+        out.append('"');
+    }
+
+    private void appendJsonRow(RowBatch batch, int row) throws IOException {
+        for (int i = 0; i < columnCount; i++) {
+            line.append(jsonKeys[i]);
+            LobFile largeObject = batch.getLargeObject(row, i + 1);
+            cell.setLength(0);
+            if (largeObject != null) {
+                appendJsonString(largeObject);
+            } else if (!batch.appendCell(row, i + 1, cell)) {
+                line.append("null");
+            } else if (jsonTypes[i] == JSON_NUMBER || jsonTypes[i] == JSON_BOOLEAN) {
+                // 布尔列由 RowFormatter 通过 getBoolean 读取，文本只会是 true/false
+                line.append(cell);
+            } else {
+                appendJsonString(cell, line);
+            }
+        }
+        line.append(columnCount == 0 ? "{}\n" : "}\n");
+    }
+
+    private void appendJsonString(LobFile value) throws IOException {
+        line.append('"');
+        try (Reader in = value.openText()) {
+            int n;
+            while ((n = in.read(chunk)) > 0) {
+                appendJsonEscaped(CharBuffer.wrap(chunk, 0, n), line);
+                flushLine();
+            }
+        }
+        line.append('"');
+    }
+
+    private void flushLine() throws IOException {
+        writer.append(line);
+        line.setLength(0);
+    }
+
+    static void appendJsonString(CharSequence value, StringBuilder out) {
+        out.append('"');
+        appendJsonEscaped(value, out);
+        out.append('"');
+    }
+
+    private static void appendJsonEscaped(CharSequence value, StringBuilder out) {
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"':
+                    out.append("\\\"");
+                    break;
+                case '\\':
+                    out.append("\\\\");
+                    break;
+                case '\n':
+                    out.append("\\n");
+                    break;
+                case '\r':
+                    out.append("\\r");
+                    break;
+                case '\t':
+                    out.append("\\t");
+                    break;
+                default:
+                    if (c < 0x20) {
+                        out.append("\\u00");
+                        out.append(Character.forDigit(c >> 4, 16));
+                        out.append(Character.forDigit(c & 0xF, 16));
+                    } else {
+                        out.append(c);
+                    }
+            }
+        }
+    }
+
+    private static byte jsonType(int sqlType) {
+        switch (sqlType) {
+            case Types.TINYINT:
+            case Types.SMALLINT:
+            case Types.INTEGER:
+            case Types.BIGINT:
+            case Types.DECIMAL:
+            case Types.NUMERIC:
+                return JSON_NUMBER;
+            case Types.BOOLEAN:
+                return JSON_BOOLEAN;
+            default:
+                // 浮点数可能出现 NaN/Infinity，按字符串输出
+                return JSON_STRING;
+        }
+    }
+
+    static String sanitize(String name) {
+        if (name == null || name.isEmpty()) {
+            return "unnamed";
+        }
+        StringBuilder result = new StringBuilder(name.length());
+        for (int i = 0; i < name.length(); i++) {
+            char c = name.charAt(i);
+            result.append(Character.isLetterOrDigit(c) || c == '-' || c == '_' ? c : '_');
+        }
+        return result.toString();
+    }
+}
@@ -0,0 +1,105 @@
+package com.m01.dbhelper.util;
+
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+
+/**
+ * Column layout of a query result, read once from the result set metadata and shared by all
+ * {@link ResultSink}s of a statement
+ */
+public class ResultColumns {
+    private final String[] names;
+    private final String[] labels;
+    private final int[] sqlTypes;
+    private final byte[] kinds;
+
+    /**
+     * Reads the column layout of a result set
+     *
+     * @param metaData the result set metadata
+     * @throws SQLException if the metadata cannot be read
+     */
+    public ResultColumns(ResultSetMetaData metaData) throws SQLException {
+        int columnCount = metaData.getColumnCount();
+        this.names = new String[columnCount];
+        this.labels = new String[columnCount];
+        this.sqlTypes = new int[columnCount];
+        this.kinds = new byte[columnCount];
+        for (int i = 0; i < columnCount; i++) {
+            names[i] = metaData.getColumnName(i + 1);
+            labels[i] = metaData.getColumnLabel(i + 1);
+            sqlTypes[i] = metaData.getColumnType(i + 1);
+            kinds[i] = RowFormatter.kindOfColumn(metaData, i + 1);
+        }
+    }
+
+    /**
+     * Gets the number of columns
+     *
+     * @return the column count
+     */
+    public int getColumnCount() {
+        return names.length;
+    }
+
+    /**
+     * Gets the name of a column
+     *
+     * @param column the 1-based column index
+     * @return the column name
+     */
+    public String getColumnName(int column) {
+        return names[column - 1];
+    }
+
+    /**
+     * Gets the label of a column, which differs from the name when the query uses an alias
+     *
+     * @param column the 1-based column index
+     * @return the column label
+     */
+    public String getColumnLabel(int column) {
+        return labels[column - 1];
+    }
+
+    /**
+     * Gets the SQL type of a column
+     *
+     * @param column the 1-based column index
+     * @return the type from {@link java.sql.Types}
+     */
+    public int getColumnType(int column) {
+        return sqlTypes[column - 1];
+    }
+
+    /**
+     * Whether the cells of a column are read as {@code long}, see {@link RowBatch#getLong(int, int)}
+     *
+     * @param column the 1-based column index
+     * @return true for integral columns
+     */
+    public boolean isIntegral(int column) {
+        return kinds[column - 1] == RowFormatter.KIND_LONG;
+    }
+
+    /**
+     * Whether the cells of a column are read as {@code double}, see {@link RowBatch#getDouble(int, int)}
+     *
+     * @param column the 1-based column index
+     * @return true for floating point columns
+     */
+    public boolean isFloatingPoint(int column) {
+        return kinds[column - 1] == RowFormatter.KIND_DOUBLE || kinds[column - 1] == RowFormatter.KIND_FLOAT;
+    }
+
+    /**
+     * Whether the cells of a floating point column are single precision {@code float} values
+     * widened to {@code double}, which render with {@code float} digits
+     *
+     * @param column the 1-based column index
+     * @return true for {@code REAL} columns
+     */
+    public boolean isSinglePrecision(int column) {
+        return kinds[column - 1] == RowFormatter.KIND_FLOAT;
+    }
+}
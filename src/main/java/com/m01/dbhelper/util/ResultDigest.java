@@ -0,0 +1,274 @@
+package com.m01.dbhelper.util;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * Streaming 128-bit digest and row count of a query result.
+ * <p>
+ * Every row is encoded as a sequence of cells, each a null marker or a length-prefixed UTF-16
+ * rendering of the value produced by {@link RowFormatter}. The ordered digest is the MD5 of all
+ * encoded rows in fetch order. The unordered digest hashes every row with MurmurHash3_x64_128 and
+ * adds the hashes modulo 2^128, so it is independent of row order but still counts duplicates.
+ * <p>
+ * The encoded row is fed to the hash in blocks, so a large object kept in a {@link LobFile} is
+ * read chunk by chunk and gives the same digest as the same value held in memory.
+ */
+public class ResultDigest {
+    private static final int ROW_SEED = 0x5eed;
+    private static final int BLOCK_SIZE = 64 * 1024;
+
+    private final boolean ordered;
+    private final MessageDigest md5;
+    private final Murmur3.Hasher rowHasher;
+    private final long[] rowHash = new long[2];
+    private final StringBuilder cell = new StringBuilder(64);
+    private final char[] chunk = new char[8192];
+    private long sumLow;
+    private long sumHigh;
+    private long rowCount;
+    private byte[] rowBytes = new byte[1024];
+    private int rowLength;
+
+    /**
+     * Creates an empty digest
+     *
+     * @param ordered whether the digest depends on row order
+     */
+    public ResultDigest(boolean ordered) {
+        this.ordered = ordered;
+        if (ordered) {
+            try {
+                this.md5 = MessageDigest.getInstance("MD5");
+            } catch (NoSuchAlgorithmException e) {
+                throw new IllegalStateException("MD5 is not available", e);
+            }
+        } else {
+            this.md5 = null;
+        }
+        this.rowHasher = ordered ? null : new Murmur3.Hasher(ROW_SEED);
+    }
+
+    /**
+     * Reads all remaining rows of a result set into a new digest
+     *
+     * @param resultSet the result set, positioned before the first row
+     * @param ordered   whether the digest depends on row order
+     * @return the digest
+     * @throws SQLException if reading the result set fails
+     */
+    public static ResultDigest compute(ResultSet resultSet, boolean ordered) throws SQLException {
+        ResultColumns columns = new ResultColumns(resultSet.getMetaData());
+        RowFormatter formatter = new RowFormatter(resultSet.getMetaData(), new LobHandler(), true);
+        ResultDigest digest = new ResultDigest(ordered);
+        RowBatch batch = new RowBatch(columns.getColumnCount(), ResultPipeline.BATCH_ROWS);
+        try {
+            while (batch.fill(resultSet, formatter, digest.rowCount + 1) > 0) {
+                digest.add(batch);
+            }
+        } catch (IOException e) {
+            throw new SQLException("Failed to read large object: " + e.getMessage(), e);
+        } finally {
+            batch.releaseLargeObjects();
+        }
+        return digest;
+    }
+
+    /**
+     * Adds all rows of a batch
+     *
+     * @param batch the rows
+     * @throws IOException if a large object file cannot be read
+     */
+    public void add(RowBatch batch) throws IOException {
+        int columnCount = batch.getColumnCount();
+        for (int r = 0; r < batch.getRowCount(); r++) {
+            beginRow();
+            for (int i = 1; i <= columnCount; i++) {
+                LobFile largeObject = batch.getLargeObject(r, i);
+                cell.setLength(0);
+                if (largeObject != null) {
+                    addCell(largeObject);
+                } else if (batch.appendCell(r, i, cell)) {
+                    addCell(cell);
+                } else {
+                    addNull();
+                }
+            }
+            endRow();
+        }
+    }
+
+    /**
+     * Starts a new row
+     */
+    public void beginRow() {
+        rowLength = 0;
+    }
+
+    /**
+     * Adds a SQL NULL cell to the current row
+     */
+    public void addNull() {
+        ensureCapacity(1);
+        rowBytes[rowLength++] = 0;
+    }
+
+    /**
+     * Adds a non-null cell to the current row
+     *
+     * @param value the rendered value
+     */
+    public void addCell(CharSequence value) {
+        int length = value.length();
+        ensureCapacity(5 + length * 2);
+        byte[] bytes = rowBytes;
+        int p = rowLength;
+        bytes[p++] = 1;
+        bytes[p++] = (byte) (length >>> 24);
+        bytes[p++] = (byte) (length >>> 16);
+        bytes[p++] = (byte) (length >>> 8);
+        bytes[p++] = (byte) length;
+        for (int i = 0; i < length; i++) {
+            char c = value.charAt(i);
+            bytes[p++] = (byte) (c >>> 8);
+            bytes[p++] = (byte) c;
+        }
+        rowLength = p;
+    }
+
+    /**
+     * Adds a non-null cell whose value is kept in a file, reading it chunk by chunk
+     *
+     * @param value the file of the value
+     * @throws IOException if the file cannot be read
+     */
+    public void addCell(LobFile value) throws IOException {
+        long length = value.getTextLength();
+        ensureCapacity(9);
+        byte[] bytes = rowBytes;
+        int p = rowLength;
+        if (length > Integer.MAX_VALUE) {
+            // 超出内存中单元格可能的长度，改用 8 字节长度
+            bytes[p++] = 3;
+            for (int shift = 56; shift >= 0; shift -= 8) {
+                bytes[p++] = (byte) (length >>> shift);
+            }
+        } else {
+            bytes[p++] = 1;
+            bytes[p++] = (byte) (length >>> 24);
+            bytes[p++] = (byte) (length >>> 16);
+            bytes[p++] = (byte) (length >>> 8);
+            bytes[p++] = (byte) length;
+        }
+        rowLength = p;
+        try (Reader in = value.openText()) {
+            int n;
+            while ((n = in.read(chunk)) > 0) {
+                if (rowLength + n * 2 > BLOCK_SIZE) {
+                    flush();
+                }
+                ensureCapacity(n * 2);
+                bytes = rowBytes;
+                p = rowLength;
+                for (int i = 0; i < n; i++) {
+                    char c = chunk[i];
+                    bytes[p++] = (byte) (c >>> 8);
+                    bytes[p++] = (byte) c;
+                }
+                rowLength = p;
+            }
+        }
+    }
+
+    /**
+     * Completes the current row and folds it into the digest
+     */
+    public void endRow() {
+        rowCount++;
+        if (ordered) {
+            // 行尾标记，保证行边界不同的结果得到不同的摘要
+            ensureCapacity(1);
+            rowBytes[rowLength++] = 2;
+            flush();
+        } else {
+            flush();
+            rowHasher.finish(rowHash);
+            long low = sumLow + rowHash[0];
+            sumHigh += rowHash[1] + (Long.compareUnsigned(low, sumLow) < 0 ? 1 : 0);
+            sumLow = low;
+        }
+    }
+
+    /**
+     * Gets the number of rows folded into the digest
+     *
+     * @return the row count
+     */
+    public long getRowCount() {
+        return rowCount;
+    }
+
+    /**
+     * Whether the digest depends on row order
+     *
+     * @return true for the ordered digest
+     */
+    public boolean isOrdered() {
+        return ordered;
+    }
+
+    /**
+     * Finishes the digest; the ordered digest cannot be updated afterwards
+     *
+     * @return the digest as 32 lowercase hex digits
+     */
+    public String toHex() {
+        StringBuilder hex = new StringBuilder(32);
+        if (ordered) {
+            for (byte b : md5.digest()) {
+                hex.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+            }
+        } else {
+            appendHex(sumHigh, hex);
+            appendHex(sumLow, hex);
+        }
+        return hex.toString();
+    }
+
+    /**
+     * Finishes the digest and renders the line written to the result file
+     *
+     * @return the digest line
+     */
+    public String toResultLine() {
+        return "Query Results - Digest (" + (ordered ? "ordered" : "unordered") + "): " + toHex() + ", rows: " + rowCount;
+    }
+
+    private void flush() {
+        if (ordered) {
+            md5.update(rowBytes, 0, rowLength);
+        } else {
+            rowHasher.update(rowBytes, 0, rowLength);
+        }
+        rowLength = 0;
+    }
+
+    private void ensureCapacity(int extra) {
+        if (rowLength + extra > rowBytes.length) {
+            byte[] grown = new byte[Math.max(rowBytes.length * 2, rowLength + extra)];
+            System.arraycopy(rowBytes, 0, grown, 0, rowLength);
+            rowBytes = grown;
+        }
+    }
+
+    private static void appendHex(long value, StringBuilder out) {
+        for (int shift = 60; shift >= 0; shift -= 4) {
+            out.append(Character.forDigit((int) (value >>> shift) & 0xF, 16));
+        }
+    }
+}
@@ -1,35 +1,85 @@
 package com.m01.dbhelper.util;
 
-import java.io.File;
-import java.io.FileWriter;
+import com.m01.dbhelper.common.ResultCompression;
+
+import java.io.Closeable;
+import java.io.EOFException;
 import java.io.IOException;
-import java.io.PrintWriter;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
 import java.nio.file.Files;
+import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
 import java.sql.ResultSet;
-import java.sql.ResultSetMetaData;
 import java.sql.SQLException;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
+import java.util.List;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
 /**
  * 用于记录结果到文件的工具类
+ * <p>
+ * 每个实例对应一个结果文件，可以被多个线程同时使用；静态方法作用于进程内共享的默认实例。
  */
-public class ResultLogger {
+public class ResultLogger implements Closeable {
     private static final Logger logger = Logger.getLogger(ResultLogger.class.getName());
     private static final String DEFAULT_RESULT_FILE = "result.txt";
-    private static String resultFile = DEFAULT_RESULT_FILE;
+    private static final int WRITER_QUEUE_CAPACITY = 8192;
+    private static volatile ResultLogger defaultLogger = new ResultLogger(DEFAULT_RESULT_FILE);
+
+    static {
+        Runtime.getRuntime().addShutdownHook(new Thread(ResultLogger::closeResultFile, "result-writer-shutdown"));
+    }
+
+    private final String resultFile;
+    private final ResultRotation rotation;
+    private AsyncResultWriter writer;
+
+    /**
+     * 创建写入指定结果文件的实例，文件在第一次写入时打开
+     *
+     * @param resultFile 结果文件路径
+     */
+    public ResultLogger(String resultFile) {
+        this(resultFile, ResultRotation.none());
+    }
+
+    /**
+     * 创建写入指定结果文件的实例，按给定设置滚动和压缩结果文件
+     *
+     * @param resultFile 结果文件路径
+     * @param rotation   滚动和压缩设置
+     */
+    public ResultLogger(String resultFile, ResultRotation rotation) {
+        this.resultFile = resultFile;
+        this.rotation = rotation;
+    }
 
     /**
-     * 设置结果文件路径
+     * 获取共享的默认实例
+     *
+     * @return 默认实例
+     */
+    public static ResultLogger getDefault() {
+        return defaultLogger;
+    }
+
+    /**
+     * 设置结果文件路径，切换文件前会关闭当前文件的写入器
      *
      * @param filePath 文件路径
      */
-    public static void setResultFile(String filePath) {
-        resultFile = filePath;
+    public static synchronized void setResultFile(String filePath) {
+        ResultLogger current = defaultLogger;
+        if (!filePath.equals(current.resultFile)) {
+            defaultLogger = new ResultLogger(filePath);
+            current.close();
+        }
     }
 
     /**
@@ -38,45 +88,43 @@ public class ResultLogger {
      * @return 当前结果文件路径
      */
     public static String getResultFile() {
-        return resultFile;
+        return defaultLogger.resultFile;
     }
 
     /**
      * 初始化结果文件，添加头部信息
      */
     public static void initResultFile() {
-        try {
-            File file = new File(resultFile);
-            // 如果文件存在则追加内容，否则创建新文件
-            boolean append = file.exists();
-
-            try (PrintWriter writer = new PrintWriter(new FileWriter(file, append))) {
-                if (!append) {
-                    writer.println("SQL Execution Results - " + LocalDateTime.now().format(DateTimeFormatter.ISO_LOCAL_DATE_TIME));
-                    writer.println("===============================================================");
-                } else {
-                    writer.println("\n\n===============================================================");
-                    writer.println("New Execution - " + LocalDateTime.now().format(DateTimeFormatter.ISO_LOCAL_DATE_TIME));
-                    writer.println("===============================================================");
-                }
-            }
-        } catch (IOException e) {
-            logger.log(Level.SEVERE, "Failed to initialize result file: " + resultFile, e);
-        }
+        defaultLogger.init();
     }
 
     /**
-     * 记录消息到结果文件
+     * 记录消息到结果文件，消息由后台线程批量写出
      *
      * @param message 要记录的消息
      */
     public static void logToResultFile(String message) {
-        try {
-            Files.write(Paths.get(resultFile), (message + System.lineSeparator()).getBytes(),
-                    StandardOpenOption.CREATE, StandardOpenOption.APPEND);
-        } catch (IOException e) {
-            logger.log(Level.SEVERE, "Failed to write to result file: " + resultFile, e);
-        }
+        defaultLogger.log(message);
+    }
+
+    /**
+     * 写出所有缓冲内容并关闭结果文件，之后的写入会重新以追加方式打开文件
+     */
+    public static void closeResultFile() {
+        defaultLogger.close();
+    }
+
+    /**
+     * 记录 SQL 查询结果到结果文件
+     *
+     * @param resultSet    包含查询结果的 ResultSet 对象
+     * @param scheduleName 调度名称
+     * @param taskName     任务名称
+     * @param sql          执行的 SQL 查询
+     * @throws SQLException 处理 ResultSet 时出错
+     */
+    public static void logQueryResults(ResultSet resultSet, String scheduleName, String taskName, String sql) throws SQLException {
+        defaultLogger.logResults(resultSet, scheduleName, taskName, sql);
     }
 
     /**
@@ -88,6 +136,10 @@ public class ResultLogger {
     public static String truncateSql(String sql) {
         // 限制 SQL 长度以提高日志可读性
         final int MAX_LENGTH = 100;
+        // 保留原始文本的语句可能跨行，结果文件中每条语句只占一行
+        if (sql.indexOf('\n') >= 0 || sql.indexOf('\r') >= 0) {
+            sql = sql.replaceAll("\\s*[\\r\\n]+\\s*", " ");
+        }
         if (sql.length() > MAX_LENGTH) {
             return sql.substring(0, MAX_LENGTH) + "...";
         }
@@ -95,42 +147,260 @@ public class ResultLogger {
     }
 
     /**
-     * 记录 SQL 查询结果到结果文件
+     * 获取本实例的结果文件路径
+     *
+     * @return 结果文件路径
+     */
+    public String getFile() {
+        return resultFile;
+    }
+
+    /**
+     * 初始化本实例的结果文件，添加头部信息
+     */
+    public synchronized void init() {
+        // 如果文件存在则追加内容，否则创建新文件
+        boolean append = writer != null || ResultSegments.activeFile(Paths.get(resultFile), rotation.getCompression()).toFile().exists();
+        AsyncResultWriter target = openWriter();
+        if (target == null) {
+            return;
+        }
+
+        if (!append) {
+            target.writeLine("SQL Execution Results - " + LocalDateTime.now().format(DateTimeFormatter.ISO_LOCAL_DATE_TIME));
+            target.writeLine("===============================================================");
+        } else {
+            target.writeLine("\n\n===============================================================");
+            target.writeLine("New Execution - " + LocalDateTime.now().format(DateTimeFormatter.ISO_LOCAL_DATE_TIME));
+            target.writeLine("===============================================================");
+        }
+    }
+
+    /**
+     * 记录消息到本实例的结果文件
+     *
+     * @param message 要记录的消息
+     */
+    public synchronized void log(String message) {
+        AsyncResultWriter target = openWriter();
+        if (target != null) {
+            target.writeLine(message);
+        }
+    }
+
+    /**
+     * 将已记录的消息交给操作系统
+     */
+    public synchronized void flush() {
+        if (writer != null) {
+            writer.flush();
+        }
+    }
+
+    /**
+     * 写出所有缓冲内容并关闭结果文件，之后的写入会重新以追加方式打开文件
+     * <p>
+     * 关闭完成前一直持有锁，并发的写入等关闭结束后再打开新的写入器，不会与正在关闭的写入器同时写同一个文件
+     */
+    @Override
+    public synchronized void close() {
+        if (writer != null) {
+            try {
+                writer.close();
+            } finally {
+                writer = null;
+            }
+        }
+    }
+
+    /**
+     * 记录 SQL 查询结果到本实例的结果文件
      *
      * @param resultSet    包含查询结果的 ResultSet 对象
      * @param scheduleName 调度名称
      * @param taskName     任务名称
      * @param sql          执行的 SQL 查询
+     * @return 记录的行数
      * @throws SQLException 处理 ResultSet 时出错
      */
-    public static void logQueryResults(ResultSet resultSet, String scheduleName, String taskName, String sql) throws SQLException {
-        ResultSetMetaData metaData = resultSet.getMetaData();
-        int columnCount = metaData.getColumnCount();
+    public long logResults(ResultSet resultSet, String scheduleName, String taskName, String sql) throws SQLException {
+        RowFormatter formatter = new RowFormatter(resultSet.getMetaData());
+        int columnCount = formatter.getColumnCount();
 
         // 记录列名
         StringBuilder columnNames = new StringBuilder("Query Results - Columns: ");
         for (int i = 1; i <= columnCount; i++) {
-            columnNames.append(metaData.getColumnName(i));
+            columnNames.append(formatter.getColumnName(i));
             if (i < columnCount) {
                 columnNames.append(", ");
             }
         }
-        logToResultFile(columnNames.toString());
+        log(columnNames.toString());
 
-        // 记录行数据
+        // 记录行数据，行缓冲区在各行之间复用
         int rowCount = 0;
+        StringBuilder row = new StringBuilder(256);
         while (resultSet.next()) {
             rowCount++;
-            StringBuilder row = new StringBuilder("Row " + rowCount + ": ");
-            for (int i = 1; i <= columnCount; i++) {
-                row.append(resultSet.getString(i));
-                if (i < columnCount) {
-                    row.append(", ");
+            row.setLength(0);
+            row.append("Row ").append(rowCount).append(": ");
+            formatter.appendRow(resultSet, row, ", ");
+            log(row.toString());
+        }
+
+        log("Total rows: " + rowCount);
+        return rowCount;
+    }
+
+    /**
+     * 创建写入本结果文件第 index 个分段的实例，分段使用相同的压缩方式但不滚动，
+     * 供并发执行的任务各自缓冲输出，之后由 {@link #mergeSegments(List)} 合并
+     *
+     * @param index 分段序号
+     * @return 分段实例
+     */
+    public ResultLogger newSegment(int index) {
+        return new ResultLogger(resultFile + ".part" + index, new ResultRotation(0, 0, rotation.getCompression()));
+    }
+
+    /**
+     * 关闭各分段，按给定顺序将分段内容追加到本结果文件并删除分段文件
+     * <p>
+     * 分段通过 {@link FileChannel#transferTo} 在通道之间直接复制，不经过堆内存；
+     * gzip 分段本身是完整的 gzip member，直接拼接后仍是合法的 gzip 文件。
+     * <p>
+     * 合并遵守滚动设置：合并前当前文件已超过时长时先滚动；追加会超过大小上限时，
+     * 未压缩的分段在行边界处拆开，之后的内容写入滚动后的新文件。gzip 分段不能拆开，
+     * 放不下时整段写入新文件，因此单个超过上限的 gzip 分段会使一个文件超过上限。
+     *
+     * @param segments 由 {@link #newSegment(int)} 创建的分段
+     * @throws IOException 读取分段或写入结果文件时出错
+     */
+    public synchronized void mergeSegments(List<ResultLogger> segments) throws IOException {
+        // 先写出并关闭当前文件，gzip 时结束当前 member，之后的写入重新打开文件
+        close();
+        Path file = Paths.get(resultFile);
+        Path target = ResultSegments.activeFile(file, rotation.getCompression());
+        long maxBytes = rotation.getMaxBytes();
+        boolean compressed = rotation.getCompression() != ResultCompression.NONE;
+        FileChannel out = openForAppend(target);
+        try {
+            if (rotation.getMaxAgeMillis() > 0 && out.size() > 0 && System.currentTimeMillis()
+                    - Files.readAttributes(target, BasicFileAttributes.class).creationTime().toMillis() >= rotation.getMaxAgeMillis()) {
+                out = rotate(out, file, target);
+            }
+            for (ResultLogger segment : segments) {
+                segment.close();
+                Path part = ResultSegments.activeFile(Paths.get(segment.resultFile), segment.rotation.getCompression());
+                if (!Files.exists(part)) {
+                    continue;
+                }
+                try (FileChannel in = FileChannel.open(part, StandardOpenOption.READ)) {
+                    long size = in.size();
+                    long position = 0;
+                    while (position < size) {
+                        long end = size;
+                        long room = maxBytes - out.size();
+                        if (maxBytes > 0 && size - position > room) {
+                            end = compressed || room <= 0 ? -1 : lastLineEnd(in, position, position + room);
+                            if (end < 0) {
+                                if (out.size() > 0) {
+                                    out = rotate(out, file, target);
+                                    continue;
+                                }
+                                // 空文件也放不下时整段或整行写入，与写入器在行边界滚动一致
+                                end = compressed ? size : nextLineEnd(in, position + Math.max(room, 0), size);
+                            }
+                        }
+                        transfer(in, position, end, out);
+                        position = end;
+                        if (position < size) {
+                            out = rotate(out, file, target);
+                        }
+                    }
                 }
+                Files.delete(part);
             }
-            logToResultFile(row.toString());
+            out.force(false);
+        } finally {
+            out.close();
         }
+    }
+
+    private static FileChannel openForAppend(Path target) throws IOException {
+        return FileChannel.open(target, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+    }
+
+    /**
+     * 将当前文件改名为下一个滚动分段，并重新打开一个空的当前文件
+     */
+    private FileChannel rotate(FileChannel out, Path file, Path target) throws IOException {
+        out.force(false);
+        out.close();
+        Files.move(target, ResultSegments.segmentFile(file, rotation.getCompression(), ResultSegments.nextSequence(file)));
+        return openForAppend(target);
+    }
+
+    private static void transfer(FileChannel in, long from, long to, FileChannel out) throws IOException {
+        long position = from;
+        while (position < to) {
+            position += in.transferTo(position, to - position, out);
+        }
+    }
+
+    /**
+     * 查找 (from, limit] 范围内最后一个换行符之后的位置，没有时返回 -1
+     */
+    private static long lastLineEnd(FileChannel in, long from, long limit) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(8192);
+        long end = limit;
+        while (end > from) {
+            long start = Math.max(from, end - buffer.capacity());
+            buffer.clear().limit((int) (end - start));
+            readFully(in, buffer, start);
+            for (int i = buffer.limit() - 1; i >= 0; i--) {
+                if (buffer.get(i) == '\n') {
+                    return start + i + 1;
+                }
+            }
+            end = start;
+        }
+        return -1;
+    }
 
-        logToResultFile("Total rows: " + rowCount);
+    /**
+     * 查找 from 之后第一个换行符之后的位置，没有时返回 size
+     */
+    private static long nextLineEnd(FileChannel in, long from, long size) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(8192);
+        for (long start = from; start < size; start += buffer.limit()) {
+            buffer.clear().limit((int) Math.min(buffer.capacity(), size - start));
+            readFully(in, buffer, start);
+            for (int i = 0; i < buffer.limit(); i++) {
+                if (buffer.get(i) == '\n') {
+                    return start + i + 1;
+                }
+            }
+        }
+        return size;
+    }
+
+    private static void readFully(FileChannel in, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (in.read(buffer, position + buffer.position()) < 0) {
+                throw new EOFException("Unexpected end of result segment");
+            }
+        }
+    }
+
+    private AsyncResultWriter openWriter() {
+        if (writer == null) {
+            try {
+                writer = new AsyncResultWriter(Paths.get(resultFile), Charset.defaultCharset(), WRITER_QUEUE_CAPACITY, rotation);
+            } catch (IOException e) {
+                logger.log(Level.SEVERE, "Failed to open result file: " + resultFile, e);
+            }
+        }
+        return writer;
     }
 }
@@ -0,0 +1,310 @@
+package com.m01.dbhelper.util;
+
+import com.m01.dbhelper.common.SqlTask;
+
+import java.io.IOException;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Fetches the rows of a query once and hands them to one or more {@link ResultSink}s.
+ * <p>
+ * Rows are rendered into {@link RowBatch}es on the executing thread. A single sink consumes the
+ * batches inline. With several sinks every sink gets its own thread and a queue, and all of them
+ * receive the same batch instance; a batch returns to a small fixed pool once the last sink has
+ * released it, so a slow sink holds back fetching instead of letting batches pile up in memory.
+ * A failing sink stops receiving rows while the others continue, and its failure is reported
+ * after the statement completed for the remaining sinks.
+ * <p>
+ * Large objects are cut at the task's preview limit only for sinks that
+ * {@link ResultSink#previewsLargeObjects() preview} them. For the other sinks a longer value is
+ * copied into a {@link LobFile} while it is fetched, and they stream it from there, so the memory
+ * of a batch stays bounded by the preview limit whatever the size of the values.
+ * <p>
+ * Rows after the largest {@link ResultSink#getRowLimit() row limit} of the sinks are counted
+ * without being rendered.
+ */
+public class ResultPipeline {
+    static final int BATCH_ROWS = 256;
+    private static final int BATCHES_IN_FLIGHT = 4;
+    private static final RowBatch END = new RowBatch(0, 0);
+    private static final AtomicInteger threadCount = new AtomicInteger();
+    private static final ExecutorService sinkThreads = Executors.newCachedThreadPool(runnable -> {
+        Thread thread = new Thread(runnable, "result-sink-" + threadCount.incrementAndGet());
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final List<ResultSink> sinks;
+
+    /**
+     * Creates a pipeline for the given sinks
+     *
+     * @param sinks the sinks, in configuration order
+     */
+    public ResultPipeline(List<ResultSink> sinks) {
+        if (sinks.isEmpty()) {
+            throw new IllegalArgumentException("At least one result sink is required");
+        }
+        this.sinks = sinks;
+    }
+
+    /**
+     * Reads all remaining rows of a result set into every sink
+     *
+     * @param resultSet the result set, positioned before the first row
+     * @param context   the statement being executed
+     * @return the number of rows read
+     * @throws SQLException if reading the result set fails
+     * @throws IOException  if a sink fails
+     */
+    public long run(ResultSet resultSet, ResultSinkContext context) throws SQLException, IOException {
+        ResultColumns columns = new ResultColumns(resultSet.getMetaData());
+        SqlTask task = context.getTask();
+        boolean preview = false;
+        boolean full = false;
+        for (ResultSink sink : sinks) {
+            if (sink.previewsLargeObjects()) {
+                preview = true;
+            } else {
+                full = true;
+            }
+        }
+        // 旁路文件只在结果文件引用时写入 lobPath，其余情况下完整值写入临时文件
+        LobHandler lobHandler = LobHandler.forStatement(task.getLobPreviewLimit(), preview ? task.getLobPath() : null,
+                context.getScheduleName(), context.getTaskName(), context.getStatementIndex());
+        RowFormatter formatter = new RowFormatter(resultSet.getMetaData(), lobHandler, full);
+        for (int i = 0; i < sinks.size(); i++) {
+            try {
+                sinks.get(i).start(context, columns);
+            } catch (IOException | RuntimeException e) {
+                for (int j = 0; j < i; j++) {
+                    sinks.get(j).abort();
+                }
+                throw e;
+            }
+        }
+        long rowLimit = 0;
+        for (ResultSink sink : sinks) {
+            rowLimit = Math.max(rowLimit, sink.getRowLimit());
+        }
+        if (sinks.size() == 1) {
+            return runInline(sinks.get(0), resultSet, formatter, columns.getColumnCount(), rowLimit);
+        }
+        return runConcurrent(resultSet, formatter, columns.getColumnCount(), rowLimit);
+    }
+
+    private static long runInline(ResultSink sink, ResultSet resultSet, RowFormatter formatter, int columnCount,
+                                  long rowLimit) throws SQLException, IOException {
+        RowBatch batch = new RowBatch(columnCount, BATCH_ROWS);
+        long rowCount = 0;
+        try {
+            int rows;
+            while (rowCount < rowLimit
+                    && (rows = batch.fill(resultSet, formatter, rowCount + 1, batchRows(rowLimit, rowCount))) > 0) {
+                rowCount += rows;
+                sink.accept(batch);
+            }
+            if (rowCount >= rowLimit) {
+                rowCount += countRemaining(resultSet);
+            }
+        } catch (SQLException | IOException | RuntimeException e) {
+            sink.abort();
+            throw e;
+        } finally {
+            batch.releaseLargeObjects();
+        }
+        sink.finish(rowCount);
+        return rowCount;
+    }
+
+    private long runConcurrent(ResultSet resultSet, RowFormatter formatter, int columnCount, long rowLimit)
+            throws SQLException, IOException {
+        BlockingQueue<RowBatch> pool = new ArrayBlockingQueue<>(BATCHES_IN_FLIGHT);
+        List<RowBatch> batches = new ArrayList<>(BATCHES_IN_FLIGHT);
+        for (int i = 0; i < BATCHES_IN_FLIGHT; i++) {
+            batches.add(new RowBatch(columnCount, BATCH_ROWS));
+        }
+        pool.addAll(batches);
+        List<SinkWorker> workers = new ArrayList<>(sinks.size());
+        for (ResultSink sink : sinks) {
+            SinkWorker worker = new SinkWorker(sink, pool);
+            worker.future = sinkThreads.submit(worker);
+            workers.add(worker);
+        }
+
+        long rowCount = 0;
+        boolean complete = false;
+        try {
+            while (rowCount < rowLimit) {
+                RowBatch batch = take(pool);
+                int rows = batch.fill(resultSet, formatter, rowCount + 1, batchRows(rowLimit, rowCount));
+                if (rows == 0) {
+                    pool.add(batch);
+                    break;
+                }
+                rowCount += rows;
+                batch.retain(workers.size());
+                for (SinkWorker worker : workers) {
+                    put(worker.queue, batch);
+                }
+            }
+            if (rowCount >= rowLimit) {
+                rowCount += countRemaining(resultSet);
+            }
+            complete = true;
+        } finally {
+            for (SinkWorker worker : workers) {
+                put(worker.queue, END);
+            }
+            for (SinkWorker worker : workers) {
+                worker.await();
+            }
+            for (RowBatch batch : batches) {
+                batch.releaseLargeObjects();
+            }
+            if (!complete) {
+                for (ResultSink sink : sinks) {
+                    sink.abort();
+                }
+            }
+        }
+
+        // 在执行线程上按配置顺序完成各输出，保证结果文件中的行顺序确定
+        Exception failure = null;
+        String failedSink = null;
+        for (SinkWorker worker : workers) {
+            Exception error = worker.failure;
+            if (error == null) {
+                try {
+                    worker.sink.finish(rowCount);
+                } catch (IOException | RuntimeException e) {
+                    error = e;
+                }
+            } else {
+                worker.sink.abort();
+            }
+            if (error != null && failure == null) {
+                failure = error;
+                failedSink = worker.sink.getName();
+            }
+        }
+        if (failure != null) {
+            throw new IOException("Result sink " + failedSink + " failed: " + failure.getMessage(), failure);
+        }
+        return rowCount;
+    }
+
+    private static int batchRows(long rowLimit, long rowCount) {
+        return (int) Math.min(BATCH_ROWS, rowLimit - rowCount);
+    }
+
+    // 超出所有输出行数上限的行只计数，不再渲染
+    private static long countRemaining(ResultSet resultSet) throws SQLException {
+        long count = 0;
+        while (resultSet.next()) {
+            count++;
+        }
+        return count;
+    }
+
+    private static <T> T take(BlockingQueue<T> queue) {
+        boolean interrupted = false;
+        try {
+            while (true) {
+                try {
+                    return queue.take();
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+        } finally {
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private static <T> void put(BlockingQueue<T> queue, T item) {
+        boolean interrupted = false;
+        while (true) {
+            try {
+                queue.put(item);
+                break;
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static final class SinkWorker implements Runnable {
+        private final ResultSink sink;
+        private final BlockingQueue<RowBatch> pool;
+        // 每个批次最多同时出现在所有队列中一次，再加上结束标记
+        private final BlockingQueue<RowBatch> queue = new ArrayBlockingQueue<>(BATCHES_IN_FLIGHT + 1);
+        private volatile Exception failure;
+        private Future<?> future;
+
+        private SinkWorker(ResultSink sink, BlockingQueue<RowBatch> pool) {
+            this.sink = sink;
+            this.pool = pool;
+        }
+
+        @Override
+        public void run() {
+            while (true) {
+                RowBatch batch = take(queue);
+                if (batch == END) {
+                    return;
+                }
+                try {
+                    if (failure == null) {
+                        sink.accept(batch);
+                    }
+                } catch (IOException | RuntimeException e) {
+                    failure = e;
+                } finally {
+                    if (batch.release()) {
+                        pool.add(batch);
+                    }
+                }
+            }
+        }
+
+        private void await() {
+            boolean interrupted = false;
+            try {
+                while (true) {
+                    try {
+                        future.get();
+                        return;
+                    } catch (InterruptedException e) {
+                        interrupted = true;
+                    } catch (ExecutionException e) {
+                        if (e.getCause() instanceof Error) {
+                            throw (Error) e.getCause();
+                        }
+                        failure = new IOException(e.getCause());
+                        return;
+                    }
+                }
+            } finally {
+                if (interrupted) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }
+    }
+}
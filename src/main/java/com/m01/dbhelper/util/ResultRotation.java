@@ -0,0 +1,76 @@
+package com.m01.dbhelper.util;
+
+import com.m01.dbhelper.common.ResultCompression;
+import com.m01.dbhelper.common.SqlSchedule;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Rotation and compression settings of a result file
+ */
+public final class ResultRotation {
+    private static final ResultRotation NONE = new ResultRotation(0, 0, ResultCompression.NONE);
+
+    private final long maxBytes;
+    private final long maxAgeMillis;
+    private final ResultCompression compression;
+
+    /**
+     * Creates rotation settings
+     *
+     * @param maxBytes     the on-disk size after which the active segment is rotated, 0 for no limit
+     * @param maxAgeMillis the age after which the active segment is rotated, 0 for no limit
+     * @param compression  the compression applied to every segment
+     */
+    public ResultRotation(long maxBytes, long maxAgeMillis, ResultCompression compression) {
+        this.maxBytes = Math.max(0, maxBytes);
+        this.maxAgeMillis = Math.max(0, maxAgeMillis);
+        this.compression = compression != null ? compression : ResultCompression.NONE;
+    }
+
+    /**
+     * Settings that keep a single uncompressed file, as before rotation existed
+     *
+     * @return the default settings
+     */
+    public static ResultRotation none() {
+        return NONE;
+    }
+
+    /**
+     * Reads the rotation settings of a schedule
+     *
+     * @param schedule the SQL schedule
+     * @return the rotation settings
+     */
+    public static ResultRotation of(SqlSchedule schedule) {
+        long maxBytes = schedule.getResultRotateBytes() != null ? schedule.getResultRotateBytes() : 0;
+        long maxAge = schedule.getResultRotateMinutes() != null
+                ? TimeUnit.MINUTES.toMillis(schedule.getResultRotateMinutes()) : 0;
+        if (maxBytes == 0 && maxAge == 0 && schedule.getResultCompression() == null) {
+            return NONE;
+        }
+        return new ResultRotation(maxBytes, maxAge, schedule.getResultCompression());
+    }
+
+    public long getMaxBytes() {
+        return maxBytes;
+    }
+
+    public long getMaxAgeMillis() {
+        return maxAgeMillis;
+    }
+
+    public ResultCompression getCompression() {
+        return compression;
+    }
+
+    /**
+     * Whether the active segment is ever rotated
+     *
+     * @return true if a size or age limit is set
+     */
+    public boolean rotates() {
+        return maxBytes > 0 || maxAgeMillis > 0;
+    }
+}
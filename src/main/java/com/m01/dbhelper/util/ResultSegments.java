@@ -0,0 +1,204 @@
+package com.m01.dbhelper.util;
+
+import com.m01.dbhelper.common.ResultCompression;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.io.SequenceInputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.Charset;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Enumeration;
+import java.util.Iterator;
+import java.util.List;
+import java.util.regex.Pattern;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Naming and reading of rotated result file segments.
+ * <p>
+ * For a result file {@code result.txt} the active segment is {@code result.txt} (or
+ * {@code result.txt.gz} when compressed) and rotated segments are named
+ * {@code result.txt.000001}, {@code result.txt.000002.gz} and so on, oldest first.
+ * {@link #openReader(Path, Charset)} reads all of them in order as one text stream.
+ */
+public class ResultSegments {
+    private static final String GZIP_SUFFIX = ResultCompression.GZIP.getSuffix();
+
+    /**
+     * Gets the file that currently receives output
+     *
+     * @param resultFile  the configured result file
+     * @param compression the compression in use
+     * @return the active segment
+     */
+    public static Path activeFile(Path resultFile, ResultCompression compression) {
+        return Paths.get(stem(resultFile) + compression.getSuffix());
+    }
+
+    /**
+     * Gets the file name of a rotated segment
+     *
+     * @param resultFile  the configured result file
+     * @param compression the compression in use
+     * @param sequence    the 1-based segment number
+     * @return the rotated segment
+     */
+    public static Path segmentFile(Path resultFile, ResultCompression compression, long sequence) {
+        return Paths.get(stem(resultFile) + "." + String.format("%06d", sequence) + compression.getSuffix());
+    }
+
+    /**
+     * Lists the rotated segments of a result file, oldest first
+     *
+     * @param resultFile the configured result file
+     * @return the rotated segments, without the active segment
+     * @throws IOException if the directory cannot be listed
+     */
+    public static List<Path> rotatedSegments(Path resultFile) throws IOException {
+        Path stem = Paths.get(stem(resultFile)).toAbsolutePath();
+        Pattern pattern = Pattern.compile(Pattern.quote(stem.getFileName().toString()) + "\\.\\d{6,}(" + Pattern.quote(GZIP_SUFFIX) + ")?");
+        List<Path> segments = new ArrayList<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(stem.getParent())) {
+            for (Path file : files) {
+                if (pattern.matcher(file.getFileName().toString()).matches()) {
+                    segments.add(file);
+                }
+            }
+        }
+        segments.sort(Comparator.comparingLong(ResultSegments::sequenceOf));
+        return segments;
+    }
+
+    /**
+     * Gets the sequence number for the next rotated segment
+     *
+     * @param resultFile the configured result file
+     * @return one more than the highest existing sequence number
+     * @throws IOException if the directory cannot be listed
+     */
+    public static long nextSequence(Path resultFile) throws IOException {
+        List<Path> segments = rotatedSegments(resultFile);
+        return segments.isEmpty() ? 1 : sequenceOf(segments.get(segments.size() - 1)) + 1;
+    }
+
+    /**
+     * Lists every segment of a result file in reading order: rotated segments, then the active one
+     *
+     * @param resultFile the configured result file
+     * @return all existing segments
+     * @throws IOException if the directory cannot be listed
+     */
+    public static List<Path> allSegments(Path resultFile) throws IOException {
+        List<Path> segments = rotatedSegments(resultFile);
+        List<Path> active = new ArrayList<>();
+        for (ResultCompression compression : ResultCompression.values()) {
+            Path file = activeFile(resultFile, compression);
+            if (Files.exists(file)) {
+                active.add(file);
+            }
+        }
+        // 压缩方式改变过时，两个活动文件都可能存在，按修改时间排序
+        active.sort(Comparator.comparing(file -> file.toFile().lastModified()));
+        segments.addAll(active);
+        return segments;
+    }
+
+    /**
+     * Opens all segments as one stream, decompressing gzip segments on the fly
+     *
+     * @param resultFile the configured result file
+     * @return the concatenated content
+     * @throws IOException if the segments cannot be listed
+     */
+    public static InputStream openStream(Path resultFile) throws IOException {
+        Iterator<Path> segments = allSegments(resultFile).iterator();
+        return new SequenceInputStream(new Enumeration<InputStream>() {
+            @Override
+            public boolean hasMoreElements() {
+                return segments.hasNext();
+            }
+
+            @Override
+            public InputStream nextElement() {
+                try {
+                    return openSegment(segments.next());
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+        });
+    }
+
+    /**
+     * Opens all segments as one text reader
+     *
+     * @param resultFile the configured result file
+     * @param charset    the charset the result file was written with
+     * @return a reader over the concatenated content
+     * @throws IOException if the segments cannot be listed
+     */
+    public static BufferedReader openReader(Path resultFile, Charset charset) throws IOException {
+        return new BufferedReader(new InputStreamReader(openStream(resultFile), charset));
+    }
+
+    /**
+     * Prints all segments of a result file to standard output
+     *
+     * @param args the result file path
+     * @throws IOException if a segment cannot be read
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length != 1) {
+            System.err.println("Usage: ResultSegments <result file>");
+            System.exit(2);
+        }
+        PrintStream out = System.out;
+        try (InputStream in = openStream(Paths.get(args[0]))) {
+            copy(in, out);
+        }
+        out.flush();
+    }
+
+    private static InputStream openSegment(Path segment) throws IOException {
+        InputStream in = new BufferedInputStream(Files.newInputStream(segment), 64 * 1024);
+        if (segment.getFileName().toString().endsWith(GZIP_SUFFIX)) {
+            return new GZIPInputStream(in, 64 * 1024);
+        }
+        return in;
+    }
+
+    private static void copy(InputStream in, OutputStream out) throws IOException {
+        byte[] buffer = new byte[64 * 1024];
+        int read;
+        while ((read = in.read(buffer)) != -1) {
+            out.write(buffer, 0, read);
+        }
+    }
+
+    private static long sequenceOf(Path segment) {
+        String name = segment.getFileName().toString();
+        if (name.endsWith(GZIP_SUFFIX)) {
+            name = name.substring(0, name.length() - GZIP_SUFFIX.length());
+        }
+        return Long.parseLong(name.substring(name.lastIndexOf('.') + 1));
+    }
+
+    private static String stem(Path resultFile) {
+        String name = resultFile.toString();
+        if (name.endsWith(GZIP_SUFFIX)) {
+            return name.substring(0, name.length() - GZIP_SUFFIX.length());
+        }
+        return name;
+    }
+}
@@ -0,0 +1,78 @@
+package com.m01.dbhelper.util;
+
+import java.io.IOException;
+
+/**
+ * Consumer of the rows of one query, selected per task by name.
+ * <p>
+ * Implementations are discovered with {@link java.util.ServiceLoader} from
+ * {@code META-INF/services/com.m01.dbhelper.util.ResultSink}; they need a public no-argument
+ * constructor, which should be cheap because a new instance is created for every statement.
+ * For one statement the calls are {@link #start}, any number of {@link #accept}, and then either
+ * {@link #finish} or {@link #abort}. When a task selects several sinks, each receives the same
+ * batches on its own thread; lines for the result file should therefore be written in
+ * {@link #finish}, which is called for all sinks in configuration order on the executing thread.
+ */
+public interface ResultSink {
+
+    /**
+     * Gets the name that selects this sink in the task configuration
+     *
+     * @return the sink name
+     */
+    String getName();
+
+    /**
+     * Whether the sink shows large object values the way the result file does: cut at the task's
+     * lobPreviewLimit or referring to a side file, see {@link RowBatch#appendPreview}. Other sinks
+     * receive the whole value: a value longer than the preview is kept in a file that they stream
+     * from {@link RowBatch#getLargeObject}.
+     *
+     * @return true for human-readable outputs
+     */
+    default boolean previewsLargeObjects() {
+        return false;
+    }
+
+    /**
+     * Gets the number of leading rows the sink consumes, asked after {@link #start}. When every
+     * sink of a statement has a limit, the rows after the largest one are only counted: they are
+     * neither rendered nor passed to {@link #accept}, and {@link #finish} still gets the total.
+     *
+     * @return the row limit, {@link Long#MAX_VALUE} for all rows
+     */
+    default long getRowLimit() {
+        return Long.MAX_VALUE;
+    }
+
+    /**
+     * Prepares the sink for the rows of one statement
+     *
+     * @param context the statement being executed
+     * @param columns the column layout of the result
+     * @throws IOException if the sink cannot be prepared
+     */
+    void start(ResultSinkContext context, ResultColumns columns) throws IOException;
+
+    /**
+     * Consumes a batch of rows; the batch must not be used after this method returns
+     *
+     * @param batch the rows
+     * @throws IOException if the rows cannot be consumed
+     */
+    void accept(RowBatch batch) throws IOException;
+
+    /**
+     * Completes the statement after all rows were accepted
+     *
+     * @param rowCount the total number of rows
+     * @throws IOException if the sink cannot be completed
+     */
+    void finish(long rowCount) throws IOException;
+
+    /**
+     * Releases the resources of a statement whose rows could not all be delivered
+     */
+    default void abort() {
+    }
+}
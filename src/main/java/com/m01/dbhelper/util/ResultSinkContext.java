@@ -0,0 +1,64 @@
+package com.m01.dbhelper.util;
+
+import com.m01.dbhelper.common.SqlTask;
+
+/**
+ * The statement whose rows are handed to the {@link ResultSink}s, together with the outputs of
+ * the schedule that sinks may write to
+ */
+public class ResultSinkContext {
+    private final String scheduleName;
+    private final SqlTask task;
+    private final int statementIndex;
+    private final String sql;
+    private final ResultLogger resultLogger;
+    private final BinaryResultLog binaryLog;
+
+    /**
+     * Creates the context of one statement
+     *
+     * @param scheduleName   the name of the schedule
+     * @param task           the task the statement belongs to
+     * @param statementIndex the 1-based position of the statement inside the task
+     * @param sql            the executed SQL
+     * @param resultLogger   the result file of the schedule
+     * @param binaryLog      the binary result log of the schedule, or null if none is configured
+     */
+    public ResultSinkContext(String scheduleName, SqlTask task, int statementIndex, String sql,
+                             ResultLogger resultLogger, BinaryResultLog binaryLog) {
+        this.scheduleName = scheduleName;
+        this.task = task;
+        this.statementIndex = statementIndex;
+        this.sql = sql;
+        this.resultLogger = resultLogger;
+        this.binaryLog = binaryLog;
+    }
+
+    public String getScheduleName() {
+        return scheduleName;
+    }
+
+    public SqlTask getTask() {
+        return task;
+    }
+
+    public String getTaskName() {
+        return task.getTaskName();
+    }
+
+    public int getStatementIndex() {
+        return statementIndex;
+    }
+
+    public String getSql() {
+        return sql;
+    }
+
+    public ResultLogger getResultLogger() {
+        return resultLogger;
+    }
+
+    public BinaryResultLog getBinaryLog() {
+        return binaryLog;
+    }
+}
@@ -0,0 +1,86 @@
+package com.m01.dbhelper.util;
+
+import java.io.IOException;
+import java.lang.reflect.Constructor;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.ServiceLoader;
+import java.util.function.Supplier;
+
+/**
+ * Looks up {@link ResultSink} implementations by name; the implementations are discovered once
+ * and every lookup creates a new instance through the public no-argument constructor
+ */
+public final class ResultSinks {
+    private static final Map<String, Supplier<ResultSink>> SINKS = load();
+
+    private ResultSinks() {
+    }
+
+    /**
+     * Creates a new instance of the sink with the given name
+     *
+     * @param name the sink name
+     * @return the sink
+     * @throws IOException if no sink with that name is registered
+     */
+    public static ResultSink create(String name) throws IOException {
+        Supplier<ResultSink> sink = SINKS.get(name);
+        if (sink == null) {
+            throw new IOException("Unknown result sink: " + name);
+        }
+        return sink.get();
+    }
+
+    /**
+     * Creates new instances of the sinks with the given names
+     *
+     * @param names the sink names, in configuration order
+     * @return the sinks
+     * @throws IOException if a name is not registered
+     */
+    public static List<ResultSink> create(List<String> names) throws IOException {
+        List<ResultSink> sinks = new ArrayList<>(names.size());
+        for (String name : names) {
+            sinks.add(create(name.trim()));
+        }
+        return sinks;
+    }
+
+    /**
+     * Gets the names of all registered sinks
+     *
+     * @return the sink names
+     */
+    public static List<String> names() {
+        return new ArrayList<>(SINKS.keySet());
+    }
+
+    private static Map<String, Supplier<ResultSink>> load() {
+        Map<String, Supplier<ResultSink>> sinks = new LinkedHashMap<>();
+        for (ResultSink sink : ServiceLoader.load(ResultSink.class, ResultSink.class.getClassLoader())) {
+            // 先注册的实现优先，与 Dialects 相同
+            sinks.putIfAbsent(sink.getName(), supplier(sink.getClass()));
+        }
+        return Collections.unmodifiableMap(sinks);
+    }
+
+    private static Supplier<ResultSink> supplier(Class<? extends ResultSink> type) {
+        Constructor<? extends ResultSink> constructor;
+        try {
+            constructor = type.getConstructor();
+        } catch (NoSuchMethodException e) {
+            throw new IllegalStateException("Result sink has no public no-argument constructor: " + type.getName(), e);
+        }
+        return () -> {
+            try {
+                return constructor.newInstance();
+            } catch (ReflectiveOperationException e) {
+                throw new IllegalStateException("Cannot create result sink: " + type.getName(), e);
+            }
+        };
+    }
+}
@@ -0,0 +1,123 @@
+package com.m01.dbhelper.util;
+
+import java.io.IOException;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Per-column statistics of a query result, computed in one pass with memory that depends on the
+ * number of columns only
+ */
+public class ResultStatistics {
+    private final ColumnStatistics[] columns;
+    private final boolean[] integral;
+    private final boolean[] floatingPoint;
+    private final StringBuilder cell = new StringBuilder(64);
+    private final long[] hash = new long[2];
+    private byte[] scratch = new byte[256];
+    private long rowCount;
+
+    /**
+     * Creates empty statistics for a column layout
+     *
+     * @param columns the column layout of the result
+     */
+    public ResultStatistics(ResultColumns columns) {
+        int columnCount = columns.getColumnCount();
+        this.columns = new ColumnStatistics[columnCount];
+        this.integral = new boolean[columnCount];
+        this.floatingPoint = new boolean[columnCount];
+        for (int i = 0; i < columnCount; i++) {
+            integral[i] = columns.isIntegral(i + 1);
+            floatingPoint[i] = columns.isFloatingPoint(i + 1);
+            this.columns[i] = new ColumnStatistics(columns.getColumnName(i + 1), integral[i], floatingPoint[i]);
+        }
+    }
+
+    /**
+     * Reads all remaining rows of a result set into new statistics
+     *
+     * @param resultSet the result set, positioned before the first row
+     * @return the statistics
+     * @throws SQLException if reading the result set fails
+     */
+    public static ResultStatistics compute(ResultSet resultSet) throws SQLException {
+        ResultColumns columns = new ResultColumns(resultSet.getMetaData());
+        RowFormatter formatter = new RowFormatter(resultSet.getMetaData(), new LobHandler(), true);
+        ResultStatistics statistics = new ResultStatistics(columns);
+        RowBatch batch = new RowBatch(columns.getColumnCount(), ResultPipeline.BATCH_ROWS);
+        try {
+            while (batch.fill(resultSet, formatter, statistics.rowCount + 1) > 0) {
+                statistics.add(batch);
+            }
+        } catch (IOException e) {
+            throw new SQLException("Failed to read large object: " + e.getMessage(), e);
+        } finally {
+            batch.releaseLargeObjects();
+        }
+        return statistics;
+    }
+
+    /**
+     * Adds all rows of a batch
+     *
+     * @param batch the rows
+     * @throws IOException if a large object file cannot be read
+     */
+    public void add(RowBatch batch) throws IOException {
+        int rows = batch.getRowCount();
+        for (int c = 0; c < columns.length; c++) {
+            ColumnStatistics column = columns[c];
+            int index = c + 1;
+            for (int r = 0; r < rows; r++) {
+                if (batch.isNull(r, index)) {
+                    column.addNull();
+                } else if (integral[c]) {
+                    column.addLong(batch.getLong(r, index));
+                } else if (floatingPoint[c]) {
+                    column.addDouble(batch.getDouble(r, index));
+                } else if (batch.getLargeObject(r, index) != null) {
+                    scratch = column.addText(batch.getLargeObject(r, index), scratch, hash);
+                } else {
+                    cell.setLength(0);
+                    batch.appendCell(r, index, cell);
+                    scratch = column.addText(cell, scratch, hash);
+                }
+            }
+        }
+        rowCount += rows;
+    }
+
+    public long getRowCount() {
+        return rowCount;
+    }
+
+    /**
+     * Gets the statistics of one column
+     *
+     * @param column the 1-based column index
+     * @return the column statistics
+     */
+    public ColumnStatistics getColumn(int column) {
+        return columns[column - 1];
+    }
+
+    /**
+     * Renders the summary written to the result file, a header line and one line per column
+     *
+     * @return the lines
+     */
+    public List<String> toResultLines() {
+        List<String> lines = new ArrayList<>(columns.length + 1);
+        lines.add("Query Results - Statistics: " + rowCount + " rows, " + columns.length + " columns");
+        StringBuilder line = new StringBuilder(128);
+        for (ColumnStatistics column : columns) {
+            line.setLength(0);
+            column.appendSummary(line);
+            lines.add(line.toString());
+        }
+        return lines;
+    }
+}
@@ -0,0 +1,289 @@
+package com.m01.dbhelper.util;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A batch of fetched rows, rendered once by {@link RowFormatter} and shared read-only by every
+ * {@link ResultSink} of a statement.
+ * <p>
+ * All cell text of the batch lives in one character array; each cell is located by a start
+ * offset and a length, with a length of -1 for SQL NULL; integral and floating point columns also
+ * keep their primitive value, so consumers do not parse the text back. When the formatter
+ * {@link RowFormatter#keepsFullLargeObjects() keeps full large objects}, a large object cell
+ * longer than the preview holds only the preview and refers to a {@link LobFile} with the whole
+ * value: {@link #appendPreview} renders it for the human-readable outputs, and other consumers
+ * stream the value from {@link #getLargeObject}. Temporary files are deleted when the batch is
+ * refilled. Batches are recycled by
+ * {@link ResultPipeline}, so sinks must not keep a reference to a batch after
+ * {@link ResultSink#accept(RowBatch)} returns.
+ */
+public final class RowBatch {
+    private final int columnCount;
+    private final int capacity;
+    private final int[] starts;
+    private final int[] lengths;
+    private final long[] numbers;
+    private final LobFile[] lobFiles;
+    private final StringBuilder cell = new StringBuilder(64);
+    private final AtomicInteger references = new AtomicInteger();
+    private char[] chars = new char[8192];
+    private int charLength;
+    private int rowCount;
+    private long firstRowNumber = 1;
+
+    /**
+     * Creates an empty batch
+     *
+     * @param columnCount the number of columns of every row
+     * @param capacity    the maximum number of rows
+     */
+    public RowBatch(int columnCount, int capacity) {
+        this.columnCount = columnCount;
+        this.capacity = capacity;
+        this.starts = new int[columnCount * capacity];
+        this.lengths = new int[columnCount * capacity];
+        this.numbers = new long[columnCount * capacity];
+        this.lobFiles = new LobFile[columnCount * capacity];
+    }
+
+    /**
+     * Replaces the content of the batch with the next rows of a result set
+     *
+     * @param resultSet      the result set
+     * @param formatter      the formatter that renders the cells
+     * @param firstRowNumber the 1-based number of the first row read into the batch
+     * @return the number of rows read, 0 once the result set is exhausted
+     * @throws SQLException if reading the result set fails
+     */
+    public int fill(ResultSet resultSet, RowFormatter formatter, long firstRowNumber) throws SQLException {
+        return fill(resultSet, formatter, firstRowNumber, capacity);
+    }
+
+    /**
+     * Replaces the content of the batch with at most the given number of next rows of a result set
+     *
+     * @param resultSet      the result set
+     * @param formatter      the formatter that renders the cells
+     * @param firstRowNumber the 1-based number of the first row read into the batch
+     * @param maxRows        the maximum number of rows to read, at most the capacity is used
+     * @return the number of rows read, 0 once the result set is exhausted
+     * @throws SQLException if reading the result set fails
+     */
+    public int fill(ResultSet resultSet, RowFormatter formatter, long firstRowNumber, int maxRows) throws SQLException {
+        releaseLargeObjects();
+        int limit = Math.min(capacity, maxRows);
+        this.firstRowNumber = firstRowNumber;
+        charLength = 0;
+        rowCount = 0;
+        while (rowCount < limit && resultSet.next()) {
+            int base = rowCount * columnCount;
+            for (int i = 0; i < columnCount; i++) {
+                cell.setLength(0);
+                if (formatter.appendCell(resultSet, i + 1, cell, numbers, lobFiles, base + i)) {
+                    starts[base + i] = store(cell);
+                    lengths[base + i] = cell.length();
+                } else {
+                    lengths[base + i] = -1;
+                }
+            }
+            rowCount++;
+        }
+        return rowCount;
+    }
+
+    /**
+     * Gets the number of rows in the batch
+     *
+     * @return the row count
+     */
+    public int getRowCount() {
+        return rowCount;
+    }
+
+    /**
+     * Gets the number of columns of every row
+     *
+     * @return the column count
+     */
+    public int getColumnCount() {
+        return columnCount;
+    }
+
+    /**
+     * Gets the position of the first row of this batch in the whole result
+     *
+     * @return the 1-based row number
+     */
+    public long getFirstRowNumber() {
+        return firstRowNumber;
+    }
+
+    /**
+     * Whether a cell is SQL NULL
+     *
+     * @param row    the 0-based row inside the batch
+     * @param column the 1-based column index
+     * @return true for SQL NULL
+     */
+    public boolean isNull(int row, int column) {
+        return lengths[row * columnCount + column - 1] < 0;
+    }
+
+    /**
+     * Appends the text of a cell, appending nothing for SQL NULL. A large object kept in a
+     * {@link LobFile} is read back in full, so consumers that must not hold it in memory check
+     * {@link #getLargeObject} first.
+     *
+     * @param row    the 0-based row inside the batch
+     * @param column the 1-based column index
+     * @param out    the buffer to append to
+     * @return false if the value is SQL NULL
+     */
+    public boolean appendCell(int row, int column, StringBuilder out) {
+        int index = row * columnCount + column - 1;
+        int length = lengths[index];
+        if (length < 0) {
+            return false;
+        }
+        if (lobFiles[index] != null) {
+            lobFiles[index].appendTo(out);
+        } else {
+            out.append(chars, starts[index], length);
+        }
+        return true;
+    }
+
+    /**
+     * Appends the text of a cell as the result file shows it, appending nothing for SQL NULL:
+     * large objects are cut at the preview limit or refer to their side file, other cells are the
+     * same as {@link #appendCell}
+     *
+     * @param row    the 0-based row inside the batch
+     * @param column the 1-based column index
+     * @param out    the buffer to append to
+     * @return false if the value is SQL NULL
+     */
+    public boolean appendPreview(int row, int column, StringBuilder out) {
+        int index = row * columnCount + column - 1;
+        if (!appendPrefix(row, column, out)) {
+            return false;
+        }
+        if (lobFiles[index] != null) {
+            lobFiles[index].appendReference(out);
+        }
+        return true;
+    }
+
+    /**
+     * Gets the file holding the whole value of a large object cell that is longer than the preview
+     *
+     * @param row    the 0-based row inside the batch
+     * @param column the 1-based column index
+     * @return the file, or null if the whole value is in the batch
+     */
+    public LobFile getLargeObject(int row, int column) {
+        return lobFiles[row * columnCount + column - 1];
+    }
+
+    /**
+     * Appends the stored text of a cell, which for a {@link #getLargeObject large object} is only
+     * the preview, appending nothing for SQL NULL
+     *
+     * @param row    the 0-based row inside the batch
+     * @param column the 1-based column index
+     * @param out    the buffer to append to
+     * @return false if the value is SQL NULL
+     */
+    boolean appendPrefix(int row, int column, StringBuilder out) {
+        int index = row * columnCount + column - 1;
+        int length = lengths[index];
+        if (length < 0) {
+            return false;
+        }
+        out.append(chars, starts[index], length);
+        return true;
+    }
+
+    /**
+     * Gets the value of a non-null cell of an integral column, see {@link ResultColumns#isIntegral(int)}
+     *
+     * @param row    the 0-based row inside the batch
+     * @param column the 1-based column index
+     * @return the value
+     */
+    public long getLong(int row, int column) {
+        return numbers[row * columnCount + column - 1];
+    }
+
+    /**
+     * Gets the value of a non-null cell of a floating point column, see
+     * {@link ResultColumns#isFloatingPoint(int)}
+     *
+     * @param row    the 0-based row inside the batch
+     * @param column the 1-based column index
+     * @return the value
+     */
+    public double getDouble(int row, int column) {
+        return Double.longBitsToDouble(numbers[row * columnCount + column - 1]);
+    }
+
+    /**
+     * Gets the text of a cell, reading a large object kept in a {@link LobFile} back in full
+     *
+     * @param row    the 0-based row inside the batch
+     * @param column the 1-based column index
+     * @return the cell text, or null for SQL NULL
+     */
+    public String getString(int row, int column) {
+        int index = row * columnCount + column - 1;
+        int length = lengths[index];
+        if (length < 0) {
+            return null;
+        }
+        if (lobFiles[index] != null) {
+            StringBuilder value = new StringBuilder();
+            lobFiles[index].appendTo(value);
+            return value.toString();
+        }
+        return new String(chars, starts[index], length);
+    }
+
+    /**
+     * Deletes the temporary files of the large objects in the batch
+     */
+    void releaseLargeObjects() {
+        for (int i = 0; i < lobFiles.length; i++) {
+            if (lobFiles[i] != null) {
+                lobFiles[i].deleteIfTemporary();
+                lobFiles[i] = null;
+            }
+        }
+    }
+
+    void retain(int count) {
+        references.set(count);
+    }
+
+    boolean release() {
+        return references.decrementAndGet() == 0;
+    }
+
+    private int store(StringBuilder text) {
+        int length = text.length();
+        ensureCapacity(length);
+        text.getChars(0, length, chars, charLength);
+        int start = charLength;
+        charLength += length;
+        return start;
+    }
+
+    private void ensureCapacity(int extra) {
+        if (charLength + extra > chars.length) {
+            char[] grown = new char[Math.max(chars.length * 2, charLength + extra)];
+            System.arraycopy(chars, 0, grown, 0, charLength);
+            chars = grown;
+        }
+    }
+}
@@ -0,0 +1,270 @@
+package com.m01.dbhelper.util;
+
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Types;
+
+/**
+ * Formats result set rows into a caller-supplied, reusable character buffer.
+ * <p>
+ * The column metadata is read once and every column gets a type-specific accessor, so integral
+ * and floating point values are appended as digits and binary values as hex without creating
+ * intermediate Strings. {@code REAL} columns are read as {@code float}, so they render with
+ * single precision digits, and unsigned {@code BIGINT} columns are read as text, since their
+ * values may not fit in a {@code long}. Binary and large character columns are streamed through a
+ * {@link LobHandler}, which caps how much of a value is held in memory. Other types fall back to
+ * {@link ResultSet#getString(int)}. SQL NULL is rendered as {@code null}.
+ * <p>
+ * A formatter that {@link #keepsFullLargeObjects() keeps full large objects} keeps the whole
+ * value of a binary or large character cell that is longer than the preview in a
+ * {@link LobFile}, so it reaches every output without being held in the heap.
+ */
+public class RowFormatter {
+    static final byte KIND_STRING = 0;
+    static final byte KIND_LONG = 1;
+    static final byte KIND_DOUBLE = 2;
+    static final byte KIND_BOOLEAN = 3;
+    static final byte KIND_BYTES = 4;
+    static final byte KIND_CLOB = 5;
+    static final byte KIND_FLOAT = 6;
+
+    private final int columnCount;
+    private final String[] columnNames;
+    private final byte[] kinds;
+    private final LobHandler lobHandler;
+    private final boolean fullLargeObjects;
+
+    /**
+     * Reads the column layout of a result set; large objects are truncated at the default
+     * preview limit
+     *
+     * @param metaData the result set metadata
+     * @throws SQLException if the metadata cannot be read
+     */
+    public RowFormatter(ResultSetMetaData metaData) throws SQLException {
+        this(metaData, new LobHandler());
+    }
+
+    /**
+     * Reads the column layout of a result set
+     *
+     * @param metaData   the result set metadata
+     * @param lobHandler reads binary and large character columns
+     * @throws SQLException if the metadata cannot be read
+     */
+    public RowFormatter(ResultSetMetaData metaData, LobHandler lobHandler) throws SQLException {
+        this(metaData, lobHandler, false);
+    }
+
+    /**
+     * Reads the column layout of a result set
+     *
+     * @param metaData         the result set metadata
+     * @param lobHandler       reads binary and large character columns
+     * @param fullLargeObjects whether the whole value of large objects is kept in a file next to the preview
+     * @throws SQLException if the metadata cannot be read
+     */
+    public RowFormatter(ResultSetMetaData metaData, LobHandler lobHandler, boolean fullLargeObjects) throws SQLException {
+        this.lobHandler = lobHandler;
+        this.fullLargeObjects = fullLargeObjects;
+        this.columnCount = metaData.getColumnCount();
+        this.columnNames = new String[columnCount];
+        this.kinds = new byte[columnCount];
+        for (int i = 0; i < columnCount; i++) {
+            columnNames[i] = metaData.getColumnName(i + 1);
+            kinds[i] = kindOfColumn(metaData, i + 1);
+        }
+    }
+
+    /**
+     * Gets the number of columns
+     *
+     * @return the column count
+     */
+    public int getColumnCount() {
+        return columnCount;
+    }
+
+    /**
+     * Gets the name of a column
+     *
+     * @param column the 1-based column index
+     * @return the column name
+     */
+    public String getColumnName(int column) {
+        return columnNames[column - 1];
+    }
+
+    /**
+     * Appends all cells of the current row, separated by the given separator
+     *
+     * @param resultSet the result set positioned on a row
+     * @param out       the buffer to append to
+     * @param separator the text between two cells
+     * @throws SQLException if a value cannot be read
+     */
+    public void appendRow(ResultSet resultSet, StringBuilder out, String separator) throws SQLException {
+        for (int i = 1; i <= columnCount; i++) {
+            if (i > 1) {
+                out.append(separator);
+            }
+            if (!appendCell(resultSet, i, out)) {
+                out.append("null");
+            }
+        }
+    }
+
+    /**
+     * Appends one cell of the current row, appending nothing for SQL NULL
+     *
+     * @param resultSet the result set positioned on a row
+     * @param column    the 1-based column index
+     * @param out       the buffer to append to
+     * @return false if the value is SQL NULL
+     * @throws SQLException if the value cannot be read
+     */
+    public boolean appendCell(ResultSet resultSet, int column, StringBuilder out) throws SQLException {
+        return appendCell(resultSet, column, out, null, null, 0);
+    }
+
+    /**
+     * Appends one cell of the current row and keeps the primitive value of numeric columns
+     *
+     * @param resultSet the result set positioned on a row
+     * @param column    the 1-based column index
+     * @param out       the buffer to append to
+     * @param numbers   receives the value of an integral column, or the raw bits of a floating point
+     *                  column widened to {@code double}, at {@code slot}; untouched for other columns
+     *                  and for SQL NULL
+     * @param files     receives the {@link LobFile} of a large object longer than the preview at
+     *                  {@code slot} when the formatter keeps full large objects, see
+     *                  {@link LobHandler#appendBinary(ResultSet, int, StringBuilder, LobFile[], int)}
+     * @param slot      the index into {@code numbers} and {@code files}
+     * @return false if the value is SQL NULL
+     * @throws SQLException if the value cannot be read
+     */
+    boolean appendCell(ResultSet resultSet, int column, StringBuilder out, long[] numbers, LobFile[] files, int slot)
+            throws SQLException {
+        switch (kinds[column - 1]) {
+            case KIND_LONG: {
+                long value = resultSet.getLong(column);
+                if (resultSet.wasNull()) {
+                    return false;
+                }
+                if (numbers != null) {
+                    numbers[slot] = value;
+                }
+                out.append(value);
+                return true;
+            }
+            case KIND_DOUBLE: {
+                double value = resultSet.getDouble(column);
+                if (resultSet.wasNull()) {
+                    return false;
+                }
+                if (numbers != null) {
+                    numbers[slot] = Double.doubleToRawLongBits(value);
+                }
+                out.append(value);
+                return true;
+            }
+            case KIND_FLOAT: {
+                float value = resultSet.getFloat(column);
+                if (resultSet.wasNull()) {
+                    return false;
+                }
+                if (numbers != null) {
+                    numbers[slot] = Double.doubleToRawLongBits(value);
+                }
+                out.append(value);
+                return true;
+            }
+            case KIND_BOOLEAN: {
+                boolean value = resultSet.getBoolean(column);
+                if (resultSet.wasNull()) {
+                    return false;
+                }
+                out.append(value);
+                return true;
+            }
+            case KIND_BYTES:
+                return lobHandler.appendBinary(resultSet, column, out, fullLargeObjects ? files : null, slot);
+            case KIND_CLOB:
+                return lobHandler.appendText(resultSet, column, out, fullLargeObjects ? files : null, slot);
+            default: {
+                String value = resultSet.getString(column);
+                if (value == null) {
+                    return false;
+                }
+                out.append(value);
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Whether the whole value of large objects longer than the preview is kept in a file
+     *
+     * @return true if such cells receive a {@link LobFile} instead of the truncation marker
+     */
+    public boolean keepsFullLargeObjects() {
+        return fullLargeObjects;
+    }
+
+    /**
+     * Gets the accessor kind chosen for a column
+     *
+     * @param column the 1-based column index
+     * @return one of the KIND_* constants
+     */
+    byte kindOf(int column) {
+        return kinds[column - 1];
+    }
+
+    /**
+     * Chooses the accessor kind of a column
+     *
+     * @param metaData the result set metadata
+     * @param column   the 1-based column index
+     * @return one of the KIND_* constants
+     * @throws SQLException if the metadata cannot be read
+     */
+    static byte kindOfColumn(ResultSetMetaData metaData, int column) throws SQLException {
+        int sqlType = metaData.getColumnType(column);
+        // 无符号 BIGINT（如 MySQL BIGINT UNSIGNED）可能超出 long 的范围
+        if (sqlType == Types.BIGINT && !metaData.isSigned(column)) {
+            return KIND_STRING;
+        }
+        return kindOfType(sqlType);
+    }
+
+    static byte kindOfType(int sqlType) {
+        switch (sqlType) {
+            case Types.TINYINT:
+            case Types.SMALLINT:
+            case Types.INTEGER:
+            case Types.BIGINT:
+                return KIND_LONG;
+            case Types.REAL:
+                return KIND_FLOAT;
+            case Types.FLOAT:
+            case Types.DOUBLE:
+                return KIND_DOUBLE;
+            case Types.BOOLEAN:
+                return KIND_BOOLEAN;
+            case Types.BINARY:
+            case Types.VARBINARY:
+            case Types.LONGVARBINARY:
+            case Types.BLOB:
+                return KIND_BYTES;
+            case Types.LONGVARCHAR:
+            case Types.LONGNVARCHAR:
+            case Types.CLOB:
+            case Types.NCLOB:
+                return KIND_CLOB;
+            default:
+                return KIND_STRING;
+        }
+    }
+}
@@ -1,10 +1,18 @@
 package com.m01.dbhelper.util;
 
 import com.m01.dbhelper.common.DbType;
+import com.m01.dbhelper.common.ExportFormat;
+import com.m01.dbhelper.common.ResultDurability;
+import com.m01.dbhelper.common.ResultMode;
+import com.m01.dbhelper.common.ResultVerbosity;
 import com.m01.dbhelper.common.SqlSchedule;
 import com.m01.dbhelper.common.SqlTask;
+import com.m01.dbhelper.common.StatementKind;
+import com.m01.dbhelper.common.Verdict;
 
 import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Paths;
 import java.sql.Connection;
@@ -13,11 +21,17 @@ import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
-import net.sf.jsqlparser.JSQLParserException;
 
 /**
  * Utility class for executing SQL schedules loaded from JSON files
@@ -25,6 +39,59 @@ import net.sf.jsqlparser.JSQLParserException;
 public class SqlExecutor {
 
     private static final Logger logger = Logger.getLogger(SqlExecutor.class.getName());
+    private static final int DEFAULT_STREAMING_FETCH_SIZE = 1000;
+
+    private final SqlSchedule schedule;
+    private final ResultLogger resultLogger;
+    private final boolean ownsResultLogger;
+    private final ResultDurability durability;
+    private final ResultVerbosity verbosity;
+    private final StatementCounters scheduleCounters = new StatementCounters();
+    private ExecutionEventLog events = ExecutionEventLog.disabled();
+    private BinaryResultLog binaryLog;
+    private ValidationCache validationCache = ValidationCache.shared();
+    private InsertFastPath insertFastPath;
+    private ParseBudget parseBudget = ParseBudget.DEFAULT;
+
+    /**
+     * Creates an executor for one schedule
+     * The schedule's resultFilePath gets a result logger owned by this executor, which applies
+     * the schedule's rotation settings, otherwise output goes to the shared default result file
+     *
+     * @param schedule the SQL schedule to execute
+     */
+    public SqlExecutor(SqlSchedule schedule) {
+        this(schedule, hasResultFilePath(schedule)
+                ? new ResultLogger(schedule.getResultFilePath(), ResultRotation.of(schedule)) : null);
+    }
+
+    /**
+     * Creates an executor for one schedule that writes to the given result logger
+     *
+     * @param schedule     the SQL schedule to execute
+     * @param resultLogger the logger that receives the output of this schedule, which is closed
+     *                     when the schedule ends, or null to use the shared default result file
+     */
+    public SqlExecutor(SqlSchedule schedule, ResultLogger resultLogger) {
+        this.schedule = schedule;
+        this.ownsResultLogger = resultLogger != null;
+        this.resultLogger = resultLogger != null ? resultLogger : ResultLogger.getDefault();
+        this.durability = schedule.getResultDurability() != null ? schedule.getResultDurability() : ResultDurability.TASK;
+        this.verbosity = schedule.getResultVerbosity() != null ? schedule.getResultVerbosity() : ResultVerbosity.FULL;
+    }
+
+    /**
+     * Gets the result logger used by this executor
+     *
+     * @return the result logger
+     */
+    public ResultLogger getResultLogger() {
+        return resultLogger;
+    }
+
+    private static boolean hasResultFilePath(SqlSchedule schedule) {
+        return schedule.getResultFilePath() != null && !schedule.getResultFilePath().trim().isEmpty();
+    }
 
     /**
      * Executes SQL schedule from a JSON file
@@ -45,6 +112,7 @@ public class SqlExecutor {
             // 将JSON解析失败的错误记录到result.txt文件
             ResultLogger.logToResultFile("ERROR: Failed to parse JSON file: " + jsonFilePath);
             ResultLogger.logToResultFile("Error message: " + e.getMessage());
+            ResultLogger.closeResultFile();
             return false;
         }
     }
@@ -56,34 +124,84 @@ public class SqlExecutor {
      * @return true if execution completed successfully, false otherwise
      */
     public static boolean executeSchedule(SqlSchedule schedule) {
-        logger.info("Executing SQL schedule: " + schedule.getScheduleName());
+        return new SqlExecutor(schedule).execute();
+    }
 
-        // 设置结果文件路径，如果在调度表中指定了路径，则使用指定路径
-        if (schedule.getResultFilePath() != null && !schedule.getResultFilePath().trim().isEmpty()) {
-            ResultLogger.setResultFile(schedule.getResultFilePath());
+    /**
+     * Executes the schedule this executor was created for
+     *
+     * @return true if execution completed successfully, false otherwise
+     */
+    public boolean execute() {
+        events = openEventLog(schedule);
+        binaryLog = openBinaryLog(schedule);
+        validationCache = openValidationCache(schedule);
+        insertFastPath = Boolean.FALSE.equals(schedule.getInsertFastPath()) ? null : new InsertFastPath(validationCache,
+                schedule.getInsertSampleRate() != null ? schedule.getInsertSampleRate() : 0);
+        parseBudget = new ParseBudget(
+                schedule.getParseTimeoutMillis() != null ? schedule.getParseTimeoutMillis() : ParseBudget.DEFAULT_TIMEOUT_MILLIS,
+                schedule.getMaxParseChars() != null ? schedule.getMaxParseChars() : ParseBudget.DEFAULT_MAX_CHARS);
+        long start = System.nanoTime();
+        boolean success = false;
+        events.scheduleStarted(schedule.getScheduleName());
+        try {
+            success = runSchedule();
+            return success;
+        } finally {
+            if (verbosity != ResultVerbosity.FULL) {
+                resultLogger.log("Schedule: " + schedule.getScheduleName() + " - Summary: "
+                        + scheduleCounters.validationSummary() + ", " + scheduleCounters.executionSummary());
+            }
+            events.scheduleFinished(schedule.getScheduleName(), System.nanoTime() - start, success);
+            events.close();
+            closeBinaryLog();
+            closeValidationCache();
+            // 调度结束时写出所有缓冲的结果
+            if (ownsResultLogger) {
+                resultLogger.close();
+            } else {
+                resultLogger.flush();
+            }
         }
+    }
 
-        ResultLogger.initResultFile(); // Initialize the result file
+    private boolean runSchedule() {
+        logger.info("Executing SQL schedule: " + schedule.getScheduleName());
+
+        resultLogger.init(); // Initialize the result file
 
         List<SqlTask> tasks = schedule.getTaskList();
         if (tasks == null || tasks.isEmpty()) {
             logger.warning("No tasks found in the schedule");
-            ResultLogger.logToResultFile("Schedule: " + schedule.getScheduleName() + " - No tasks found");
+            resultLogger.log("Schedule: " + schedule.getScheduleName() + " - No tasks found");
             return true;
         }
 
+        if (Boolean.TRUE.equals(schedule.getPipelinedExecution()) && schedule.getDbType() != null) {
+            return runPipelined(tasks);
+        }
+
         // First phase: Validate all SQL statements before executing
         logger.info("Validating all SQL statements...");
-        ResultLogger.logToResultFile("Schedule: " + schedule.getScheduleName() + " - Starting SQL validation");
-        List<List<String>> validatedTaskSqlStatements = new ArrayList<>();
+        resultLogger.log("Schedule: " + schedule.getScheduleName() + " - Starting SQL validation");
+        List<List<ParsedStatement>> validatedTaskSqlStatements = new ArrayList<>();
+        List<List<ParallelValidator.Entry>> taskEntries = validateInParallel(tasks);
 
-        for (SqlTask task : tasks) {
-            List<String> validatedSqlStatements = validateTaskSql(task, schedule.getPolicyWhenError(), schedule.getDbType(), schedule.getScheduleName());
+        for (int i = 0; i < tasks.size(); i++) {
+            SqlTask task = tasks.get(i);
+            events.taskStarted(schedule.getScheduleName(), task.getTaskName(), "validate");
+            long validationStart = System.nanoTime();
+            StatementCounters counters = new StatementCounters();
+            List<ParsedStatement> validatedSqlStatements = validateTaskSql(task, schedule.getPolicyWhenError(), schedule.getDbType(),
+                    schedule.getScheduleName(), counters, taskEntries.get(i));
+            scheduleCounters.add(counters);
+            events.taskFinished(schedule.getScheduleName(), task.getTaskName(), "validate", System.nanoTime() - validationStart,
+                    validatedSqlStatements != null ? validatedSqlStatements.size() : 0, validatedSqlStatements != null);
 
             // If validation fails and policy is "stop", return early without connecting to the database
             if (validatedSqlStatements == null && "stop".equalsIgnoreCase(schedule.getPolicyWhenError())) {
                 logger.severe("Schedule execution stopped due to SQL validation failure and stop policy");
-                ResultLogger.logToResultFile("Schedule: " + schedule.getScheduleName() + " - Execution stopped due to validation failures");
+                resultLogger.log("Schedule: " + schedule.getScheduleName() + " - Execution stopped due to validation failures");
                 return false;
             }
 
@@ -92,10 +210,16 @@ public class SqlExecutor {
             }
         }
 
+        logInsertFastPath();
         logger.info("SQL validation completed. Connecting to database...");
-        ResultLogger.logToResultFile("Schedule: " + schedule.getScheduleName() + " - SQL validation completed. Connecting to database...");
+        resultLogger.log("Schedule: " + schedule.getScheduleName() + " - SQL validation completed. Connecting to database...");
 
         // Second phase: Connect to the database and execute validated SQL
+        int parallelism = schedule.getTaskParallelism() != null ? schedule.getTaskParallelism() : 1;
+        if (parallelism > 1) {
+            return executeTasksConcurrently(tasks, validatedTaskSqlStatements, parallelism);
+        }
+
         Connection connection = null;
         try {
             connection = getConnection(schedule);
@@ -106,27 +230,251 @@ public class SqlExecutor {
                 }
 
                 SqlTask task = tasks.get(i);
-                List<String> sqlStatements = validatedTaskSqlStatements.get(i);
+                List<ParsedStatement> sqlStatements = validatedTaskSqlStatements.get(i);
 
-                boolean taskResult = executeValidatedTask(task, connection, schedule.getPolicyWhenError(), sqlStatements, schedule.getScheduleName());
+                boolean taskResult = executeTaskPhase(task, connection, sqlStatements, resultLogger);
                 if (!taskResult && "stop".equalsIgnoreCase(schedule.getPolicyWhenError())) {
                     logger.severe("Schedule execution stopped due to task execution failure and stop policy");
-                    ResultLogger.logToResultFile("Schedule: " + schedule.getScheduleName() + " - Execution stopped due to task execution failure");
+                    resultLogger.log("Schedule: " + schedule.getScheduleName() + " - Execution stopped due to task execution failure");
                     return false;
                 }
             }
 
-            ResultLogger.logToResultFile("Schedule: " + schedule.getScheduleName() + " - Execution completed successfully");
+            resultLogger.log("Schedule: " + schedule.getScheduleName() + " - Execution completed successfully");
             return true;
         } catch (SQLException e) {
             logger.log(Level.SEVERE, "Database connection error", e);
-            ResultLogger.logToResultFile("Schedule: " + schedule.getScheduleName() + " - Database connection error: " + e.getMessage());
+            resultLogger.log("Schedule: " + schedule.getScheduleName() + " - Database connection error: " + e.getMessage());
             return false;
         } finally {
             closeConnection(connection);
         }
     }
 
+    /**
+     * Validates and executes the tasks one by one on a single connection, with the validation of
+     * the statements running ahead of their execution through a bounded queue
+     * A statement that fails validation under the stop policy is never executed: the statements of
+     * its task executed before it are rolled back, while earlier tasks stay committed
+     */
+    private boolean runPipelined(List<SqlTask> tasks) {
+        String scheduleName = schedule.getScheduleName();
+        logger.info("Validating and executing SQL statements in a pipeline...");
+        resultLogger.log("Schedule: " + scheduleName + " - Starting pipelined SQL validation and execution");
+        if (schedule.getTaskParallelism() != null && schedule.getTaskParallelism() > 1) {
+            logger.warning("Pipelined execution runs tasks one by one, ignoring taskParallelism");
+        }
+        int parallelism = schedule.getValidationParallelism() != null
+                ? schedule.getValidationParallelism() : Runtime.getRuntime().availableProcessors();
+        int capacity = schedule.getPipelineQueueSize() != null
+                ? schedule.getPipelineQueueSize() : PipelinedValidator.DEFAULT_CAPACITY;
+
+        Connection connection = null;
+        try (PipelinedValidator pipeline = new PipelinedValidator(validationCache, schedule.getDbType(), parallelism,
+                sqlFileCharset(schedule), insertFastPath, parseBudget, capacity)) {
+            // 先开始校验，连接数据库的同时校验已在进行
+            pipeline.start(tasks, "sql-pipeline-" + scheduleName);
+            connection = getConnection(schedule);
+
+            for (int i = 0; i < tasks.size(); i++) {
+                SqlTask task = tasks.get(i);
+                PipelineSource source = new PipelineSource(task, pipeline);
+                boolean taskResult = executeTaskPhase(task, connection, source, "pipeline", resultLogger);
+                scheduleCounters.add(source.counters);
+                if (verbosity != ResultVerbosity.FULL) {
+                    resultLogger.log("Schedule: " + scheduleName + " - Task: " + task.getTaskName() + " - Validation summary: "
+                            + source.counters.validationSummary());
+                }
+                if (!source.ended) {
+                    pipeline.skipTask(i);
+                }
+                if (!taskResult && "stop".equalsIgnoreCase(schedule.getPolicyWhenError())) {
+                    if (source.isHalted()) {
+                        logger.severe("Schedule execution stopped due to SQL validation failure and stop policy");
+                        resultLogger.log("Schedule: " + scheduleName + " - Execution stopped due to validation failures");
+                    } else {
+                        logger.severe("Schedule execution stopped due to task execution failure and stop policy");
+                        resultLogger.log("Schedule: " + scheduleName + " - Execution stopped due to task execution failure");
+                    }
+                    return false;
+                }
+            }
+
+            logInsertFastPath();
+            resultLogger.log("Schedule: " + scheduleName + " - Execution completed successfully");
+            return true;
+        } catch (SQLException e) {
+            logger.log(Level.SEVERE, "Database connection error", e);
+            resultLogger.log("Schedule: " + scheduleName + " - Database connection error: " + e.getMessage());
+            return false;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            resultLogger.log("Schedule: " + scheduleName + " - Execution interrupted");
+            return false;
+        } finally {
+            closeConnection(connection);
+        }
+    }
+
+    private void logInsertFastPath() {
+        if (insertFastPath != null && insertFastPath.getScanned() + insertFastPath.getSampled() > 0) {
+            logger.info("INSERT fast path: " + insertFastPath.getScanned() + " statements checked structurally, "
+                    + insertFastPath.getSampled() + " parsed fully");
+        }
+    }
+
+    /**
+     * Executes the validated tasks on a pool of workers, each task with its own connection
+     * Every task writes to its own result segment, and the segments are merged into the result
+     * file in task order once all tasks are done, so the output reads as if the tasks ran one by one
+     *
+     * @param tasks                      the tasks of the schedule
+     * @param validatedTaskSqlStatements the validated statements of the tasks
+     * @param parallelism                the maximum number of tasks executing at the same time
+     * @return true if execution completed successfully, false otherwise
+     */
+    private boolean executeTasksConcurrently(List<SqlTask> tasks, List<List<ParsedStatement>> validatedTaskSqlStatements,
+                                             int parallelism) {
+        String scheduleName = schedule.getScheduleName();
+        boolean stopOnError = "stop".equalsIgnoreCase(schedule.getPolicyWhenError());
+        AtomicBoolean stopped = new AtomicBoolean();
+        AtomicBoolean connectionFailed = new AtomicBoolean();
+        List<ResultLogger> segments = new ArrayList<>();
+        List<Future<?>> workers = new ArrayList<>();
+        AtomicInteger workerCount = new AtomicInteger();
+        ExecutorService pool = Executors.newFixedThreadPool(Math.min(parallelism, tasks.size()), runnable -> {
+            Thread thread = new Thread(runnable, "task-worker-" + scheduleName + "-" + workerCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        try {
+            for (int i = 0; i < tasks.size(); i++) {
+                if (i >= validatedTaskSqlStatements.size() || validatedTaskSqlStatements.get(i) == null) {
+                    continue; // Skip tasks that failed validation
+                }
+
+                SqlTask task = tasks.get(i);
+                List<ParsedStatement> sqlStatements = validatedTaskSqlStatements.get(i);
+                ResultLogger segment = resultLogger.newSegment(segments.size());
+                segments.add(segment);
+                workers.add(pool.submit(() -> {
+                    if (stopped.get()) {
+                        segment.log("Schedule: " + scheduleName + " - Task: " + task.getTaskName() + " - Skipped after an earlier task failure");
+                        return;
+                    }
+                    Connection connection = null;
+                    try {
+                        connection = getConnection(schedule);
+                        boolean taskResult = executeTaskPhase(task, connection, sqlStatements, segment);
+                        if (!taskResult && stopOnError) {
+                            stopped.set(true);
+                        }
+                    } catch (SQLException e) {
+                        logger.log(Level.SEVERE, "Database connection error", e);
+                        segment.log("Schedule: " + scheduleName + " - Task: " + task.getTaskName() + " - Database connection error: " + e.getMessage());
+                        connectionFailed.set(true);
+                        if (stopOnError) {
+                            stopped.set(true);
+                        }
+                    } finally {
+                        closeConnection(connection);
+                    }
+                }));
+            }
+            for (Future<?> worker : workers) {
+                awaitWorker(worker);
+            }
+        } finally {
+            pool.shutdown();
+            try {
+                resultLogger.mergeSegments(segments);
+            } catch (IOException e) {
+                logger.log(Level.SEVERE, "Failed to merge result segments", e);
+                resultLogger.log("Schedule: " + scheduleName + " - Failed to merge result segments: " + e.getMessage());
+            }
+        }
+
+        if (stopped.get()) {
+            logger.severe("Schedule execution stopped due to task execution failure and stop policy");
+            resultLogger.log("Schedule: " + scheduleName + " - Execution stopped due to task execution failure");
+            return false;
+        }
+        if (connectionFailed.get()) {
+            return false;
+        }
+        resultLogger.log("Schedule: " + scheduleName + " - Execution completed successfully");
+        return true;
+    }
+
+    private static void awaitWorker(Future<?> worker) {
+        boolean interrupted = false;
+        try {
+            while (true) {
+                try {
+                    worker.get();
+                    return;
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                } catch (ExecutionException e) {
+                    logger.log(Level.SEVERE, "Task worker failed", e.getCause());
+                    return;
+                }
+            }
+        } finally {
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * Executes one validated task and records its execute phase in the event log
+     */
+    private boolean executeTaskPhase(SqlTask task, Connection connection, List<ParsedStatement> sqlStatements, ResultLogger out) {
+        return executeTaskPhase(task, connection, new ListSource(sqlStatements), "execute", out);
+    }
+
+    /**
+     * Executes the statements of a task from a source and records the phase in the event log
+     */
+    private boolean executeTaskPhase(SqlTask task, Connection connection, StatementSource source, String phase,
+                                     ResultLogger out) {
+        events.taskStarted(schedule.getScheduleName(), task.getTaskName(), phase);
+        long executionStart = System.nanoTime();
+        StatementCounters counters = new StatementCounters();
+        boolean taskResult = executeValidatedTask(task, connection, schedule.getPolicyWhenError(), source,
+                schedule.getScheduleName(), schedule.getDbType(), out, counters);
+        scheduleCounters.add(counters);
+        events.taskFinished(schedule.getScheduleName(), task.getTaskName(), phase, System.nanoTime() - executionStart,
+                source.count(), taskResult);
+        return taskResult;
+    }
+
+    /**
+     * Reads the SQL files of all tasks and validates their statements on a fork-join pool
+     *
+     * @param tasks the tasks of the schedule
+     * @return for each task, its SQL list as read and validated
+     */
+    private List<List<ParallelValidator.Entry>> validateInParallel(List<SqlTask> tasks) {
+        if (schedule.getDbType() == null) {
+            // 未指定数据库类型时每个任务都直接校验失败，无需读取和解析
+            return new ArrayList<>(Collections.nCopies(tasks.size(), Collections.<ParallelValidator.Entry>emptyList()));
+        }
+        boolean[] taskStops = new boolean[tasks.size()];
+        for (int i = 0; i < taskStops.length; i++) {
+            String policy = tasks.get(i).getPolicyWhenError() != null ?
+                tasks.get(i).getPolicyWhenError() : schedule.getPolicyWhenError();
+            taskStops[i] = "stop".equalsIgnoreCase(policy);
+        }
+        int parallelism = schedule.getValidationParallelism() != null
+                ? schedule.getValidationParallelism() : Runtime.getRuntime().availableProcessors();
+        return new ParallelValidator(validationCache, schedule.getDbType(), parallelism, sqlFileCharset(schedule), insertFastPath,
+                parseBudget, Boolean.TRUE.equals(schedule.getSqlFileIndex()))
+                .validate(tasks, taskStops, "stop".equalsIgnoreCase(schedule.getPolicyWhenError()));
+    }
+
     /**
      * Validates all SQL statements in a task
      *
@@ -134,185 +482,306 @@ public class SqlExecutor {
      * @param schedulePolicyWhenError fallback error policy
      * @param scheduleDbType          fallback database type
      * @param scheduleName the name of the schedule
+     * @param counters                receives the number of valid and invalid statements
+     * @param entries                 the task's SQL list as read and validated by the {@link ParallelValidator}
      * @return list of validated SQL statements, or null if validation failed and policy is "stop"
      */
-    private static List<String> validateTaskSql(SqlTask task, String schedulePolicyWhenError,
-                                              DbType scheduleDbType, String scheduleName) {
+    private List<ParsedStatement> validateTaskSql(SqlTask task, String schedulePolicyWhenError,
+                                              DbType scheduleDbType, String scheduleName, StatementCounters counters,
+                                              List<ParallelValidator.Entry> entries) {
         logger.info("Validating SQL for task: " + task.getTaskName());
-        ResultLogger.logToResultFile("Schedule: " + scheduleName + " - Task: " + task.getTaskName() + " - Starting validation");
+        resultLogger.log("Schedule: " + scheduleName + " - Task: " + task.getTaskName() + " - Starting validation");
 
-        List<String> validatedSqlStatements = new ArrayList<>();
+        List<ParsedStatement> validatedSqlStatements = new ArrayList<>();
 
         // Get database type - either from task or use schedule's if task doesn't define one
         if (scheduleDbType == null) {
             String errorMsg = "Database type is not specified for task: " + task.getTaskName();
             logger.severe(errorMsg);
-            ResultLogger.logToResultFile("Schedule: " + scheduleName + " - Task: " + task.getTaskName() + " - " + errorMsg);
+            resultLogger.log("Schedule: " + scheduleName + " - Task: " + task.getTaskName() + " - " + errorMsg);
             String policy = task.getPolicyWhenError() != null ? task.getPolicyWhenError() : schedulePolicyWhenError;
             return "stop".equalsIgnoreCase(policy) ? null : validatedSqlStatements;
         }
 
-        // Process the SQL list - expanding file references
-        for (String sqlEntry : task.getSqlList()) {
-            try {
-                if (sqlEntry.trim().toLowerCase().endsWith(".sql")) {
-                    // This is a SQL file reference - read and validate its contents using SqlValidator
-                    ResultLogger.logToResultFile("Schedule: " + scheduleName + " - Task: " + task.getTaskName() + " - Reading SQL file: " + sqlEntry.trim());
-                    try {
-                        List<String> sqlStatementsFromFile = SqlValidator.readSqlFile(sqlEntry.trim(), scheduleDbType);
-                        for (String statement : sqlStatementsFromFile) {
-                            if (!statement.trim().isEmpty()) {
-                                // Validate SQL syntax
-                                boolean isValid = SqlValidator.isValidSql(statement, scheduleDbType);
-                                if (isValid) {
-                                    ResultLogger.logToResultFile(scheduleName + "-" + task.getTaskName() + "-" + truncateSql(statement));
-                                    ResultLogger.logToResultFile("parse success");
-                                    validatedSqlStatements.add(statement);
-                                } else {
-                                    String errorMsg = "Invalid SQL syntax in file " + sqlEntry;
-                                    logger.warning(errorMsg + ": " + statement);
-                                    ResultLogger.logToResultFile(scheduleName + "-" + task.getTaskName() + "-" + truncateSql(statement));
-                                    ResultLogger.logToResultFile("parse fail: Invalid SQL syntax");
-
-                                    // Apply error policy for invalid SQL
-                                    String policy = task.getPolicyWhenError() != null ?
-                                        task.getPolicyWhenError() : schedulePolicyWhenError;
-                                    if ("stop".equalsIgnoreCase(policy)) {
-                                        return null;
-                                    }
-                                }
-                            }
-                        }
-                    } catch (JSQLParserException e) {
-                        String errorMsg = "Failed to parse SQL in file: " + sqlEntry;
-                        logger.log(Level.SEVERE, errorMsg, e);
-                        ResultLogger.logToResultFile(scheduleName + "-" + task.getTaskName() + "-" + sqlEntry);
-                        ResultLogger.logToResultFile("parse fail: " + e.getMessage());
-
-                        String policy = task.getPolicyWhenError() != null ?
-                            task.getPolicyWhenError() : schedulePolicyWhenError;
-                        if ("stop".equalsIgnoreCase(policy)) {
-                            return null;
-                        }
-                    }
-                } else {
-                    // Direct SQL statement - validate it
-                    String statement = sqlEntry.trim();
-                    if (!statement.isEmpty()) {
-                        boolean isValid = SqlValidator.isValidSql(statement, scheduleDbType);
-                        if (isValid) {
-                            ResultLogger.logToResultFile(scheduleName + "-" + task.getTaskName() + "-" + truncateSql(statement));
-                            ResultLogger.logToResultFile("parse success");
-                            validatedSqlStatements.add(statement);
-                        } else {
-                            String errorMsg = "Invalid SQL syntax: " + statement;
-                            logger.warning(errorMsg);
-                            ResultLogger.logToResultFile(scheduleName + "-" + task.getTaskName() + "-" + truncateSql(statement));
-                            ResultLogger.logToResultFile("parse fail: Invalid SQL syntax");
-
-                            // Apply error policy for invalid SQL
-                            String policy = task.getPolicyWhenError() != null ?
-                                task.getPolicyWhenError() : schedulePolicyWhenError;
-                            if ("stop".equalsIgnoreCase(policy)) {
-                                return null;
-                            }
-                        }
+        int statementIndex = 0;
+
+        // Process the SQL list - file references were expanded and all statements validated by the parallel validator
+        for (ParallelValidator.Entry entry : entries) {
+            String sqlEntry = entry.getSqlEntry();
+            if (entry.isFile()) {
+                // This is a SQL file reference - its statements carry the syntax trees of the whole-file parse
+                resultLogger.log("Schedule: " + scheduleName + " - Task: " + task.getTaskName() + " - Reading SQL file: " + sqlEntry.trim());
+                if (entry.getError() != null) {
+                    readFailed(task, sqlEntry, entry.getError(), counters, resultLogger);
+
+                    String policy = task.getPolicyWhenError() != null ?
+                        task.getPolicyWhenError() : schedulePolicyWhenError;
+
+                    if ("stop".equalsIgnoreCase(policy)) {
+                        return null;
                     }
+                    continue;
                 }
-            } catch (IOException e) {
-                String errorMsg = "Failed to read SQL file: " + sqlEntry;
-                logger.log(Level.SEVERE, errorMsg, e);
-                ResultLogger.logToResultFile(scheduleName + "-" + task.getTaskName() + "-" + sqlEntry);
-                ResultLogger.logToResultFile("parse fail: " + e.getMessage());
+            }
 
+            List<ParsedStatement> statements = entry.getStatements();
+            for (int i = 0; i < statements.size(); i++) {
+                ParsedStatement parsed = statements.get(i);
+                Verdict verdict;
+                long parseNanos;
+                if (entry.isChecked(i)) {
+                    verdict = entry.getVerdict(i);
+                    parseNanos = entry.getParseNanos(i);
+                } else {
+                    // 并行校验已取消的语句，按顺序处理时不会走到这里
+                    long parseStart = System.nanoTime();
+                    verdict = insertFastPath != null ? insertFastPath.check(parsed, scheduleDbType, parseBudget)
+                            : validationCache.check(parsed, scheduleDbType, parseBudget);
+                    parseNanos = System.nanoTime() - parseStart;
+                }
                 String policy = task.getPolicyWhenError() != null ?
                     task.getPolicyWhenError() : schedulePolicyWhenError;
-
-                if ("stop".equalsIgnoreCase(policy)) {
+                if (statementValidated(task, entry.isFile(), sqlEntry, parsed, verdict, parseNanos, ++statementIndex,
+                        policy, counters, resultLogger)) {
+                    validatedSqlStatements.add(parsed);
+                } else if ("stop".equalsIgnoreCase(policy)) {
+                    // Apply error policy for invalid SQL
                     return null;
                 }
             }
         }
 
-        ResultLogger.logToResultFile("Schedule: " + scheduleName + " - Task: " + task.getTaskName() + " - Validation completed with " + validatedSqlStatements.size() + " valid statements");
+        resultLogger.log("Schedule: " + scheduleName + " - Task: " + task.getTaskName() + " - Validation completed with " + validatedSqlStatements.size() + " valid statements");
+        if (verbosity != ResultVerbosity.FULL) {
+            resultLogger.log("Schedule: " + scheduleName + " - Task: " + task.getTaskName() + " - Validation summary: " + counters.validationSummary());
+        }
         return validatedSqlStatements;
     }
 
+    /**
+     * Records a SQL file that could not be read
+     */
+    private void readFailed(SqlTask task, String sqlEntry, IOException error, StatementCounters counters, ResultLogger out) {
+        String errorMsg = "Failed to read SQL file: " + sqlEntry;
+        logger.log(Level.SEVERE, errorMsg, error);
+        counters.statementParsed(false);
+        if (writesStatementLines(true)) {
+            out.log(schedule.getScheduleName() + "-" + task.getTaskName() + "-" + sqlEntry);
+            out.log("parse fail: " + error.getMessage());
+        }
+    }
+
+    /**
+     * Records the verdict of one statement
+     *
+     * @return true if the statement is to be executed
+     */
+    private boolean statementValidated(SqlTask task, boolean file, String sqlEntry, ParsedStatement parsed, Verdict verdict,
+                                       long parseNanos, int statementIndex, String policy, StatementCounters counters,
+                                       ResultLogger out) {
+        String scheduleName = schedule.getScheduleName();
+        String statement = parsed.getSql();
+        parsed.setOrdinal(statementIndex);
+        // 超出解析预算的语句在停止策略下视为校验失败，否则交给数据库判断
+        boolean deferred = verdict == Verdict.UNVERIFIED && !"stop".equalsIgnoreCase(policy);
+        boolean isValid = verdict == Verdict.VALID || deferred;
+        events.statementParsed(scheduleName, task.getTaskName(), statementIndex, statement, parseNanos, isValid);
+        counters.statementParsed(isValid);
+        if (isValid) {
+            if (deferred) {
+                logger.warning("SQL not verified within the parse budget, deferring to the database: "
+                        + truncateSql(statement));
+            }
+            if (writesStatementLines(deferred)) {
+                out.log(scheduleName + "-" + task.getTaskName() + "-" + truncateSql(statement));
+                out.log(deferred ? "parse unverified: deferred to database" : "parse success");
+            }
+            return true;
+        }
+        String reason = verdict == Verdict.UNVERIFIED ? "Parse budget exceeded" : "Invalid SQL syntax";
+        if (file) {
+            logger.warning(reason + " in file " + sqlEntry + " at offset " + parsed.getOffset() + ": " + statement);
+        } else {
+            logger.warning(reason + ": " + statement);
+        }
+        if (writesStatementLines(true)) {
+            out.log(scheduleName + "-" + task.getTaskName() + "-" + truncateSql(statement));
+            out.log("parse fail: " + reason);
+        }
+        return false;
+    }
+
     /**
      * Executes a task with pre-validated SQL statements
      *
      * @param task                    the SQL task to execute
      * @param connection              the database connection
      * @param schedulePolicyWhenError fallback error policy
-     * @param sqlStatements           pre-validated SQL statements
+     * @param sqlStatements           supplies the validated SQL statements
      * @param scheduleName the name of the schedule
+     * @param dbType                  the database type, used to pick a streaming fetch size
+     * @param out                     the result logger that receives the output of the task
+     * @param counters                receives the outcome of every statement
      * @return true if execution completed successfully, false otherwise
      */
-    private static boolean executeValidatedTask(SqlTask task, Connection connection,
-                                               String schedulePolicyWhenError, List<String> sqlStatements,
-                                               String scheduleName) {
+    private boolean executeValidatedTask(SqlTask task, Connection connection,
+                                               String schedulePolicyWhenError, StatementSource sqlStatements,
+                                               String scheduleName, DbType dbType, ResultLogger out,
+                                               StatementCounters counters) {
         logger.info("Executing SQL task: " + task.getTaskName());
-        ResultLogger.logToResultFile("Schedule: " + scheduleName + " - Task: " + task.getTaskName() + " - Starting execution");
+        out.log("Schedule: " + scheduleName + " - Task: " + task.getTaskName() + " - Starting execution");
 
         String policy = task.getPolicyWhenError() != null ?
             task.getPolicyWhenError() : schedulePolicyWhenError;
 
         try {
             connection.setAutoCommit(false);
+            int fetchSize = resolveFetchSize(task, connection, dbType);
 
-            for (String sql : sqlStatements) {
-                try (Statement statement = connection.createStatement()) {
-                    logger.fine("Executing SQL: " + sql);
-                    ResultLogger.logToResultFile(scheduleName + "-" + task.getTaskName() + "-" + truncateSql(sql));
-                    ResultLogger.logToResultFile("execute");
-
-                    // Check if the SQL is a query (SELECT statement)
-                    boolean isQuery = sql.trim().toLowerCase().startsWith("select");
-                    boolean hasResults = false;
-
-                    if (isQuery) {
-                        try (ResultSet resultSet = statement.executeQuery(sql)) {
-                            hasResults = true;
-                            logQueryResults(resultSet, scheduleName, task.getTaskName(), sql);
-                        }
-                    } else {
-                        // For non-query statements (INSERT, UPDATE, DELETE, etc.)
-                        int rowsAffected = statement.executeUpdate(sql);
-                        ResultLogger.logToResultFile("execution success - rows affected: " + rowsAffected);
-                    }
-
-                    if (!hasResults) {
-                        ResultLogger.logToResultFile("execution success");
-                    }
-                } catch (SQLException e) {
-                    String errorMsg = "SQL execution error: " + sql;
-                    logger.log(Level.SEVERE, errorMsg, e);
-                    ResultLogger.logToResultFile(scheduleName + "-" + task.getTaskName() + "-" + truncateSql(sql));
-                    ResultLogger.logToResultFile("execution fail: " + e.getMessage());
-
-                    if ("stop".equalsIgnoreCase(policy)) {
-                        connection.rollback();
-                        return false;
-                    }
+            for (ParsedStatement parsed; (parsed = sqlStatements.next()) != null; ) {
+                if (!executeStatement(task, connection, parsed, fetchSize, policy, out, counters)) {
+                    return false;
                 }
             }
+            if (sqlStatements.isHalted()) {
+                // 流水线模式下校验失败的语句之前已执行的语句随任务回滚
+                connection.rollback();
+                out.log("Schedule: " + scheduleName + " - Task: " + task.getTaskName() + " - Execution stopped before invalid SQL");
+                executionSummary(out, scheduleName, task, counters);
+                taskCompleted(out);
+                return false;
+            }
 
             connection.commit();
-            ResultLogger.logToResultFile("Schedule: " + scheduleName + " - Task: " + task.getTaskName() + " - Execution completed successfully");
+            out.log("Schedule: " + scheduleName + " - Task: " + task.getTaskName() + " - Execution completed successfully");
+            executionSummary(out, scheduleName, task, counters);
+            taskCompleted(out);
             return true;
         } catch (SQLException e) {
             logger.log(Level.SEVERE, "Transaction error", e);
-            ResultLogger.logToResultFile("Schedule: " + scheduleName + " - Task: " + task.getTaskName() + " - Transaction error: " + e.getMessage());
+            out.log("Schedule: " + scheduleName + " - Task: " + task.getTaskName() + " - Transaction error: " + e.getMessage());
             try {
                 connection.rollback();
             } catch (SQLException rollbackEx) {
                 logger.log(Level.SEVERE, "Rollback error", rollbackEx);
-                ResultLogger.logToResultFile("Schedule: " + scheduleName + " - Task: " + task.getTaskName() + " - Rollback error: " + rollbackEx.getMessage());
+                out.log("Schedule: " + scheduleName + " - Task: " + task.getTaskName() + " - Rollback error: " + rollbackEx.getMessage());
             }
+            executionSummary(out, scheduleName, task, counters);
+            taskCompleted(out);
             return false;
         }
     }
 
+    /**
+     * Executes one statement of a task; a failure under the stop policy rolls the task back
+     *
+     * @return false if the task stops
+     */
+    private boolean executeStatement(SqlTask task, Connection connection, ParsedStatement parsed, int fetchSize,
+                                     String policy, ResultLogger out, StatementCounters counters)
+            throws SQLException {
+        String scheduleName = schedule.getScheduleName();
+        String sql = parsed.getSql();
+        // 与校验阶段使用同一序号，跳过的无效语句不会使两阶段的事件错位
+        int statementIndex = parsed.getOrdinal();
+        long executeStart = System.nanoTime();
+        try (Statement statement = connection.createStatement(ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+            logger.fine("Executing SQL: " + sql);
+            // Route by the statement kind found when it was validated: queries to executeQuery, statements
+            // known to return only an update count to executeUpdate, and the rest to execute
+            Boolean returnsRows = parsed.returnsRows();
+            boolean isQuery = parsed.getKind() == StatementKind.QUERY;
+            boolean isUpdate = Boolean.FALSE.equals(returnsRows);
+            boolean hasResults = false;
+            // 精简模式下查询仍然写出 SQL 行，作为其结果的标题
+            if (verbosity == ResultVerbosity.FULL || isQuery) {
+                out.log(scheduleName + "-" + task.getTaskName() + "-" + truncateSql(sql));
+            }
+            if (verbosity == ResultVerbosity.FULL) {
+                out.log("execute");
+            }
+            if (!isUpdate && fetchSize != 0) {
+                statement.setFetchSize(fetchSize);
+            }
+
+            if (isQuery) {
+                try (ResultSet resultSet = statement.executeQuery(sql)) {
+                    hasResults = true;
+                    consumeResults(resultSet, task, statementIndex, sql, out, counters, executeStart);
+                }
+            } else if (isUpdate) {
+                // For statements without a result set (INSERT, UPDATE, DELETE, DDL, transaction and session control)
+                recordUpdate(statement.executeUpdate(sql), task, statementIndex, sql, out, counters, executeStart);
+            } else if (statement.execute(sql)) {
+                // DML with RETURNING, CALL and statements classified only by their keyword
+                hasResults = true;
+                if (verbosity != ResultVerbosity.FULL) {
+                    out.log(scheduleName + "-" + task.getTaskName() + "-" + truncateSql(sql));
+                }
+                try (ResultSet resultSet = statement.getResultSet()) {
+                    consumeResults(resultSet, task, statementIndex, sql, out, counters, executeStart);
+                }
+            } else {
+                recordUpdate(Math.max(0, statement.getUpdateCount()), task, statementIndex, sql, out, counters,
+                        executeStart);
+            }
+
+            if (!hasResults && verbosity == ResultVerbosity.FULL) {
+                out.log("execution success");
+            }
+        } catch (SQLException | IOException e) {
+            events.statementFailed(scheduleName, task.getTaskName(), statementIndex, sql, System.nanoTime() - executeStart, e);
+            String errorMsg = "SQL execution error: " + sql;
+            logger.log(Level.SEVERE, errorMsg, e);
+            counters.statementFailed();
+            if (writesStatementLines(true)) {
+                out.log(scheduleName + "-" + task.getTaskName() + "-" + truncateSql(sql));
+                out.log("execution fail: " + e.getMessage());
+            }
+            logBinaryFailure(scheduleName, task.getTaskName(), statementIndex, sql, e.getMessage());
+
+            if ("stop".equalsIgnoreCase(policy)) {
+                connection.rollback();
+                executionSummary(out, scheduleName, task, counters);
+                taskCompleted(out);
+                return false;
+            }
+        } finally {
+            statementCompleted(out);
+        }
+        return true;
+    }
+
+    /**
+     * Sends the rows of a statement's result set through the task's result sinks
+     */
+    private void consumeResults(ResultSet resultSet, SqlTask task, int statementIndex, String sql, ResultLogger out,
+                                StatementCounters counters, long executeStart) throws SQLException, IOException {
+        String scheduleName = schedule.getScheduleName();
+        ResultSinkContext context = new ResultSinkContext(scheduleName, task, statementIndex, sql, out, binaryLog);
+        long rowCount = new ResultPipeline(ResultSinks.create(resultSinkNames(task))).run(resultSet, context);
+        counters.queryExecuted(rowCount);
+        events.statementExecuted(scheduleName, task.getTaskName(), statementIndex, sql,
+                System.nanoTime() - executeStart, rowCount, true);
+    }
+
+    /**
+     * Records the update count of a statement that returned no result set
+     */
+    private void recordUpdate(int rowsAffected, SqlTask task, int statementIndex, String sql, ResultLogger out,
+                              StatementCounters counters, long executeStart) throws IOException {
+        String scheduleName = schedule.getScheduleName();
+        counters.updateExecuted(rowsAffected);
+        if (verbosity == ResultVerbosity.FULL) {
+            out.log("execution success - rows affected: " + rowsAffected);
+        }
+        if (binaryLog != null) {
+            binaryLog.writeUpdateCount(scheduleName, task.getTaskName(), statementIndex, sql, rowsAffected);
+        }
+        events.statementExecuted(scheduleName, task.getTaskName(), statementIndex, sql,
+                System.nanoTime() - executeStart, rowsAffected, false);
+    }
+
     /**
      * Truncate SQL statement for readable logging
      *
@@ -324,16 +793,208 @@ public class SqlExecutor {
     }
 
     /**
-     * Logs the results of a SQL query to the result file
+     * Gets the names of the result sinks that consume the rows of the task's queries
      *
-     * @param resultSet  the ResultSet object containing the query results
-     * @param scheduleName the name of the schedule
-     * @param taskName   the name of the task
-     * @param sql        the SQL query that was executed
-     * @throws SQLException if an error occurs while processing the ResultSet
+     * @param task the SQL task
+     * @return the configured sinks, or the single sink implied by the result mode and export settings
      */
-    private static void logQueryResults(ResultSet resultSet, String scheduleName, String taskName, String sql) throws SQLException {
-        ResultLogger.logQueryResults(resultSet, scheduleName, taskName, sql);
+    private List<String> resultSinkNames(SqlTask task) {
+        if (task.getResultSinks() != null && !task.getResultSinks().isEmpty()) {
+            return task.getResultSinks();
+        }
+        if (task.getResultMode() == ResultMode.STATISTICS) {
+            return Collections.singletonList("statistics");
+        }
+        if (isDigestMode(task)) {
+            return Collections.singletonList(task.getResultMode() == ResultMode.DIGEST ? "digest" : "unordered-digest");
+        }
+        if (task.getExportFormat() == ExportFormat.COLUMNAR) {
+            return Collections.singletonList("columnar");
+        }
+        if (task.getExportFormat() != null) {
+            return Collections.singletonList("export");
+        }
+        return Collections.singletonList(binaryLog != null ? "binary" : "file");
+    }
+
+    /**
+     * Opens the JSON Lines event log of a schedule, if one is configured
+     *
+     * @param schedule the SQL schedule
+     * @return the event log, or the disabled event log if none is configured or it cannot be opened
+     */
+    private static ExecutionEventLog openEventLog(SqlSchedule schedule) {
+        String eventLogPath = schedule.getEventLogPath();
+        if (eventLogPath == null || eventLogPath.trim().isEmpty()) {
+            return ExecutionEventLog.disabled();
+        }
+        try {
+            return new ExecutionEventLog(Paths.get(eventLogPath.trim()));
+        } catch (IOException e) {
+            logger.log(Level.WARNING, "Failed to open event log: " + eventLogPath, e);
+            return ExecutionEventLog.disabled();
+        }
+    }
+
+    /**
+     * Opens the binary result log of a schedule, if one is configured
+     *
+     * @param schedule the SQL schedule
+     * @return the binary result log, or null if none is configured or it cannot be opened
+     */
+    private static BinaryResultLog openBinaryLog(SqlSchedule schedule) {
+        String binaryResultPath = schedule.getBinaryResultPath();
+        if (binaryResultPath == null || binaryResultPath.trim().isEmpty()) {
+            return null;
+        }
+        try {
+            return new BinaryResultLog(Paths.get(binaryResultPath.trim()));
+        } catch (IOException e) {
+            logger.log(Level.WARNING, "Failed to open binary result log: " + binaryResultPath, e);
+            return null;
+        }
+    }
+
+    /**
+     * Gets the charset SQL files of a schedule are read with when they have no byte order mark
+     *
+     * @param schedule the SQL schedule
+     * @return the configured charset, or UTF-8 if none is configured or it is unknown
+     */
+    private static Charset sqlFileCharset(SqlSchedule schedule) {
+        String charset = schedule.getSqlFileCharset();
+        if (charset == null || charset.trim().isEmpty()) {
+            return StandardCharsets.UTF_8;
+        }
+        try {
+            return Charset.forName(charset.trim());
+        } catch (IllegalArgumentException e) {
+            logger.log(Level.WARNING, "Unknown SQL file charset " + charset + ", reading SQL files as UTF-8", e);
+            return StandardCharsets.UTF_8;
+        }
+    }
+
+    /**
+     * Opens the file-backed validation cache of a schedule, if one is configured
+     *
+     * @param schedule the SQL schedule
+     * @return the cache, or the shared in-memory cache if none is configured or it cannot be opened
+     */
+    private static ValidationCache openValidationCache(SqlSchedule schedule) {
+        String cachePath = schedule.getValidationCachePath();
+        if (cachePath == null || cachePath.trim().isEmpty()) {
+            return ValidationCache.shared();
+        }
+        try {
+            return new ValidationCache(ValidationCache.DEFAULT_MEMORY_ENTRIES, Paths.get(cachePath.trim()));
+        } catch (IOException e) {
+            logger.log(Level.WARNING, "Failed to open validation cache: " + cachePath, e);
+            return ValidationCache.shared();
+        }
+    }
+
+    private void closeValidationCache() {
+        if (validationCache != ValidationCache.shared()) {
+            try {
+                validationCache.close();
+            } catch (IOException e) {
+                logger.log(Level.WARNING, "Failed to close validation cache", e);
+            }
+            validationCache = ValidationCache.shared();
+        }
+    }
+
+    private void closeBinaryLog() {
+        if (binaryLog != null) {
+            try {
+                binaryLog.close();
+            } catch (IOException e) {
+                logger.log(Level.WARNING, "Failed to close binary result log: " + binaryLog.getFile(), e);
+            }
+            binaryLog = null;
+        }
+    }
+
+    /**
+     * Records a failed statement in the binary result log, keeping its statement ordinals complete
+     */
+    private void logBinaryFailure(String scheduleName, String taskName, int statementIndex, String sql, String message) {
+        if (binaryLog != null) {
+            try {
+                binaryLog.writeFailure(scheduleName, taskName, statementIndex, sql, message);
+            } catch (IOException e) {
+                logger.log(Level.WARNING, "Failed to write binary result log: " + binaryLog.getFile(), e);
+            }
+        }
+    }
+
+    /**
+     * Checks whether query results of a task are reduced to a digest line
+     *
+     * @param task the SQL task
+     * @return true for the DIGEST and UNORDERED_DIGEST result modes
+     */
+    private static boolean isDigestMode(SqlTask task) {
+        return task.getResultMode() == ResultMode.DIGEST || task.getResultMode() == ResultMode.UNORDERED_DIGEST;
+    }
+
+    /**
+     * Determines the JDBC fetch size for query statements of a task
+     * MySQL Connector/J only streams rows with Integer.MIN_VALUE unless cursor fetch is enabled,
+     * PostgreSQL streams with any positive size because auto-commit is off during task execution
+     *
+     * @param task       the SQL task
+     * @param connection the database connection
+     * @param dbType     the database type
+     * @return the fetch size to apply, or 0 to keep the driver default
+     * @throws SQLException if the connection metadata cannot be read
+     */
+    private static int resolveFetchSize(SqlTask task, Connection connection, DbType dbType) throws SQLException {
+        int fetchSize = task.getFetchSize() != null ? task.getFetchSize()
+                : task.getExportFormat() != null || task.getResultSinks() != null
+                || (task.getResultMode() != null && task.getResultMode() != ResultMode.ROWS)
+                ? DEFAULT_STREAMING_FETCH_SIZE : 0;
+        if (fetchSize <= 0) {
+            return 0;
+        }
+        return dbType != null ? Dialects.of(dbType).streamingFetchSize(fetchSize, connection.getMetaData().getURL()) : fetchSize;
+    }
+
+    /**
+     * Checks whether a statement gets its own lines in the result file
+     *
+     * @param failure whether the statement failed
+     * @return true for every statement in FULL verbosity, for failed statements in ERRORS verbosity
+     */
+    private boolean writesStatementLines(boolean failure) {
+        return verbosity == ResultVerbosity.FULL || (failure && verbosity == ResultVerbosity.ERRORS);
+    }
+
+    /**
+     * Writes the counters of a task in place of its statement lines, unless every statement was written
+     */
+    private void executionSummary(ResultLogger out, String scheduleName, SqlTask task, StatementCounters counters) {
+        if (verbosity != ResultVerbosity.FULL) {
+            out.log("Schedule: " + scheduleName + " - Task: " + task.getTaskName() + " - Execution summary: " + counters.executionSummary());
+        }
+    }
+
+    /**
+     * Flushes the result file after a statement when the schedule asks for per-statement durability
+     */
+    private void statementCompleted(ResultLogger out) {
+        if (durability == ResultDurability.STATEMENT) {
+            out.flush();
+        }
+    }
+
+    /**
+     * Flushes the result file after a task unless the schedule only flushes at its end
+     */
+    private void taskCompleted(ResultLogger out) {
+        if (durability != ResultDurability.SCHEDULE) {
+            out.flush();
+        }
     }
 
     /**
@@ -390,21 +1051,9 @@ public class SqlExecutor {
         // Load appropriate driver based on database type
         try {
             if (dbType != null) {
-                switch (dbType) {
-                    case MYSQL:
-                        Class.forName("com.mysql.cj.jdbc.Driver");
-                        break;
-                    case POSTGRESQL:
-                        Class.forName("org.postgresql.Driver");
-                        break;
-                    case GAUSSDB:
-                        Class.forName("org.postgresql.Driver"); // GaussDB uses PostgreSQL driver
-                        break;
-                    case SQLITE:
-                        Class.forName("org.sqlite.JDBC");
-                        break;
-                    default:
-                        logger.warning("Unknown database type: " + dbType);
+                String driverClass = Dialects.of(dbType).getDriverClass();
+                if (driverClass != null) {
+                    Class.forName(driverClass);
                 }
             } else {
                 logger.warning("Database type is null, driver will not be explicitly loaded");
@@ -431,4 +1080,108 @@ public class SqlExecutor {
             }
         }
     }
+
+    /**
+     * Supplies the statements of a task to its execution
+     */
+    private interface StatementSource {
+        /**
+         * @return the next statement to execute, or null at the end of the task
+         */
+        ParsedStatement next();
+
+        /**
+         * @return true if the task ended early because a statement failed validation under the stop policy
+         */
+        boolean isHalted();
+
+        /**
+         * @return the number of statements supplied so far
+         */
+        int count();
+    }
+
+    /**
+     * The statements of a task validated before its execution
+     */
+    private static final class ListSource implements StatementSource {
+        private final List<ParsedStatement> statements;
+        private int next;
+
+        ListSource(List<ParsedStatement> statements) {
+            this.statements = statements;
+        }
+
+        @Override
+        public ParsedStatement next() {
+            return next < statements.size() ? statements.get(next++) : null;
+        }
+
+        @Override
+        public boolean isHalted() {
+            return false;
+        }
+
+        @Override
+        public int count() {
+            return next;
+        }
+    }
+
+    /**
+     * The statements of a task as the {@link PipelinedValidator} validates them, recording each
+     * verdict like the validation phase does
+     */
+    private final class PipelineSource implements StatementSource {
+        private final SqlTask task;
+        private final PipelinedValidator pipeline;
+        private final String policy;
+        private final StatementCounters counters = new StatementCounters();
+        private int validated;
+        private int supplied;
+        private boolean ended;
+        private boolean halted;
+
+        PipelineSource(SqlTask task, PipelinedValidator pipeline) {
+            this.task = task;
+            this.pipeline = pipeline;
+            this.policy = task.getPolicyWhenError() != null ? task.getPolicyWhenError() : schedule.getPolicyWhenError();
+        }
+
+        @Override
+        public ParsedStatement next() {
+            boolean stops = "stop".equalsIgnoreCase(policy);
+            try {
+                while (!ended && !halted) {
+                    PipelinedValidator.Item item = pipeline.take();
+                    if (item.isTaskEnd()) {
+                        ended = true;
+                    } else if (item.getError() != null) {
+                        readFailed(task, item.getSqlEntry(), item.getError(), counters, resultLogger);
+                        halted = stops;
+                    } else if (statementValidated(task, item.isFile(), item.getSqlEntry(), item.getStatement(),
+                            item.getVerdict(), item.getParseNanos(), ++validated, policy, counters, resultLogger)) {
+                        supplied++;
+                        return item.getStatement();
+                    } else {
+                        halted = stops;
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                halted = true;
+            }
+            return null;
+        }
+
+        @Override
+        public boolean isHalted() {
+            return halted;
+        }
+
+        @Override
+        public int count() {
+            return supplied;
+        }
+    }
 }
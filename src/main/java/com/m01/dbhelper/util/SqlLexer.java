@@ -0,0 +1,693 @@
+package com.m01.dbhelper.util;
+
+import com.m01.dbhelper.common.DbType;
+import com.m01.dbhelper.common.StatementKind;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Single-pass SQL lexer that strips or keeps comments, finds statement boundaries and classifies
+ * the leading keyword of each statement.
+ * <p>
+ * The quoting and comment rules follow the {@link Dialect} of the database type:
+ * <ul>
+ *     <li>MySQL: backslash escapes in strings, backtick identifiers, {@code #} line comments and
+ *     the client's {@code DELIMITER} command</li>
+ *     <li>PostgreSQL and GaussDB: dollar-quoted strings and nested block comments</li>
+ *     <li>SQLite: backtick and bracket identifiers</li>
+ *     <li>no database type: single and double quotes with backslash escapes</li>
+ * </ul>
+ * Doubled quotes inside a quoted string or identifier are always part of it. A lexer reads one
+ * statement per {@link #next(Input)} call and keeps no more than the current statement; it is not
+ * thread-safe, but one is cheap to create.
+ */
+public class SqlLexer {
+    /**
+     * Supplies the characters of a script
+     */
+    interface Input {
+        /**
+         * Reads the next character
+         *
+         * @return the character, or -1 at the end of the script
+         */
+        int read() throws IOException;
+
+        /**
+         * Gets the next character without reading it
+         *
+         * @return the character, or -1 at the end of the script
+         */
+        int peek() throws IOException;
+
+        /**
+         * Gets the position of the character returned by the last {@link #read()}
+         *
+         * @return the position, in the unit of the input
+         */
+        long position();
+    }
+
+    private static final int CODE = 0;
+    private static final int LINE_COMMENT = 1;
+    private static final int BLOCK_COMMENT = 2;
+    private static final int QUOTED = 3;
+    private static final int DOLLAR_TAG = 4;
+    private static final int DOLLAR_QUOTED = 5;
+    private static final int DELIMITER_LINE = 6;
+
+    private static final int MAX_KEYWORD = 16;
+    // 按首个单词识别的关键字，isValidSql 只接受其中可以开始一条语句的部分
+    private static final String[] KEYWORDS = {
+            "SELECT", "INSERT", "UPDATE", "DELETE", "CREATE", "DROP", "ALTER", "TRUNCATE", "MERGE", "WITH",
+            "BEGIN", "CALL", "DECLARE", "REPLACE", "UPSERT", "VALUES", "TABLE", "SHOW", "EXPLAIN", "DESCRIBE",
+            "DESC", "SET", "USE", "COMMIT", "ROLLBACK", "START", "SAVEPOINT", "RELEASE", "END", "GRANT",
+            "REVOKE", "COMMENT", "RENAME", "PRAGMA", "ANALYZE", "VACUUM", "DELIMITER", "RESET"
+    };
+
+    private final boolean backslashEscapes;
+    private final boolean backtickQuotes;
+    private final boolean bracketQuotes;
+    private final boolean hashComments;
+    private final boolean dollarQuotes;
+    private final boolean nestedComments;
+    private final boolean delimiterCommand;
+    private final boolean keepComments;
+
+    private final StringBuilder text = new StringBuilder(256);
+    private final StringBuilder tag = new StringBuilder(16);
+    private final char[] word = new char[MAX_KEYWORD];
+    private char[] terminator = {';'};
+    private int state = CODE;
+    private char closingQuote;
+    private int commentDepth;
+    private int tagMatched;
+    private char previous;
+
+    private int start;
+    private int end;
+    private long offset;
+    private int wordLength;
+    private boolean wordDone;
+
+    /**
+     * Creates a lexer
+     *
+     * @param dbType       the database type whose rules apply, or null for the generic rules
+     * @param keepComments whether comments inside a statement stay part of its text
+     */
+    public SqlLexer(DbType dbType, boolean keepComments) {
+        this(Dialects.of(dbType), keepComments);
+    }
+
+    /**
+     * Creates a lexer
+     *
+     * @param dialect      the dialect whose quoting and comment rules apply
+     * @param keepComments whether comments inside a statement stay part of its text
+     */
+    public SqlLexer(Dialect dialect, boolean keepComments) {
+        this.keepComments = keepComments;
+        this.backslashEscapes = dialect.backslashEscapes();
+        this.backtickQuotes = dialect.backtickQuotes();
+        this.bracketQuotes = dialect.bracketQuotes();
+        this.hashComments = dialect.hashComments();
+        this.dollarQuotes = dialect.dollarQuotes();
+        this.nestedComments = dialect.nestedComments();
+        this.delimiterCommand = dialect.delimiterCommand();
+    }
+
+    /**
+     * Splits a script into statements that keep their comments, positioned at their character
+     * offset in the script
+     *
+     * @param script the script
+     * @param source the file the script was read from, or null
+     * @param dbType the database type, or null
+     * @return the statements
+     */
+    public static List<ParsedStatement> statements(CharSequence script, String source, DbType dbType) {
+        SqlLexer lexer = new SqlLexer(dbType, true);
+        TextInput input = new TextInput(script);
+        List<ParsedStatement> statements = new ArrayList<>();
+        while (lexer.next(input)) {
+            statements.add(new ParsedStatement(lexer.getStatement(), source, lexer.getOffset()));
+        }
+        return statements;
+    }
+
+    /**
+     * Splits a script into statements without comments
+     *
+     * @param script the script
+     * @param dbType the database type, or null
+     * @return the statement texts
+     */
+    public static List<String> split(CharSequence script, DbType dbType) {
+        SqlLexer lexer = new SqlLexer(dbType, false);
+        TextInput input = new TextInput(script);
+        List<String> statements = new ArrayList<>();
+        while (lexer.next(input)) {
+            statements.add(lexer.getStatement());
+        }
+        return statements;
+    }
+
+    /**
+     * Removes the comments of a script and keeps everything else, including the line break that
+     * ends a line comment
+     *
+     * @param script the script
+     * @param dbType the database type, or null
+     * @return the script without comments
+     */
+    public static String stripComments(CharSequence script, DbType dbType) {
+        SqlLexer lexer = new SqlLexer(dbType, false);
+        StringBuilder out = new StringBuilder(script.length());
+        TextInput input = new TextInput(script);
+        int c;
+        try {
+            while ((c = input.read()) >= 0) {
+                lexer.strip((char) c, input, out);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return out.toString();
+    }
+
+    /**
+     * Classifies the first word of a statement, after leading whitespace and comments
+     *
+     * @param sql the statement
+     * @return the keyword in upper case, or null if the statement does not start with a known one
+     */
+    public static String leadingKeyword(CharSequence sql) {
+        int length = sql.length();
+        int i = 0;
+        while (i < length) {
+            char c = sql.charAt(i);
+            if (Character.isWhitespace(c)) {
+                i++;
+            } else if (c == '-' && i + 1 < length && sql.charAt(i + 1) == '-') {
+                while (i < length && sql.charAt(i) != '\n') {
+                    i++;
+                }
+            } else if (c == '/' && i + 1 < length && sql.charAt(i + 1) == '*') {
+                int close = indexOf(sql, "*/", i + 2);
+                i = close < 0 ? length : close + 2;
+            } else {
+                break;
+            }
+        }
+        int wordStart = i;
+        while (i < length && isWordChar(sql.charAt(i))) {
+            i++;
+        }
+        return keyword(sql, wordStart, i - wordStart);
+    }
+
+    /**
+     * Derives the kind of a statement from its leading keyword
+     *
+     * @param keyword the keyword returned by {@link #leadingKeyword(CharSequence)}, or null
+     * @return the statement kind
+     */
+    public static StatementKind kindOf(String keyword) {
+        if (keyword == null) {
+            return StatementKind.OTHER;
+        }
+        switch (keyword) {
+            case "SELECT":
+            case "VALUES":
+            case "TABLE":
+            case "SHOW":
+            case "EXPLAIN":
+            case "DESCRIBE":
+            case "DESC":
+                return StatementKind.QUERY;
+            case "INSERT":
+            case "UPDATE":
+            case "DELETE":
+            case "MERGE":
+            case "UPSERT":
+            case "REPLACE":
+                return StatementKind.DML;
+            case "CREATE":
+            case "ALTER":
+            case "DROP":
+            case "TRUNCATE":
+            case "RENAME":
+            case "COMMENT":
+                return StatementKind.DDL;
+            case "BEGIN":
+            case "START":
+            case "COMMIT":
+            case "ROLLBACK":
+            case "SAVEPOINT":
+            case "RELEASE":
+            case "END":
+                return StatementKind.TRANSACTION;
+            case "SET":
+            case "USE":
+            case "RESET":
+                return StatementKind.SESSION;
+            // WITH 之后可以是查询，也可以是 PostgreSQL 的 INSERT、UPDATE 或 DELETE
+            default:
+                return StatementKind.OTHER;
+        }
+    }
+
+    /**
+     * Reads the next statement
+     *
+     * @param input the script
+     * @return true if a statement was read, false at the end of the script
+     */
+    boolean next(Input input) {
+        try {
+            return readStatement(input);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Gets the text of the statement read last, without its terminator and surrounding whitespace
+     *
+     * @return the statement text
+     */
+    public String getStatement() {
+        return text.substring(start, end);
+    }
+
+    /**
+     * Gets the position of the first character of the statement read last
+     *
+     * @return the position reported by the input
+     */
+    public long getOffset() {
+        return offset;
+    }
+
+    /**
+     * Gets the leading keyword of the statement read last
+     *
+     * @return the keyword in upper case, or null if it is not a known one
+     */
+    public String getKeyword() {
+        if (wordLength == 0 || wordLength > MAX_KEYWORD) {
+            return null;
+        }
+        for (String keyword : KEYWORDS) {
+            if (wordEquals(keyword)) {
+                return keyword;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Gets the kind of the statement read last, from its leading keyword
+     *
+     * @return the statement kind
+     */
+    public StatementKind getKind() {
+        return kindOf(getKeyword());
+    }
+
+    private boolean readStatement(Input input) throws IOException {
+        text.setLength(0);
+        start = -1;
+        end = 0;
+        wordLength = 0;
+        wordDone = false;
+        int terminatorMatched = 0;
+        int endBeforeTerminator = 0;
+        int pending = -1;
+        int c;
+        while ((c = pending >= 0 ? pending : input.read()) >= 0) {
+            pending = -1;
+            char ch = (char) c;
+            boolean started = start >= 0;
+            if (started && !wordDone && (state != CODE || !isWordChar(ch))) {
+                wordDone = true;
+                if (delimiterCommand && isDelimiterWord()) {
+                    // 客户端命令 DELIMITER 不是语句，只改变之后语句的结束符
+                    text.setLength(start);
+                    start = -1;
+                    started = false;
+                    tag.setLength(0);
+                    state = DELIMITER_LINE;
+                }
+            }
+            switch (state) {
+                case LINE_COMMENT:
+                    if (ch == '\n' || ch == '\r') {
+                        state = CODE;
+                        if (started) {
+                            text.append(ch);
+                        }
+                    } else if (started && keepComments) {
+                        text.append(ch);
+                    }
+                    break;
+                case BLOCK_COMMENT:
+                    if (started && keepComments) {
+                        text.append(ch);
+                    }
+                    if (ch == '*' && input.peek() == '/') {
+                        ch = (char) input.read();
+                        if (started && keepComments) {
+                            text.append(ch);
+                        }
+                        if (--commentDepth == 0) {
+                            state = CODE;
+                            if (started && keepComments) {
+                                end = text.length();
+                            }
+                        }
+                    } else if (nestedComments && ch == '/' && input.peek() == '*') {
+                        ch = (char) input.read();
+                        if (started && keepComments) {
+                            text.append(ch);
+                        }
+                        commentDepth++;
+                    }
+                    break;
+                case QUOTED:
+                    text.append(ch);
+                    if (backslashEscapes && ch == '\\' && closingQuote != ']' && closingQuote != '`') {
+                        int escaped = input.read();
+                        if (escaped >= 0) {
+                            ch = (char) escaped;
+                            text.append(ch);
+                        }
+                    } else if (ch == closingQuote) {
+                        if (closingQuote != ']' && input.peek() == closingQuote) {
+                            text.append((char) input.read());
+                        } else {
+                            state = CODE;
+                            end = text.length();
+                        }
+                    }
+                    break;
+                case DOLLAR_TAG:
+                    if (ch != '$' && !isWordChar(ch)) {
+                        // 不是美元符引用，这个字符按普通代码重新处理
+                        state = CODE;
+                        pending = ch;
+                        continue;
+                    }
+                    text.append(ch);
+                    end = text.length();
+                    tag.append(ch);
+                    if (ch == '$') {
+                        tagMatched = 0;
+                        state = DOLLAR_QUOTED;
+                    }
+                    break;
+                case DOLLAR_QUOTED:
+                    text.append(ch);
+                    if (tagMatched > 0 && ch == tag.charAt(tagMatched)) {
+                        tagMatched++;
+                    } else {
+                        tagMatched = ch == '$' ? 1 : 0;
+                    }
+                    if (tagMatched == tag.length()) {
+                        state = CODE;
+                        end = text.length();
+                    }
+                    break;
+                case DELIMITER_LINE:
+                    if (ch == '\n' || ch == '\r') {
+                        endDelimiterCommand();
+                    } else if (!Character.isWhitespace(ch)) {
+                        tag.append(ch);
+                    }
+                    break;
+                default:
+                    if (ch == terminator[terminatorMatched]) {
+                        if (terminatorMatched == 0) {
+                            endBeforeTerminator = end;
+                        }
+                        if (++terminatorMatched == terminator.length) {
+                            if (started && endBeforeTerminator > start) {
+                                end = endBeforeTerminator;
+                                previous = ch;
+                                return true;
+                            }
+                            // 空语句，多字符结束符的前几个字符不算语句的开始
+                            text.setLength(0);
+                            start = -1;
+                            wordLength = 0;
+                            wordDone = false;
+                            terminatorMatched = 0;
+                            break;
+                        }
+                    } else {
+                        terminatorMatched = 0;
+                        if (ch == terminator[0]) {
+                            endBeforeTerminator = end;
+                            terminatorMatched = 1;
+                        }
+                    }
+                    if (ch == '-' && input.peek() == '-' || hashComments && ch == '#') {
+                        state = LINE_COMMENT;
+                        if (started && keepComments) {
+                            text.append(ch);
+                        }
+                    } else if (ch == '/' && input.peek() == '*') {
+                        input.read();
+                        state = BLOCK_COMMENT;
+                        commentDepth = 1;
+                        if (started && keepComments) {
+                            text.append(ch).append('*');
+                        }
+                    } else if (Character.isWhitespace(ch)) {
+                        if (started) {
+                            text.append(ch);
+                        }
+                    } else {
+                        if (!started) {
+                            start = text.length();
+                            offset = input.position();
+                        }
+                        text.append(ch);
+                        end = text.length();
+                        if (!wordDone) {
+                            if (!isWordChar(ch)) {
+                                wordDone = true;
+                            } else if (wordLength++ < MAX_KEYWORD) {
+                                word[wordLength - 1] = Character.toUpperCase(ch);
+                            }
+                        }
+                        if (ch == '\'' || ch == '"' || backtickQuotes && ch == '`') {
+                            state = QUOTED;
+                            closingQuote = ch;
+                        } else if (bracketQuotes && ch == '[') {
+                            state = QUOTED;
+                            closingQuote = ']';
+                        } else if (dollarQuotes && ch == '$' && !isWordChar(previous)) {
+                            int next = input.peek();
+                            if (next == '$' || next >= 0 && (Character.isLetter(next) || next == '_')) {
+                                state = DOLLAR_TAG;
+                                tag.setLength(0);
+                                tag.append(ch);
+                            }
+                        }
+                    }
+                    break;
+            }
+            previous = ch;
+        }
+        if (state == DELIMITER_LINE) {
+            endDelimiterCommand();
+        }
+        if (start >= 0) {
+            if (state == QUOTED || state == DOLLAR_QUOTED) {
+                // 未闭合的字符串延续到脚本末尾
+                end = text.length();
+            }
+            if (!wordDone && delimiterCommand && isDelimiterWord()) {
+                return false;
+            }
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Copies one character to the output unless it belongs to a comment
+     */
+    private void strip(char ch, Input input, StringBuilder out) throws IOException {
+        switch (state) {
+            case LINE_COMMENT:
+                if (ch == '\n' || ch == '\r') {
+                    state = CODE;
+                    out.append(ch);
+                }
+                break;
+            case BLOCK_COMMENT:
+                if (ch == '*' && input.peek() == '/') {
+                    input.read();
+                    if (--commentDepth == 0) {
+                        state = CODE;
+                    }
+                } else if (nestedComments && ch == '/' && input.peek() == '*') {
+                    input.read();
+                    commentDepth++;
+                }
+                break;
+            case QUOTED:
+                out.append(ch);
+                if (backslashEscapes && ch == '\\' && closingQuote != ']' && closingQuote != '`') {
+                    int escaped = input.read();
+                    if (escaped >= 0) {
+                        out.append((char) escaped);
+                    }
+                } else if (ch == closingQuote) {
+                    if (closingQuote != ']' && input.peek() == closingQuote) {
+                        out.append((char) input.read());
+                    } else {
+                        state = CODE;
+                    }
+                }
+                break;
+            case DOLLAR_TAG:
+                if (ch != '$' && !isWordChar(ch)) {
+                    state = CODE;
+                    strip(ch, input, out);
+                    return;
+                }
+                out.append(ch);
+                tag.append(ch);
+                if (ch == '$') {
+                    tagMatched = 0;
+                    state = DOLLAR_QUOTED;
+                }
+                break;
+            case DOLLAR_QUOTED:
+                out.append(ch);
+                tagMatched = tagMatched > 0 && ch == tag.charAt(tagMatched) ? tagMatched + 1 : ch == '$' ? 1 : 0;
+                if (tagMatched == tag.length()) {
+                    state = CODE;
+                }
+                break;
+            default:
+                if (ch == '-' && input.peek() == '-' || hashComments && ch == '#') {
+                    state = LINE_COMMENT;
+                } else if (ch == '/' && input.peek() == '*') {
+                    input.read();
+                    state = BLOCK_COMMENT;
+                    commentDepth = 1;
+                } else {
+                    out.append(ch);
+                    if (ch == '\'' || ch == '"' || backtickQuotes && ch == '`') {
+                        state = QUOTED;
+                        closingQuote = ch;
+                    } else if (bracketQuotes && ch == '[') {
+                        state = QUOTED;
+                        closingQuote = ']';
+                    } else if (dollarQuotes && ch == '$' && !isWordChar(previous)) {
+                        int next = input.peek();
+                        if (next == '$' || next >= 0 && (Character.isLetter(next) || next == '_')) {
+                            state = DOLLAR_TAG;
+                            tag.setLength(0);
+                            tag.append(ch);
+                        }
+                    }
+                }
+                break;
+        }
+        previous = ch;
+    }
+
+    private boolean wordEquals(String keyword) {
+        if (keyword.length() != wordLength) {
+            return false;
+        }
+        for (int i = 0; i < wordLength; i++) {
+            if (word[i] != keyword.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private boolean isDelimiterWord() {
+        return wordEquals("DELIMITER");
+    }
+
+    private void endDelimiterCommand() {
+        if (tag.length() > 0) {
+            terminator = tag.toString().toCharArray();
+        }
+        tag.setLength(0);
+        state = CODE;
+    }
+
+    private static boolean isWordChar(int c) {
+        return c >= 0 && (Character.isLetterOrDigit(c) || c == '_');
+    }
+
+    private static String keyword(CharSequence sql, int from, int length) {
+        if (length == 0 || length > MAX_KEYWORD) {
+            return null;
+        }
+        for (String keyword : KEYWORDS) {
+            if (keyword.length() == length && regionMatches(sql, from, keyword)) {
+                return keyword;
+            }
+        }
+        return null;
+    }
+
+    private static boolean regionMatches(CharSequence sql, int from, String keyword) {
+        for (int i = 0; i < keyword.length(); i++) {
+            if (Character.toUpperCase(sql.charAt(from + i)) != keyword.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int indexOf(CharSequence text, String needle, int from) {
+        for (int i = from; i + needle.length() <= text.length(); i++) {
+            if (regionMatches(text, i, needle)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Reads a script held in memory; positions are character offsets
+     */
+    static final class TextInput implements Input {
+        private final CharSequence text;
+        private int next;
+
+        TextInput(CharSequence text) {
+            this.text = text;
+        }
+
+        @Override
+        public int read() {
+            return next < text.length() ? text.charAt(next++) : -1;
+        }
+
+        @Override
+        public int peek() {
+            return next < text.length() ? text.charAt(next) : -1;
+        }
+
+        @Override
+        public long position() {
+            return next - 1;
+        }
+    }
+}
@@ -0,0 +1,394 @@
+package com.m01.dbhelper.util;
+
+import com.m01.dbhelper.common.DbType;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * A sidecar index of the statements of a SQL file, so that the file is split once and later runs
+ * read its statements directly.
+ * <p>
+ * For every statement, in file order, the index holds its byte offset and byte length and the
+ * 64-bit Murmur3 hash of its span: the bytes from its start (from the start of the file for the
+ * first statement) to the start of the next statement or the end of the file. The
+ * index is stored next to the SQL file as {@code <file>.stmtidx} and is valid for the file's size
+ * and modification time, the charset and the database type whose rules split it.
+ * <p>
+ * With the index, any range of statements is read from one byte range without splitting, so
+ * several threads can read one file, and a run can resume at statement K with
+ * {@link #read(int, int)}. When the file changed, the statements whose spans are unchanged from the
+ * start of the file are kept and the file is split again from the first changed one; a dialect
+ * with a DELIMITER command is split again from the start, since the index does not record the
+ * delimiter in effect.
+ */
+public final class SqlScriptIndex {
+    private static final Logger logger = Logger.getLogger(SqlScriptIndex.class.getName());
+
+    static final String SUFFIX = ".stmtidx";
+    private static final int FILE_MAGIC = 0x44425349; // "DBSI"
+    // SqlLexer 的拆分规则或索引格式变化时递增，使旧的索引失效
+    private static final int FORMAT_VERSION = 2;
+    private static final int READ_BUFFER = 1 << 20;
+
+    private final Path file;
+    private final Charset charset;
+    private final long fileSize;
+    private final long modified;
+    private final long[] offsets;
+    private final int[] lengths;
+    private final long[] spanHashes;
+
+    private SqlScriptIndex(Path file, Charset charset, long fileSize, long modified, long[] offsets, int[] lengths,
+                           long[] spanHashes) {
+        this.file = file;
+        this.charset = charset;
+        this.fileSize = fileSize;
+        this.modified = modified;
+        this.offsets = offsets;
+        this.lengths = lengths;
+        this.spanHashes = spanHashes;
+    }
+
+    /**
+     * Loads the index of a SQL file, or splits the file and writes its index if there is no
+     * valid one
+     *
+     * @param file    the SQL file
+     * @param charset the charset of a file without a byte order mark
+     * @param dbType  the database type whose quoting and comment rules apply, or null
+     * @return the index
+     * @throws IOException if the SQL file cannot be read
+     */
+    public static SqlScriptIndex open(Path file, Charset charset, DbType dbType) throws IOException {
+        long size = Files.size(file);
+        long modified = Files.getLastModifiedTime(file).toMillis();
+        Path sidecar = sidecar(file);
+        SqlScriptIndex previous = load(file, sidecar, charset, dbType);
+        if (previous != null && previous.fileSize == size && previous.modified == modified) {
+            return previous;
+        }
+        SqlScriptIndex index = build(file, charset, dbType, size, modified, previous);
+        // 拆分期间文件被修改过，索引不可靠，不写出
+        if (Files.size(file) == size && Files.getLastModifiedTime(file).toMillis() == modified) {
+            try {
+                write(sidecar, index, charset, dbType);
+            } catch (IOException e) {
+                logger.log(Level.WARNING, "Failed to write SQL file index " + sidecar, e);
+            }
+        }
+        return index;
+    }
+
+    /**
+     * Gets the path of the index of a SQL file
+     *
+     * @param file the SQL file
+     * @return the sidecar path
+     */
+    static Path sidecar(Path file) {
+        return file.resolveSibling(file.getFileName() + SUFFIX);
+    }
+
+    /**
+     * Gets the number of statements
+     *
+     * @return the statement count
+     */
+    public int size() {
+        return offsets.length;
+    }
+
+    /**
+     * Gets the charset the statements are decoded with
+     *
+     * @return the charset given to {@link #open}, or the one named by the file's byte order mark
+     */
+    public Charset getCharset() {
+        return charset;
+    }
+
+    public long getOffset(int statement) {
+        return offsets[statement];
+    }
+
+    public int getLength(int statement) {
+        return lengths[statement];
+    }
+
+    /**
+     * Reads a range of statements from their bytes
+     *
+     * @param from the first statement
+     * @param to   the statement after the last one
+     * @return the statements without an AST, positioned at their byte offsets
+     * @throws IOException if the file cannot be read
+     */
+    public List<ParsedStatement> read(int from, int to) throws IOException {
+        List<ParsedStatement> statements = new ArrayList<>(Math.max(0, to - from));
+        if (from >= to) {
+            return statements;
+        }
+        String source = file.toString();
+        try (ByteReader bytes = new ByteReader(file)) {
+            for (int i = from; i < to; i++) {
+                int at = bytes.load(offsets[i], offsets[i] + lengths[i]);
+                statements.add(new ParsedStatement(new String(bytes.buffer, at, lengths[i], charset), source, offsets[i]));
+            }
+        }
+        return statements;
+    }
+
+    /**
+     * Splits the statements into ranges of about the same number of bytes
+     *
+     * @param parts the number of ranges
+     * @return the first statement of every range followed by {@link #size()}, without empty ranges
+     */
+    public int[] split(int parts) {
+        int count = offsets.length;
+        if (count == 0) {
+            return new int[]{0};
+        }
+        int[] bounds = new int[Math.max(1, Math.min(parts, count)) + 1];
+        long first = offsets[0];
+        long bytes = offsets[count - 1] + lengths[count - 1] - first;
+        int n = 1;
+        for (int part = 1; part < bounds.length - 1; part++) {
+            int at = Arrays.binarySearch(offsets, first + bytes * part / (bounds.length - 1));
+            int bound = at >= 0 ? at : -at - 1;
+            if (bound > bounds[n - 1] && bound < count) {
+                bounds[n++] = bound;
+            }
+        }
+        bounds[n++] = count;
+        return Arrays.copyOf(bounds, n);
+    }
+
+    private static SqlScriptIndex build(Path file, Charset charset, DbType dbType, long size, long modified,
+                                        SqlScriptIndex previous) throws IOException {
+        int keep = previous != null && !Dialects.of(dbType).delimiterCommand() ? unchangedPrefix(file, previous) : 0;
+        LongList offsets = new LongList();
+        LongList lengths = new LongList();
+        for (int i = 0; i < keep; i++) {
+            offsets.add(previous.offsets[i]);
+            lengths.add(previous.lengths[i]);
+        }
+        Charset decoded;
+        long start = keep > 0 ? previous.offsets[keep] : 0;
+        try (SqlScriptReader reader = new SqlScriptReader(file, charset, dbType, SqlScriptReader.WINDOW_BYTES, start)) {
+            decoded = reader.getCharset();
+            while (reader.hasNext()) {
+                ParsedStatement statement = reader.next();
+                offsets.add(statement.getOffset());
+                lengths.add(statement.getSql().getBytes(decoded).length);
+            }
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        if (keep > 0) {
+            logger.fine("Kept " + keep + " unchanged statements of " + file + ", split again from byte " + start);
+        }
+
+        int count = offsets.size();
+        long[] offsetArray = offsets.toArray();
+        int[] lengthArray = new int[count];
+        long[] spanHashes = new long[count];
+        for (int i = 0; i < count; i++) {
+            lengthArray[i] = (int) lengths.get(i);
+        }
+        // 保留的最后一条语句的跨度随下一条语句的位置变化，从它开始重新计算散列
+        int from = Math.max(0, keep - 1);
+        if (from > 0) {
+            System.arraycopy(previous.spanHashes, 0, spanHashes, 0, from);
+        }
+        long[] scratch = new long[2];
+        try (ByteReader bytes = new ByteReader(file)) {
+            for (int i = from; i < count; i++) {
+                long spanStart = i == 0 ? 0 : offsetArray[i];
+                long spanEnd = i + 1 < count ? offsetArray[i + 1] : size;
+                int at = bytes.load(spanStart, spanEnd);
+                spanHashes[i] = Murmur3.hash64(bytes.buffer, at, (int) (spanEnd - spanStart), scratch);
+            }
+        }
+        return new SqlScriptIndex(file, decoded, size, modified, offsetArray, lengthArray, spanHashes);
+    }
+
+    /**
+     * Counts the statements from the start of the file whose spans are unchanged; the last
+     * statement of the previous index is never counted, text may have been appended to it
+     */
+    private static int unchangedPrefix(Path file, SqlScriptIndex previous) throws IOException {
+        int count = previous.offsets.length;
+        long size = Files.size(file);
+        long[] scratch = new long[2];
+        try (ByteReader bytes = new ByteReader(file)) {
+            for (int i = 0; i < count - 1; i++) {
+                long spanStart = i == 0 ? 0 : previous.offsets[i];
+                long spanEnd = previous.offsets[i + 1];
+                if (spanEnd > size) {
+                    return i;
+                }
+                int at = bytes.load(spanStart, spanEnd);
+                if (Murmur3.hash64(bytes.buffer, at, (int) (spanEnd - spanStart), scratch) != previous.spanHashes[i]) {
+                    return i;
+                }
+            }
+        }
+        return Math.max(0, count - 1);
+    }
+
+    private static SqlScriptIndex load(Path file, Path sidecar, Charset charset, DbType dbType) {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(sidecar)))) {
+            if (in.readInt() != FILE_MAGIC || in.readInt() != FORMAT_VERSION) {
+                return null;
+            }
+            long size = in.readLong();
+            long modified = in.readLong();
+            if (in.readInt() != (dbType != null ? dbType.ordinal() : -1) || !charset.name().equals(in.readUTF())) {
+                // 按其他字符集或数据库类型拆分的索引
+                return null;
+            }
+            Charset decoded = Charset.forName(in.readUTF());
+            int count = in.readInt();
+            long[] offsets = new long[count];
+            int[] lengths = new int[count];
+            long[] spanHashes = new long[count];
+            for (int i = 0; i < count; i++) {
+                offsets[i] = in.readLong();
+                lengths[i] = in.readInt();
+                spanHashes[i] = in.readLong();
+            }
+            return new SqlScriptIndex(file, decoded, size, modified, offsets, lengths, spanHashes);
+        } catch (NoSuchFileException e) {
+            return null;
+        } catch (EOFException | IllegalArgumentException e) {
+            logger.info("Discarding incomplete SQL file index: " + sidecar);
+            return null;
+        } catch (IOException e) {
+            logger.log(Level.WARNING, "Failed to read SQL file index " + sidecar, e);
+            return null;
+        }
+    }
+
+    private static void write(Path sidecar, SqlScriptIndex index, Charset charset, DbType dbType) throws IOException {
+        Path parent = sidecar.toAbsolutePath().getParent();
+        // 先写临时文件再替换，同时读取的进程不会看到写了一半的索引
+        Path temp = Files.createTempFile(parent, sidecar.getFileName().toString(), ".tmp");
+        try {
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)))) {
+                out.writeInt(FILE_MAGIC);
+                out.writeInt(FORMAT_VERSION);
+                out.writeLong(index.fileSize);
+                out.writeLong(index.modified);
+                out.writeInt(dbType != null ? dbType.ordinal() : -1);
+                out.writeUTF(charset.name());
+                out.writeUTF(index.charset.name());
+                out.writeInt(index.offsets.length);
+                for (int i = 0; i < index.offsets.length; i++) {
+                    out.writeLong(index.offsets[i]);
+                    out.writeInt(index.lengths[i]);
+                    out.writeLong(index.spanHashes[i]);
+                }
+            }
+            try {
+                Files.move(temp, sidecar, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp, sidecar, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    /**
+     * Reads byte ranges of a file in ascending order through one buffer
+     */
+    private static final class ByteReader implements Closeable {
+        private final FileChannel channel;
+        byte[] buffer = new byte[READ_BUFFER];
+        private long bufferStart;
+        private int bufferLength;
+
+        ByteReader(Path file) throws IOException {
+            this.channel = FileChannel.open(file, StandardOpenOption.READ);
+        }
+
+        /**
+         * Loads a byte range into the buffer
+         *
+         * @return the index of the first byte of the range in {@link #buffer}
+         */
+        int load(long from, long to) throws IOException {
+            int length = (int) (to - from);
+            if (from >= bufferStart && to <= bufferStart + bufferLength) {
+                return (int) (from - bufferStart);
+            }
+            if (buffer.length < length) {
+                buffer = new byte[length];
+            }
+            ByteBuffer target = ByteBuffer.wrap(buffer);
+            while (target.hasRemaining()) {
+                int read = channel.read(target, from + target.position());
+                if (read < 0) {
+                    break;
+                }
+            }
+            if (target.position() < length) {
+                throw new EOFException("SQL file shorter than its index: " + from + "-" + to);
+            }
+            bufferStart = from;
+            bufferLength = target.position();
+            return 0;
+        }
+
+        @Override
+        public void close() throws IOException {
+            channel.close();
+        }
+    }
+
+    private static final class LongList {
+        private long[] values = new long[1024];
+        private int size;
+
+        void add(long value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+
+        int size() {
+            return size;
+        }
+
+        long get(int index) {
+            return values[index];
+        }
+
+        long[] toArray() {
+            return Arrays.copyOf(values, size);
+        }
+    }
+}
@@ -0,0 +1,302 @@
+package com.m01.dbhelper.util;
+
+import com.m01.dbhelper.common.DbType;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Reads the statements of a SQL script one at a time from a memory-mapped file.
+ * <p>
+ * The file is mapped in windows of {@link #WINDOW_BYTES} and decoded incrementally with an
+ * explicit charset; a byte order mark overrides the charset. Statements are split by a
+ * {@link SqlLexer} with the rules of the database type. Leading comments and whitespace and
+ * trailing whitespace are not part of a statement, comments inside it are kept. Memory use is bounded by the window and the longest
+ * statement, not by the size of the file.
+ * <p>
+ * Each statement is returned as a {@link ParsedStatement} without an AST, positioned at the byte
+ * offset of its first character in the file. Decoding errors are reported as
+ * {@link UncheckedIOException} by {@link #hasNext()} and {@link #next()}.
+ */
+public class SqlScriptReader implements Iterator<ParsedStatement>, Closeable, SqlLexer.Input {
+    static final int WINDOW_BYTES = 64 << 20;
+    private static final int CHAR_BUFFER = 64 << 10;
+
+    private final FileChannel channel;
+    private final String source;
+    private final Charset charset;
+    private final CharsetDecoder decoder;
+    private final long size;
+    private final int windowBytes;
+    // 0 表示逐字符解码得到字节位置，否则为 UTF-8 (-1) 或每个字符的固定字节数
+    private final int charWidth;
+    private final CharBuffer chars = CharBuffer.allocate(CHAR_BUFFER);
+    private final byte[] widths = new byte[CHAR_BUFFER];
+    private final CharBuffer single = CharBuffer.allocate(2);
+    private ByteBuffer window;
+    private long windowStart;
+    private long position;
+    private long charStart;
+    private boolean endOfInput;
+
+    private final SqlLexer lexer;
+    private ParsedStatement next;
+
+    /**
+     * Opens a script
+     *
+     * @param file    the SQL file
+     * @param charset the charset of a file without a byte order mark
+     * @throws IOException if the file cannot be opened
+     */
+    public SqlScriptReader(Path file, Charset charset) throws IOException {
+        this(file, charset, null, WINDOW_BYTES);
+    }
+
+    /**
+     * Opens a script written for a database type
+     *
+     * @param file    the SQL file
+     * @param charset the charset of a file without a byte order mark
+     * @param dbType  the database type whose quoting and comment rules apply, or null
+     * @throws IOException if the file cannot be opened
+     */
+    public SqlScriptReader(Path file, Charset charset, DbType dbType) throws IOException {
+        this(file, charset, dbType, WINDOW_BYTES);
+    }
+
+    SqlScriptReader(Path file, Charset charset, DbType dbType, int windowBytes) throws IOException {
+        this(file, charset, dbType, windowBytes, 0);
+    }
+
+    /**
+     * Opens a script to read its statements from a byte offset on, which must be the start of a
+     * statement or of the comments and whitespace before it
+     */
+    SqlScriptReader(Path file, Charset charset, DbType dbType, int windowBytes, long start) throws IOException {
+        this.windowBytes = windowBytes;
+        this.lexer = new SqlLexer(dbType, true);
+        this.channel = FileChannel.open(file, StandardOpenOption.READ);
+        this.source = file.toString();
+        try {
+            this.size = channel.size();
+            ByteBuffer head = ByteBuffer.allocate(3);
+            while (head.hasRemaining() && channel.read(head, head.position()) > 0) {
+                // 读取可能存在的 BOM
+            }
+            head.flip();
+            Charset bomCharset = bomCharset(head.array(), head.limit());
+            Charset detected = bomCharset != null ? bomCharset : charset;
+            int bom = bomLength(bomCharset);
+            this.charset = detected;
+            this.decoder = detected.newDecoder()
+                    .onMalformedInput(CodingErrorAction.REPORT)
+                    .onUnmappableCharacter(CodingErrorAction.REPORT);
+            this.charWidth = charWidth(detected);
+            this.position = Math.max(bom, start);
+            this.windowStart = position;
+            chars.limit(0);
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Gets the charset the file is decoded with
+     *
+     * @return the charset given to the constructor, or the one named by the byte order mark
+     */
+    public Charset getCharset() {
+        return charset;
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (next == null) {
+            next = readStatement();
+        }
+        return next != null;
+    }
+
+    @Override
+    public ParsedStatement next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        ParsedStatement result = next;
+        next = null;
+        return result;
+    }
+
+    @Override
+    public void close() throws IOException {
+        window = null;
+        channel.close();
+    }
+
+    private ParsedStatement readStatement() {
+        if (!lexer.next(this)) {
+            return null;
+        }
+        return new ParsedStatement(lexer.getStatement(), source, lexer.getOffset());
+    }
+
+    @Override
+    public int read() throws IOException {
+        if (!chars.hasRemaining() && !fill()) {
+            return -1;
+        }
+        charStart = position;
+        position += widths[chars.position()];
+        return chars.get();
+    }
+
+    @Override
+    public int peek() throws IOException {
+        if (!chars.hasRemaining() && !fill()) {
+            return -1;
+        }
+        return chars.get(chars.position());
+    }
+
+    @Override
+    public long position() {
+        return charStart;
+    }
+
+    private boolean fill() throws IOException {
+        if (endOfInput) {
+            return false;
+        }
+        chars.clear();
+        boolean remap = window == null || !window.hasRemaining();
+        while (chars.position() == 0) {
+            if (remap && !map()) {
+                check(decoder.flush(chars));
+                endOfInput = true;
+                break;
+            }
+            boolean lastWindow = windowStart + window.limit() >= size;
+            if (charWidth == 0) {
+                decodeExactly(lastWindow);
+            } else {
+                check(decoder.decode(window, chars, lastWindow));
+                for (int i = 0; i < chars.position(); i++) {
+                    widths[i] = (byte) width(chars.get(i));
+                }
+            }
+            // 没有解码出字符：已到文件末尾，或窗口末尾只剩不完整的字符，从这些字节开始映射下一个窗口
+            remap = true;
+        }
+        chars.flip();
+        return chars.hasRemaining();
+    }
+
+    private void decodeExactly(boolean lastWindow) throws IOException {
+        while (chars.remaining() >= 2) {
+            int before = window.position();
+            single.clear();
+            single.limit(1);
+            CoderResult result = decoder.decode(window, single, lastWindow);
+            if (single.position() == 0 && result.isOverflow()) {
+                single.limit(2);
+                result = decoder.decode(window, single, lastWindow);
+            }
+            check(result);
+            if (single.position() == 0) {
+                return;
+            }
+            // 代理对的字节数都记在第一个 char 上
+            int consumed = window.position() - before;
+            single.flip();
+            for (int i = 0; single.hasRemaining(); i++) {
+                widths[chars.position()] = (byte) (i == 0 ? consumed : 0);
+                chars.put(single.get());
+            }
+        }
+    }
+
+    private void check(CoderResult result) throws IOException {
+        if (result.isError()) {
+            long at = window != null ? windowStart + window.position() : position;
+            try {
+                result.throwException();
+            } catch (CharacterCodingException e) {
+                throw new IOException("Cannot decode " + source + " as " + charset + " at byte " + at, e);
+            }
+        }
+    }
+
+    private boolean map() throws IOException {
+        long start = window == null ? windowStart : windowStart + window.position();
+        if (start >= size) {
+            return false;
+        }
+        windowStart = start;
+        window = channel.map(FileChannel.MapMode.READ_ONLY, start, Math.min(windowBytes, size - start));
+        return true;
+    }
+
+    private int width(char c) {
+        if (charWidth > 0) {
+            return charWidth;
+        }
+        // UTF-8：代理对共 4 个字节，记在两个 char 上
+        if (c < 0x80) {
+            return 1;
+        }
+        if (c < 0x800) {
+            return 2;
+        }
+        return Character.isSurrogate(c) ? 2 : 3;
+    }
+
+    /**
+     * Detects a UTF-8 or UTF-16 byte order mark
+     *
+     * @param head   the first bytes of the file
+     * @param length the number of bytes read, up to 3
+     * @return the charset named by the byte order mark, or null if there is none
+     */
+    static Charset bomCharset(byte[] head, int length) {
+        if (length >= 3 && (head[0] & 0xff) == 0xef && (head[1] & 0xff) == 0xbb && (head[2] & 0xff) == 0xbf) {
+            return StandardCharsets.UTF_8;
+        }
+        if (length >= 2 && (head[0] & 0xff) == 0xfe && (head[1] & 0xff) == 0xff) {
+            return StandardCharsets.UTF_16BE;
+        }
+        if (length >= 2 && (head[0] & 0xff) == 0xff && (head[1] & 0xff) == 0xfe) {
+            return StandardCharsets.UTF_16LE;
+        }
+        return null;
+    }
+
+    static int bomLength(Charset bomCharset) {
+        return bomCharset == null ? 0 : StandardCharsets.UTF_8.equals(bomCharset) ? 3 : 2;
+    }
+
+    private static int charWidth(Charset charset) {
+        if (StandardCharsets.UTF_8.equals(charset)) {
+            return -1;
+        }
+        if (StandardCharsets.UTF_16BE.equals(charset) || StandardCharsets.UTF_16LE.equals(charset)) {
+            return 2;
+        }
+        return charset.newEncoder().maxBytesPerChar() == 1 ? 1 : 0;
+    }
+}
@@ -0,0 +1,40 @@
+package com.m01.dbhelper.util;
+
+import com.m01.dbhelper.common.DbType;
+import net.sf.jsqlparser.parser.CCJSqlParser;
+
+/**
+ * SQLite: backtick and square bracket identifiers and no backslash escapes
+ */
+public class SqliteDialect implements Dialect {
+
+    @Override
+    public DbType getDbType() {
+        return DbType.SQLITE;
+    }
+
+    @Override
+    public String getDriverClass() {
+        return "org.sqlite.JDBC";
+    }
+
+    @Override
+    public void configure(CCJSqlParser parser) {
+        parser.withSquareBracketQuotation(true);
+    }
+
+    @Override
+    public boolean backslashEscapes() {
+        return false;
+    }
+
+    @Override
+    public boolean backtickQuotes() {
+        return true;
+    }
+
+    @Override
+    public boolean bracketQuotes() {
+        return true;
+    }
+}
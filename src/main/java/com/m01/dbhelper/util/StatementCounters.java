@@ -0,0 +1,96 @@
+package com.m01.dbhelper.util;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counts parsed and executed statements and their rows, so that the result file can carry one
+ * summary line per task instead of several lines per statement.
+ * <p>
+ * The counters are {@link LongAdder}s: the schedule-wide instance is updated by every task worker
+ * at the same time without contention, and is only read when the summary is written.
+ */
+public class StatementCounters {
+    private final LongAdder parsed = new LongAdder();
+    private final LongAdder invalid = new LongAdder();
+    private final LongAdder succeeded = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final LongAdder rowsAffected = new LongAdder();
+    private final LongAdder rowsReturned = new LongAdder();
+
+    /**
+     * Counts a validated statement
+     *
+     * @param valid whether the statement passed validation
+     */
+    public void statementParsed(boolean valid) {
+        (valid ? parsed : invalid).increment();
+    }
+
+    /**
+     * Counts a successfully executed query
+     *
+     * @param rows the number of rows returned
+     */
+    public void queryExecuted(long rows) {
+        succeeded.increment();
+        rowsReturned.add(rows);
+    }
+
+    /**
+     * Counts a successfully executed update or DDL statement
+     *
+     * @param rows the update count
+     */
+    public void updateExecuted(long rows) {
+        succeeded.increment();
+        rowsAffected.add(rows);
+    }
+
+    /**
+     * Counts a statement whose execution failed
+     */
+    public void statementFailed() {
+        failed.increment();
+    }
+
+    /**
+     * Adds all counts of another instance
+     *
+     * @param other the counters to add
+     */
+    public void add(StatementCounters other) {
+        parsed.add(other.parsed.sum());
+        invalid.add(other.invalid.sum());
+        succeeded.add(other.succeeded.sum());
+        failed.add(other.failed.sum());
+        rowsAffected.add(other.rowsAffected.sum());
+        rowsReturned.add(other.rowsReturned.sum());
+    }
+
+    public long getFailed() {
+        return failed.sum();
+    }
+
+    public long getInvalid() {
+        return invalid.sum();
+    }
+
+    /**
+     * Renders the validation counts
+     *
+     * @return the summary text
+     */
+    public String validationSummary() {
+        return "valid: " + parsed.sum() + ", invalid: " + invalid.sum();
+    }
+
+    /**
+     * Renders the execution counts
+     *
+     * @return the summary text
+     */
+    public String executionSummary() {
+        return "succeeded: " + succeeded.sum() + ", failed: " + failed.sum()
+                + ", rows affected: " + rowsAffected.sum() + ", rows returned: " + rowsReturned.sum();
+    }
+}
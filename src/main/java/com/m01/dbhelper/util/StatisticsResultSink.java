@@ -0,0 +1,34 @@
+package com.m01.dbhelper.util;
+
+import java.io.IOException;
+
+/**
+ * The {@code statistics} sink: writes only per-column {@link ResultStatistics} to the result file
+ */
+public class StatisticsResultSink implements ResultSink {
+    private ResultLogger resultLogger;
+    private ResultStatistics statistics;
+
+    @Override
+    public String getName() {
+        return "statistics";
+    }
+
+    @Override
+    public void start(ResultSinkContext context, ResultColumns columns) {
+        resultLogger = context.getResultLogger();
+        statistics = new ResultStatistics(columns);
+    }
+
+    @Override
+    public void accept(RowBatch batch) throws IOException {
+        statistics.add(batch);
+    }
+
+    @Override
+    public void finish(long rowCount) {
+        for (String line : statistics.toResultLines()) {
+            resultLogger.log(line);
+        }
+    }
+}
@@ -0,0 +1,17 @@
+package com.m01.dbhelper.util;
+
+/**
+ * The {@code unordered-digest} sink: like {@link DigestResultSink}, but the digest does not depend
+ * on row order
+ */
+public class UnorderedDigestResultSink extends DigestResultSink {
+
+    public UnorderedDigestResultSink() {
+        super(false);
+    }
+
+    @Override
+    public String getName() {
+        return "unordered-digest";
+    }
+}
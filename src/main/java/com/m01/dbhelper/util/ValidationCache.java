@@ -0,0 +1,431 @@
+package com.m01.dbhelper.util;
+
+import com.m01.dbhelper.common.DbType;
+import com.m01.dbhelper.common.Verdict;
+import net.sf.jsqlparser.parser.CCJSqlParserUtil;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Caches the verdicts of {@link SqlValidator#isValidSql(String, DbType)}.
+ * <p>
+ * A statement is identified by the 128-bit Murmur3 hash of its text, seeded with the database
+ * type and the {@link #parserVersion() parser version}, so a verdict is never reused for another
+ * dialect or after the parser or the validation rules changed. Verdicts are looked up in two tiers:
+ * <ul>
+ *     <li>an in-process LRU map shared by all schedules, see {@link #shared()}</li>
+ *     <li>optionally a file of fixed-size records, loaded into an open-addressing table when the
+ *     cache is opened; new verdicts are appended to it, so the next run finds them</li>
+ * </ul>
+ * The file starts with a header naming the parser version; a file written by another version is
+ * started over. New records are buffered and appended in blocks of {@value #WRITE_BLOCK_RECORDS},
+ * and the rest on {@link #close()}, so a run that ends without closing the cache loses the
+ * verdicts of its last block.
+ * <p>
+ * All methods are thread-safe. The in-process map is split into segments with their own lock,
+ * the file table is read-only once loaded, and file writes take neither, so lookups of other
+ * threads never wait for a write.
+ */
+public class ValidationCache implements Closeable {
+    private static final Logger logger = Logger.getLogger(ValidationCache.class.getName());
+
+    // SqlValidator 的校验规则变化时递增，使旧的缓存结果失效
+    static final int RULES_VERSION = 4;
+    static final int DEFAULT_MEMORY_ENTRIES = 100_000;
+
+    private static final int FILE_MAGIC = 0x44425643; // "DBVC"
+    private static final int RECORD_SIZE = 17;
+    private static final int WRITE_BLOCK_RECORDS = 512;
+    // 每段至少容纳的条目数，容量较小时只用一段以保持准确的 LRU 顺序
+    private static final int SEGMENT_ENTRIES = 4096;
+    private static final int MAX_SEGMENTS = 16;
+    private static final String PARSER_VERSION = parserVersion();
+    private static final long VERSION_SEED = seed(PARSER_VERSION + "/" + RULES_VERSION);
+    private static final ValidationCache SHARED = new ValidationCache(DEFAULT_MEMORY_ENTRIES);
+
+    private final Map<Key, Boolean>[] memory;
+    private final FileChannel channel;
+    private final Object pendingLock = new Object();
+    private ByteBuffer pending = ByteBuffer.allocate(RECORD_SIZE * WRITE_BLOCK_RECORDS);
+    private long[] diskKeys = new long[0];
+    private byte[] diskVerdicts = new byte[0];
+    private int diskMask = -1;
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    /**
+     * Creates a cache that only keeps verdicts in memory
+     *
+     * @param memoryEntries the maximum number of verdicts kept in memory
+     */
+    public ValidationCache(int memoryEntries) {
+        this.memory = segments(memoryEntries);
+        this.channel = null;
+    }
+
+    /**
+     * Opens a cache backed by a file, creating it if missing
+     *
+     * @param memoryEntries the maximum number of verdicts kept in memory
+     * @param file          the cache file
+     * @throws IOException if the file cannot be opened
+     */
+    public ValidationCache(int memoryEntries, Path file) throws IOException {
+        this.memory = segments(memoryEntries);
+        Path parent = file.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        this.channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            load(file);
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Gets the in-memory cache shared by all schedules of the process
+     *
+     * @return the shared cache
+     */
+    public static ValidationCache shared() {
+        return SHARED;
+    }
+
+    /**
+     * Validates a statement, reusing a cached verdict when there is one
+     *
+     * @param sql    the statement
+     * @param dbType the database type
+     * @return true if the statement is valid
+     */
+    public boolean isValidSql(String sql, DbType dbType) {
+        if (sql == null || dbType == null) {
+            return SqlValidator.isValidSql(sql, dbType);
+        }
+        Key key = key(sql, dbType);
+        Boolean verdict = get(key);
+        if (verdict != null) {
+            return verdict;
+        }
+        boolean valid = SqlValidator.isValidSql(sql, dbType);
+        put(key, valid);
+        return valid;
+    }
+
+    /**
+     * Validates a statement that may already carry its syntax tree; such a statement is checked
+     * without a lookup, any other is looked up by its text and keeps the tree of a fresh parse
+     *
+     * @param statement the statement
+     * @param dbType    the database type
+     * @return true if the statement is valid
+     */
+    public boolean isValid(ParsedStatement statement, DbType dbType) {
+        return check(statement, dbType, ParseBudget.DEFAULT) == Verdict.VALID;
+    }
+
+    /**
+     * Validates a statement like {@link #isValid(ParsedStatement, DbType)}, parsing it within a
+     * budget; an {@link Verdict#UNVERIFIED} outcome is not cached, a later run may have more time
+     *
+     * @param statement the statement
+     * @param dbType    the database type
+     * @param budget    the parse budget
+     * @return the verdict
+     */
+    public Verdict check(ParsedStatement statement, DbType dbType, ParseBudget budget) {
+        String sql = statement.getSql();
+        if (statement.hasAst() || sql == null || dbType == null) {
+            return SqlValidator.check(statement, dbType, budget);
+        }
+        Key key = key(sql, dbType);
+        Boolean cached = get(key);
+        if (cached != null) {
+            return cached ? Verdict.VALID : Verdict.INVALID;
+        }
+        Verdict verdict = SqlValidator.check(statement, dbType, budget);
+        if (verdict != Verdict.UNVERIFIED) {
+            put(key, verdict == Verdict.VALID);
+        }
+        return verdict;
+    }
+
+    /**
+     * Gets the number of lookups answered from the cache
+     *
+     * @return the hit count
+     */
+    public long getHits() {
+        return hits.get();
+    }
+
+    /**
+     * Gets the number of lookups that had to run the validator
+     *
+     * @return the miss count
+     */
+    public long getMisses() {
+        return misses.get();
+    }
+
+    /**
+     * Writes the buffered records and closes the cache file; the in-memory tier stays usable
+     *
+     * @throws IOException if the file cannot be closed
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        if (channel != null) {
+            ByteBuffer rest;
+            synchronized (pendingLock) {
+                rest = pending;
+                pending = ByteBuffer.allocate(RECORD_SIZE * WRITE_BLOCK_RECORDS);
+            }
+            write(rest);
+            channel.close();
+        }
+    }
+
+    /**
+     * Gets the version of the SQL parser that produced the verdicts
+     *
+     * @return the JSqlParser version, or "unknown"
+     */
+    static String parserVersion() {
+        try (InputStream in = CCJSqlParserUtil.class.getResourceAsStream(
+                "/META-INF/maven/com.github.jsqlparser/jsqlparser/pom.properties")) {
+            if (in != null) {
+                Properties properties = new Properties();
+                properties.load(in);
+                String version = properties.getProperty("version");
+                if (version != null) {
+                    return version;
+                }
+            }
+        } catch (IOException e) {
+            logger.log(Level.FINE, "Failed to read the JSqlParser version", e);
+        }
+        String version = CCJSqlParserUtil.class.getPackage().getImplementationVersion();
+        return version != null ? version : "unknown";
+    }
+
+    private Boolean get(Key key) {
+        Map<Key, Boolean> segment = segment(key);
+        Boolean verdict;
+        synchronized (segment) {
+            verdict = segment.get(key);
+        }
+        // 文件散列表加载后只读，查询无需加锁
+        if (verdict == null && diskMask >= 0) {
+            verdict = diskGet(key);
+            if (verdict != null) {
+                synchronized (segment) {
+                    segment.put(key, verdict);
+                }
+            }
+        }
+        if (verdict != null) {
+            hits.incrementAndGet();
+        } else {
+            misses.incrementAndGet();
+        }
+        return verdict;
+    }
+
+    private void put(Key key, boolean valid) {
+        Map<Key, Boolean> segment = segment(key);
+        synchronized (segment) {
+            segment.put(key, valid);
+        }
+        if (channel == null) {
+            return;
+        }
+        ByteBuffer full = null;
+        synchronized (pendingLock) {
+            pending.putLong(key.high).putLong(key.low).put((byte) (valid ? 1 : 0));
+            if (!pending.hasRemaining()) {
+                full = pending;
+                pending = ByteBuffer.allocate(RECORD_SIZE * WRITE_BLOCK_RECORDS);
+            }
+        }
+        if (full != null) {
+            write(full);
+        }
+    }
+
+    private synchronized void write(ByteBuffer block) {
+        if (!channel.isOpen()) {
+            return;
+        }
+        block.flip();
+        try {
+            while (block.hasRemaining()) {
+                channel.write(block);
+            }
+        } catch (IOException e) {
+            logger.log(Level.WARNING, "Failed to write validation cache", e);
+        }
+    }
+
+    private Map<Key, Boolean> segment(Key key) {
+        return memory[(int) (key.high >>> 32) & (memory.length - 1)];
+    }
+
+    private Boolean diskGet(Key key) {
+        for (int slot = (int) key.low & diskMask; ; slot = (slot + 1) & diskMask) {
+            byte verdict = diskVerdicts[slot];
+            if (verdict < 0) {
+                return null;
+            }
+            if (diskKeys[2 * slot] == key.high && diskKeys[2 * slot + 1] == key.low) {
+                return verdict == 1;
+            }
+        }
+    }
+
+    private void load(Path file) throws IOException {
+        long size = channel.size();
+        byte[] version = PARSER_VERSION.getBytes(StandardCharsets.UTF_8);
+        int headerSize = 12 + version.length;
+        ByteBuffer header = ByteBuffer.allocate(headerSize);
+        if (size >= headerSize) {
+            while (header.hasRemaining() && channel.read(header, header.position()) > 0) {
+                // 读满文件头
+            }
+            header.flip();
+            byte[] fileVersion = new byte[version.length];
+            if (header.getInt() == FILE_MAGIC && header.getInt() == RULES_VERSION && header.getInt() == version.length) {
+                header.get(fileVersion);
+                if (Arrays.equals(fileVersion, version)) {
+                    readRecords(headerSize, size);
+                    return;
+                }
+            }
+            logger.info("Discarding validation cache written by another parser version: " + file);
+        }
+        channel.truncate(0);
+        header.clear();
+        header.putInt(FILE_MAGIC).putInt(RULES_VERSION).putInt(version.length).put(version).flip();
+        while (header.hasRemaining()) {
+            channel.write(header, header.position());
+        }
+        channel.position(headerSize);
+    }
+
+    private void readRecords(int headerSize, long size) throws IOException {
+        // 丢弃异常中断时写了一半的记录
+        long count = (size - headerSize) / RECORD_SIZE;
+        long end = headerSize + count * RECORD_SIZE;
+        if (end != size) {
+            channel.truncate(end);
+        }
+        int capacity = Integer.highestOneBit((int) Math.max(16, Math.min(1 << 29, count * 2)) - 1) << 1;
+        diskKeys = new long[capacity * 2];
+        diskVerdicts = new byte[capacity];
+        Arrays.fill(diskVerdicts, (byte) -1);
+        diskMask = capacity - 1;
+        ByteBuffer buffer = ByteBuffer.allocate(RECORD_SIZE * 4096);
+        long position = headerSize;
+        // 超出散列表容量的记录不再加载
+        long loadEnd = Math.min(end, headerSize + (long) (capacity / 2) * RECORD_SIZE);
+        while (position < loadEnd) {
+            buffer.clear();
+            buffer.limit((int) Math.min(buffer.capacity(), loadEnd - position));
+            while (buffer.hasRemaining() && channel.read(buffer, position + buffer.position()) > 0) {
+                // 读满缓冲区
+            }
+            buffer.flip();
+            position += buffer.limit();
+            while (buffer.remaining() >= RECORD_SIZE) {
+                diskPut(buffer.getLong(), buffer.getLong(), buffer.get());
+            }
+        }
+        channel.position(end);
+    }
+
+    private void diskPut(long high, long low, byte verdict) {
+        for (int slot = (int) low & diskMask; ; slot = (slot + 1) & diskMask) {
+            if (diskVerdicts[slot] < 0 || (diskKeys[2 * slot] == high && diskKeys[2 * slot + 1] == low)) {
+                diskKeys[2 * slot] = high;
+                diskKeys[2 * slot + 1] = low;
+                diskVerdicts[slot] = verdict;
+                return;
+            }
+        }
+    }
+
+    private static Key key(String sql, DbType dbType) {
+        byte[] bytes = sql.getBytes(StandardCharsets.UTF_8);
+        long[] hash = new long[2];
+        Murmur3.hash128(bytes, 0, bytes.length, VERSION_SEED ^ dbType.ordinal(), hash);
+        return new Key(hash[0], hash[1]);
+    }
+
+    private static long seed(String version) {
+        byte[] bytes = version.getBytes(StandardCharsets.UTF_8);
+        long[] hash = new long[2];
+        Murmur3.hash128(bytes, 0, bytes.length, 0, hash);
+        return hash[0];
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Map<Key, Boolean>[] segments(int maxEntries) {
+        int count = Integer.highestOneBit(Math.max(1, Math.min(MAX_SEGMENTS, maxEntries / SEGMENT_ENTRIES)));
+        Map<Key, Boolean>[] segments = new Map[count];
+        for (int i = 0; i < count; i++) {
+            segments[i] = lruMap((maxEntries + count - 1) / count);
+        }
+        return segments;
+    }
+
+    private static Map<Key, Boolean> lruMap(int maxEntries) {
+        return new LinkedHashMap<Key, Boolean>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, Boolean> eldest) {
+                return size() > maxEntries;
+            }
+        };
+    }
+
+    private static final class Key {
+        final long high;
+        final long low;
+
+        Key(long high, long low) {
+            this.high = high;
+            this.low = low;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) o;
+            return high == other.high && low == other.low;
+        }
+
+        @Override
+        public int hashCode() {
+            return (int) (low ^ (low >>> 32));
+        }
+    }
+}
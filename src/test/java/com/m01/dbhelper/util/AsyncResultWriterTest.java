@@ -0,0 +1,61 @@
+package com.m01.dbhelper.util;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AsyncResultWriterTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void testLinesAreAppendedInOrder() throws IOException {
+        Path file = tempDir.resolve("result.txt");
+        Files.write(file, ("existing" + System.lineSeparator()).getBytes(StandardCharsets.UTF_8));
+
+        AsyncResultWriter writer = new AsyncResultWriter(file, StandardCharsets.UTF_8, 4);
+        StringBuilder expected = new StringBuilder("existing").append(System.lineSeparator());
+        for (int i = 0; i < 1000; i++) {
+            writer.writeLine("line " + i + " 中文");
+            expected.append("line ").append(i).append(" 中文").append(System.lineSeparator());
+        }
+        writer.close();
+
+        assertEquals(expected.toString(), new String(Files.readAllBytes(file), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void testFlushMakesLinesVisible() throws IOException {
+        Path file = tempDir.resolve("flush.txt");
+        AsyncResultWriter writer = new AsyncResultWriter(file, StandardCharsets.UTF_8);
+
+        writer.writeLine("first");
+        writer.flush();
+        assertEquals("first" + System.lineSeparator(), new String(Files.readAllBytes(file), StandardCharsets.UTF_8));
+
+        writer.close();
+        assertThrows(IllegalStateException.class, () -> writer.writeLine("after close"));
+    }
+
+    @Test
+    void testLinesLargerThanBuffer() throws IOException {
+        Path file = tempDir.resolve("large.txt");
+        StringBuilder line = new StringBuilder();
+        for (int i = 0; i < 200_000; i++) {
+            line.append((char) ('a' + i % 26));
+        }
+
+        try (AsyncResultWriter writer = new AsyncResultWriter(file, StandardCharsets.UTF_8)) {
+            writer.writeLine(line.toString());
+        }
+
+        assertEquals(line + System.lineSeparator(), new String(Files.readAllBytes(file), StandardCharsets.UTF_8));
+    }
+}
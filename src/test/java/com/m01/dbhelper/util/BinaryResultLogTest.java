@@ -0,0 +1,174 @@
+package com.m01.dbhelper.util;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.sql.ResultSet;
+import java.sql.Types;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BinaryResultLogTest {
+
+    @TempDir
+    Path tempDir;
+
+    private ResultSet sampleResultSet() {
+        return StubResultSet.of(
+                new String[]{"id", "name"},
+                new int[]{Types.BIGINT, Types.VARCHAR},
+                Arrays.asList(
+                        new Object[]{1L, "plain"},
+                        new Object[]{2L, "中文 😀"},
+                        new Object[]{null, null}));
+    }
+
+    @Test
+    void testSeekRendersOneStatement() throws Exception {
+        Path file = tempDir.resolve("result.bin");
+        try (BinaryResultLog log = new BinaryResultLog(file)) {
+            log.writeUpdateCount("s", "load", 1, "INSERT INTO t VALUES (1)", 1);
+            assertEquals(3, log.writeQueryResults(sampleResultSet(), "s", "load", 2, "SELECT id, name FROM t"));
+            log.writeFailure("s", "check", 1, "SELECT x FROM missing", "Table 'missing' doesn't exist");
+        }
+
+        try (BinaryResultReader reader = new BinaryResultReader(file)) {
+            assertEquals(3, reader.getEntryCount());
+
+            BinaryResultReader.Entry entry = reader.find("s", "load", 2);
+            assertNotNull(entry);
+            assertTrue(entry.isQuery());
+            StringBuilder out = new StringBuilder();
+            reader.print(entry, out);
+            String n = System.lineSeparator();
+            assertEquals("Schedule: s - Task: load - Statement 2: SELECT id, name FROM t" + n +
+                    "Query Results - Columns: id, name" + n +
+                    "Row 1: 1, plain" + n +
+                    "Row 2: 2, 中文 😀" + n +
+                    "Row 3: null, null" + n +
+                    "Total rows: 3" + n, out.toString());
+
+            out.setLength(0);
+            reader.print(reader.find("s", "check", 1), out);
+            assertEquals("Schedule: s - Task: check - Statement 1: SELECT x FROM missing" + n +
+                    "execution fail: Table 'missing' doesn't exist" + n, out.toString());
+
+            assertNull(reader.find("s", "load", 3));
+            assertNull(reader.find("other", "load", 1));
+        }
+    }
+
+    @Test
+    void testAppendedRunsAreIndexedInOrder() throws Exception {
+        Path file = tempDir.resolve("result.bin");
+        for (int run = 0; run < 2; run++) {
+            try (BinaryResultLog log = new BinaryResultLog(file)) {
+                for (int i = 1; i <= 3; i++) {
+                    log.writeUpdateCount("s", "t", i, "UPDATE t SET run = " + run, run * 10 + i);
+                }
+            }
+        }
+        // 模拟写索引时中断留下的半个索引项
+        Files.write(BinaryResultLog.indexFile(file), new byte[]{1, 2, 3}, StandardOpenOption.APPEND);
+        try (BinaryResultLog log = new BinaryResultLog(file)) {
+            log.writeUpdateCount("s", "u", 1, "DELETE FROM u", 0);
+        }
+
+        try (BinaryResultReader reader = new BinaryResultReader(file)) {
+            assertEquals(7, reader.getEntryCount());
+            assertEquals(6, reader.findTask("s", "t").size());
+
+            StringBuilder out = new StringBuilder();
+            reader.print(reader.find("s", "t", 2), out);
+            assertTrue(out.toString().contains("rows affected: 12"));
+
+            List<BinaryResultReader.Entry> tail = reader.tail(2);
+            assertEquals(2, tail.size());
+            assertEquals(3, tail.get(0).getStatement());
+            out.setLength(0);
+            reader.print(tail.get(1), out);
+            assertTrue(out.toString().startsWith("Schedule: s - Task: u - Statement 1: DELETE FROM u"));
+        }
+    }
+
+    @Test
+    void testOpenQueryBlockDoesNotBlockOtherStatements() throws Exception {
+        Path file = tempDir.resolve("result.bin");
+        try (BinaryResultLog log = new BinaryResultLog(file)) {
+            ResultSet resultSet = sampleResultSet();
+            BinaryResultLog.Block block = log.beginQuery("s", "slow", 1, "SELECT id, name FROM t",
+                    new ResultColumns(resultSet.getMetaData()));
+            // 另一个任务在查询块结束前写入，不需要等待
+            assertTimeoutPreemptively(Duration.ofSeconds(10), () -> {
+                Thread other = new Thread(() -> {
+                    try {
+                        log.writeUpdateCount("s", "fast", 1, "UPDATE t SET x = 1", 5);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+                other.start();
+                other.join();
+            });
+            RowBatch batch = new RowBatch(2, 16);
+            batch.fill(resultSet, new RowFormatter(resultSet.getMetaData()), 1);
+            block.writeRows(batch);
+            block.end(3);
+            // 未结束也未放弃的块不影响后续写入
+            log.beginQuery("s", "lost", 1, "SELECT 1", new ResultColumns(sampleResultSet().getMetaData()));
+            log.writeFailure("s", "after", 1, "SELECT x", "boom");
+        }
+
+        try (BinaryResultReader reader = new BinaryResultReader(file)) {
+            assertEquals(3, reader.getEntryCount());
+            assertEquals(1, reader.getEntry(0).getStatement());
+            assertFalse(reader.getEntry(0).isQuery());
+            StringBuilder out = new StringBuilder();
+            reader.print(reader.find("s", "slow", 1), out);
+            assertTrue(out.toString().endsWith("Total rows: 3" + System.lineSeparator()), out.toString());
+            assertTrue(reader.find("s", "after", 1).isFailure());
+            assertNull(reader.find("s", "lost", 1));
+        }
+    }
+
+    @Test
+    void testLargeBlockMovesToATemporaryFile() throws Exception {
+        Path file = tempDir.resolve("result.bin");
+        char[] text = new char[1000];
+        Arrays.fill(text, 'v');
+        List<Object[]> rows = new ArrayList<>();
+        for (long i = 0; i < 3000; i++) {
+            rows.add(new Object[]{i, new String(text)});
+        }
+        try (BinaryResultLog log = new BinaryResultLog(file)) {
+            ResultSet resultSet = StubResultSet.of(new String[]{"id", "name"}, new int[]{Types.BIGINT, Types.VARCHAR}, rows);
+            assertEquals(3000, log.writeQueryResults(resultSet, "s", "big", 1, "SELECT id, name FROM t"));
+            log.writeUpdateCount("s", "big", 2, "DELETE FROM t", 3000);
+        }
+
+        try (BinaryResultReader reader = new BinaryResultReader(file)) {
+            BinaryResultReader.Entry entry = reader.find("s", "big", 1);
+            assertTrue(entry.getLength() > BinaryResultLog.BLOCK_MEMORY);
+            StringBuilder out = new StringBuilder();
+            reader.print(entry, out);
+            String n = System.lineSeparator();
+            assertTrue(out.toString().contains(n + "Row 3000: 2999, " + new String(text) + n + "Total rows: 3000" + n));
+            assertNotNull(reader.find("s", "big", 2));
+        }
+        try (Stream<Path> files = Files.list(tempDir)) {
+            assertEquals(Arrays.asList("result.bin", "result.bin.idx"),
+                    files.map(path -> path.getFileName().toString()).sorted().collect(Collectors.toList()));
+        }
+    }
+}
@@ -0,0 +1,126 @@
+package com.m01.dbhelper.util;
+
+import com.m01.dbhelper.common.ExportFormat;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.ResultSet;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ColumnarResultTest {
+
+    private static final String[] LABELS = {"id", "status", "amount", "note"};
+    private static final int[] TYPES = {Types.BIGINT, Types.VARCHAR, Types.DOUBLE, Types.VARCHAR};
+
+    @TempDir
+    Path tempDir;
+
+    private List<Object[]> rows(int count) {
+        List<Object[]> rows = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            rows.add(new Object[]{(long) i, i % 3 == 0 ? "open" : "closed", i % 11 == 0 ? null : i * 0.25,
+                    i % 5 == 0 ? null : "note " + i});
+        }
+        return rows;
+    }
+
+    private ResultSet resultSet(List<Object[]> rows) {
+        return StubResultSet.of(LABELS, TYPES, rows);
+    }
+
+    @Test
+    void testRoundTripWithProjection() throws Exception {
+        List<Object[]> rows = rows(2500);
+        Path file = tempDir.resolve("result.dbc");
+        try (ResultSet resultSet = resultSet(rows);
+             ColumnarResultWriter writer = new ColumnarResultWriter(new ResultColumns(resultSet.getMetaData()), file, 1000)) {
+            RowFormatter formatter = new RowFormatter(resultSet.getMetaData());
+            RowBatch batch = new RowBatch(LABELS.length, 256);
+            long rowNumber = 1;
+            int count;
+            while ((count = batch.fill(resultSet, formatter, rowNumber)) > 0) {
+                writer.writeRows(batch);
+                rowNumber += count;
+            }
+        }
+
+        try (ColumnarResultReader reader = new ColumnarResultReader(file)) {
+            assertEquals(2500, reader.getRowCount());
+            assertEquals(3, reader.getRowGroupCount());
+            assertEquals(500, reader.getRowGroupRows(2));
+            assertEquals("0", reader.getMin(0, 0));
+            assertEquals("999", reader.getMax(0, 0));
+            assertEquals("closed", reader.getMin(1, 1));
+            assertEquals("open", reader.getMax(1, 1));
+            assertEquals(200, reader.getNullCount(0, 3));
+
+            int id = reader.getColumnIndex("id");
+            int amount = reader.getColumnIndex("AMOUNT");
+            int note = reader.getColumnIndex("note");
+            int row = 0;
+            for (int g = 0; g < reader.getRowGroupCount(); g++) {
+                ColumnarResultReader.ColumnVector ids = reader.readColumn(g, id);
+                ColumnarResultReader.ColumnVector amounts = reader.readColumn(g, amount);
+                ColumnarResultReader.ColumnVector notes = reader.readColumn(g, note);
+                for (int r = 0; r < ids.size(); r++, row++) {
+                    Object[] expected = rows.get(row);
+                    assertEquals((long) expected[0], ids.getLong(r));
+                    assertEquals(expected[2] == null, amounts.isNull(r));
+                    if (expected[2] != null) {
+                        assertEquals((double) expected[2], amounts.getDouble(r));
+                    }
+                    assertEquals(expected[3], notes.getString(r));
+                }
+            }
+            assertEquals(2500, row);
+            long projected = reader.getBytesRead();
+
+            row = 0;
+            for (int g = 0; g < reader.getRowGroupCount(); g++) {
+                ColumnarResultReader.ColumnVector statuses = reader.readColumn(g, 1);
+                for (int r = 0; r < statuses.size(); r++, row++) {
+                    assertEquals(rows.get(row)[1], statuses.getString(r));
+                }
+            }
+            assertTrue(reader.getBytesRead() - projected < projected / 10, "dictionary column should be tiny");
+        }
+    }
+
+    @Test
+    void testSmallerThanCsv() throws Exception {
+        Path columnar = tempDir.resolve("result.dbc");
+        Path csv = tempDir.resolve("result.csv");
+        assertEquals(5000, ColumnarResultWriter.export(resultSet(rows(5000)), columnar));
+        QueryResultExporter.export(resultSet(rows(5000)), ExportFormat.CSV, csv);
+        assertTrue(Files.size(columnar) * 3 < Files.size(csv), Files.size(columnar) + " vs " + Files.size(csv));
+    }
+
+    @Test
+    void testLargeObjectsReferToSideFiles() throws Exception {
+        byte[] data = new byte[LobHandler.DEFAULT_PREVIEW_LIMIT + 10];
+        for (int i = 0; i < data.length; i++) {
+            data[i] = (byte) i;
+        }
+        List<Object[]> rows = new ArrayList<>();
+        rows.add(new Object[]{1L, data});
+        rows.add(new Object[]{2L, new byte[]{1, 2}});
+        Path file = tempDir.resolve("lob.dbc");
+        assertEquals(2, ColumnarResultWriter.export(StubResultSet.of(new String[]{"id", "data"},
+                new int[]{Types.BIGINT, Types.BLOB}, rows), file));
+
+        Path sideFile = tempDir.resolve("lob-lob-1.bin");
+        try (ColumnarResultReader reader = new ColumnarResultReader(file)) {
+            String cell = reader.readColumn(0, 1).getString(0);
+            assertTrue(cell.startsWith("0x000102"), cell.substring(0, 16));
+            assertTrue(cell.endsWith("...[" + data.length + " bytes: " + sideFile + "]"));
+            assertEquals("0x0102", reader.readColumn(0, 1).getString(1));
+        }
+        assertArrayEquals(data, Files.readAllBytes(sideFile));
+    }
+}
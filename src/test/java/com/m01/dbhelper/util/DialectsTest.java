@@ -0,0 +1,35 @@
+package com.m01.dbhelper.util;
+
+import com.m01.dbhelper.common.DbType;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DialectsTest {
+
+    @Test
+    void testEveryDatabaseTypeHasADialect() {
+        for (DbType dbType : DbType.values()) {
+            assertEquals(dbType, Dialects.of(dbType).getDbType());
+        }
+        assertNull(Dialects.of(null).getDbType());
+        assertTrue(Dialects.of(null).backslashEscapes());
+    }
+
+    @Test
+    void testDialectRulesReachTheParser() {
+        assertEquals("SELECT `a` FROM `t`", Dialects.of(DbType.GAUSSDB).rewrite("SELECT \"a\" FROM \"t\""));
+        // 只有 MySQL 的字符串支持反斜杠转义
+        assertTrue(SqlValidator.isValidSql("SELECT 'it\\'s' FROM t", DbType.MYSQL));
+        assertFalse(SqlValidator.isValidSql("SELECT 'it\\'s' FROM t", DbType.POSTGRESQL));
+        assertTrue(SqlValidator.isValidSql("SELECT [order id] FROM [my table]", DbType.SQLITE));
+    }
+
+    @Test
+    void testStreamingFetchSize() {
+        Dialect mysql = Dialects.of(DbType.MYSQL);
+        assertEquals(Integer.MIN_VALUE, mysql.streamingFetchSize(500, "jdbc:mysql://h/db"));
+        assertEquals(500, mysql.streamingFetchSize(500, "jdbc:mysql://h/db?useCursorFetch=true"));
+        assertEquals(500, Dialects.of(DbType.POSTGRESQL).streamingFetchSize(500, "jdbc:postgresql://h/db"));
+    }
+}
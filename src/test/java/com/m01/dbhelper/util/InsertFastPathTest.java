@@ -0,0 +1,76 @@
+package com.m01.dbhelper.util;
+
+import com.m01.dbhelper.common.DbType;
+import net.sf.jsqlparser.parser.ParserKeywordsUtils;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class InsertFastPathTest {
+
+    @Test
+    void testSimpleInsertsAreScannedWithoutParsing() {
+        InsertFastPath fastPath = new InsertFastPath(new ValidationCache(100), 0);
+
+        assertTrue(fastPath.isValid(new ParsedStatement(
+                "insert into app.`users` (id, \"name\", score) VALUES (1, 'it''s', -1.5e3), (2, NULL, +.5)"), DbType.MYSQL));
+        assertTrue(fastPath.isValid(new ParsedStatement("INSERT INTO t VALUES ('a\\'b', TRUE)"), DbType.MYSQL));
+        ParsedStatement statement = new ParsedStatement("INSERT INTO t (a) VALUES (3)");
+        assertTrue(fastPath.isValid(statement, DbType.POSTGRESQL));
+        assertFalse(statement.hasAst());
+        assertEquals(3, fastPath.getScanned());
+        assertEquals(0, fastPath.getSampled());
+    }
+
+    @Test
+    void testWrongValueCountIsRejected() {
+        InsertFastPath fastPath = new InsertFastPath(new ValidationCache(100), 0);
+        assertFalse(fastPath.isValid(new ParsedStatement("INSERT INTO t (a, b) VALUES (1, 2), (3)"), DbType.MYSQL));
+        assertFalse(fastPath.isValid(new ParsedStatement("INSERT INTO t VALUES (1, 2), (3, 4, 5)"), DbType.MYSQL));
+    }
+
+    @Test
+    void testUnusualStatementsFallBackToTheParser() {
+        InsertFastPath fastPath = new InsertFastPath(new ValidationCache(100), 0);
+        ParsedStatement function = new ParsedStatement("INSERT INTO t (a) VALUES (NOW())");
+        assertTrue(fastPath.isValid(function, DbType.MYSQL));
+        assertTrue(function.hasAst());
+        assertTrue(fastPath.isValid(new ParsedStatement(
+                "INSERT INTO t (a) VALUES (1) ON DUPLICATE KEY UPDATE a = 2"), DbType.MYSQL));
+        assertFalse(fastPath.isValid(new ParsedStatement("INSERT INTO t (a) VALUES (1 2)"), DbType.MYSQL));
+        assertFalse(fastPath.isValid(new ParsedStatement("INSERT INTO t (a) VALUES ('open)"), DbType.MYSQL));
+        assertEquals(0, fastPath.getScanned());
+    }
+
+    @Test
+    void testReservedWordsAreLeftToTheParser() {
+        InsertFastPath fastPath = new InsertFastPath(new ValidationCache(100), 0);
+        assertFalse(fastPath.isValid(new ParsedStatement("INSERT INTO select VALUES (1)"), DbType.MYSQL));
+        assertFalse(fastPath.isValid(new ParsedStatement("INSERT INTO t (from, where) VALUES (1, 2)"), DbType.MYSQL));
+        assertEquals(0, fastPath.getScanned());
+        assertTrue(fastPath.isValid(new ParsedStatement("INSERT INTO t (`from`, \"where\") VALUES (1, 2)"), DbType.MYSQL));
+        assertEquals(1, fastPath.getScanned());
+
+        // 任何保留字作为表名或列名时，结论都与完整解析一致
+        ValidationCache parser = new ValidationCache(1000);
+        for (Object[] keyword : ParserKeywordsUtils.ALL_RESERVED_KEYWORDS) {
+            String word = ((String) keyword[0]).toLowerCase();
+            for (String sql : new String[]{"INSERT INTO " + word + " VALUES (1)", "INSERT INTO t (" + word + ") VALUES (1)"}) {
+                assertEquals(parser.isValid(new ParsedStatement(sql), DbType.POSTGRESQL),
+                        fastPath.isValid(new ParsedStatement(sql), DbType.POSTGRESQL), sql);
+            }
+        }
+    }
+
+    @Test
+    void testSamplingParsesOneInNPerShape() {
+        InsertFastPath fastPath = new InsertFastPath(new ValidationCache(100), 4);
+        for (int i = 0; i < 10; i++) {
+            assertTrue(fastPath.isValid(new ParsedStatement("INSERT INTO t (a) VALUES (" + i + ")"), DbType.MYSQL));
+            assertTrue(fastPath.isValid(new ParsedStatement("INSERT INTO u (a) VALUES (" + i + ")"), DbType.MYSQL));
+        }
+        // 每种形态的第 1、5、9 条完整解析
+        assertEquals(6, fastPath.getSampled());
+        assertEquals(14, fastPath.getScanned());
+    }
+}
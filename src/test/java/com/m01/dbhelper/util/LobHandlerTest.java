@@ -0,0 +1,122 @@
+package com.m01.dbhelper.util;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LobHandlerTest {
+
+    private static final String[] LABELS = {"data", "doc"};
+    private static final int[] TYPES = {Types.BLOB, Types.CLOB};
+
+    private static String repeat(char c, int count) {
+        char[] chars = new char[count];
+        Arrays.fill(chars, c);
+        return new String(chars);
+    }
+
+    private static List<String> render(ResultSet resultSet, LobHandler lobHandler) throws SQLException {
+        RowFormatter formatter = new RowFormatter(resultSet.getMetaData(), lobHandler);
+        List<String> rows = new ArrayList<>();
+        StringBuilder row = new StringBuilder();
+        while (resultSet.next()) {
+            row.setLength(0);
+            formatter.appendRow(resultSet, row, " | ");
+            rows.add(row.toString());
+        }
+        return rows;
+    }
+
+    private static List<Object[]> rows() {
+        List<Object[]> rows = new ArrayList<>();
+        rows.add(new Object[]{new byte[]{1, 2, (byte) 0xff}, "short"});
+        byte[] large = new byte[20000];
+        for (int i = 0; i < large.length; i++) {
+            large[i] = (byte) i;
+        }
+        rows.add(new Object[]{large, repeat('x', 30000)});
+        rows.add(new Object[]{null, null});
+        return rows;
+    }
+
+    @Test
+    void testValuesAboveLimitAreTruncated() throws SQLException {
+        List<String> rows = render(StubResultSet.of(LABELS, TYPES, rows()), new LobHandler(5, null, null));
+        assertEquals("0x0102ff | short", rows.get(0));
+        assertEquals("0x0001020304...[truncated] | xxxxx...[truncated]", rows.get(1));
+        assertEquals("null | null", rows.get(2));
+    }
+
+    @Test
+    void testValuesAboveLimitAreWrittenToSideFiles(@TempDir Path dir) throws Exception {
+        LobHandler lobHandler = LobHandler.forStatement(10, dir.toString(), "daily", "load", 2);
+        List<String> rows = render(StubResultSet.of(LABELS, TYPES, rows()), lobHandler);
+        assertEquals("0x0102ff | short", rows.get(0));
+
+        Path blobFile = dir.resolve("daily-load-2-lob-1.bin");
+        Path clobFile = dir.resolve("daily-load-2-lob-2.txt");
+        assertEquals("0x00010203040506070809...[20000 bytes: " + blobFile + "] | "
+                + repeat('x', 10) + "...[30000 chars: " + clobFile + "]", rows.get(1));
+        assertArrayEquals((byte[]) rows().get(1)[0], Files.readAllBytes(blobFile));
+        assertEquals(repeat('x', 30000), new String(Files.readAllBytes(clobFile), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void testLongerValuesAreKeptInFilesNextToThePreview(@TempDir Path dir) throws Exception {
+        LobHandler[] lobHandlers = {new LobHandler(10, null, null),
+                LobHandler.forStatement(10, dir.toString(), "daily", "full", 1)};
+        for (LobHandler lobHandler : lobHandlers) {
+            ResultSet resultSet = StubResultSet.of(LABELS, TYPES, rows());
+            List<String> full = render(StubResultSet.of(LABELS, TYPES, rows()), new LobHandler(Integer.MAX_VALUE, null, null));
+            RowBatch batch = new RowBatch(LABELS.length, 16);
+            assertEquals(3, batch.fill(resultSet, new RowFormatter(resultSet.getMetaData(), lobHandler, true), 1));
+
+            assertNull(batch.getLargeObject(0, 1));
+            assertEquals(full.get(0), batch.getString(0, 1) + " | " + batch.getString(0, 2));
+            LobFile blob = batch.getLargeObject(1, 1);
+            LobFile clob = batch.getLargeObject(1, 2);
+            assertEquals(20000, blob.getSize());
+            assertEquals(30000, clob.getSize());
+            // 配置了旁路文件目录时完整值就是旁路文件，否则写入临时文件
+            assertEquals(lobHandler == lobHandlers[1], !blob.isTemporary());
+            assertEquals(lobHandler == lobHandlers[1], dir.equals(blob.getPath().getParent()));
+
+            // 单元格只保存预览，完整值从文件按块读回
+            StringBuilder prefix = new StringBuilder();
+            assertTrue(batch.appendPrefix(1, 1, prefix));
+            assertEquals("0x00010203040506070809", prefix.toString());
+            StringBuilder value = new StringBuilder();
+            char[] chunk = new char[7];
+            try (Reader in = blob.openText()) {
+                int n;
+                while ((n = in.read(chunk)) > 0) {
+                    value.append(chunk, 0, n);
+                }
+            }
+            assertEquals(blob.getTextLength(), value.length());
+            value.append(" | ");
+            clob.appendTo(value);
+            assertEquals(full.get(1), value.toString());
+            assertEquals(full.get(1), batch.getString(1, 1) + " | " + batch.getString(1, 2));
+
+            StringBuilder preview = new StringBuilder();
+            batch.appendPreview(1, 1, preview);
+            assertTrue(preview.toString().startsWith("0x00010203040506070809...["), preview.toString());
+
+            batch.releaseLargeObjects();
+            assertEquals(blob.isTemporary(), !Files.exists(blob.getPath()));
+        }
+    }
+}
@@ -0,0 +1,91 @@
+package com.m01.dbhelper.util;
+
+import com.m01.dbhelper.common.DbType;
+import com.m01.dbhelper.common.SqlTask;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ParallelValidatorTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void testVerdictsKeepTheOriginalOrder() throws Exception {
+        StringBuilder script = new StringBuilder();
+        for (int i = 0; i < 50; i++) {
+            script.append(i == 17 ? "SELECT FROM WHERE" : "SELECT " + i + " FROM t").append(";\n");
+        }
+        Path file = tempDir.resolve("many.sql");
+        Files.write(file, script.toString().getBytes(StandardCharsets.UTF_8));
+
+        List<List<ParallelValidator.Entry>> result = new ParallelValidator(new ValidationCache(100), DbType.MYSQL, 4)
+                .validate(Arrays.asList(task("SELECT 1 FROM a", file.toString()), task("DELETE FROM b")),
+                        new boolean[2], false);
+
+        ParallelValidator.Entry entry = result.get(0).get(1);
+        assertTrue(entry.isFile());
+        assertEquals(50, entry.getStatements().size());
+        for (int i = 0; i < 50; i++) {
+            assertTrue(entry.isChecked(i));
+            assertEquals(i != 17, entry.isValid(i));
+            assertEquals(i == 17 ? "SELECT FROM WHERE" : "SELECT " + i + " FROM t", entry.getStatements().get(i).getSql());
+        }
+        assertTrue(result.get(0).get(0).isValid(0));
+        assertTrue(result.get(1).get(0).isValid(0));
+    }
+
+    @Test
+    void testStopPolicyCancelsLaterStatements() {
+        List<String> first = new ArrayList<>();
+        List<String> second = new ArrayList<>();
+        for (int i = 0; i < 40; i++) {
+            first.add(i == 3 ? "SELECT FROM WHERE" : "SELECT " + i + " FROM t");
+            second.add("SELECT " + i + " FROM u");
+        }
+
+        List<List<ParallelValidator.Entry>> taskStops = new ParallelValidator(new ValidationCache(100), DbType.MYSQL, 4)
+                .validate(Arrays.asList(task(first), task(second)), new boolean[]{true, false}, false);
+        assertTrue(taskStops.get(0).get(2).isChecked(0));
+        assertFalse(taskStops.get(0).get(3).isValid(0));
+        // 只有失败任务中其后的语句被取消
+        for (int i = 0; i < 40; i++) {
+            assertTrue(taskStops.get(1).get(i).isChecked(0));
+        }
+
+        List<List<ParallelValidator.Entry>> scheduleStops = new ParallelValidator(new ValidationCache(100), DbType.MYSQL, 1)
+                .validate(Arrays.asList(task(first), task(second)), new boolean[]{true, true}, true);
+        assertTrue(scheduleStops.get(0).get(3).isChecked(0));
+        assertFalse(scheduleStops.get(0).get(4).isChecked(0));
+        assertFalse(scheduleStops.get(1).get(0).isChecked(0));
+    }
+
+    @Test
+    void testUnreadableFileIsReportedOnItsEntry() {
+        Path missing = tempDir.resolve("missing.sql");
+        List<List<ParallelValidator.Entry>> result = new ParallelValidator(new ValidationCache(100), DbType.MYSQL, 2)
+                .validate(Arrays.asList(task(missing.toString(), "SELECT 1 FROM a")), new boolean[]{true}, true);
+        assertNotNull(result.get(0).get(0).getError());
+        assertFalse(result.get(0).get(1).isChecked(0));
+    }
+
+    private static SqlTask task(String... sql) {
+        return task(Arrays.asList(sql));
+    }
+
+    private static SqlTask task(List<String> sql) {
+        SqlTask task = new SqlTask();
+        task.setTaskName("t");
+        task.setSqlList(sql);
+        return task;
+    }
+}
@@ -0,0 +1,90 @@
+package com.m01.dbhelper.util;
+
+import com.m01.dbhelper.common.DbType;
+import com.m01.dbhelper.common.Verdict;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ParseBudgetTest {
+
+    @Test
+    void testSlowParseIsUnverifiedWithinTheBudget() {
+        StringBuilder sql = new StringBuilder("SELECT 1 FROM t WHERE a IN (");
+        for (int i = 0; i < 200_000; i++) {
+            sql.append(i).append(", ");
+        }
+        sql.append("0)");
+        ParseBudget budget = new ParseBudget(100, Integer.MAX_VALUE);
+
+        Verdict verdict = assertTimeoutPreemptively(Duration.ofSeconds(5),
+                () -> SqlValidator.check(new ParsedStatement(sql.toString()), DbType.MYSQL, budget));
+        assertEquals(Verdict.UNVERIFIED, verdict);
+        // 无法判断的结论不进入缓存
+        ValidationCache cache = new ValidationCache(10);
+        assertEquals(Verdict.UNVERIFIED, cache.check(new ParsedStatement(sql.toString()), DbType.MYSQL, budget));
+        assertEquals(0, cache.getHits());
+    }
+
+    @Test
+    void testOversizedBulkInsertIsCheckedStructurally() {
+        StringBuilder sql = new StringBuilder("INSERT INTO t (a, b) VALUES ");
+        for (int i = 0; i < 50_000; i++) {
+            sql.append(i == 0 ? "" : ", ").append('(').append(i).append(", 'v").append(i).append("')");
+        }
+        ParseBudget budget = new ParseBudget(100, 10_000);
+
+        ParsedStatement statement = new ParsedStatement(sql.toString());
+        assertEquals(Verdict.VALID, assertTimeoutPreemptively(Duration.ofSeconds(5),
+                () -> SqlValidator.check(statement, DbType.MYSQL, budget)));
+        assertFalse(statement.hasAst());
+        assertEquals(Verdict.INVALID, SqlValidator.check(new ParsedStatement(sql + ", (1)"), DbType.MYSQL, budget));
+    }
+
+    @Test
+    void testDeepNestingDoesNotOverflowTheCaller() {
+        int depth = 2000;
+        StringBuilder sql = new StringBuilder("SELECT ");
+        for (int i = 0; i < depth; i++) {
+            sql.append('(');
+        }
+        sql.append('1');
+        for (int i = 0; i < depth; i++) {
+            sql.append(')');
+        }
+        ParseBudget budget = new ParseBudget(2000, Integer.MAX_VALUE);
+
+        assertTrue(budget.isOversized(sql.toString()));
+        Verdict verdict = assertTimeoutPreemptively(Duration.ofSeconds(10),
+                () -> SqlValidator.check(new ParsedStatement(sql.toString()), DbType.POSTGRESQL, budget));
+        assertNotEquals(Verdict.INVALID, verdict);
+        // 多出的右括号使解析失败，但出错前的回溯同样受预算约束，结论不会是合法
+        assertNotEquals(Verdict.VALID, assertTimeoutPreemptively(Duration.ofSeconds(10),
+                () -> SqlValidator.check(new ParsedStatement(sql + ")"), DbType.POSTGRESQL, budget)));
+    }
+
+    @Test
+    void testGeneratedAdversarialStatementsStayWithinTheBudget() {
+        String[] fragments = {"(", ")", "SELECT", "FROM t", "WHERE", "a", "=", "1", "OR", "AND", "'x''y'", "\"q\"",
+                ",", "CASE WHEN", "THEN", "ELSE", "END", "IN (", "NOT", "+", "/*", "*/", "--", "\n", ";", "UNION ALL"};
+        Random random = new Random(20261017L);
+        ParseBudget budget = new ParseBudget(200, 4_000);
+        for (int n = 0; n < 200; n++) {
+            StringBuilder sql = new StringBuilder(n % 2 == 0 ? "SELECT " : "INSERT INTO t VALUES ");
+            int length = 1 + random.nextInt(n % 10 == 0 ? 2000 : 60);
+            for (int i = 0; i < length; i++) {
+                sql.append(fragments[random.nextInt(fragments.length)]).append(' ');
+            }
+            String text = sql.toString();
+            long start = System.nanoTime();
+            Verdict verdict = SqlValidator.check(new ParsedStatement(text), DbType.MYSQL, budget);
+            long millis = (System.nanoTime() - start) / 1_000_000;
+            assertNotNull(verdict);
+            // 简单解析和复杂解析各有一次预算，另留出线程调度的余量
+            assertTrue(millis < 2 * budget.getTimeoutMillis() + 1000, "took " + millis + " ms: " + text);
+        }
+    }
+}
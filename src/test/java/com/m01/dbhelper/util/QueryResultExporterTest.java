@@ -0,0 +1,58 @@
+package com.m01.dbhelper.util;
+
+import com.m01.dbhelper.common.ExportFormat;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.ResultSet;
+import java.sql.Types;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class QueryResultExporterTest {
+
+    @TempDir
+    Path tempDir;
+
+    private ResultSet sampleResultSet() {
+        return StubResultSet.of(
+                new String[]{"id", "name", "active"},
+                new int[]{Types.BIGINT, Types.VARCHAR, Types.BOOLEAN},
+                Arrays.asList(
+                        new Object[]{1L, "plain", true},
+                        new Object[]{2L, "with, comma and \"quote\"", false},
+                        new Object[]{null, "line\nbreak", null}));
+    }
+
+    @Test
+    void testExportCsv() throws Exception {
+        Path file = QueryResultExporter.exportFile(tempDir.resolve("out"), "My Schedule", "task/1", 3, ExportFormat.CSV);
+        assertEquals("My_Schedule-task_1-3.csv", file.getFileName().toString());
+
+        long rows = QueryResultExporter.export(sampleResultSet(), ExportFormat.CSV, file);
+
+        assertEquals(3, rows);
+        assertEquals("id,name,active\r\n" +
+                        "1,plain,true\r\n" +
+                        "2,\"with, comma and \"\"quote\"\"\",false\r\n" +
+                        ",\"line\nbreak\",\r\n",
+                new String(Files.readAllBytes(file), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void testExportJsonLines() throws Exception {
+        Path file = tempDir.resolve("out.jsonl");
+
+        long rows = QueryResultExporter.export(sampleResultSet(), ExportFormat.JSONL, file);
+
+        assertEquals(3, rows);
+        assertEquals("{\"id\":1,\"name\":\"plain\",\"active\":true}\n" +
+                        "{\"id\":2,\"name\":\"with, comma and \\\"quote\\\"\",\"active\":false}\n" +
+                        "{\"id\":null,\"name\":\"line\\nbreak\",\"active\":null}\n",
+                new String(Files.readAllBytes(file), StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,130 @@
+package com.m01.dbhelper.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ResultDigestTest {
+
+    private static final String[] LABELS = {"id", "name"};
+    private static final int[] TYPES = {Types.INTEGER, Types.VARCHAR};
+
+    private List<Object[]> rows() {
+        List<Object[]> rows = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            rows.add(new Object[]{i, i % 7 == 0 ? null : "name-" + i});
+        }
+        return rows;
+    }
+
+    private ResultDigest digest(List<Object[]> rows, boolean ordered) throws SQLException {
+        ResultSet resultSet = StubResultSet.of(LABELS, TYPES, rows);
+        return ResultDigest.compute(resultSet, ordered);
+    }
+
+    @Test
+    void testMurmur3KnownVector() {
+        long[] out = new long[2];
+        byte[] data = "hello".getBytes(StandardCharsets.UTF_8);
+        Murmur3.hash128(data, 0, data.length, 0, out);
+        assertEquals(0xcbd8a7b341bd9b02L, out[0]);
+        assertEquals(0x5b1e906a48ae1d19L, out[1]);
+    }
+
+    @Test
+    void testMurmur3HasherMatchesTheOneShotHash() {
+        Random random = new Random(7);
+        long[] expected = new long[2];
+        long[] actual = new long[2];
+        Murmur3.Hasher hasher = new Murmur3.Hasher(0x5eed);
+        for (int length = 0; length < 100; length++) {
+            byte[] data = new byte[length];
+            random.nextBytes(data);
+            Murmur3.hash128(data, 0, length, 0x5eed, expected);
+            for (int offset = 0; offset < length; ) {
+                int count = Math.min(length - offset, random.nextInt(20));
+                hasher.update(data, offset, count);
+                offset += count;
+            }
+            hasher.finish(actual);
+            assertArrayEquals(expected, actual, "length " + length);
+        }
+    }
+
+    @Test
+    void testLargeObjectsInFilesGiveTheSameDigest() throws SQLException, IOException {
+        String[] labels = {"id", "data", "doc"};
+        int[] types = {Types.INTEGER, Types.BLOB, Types.CLOB};
+        byte[] bytes = new byte[3000];
+        new Random(3).nextBytes(bytes);
+        char[] text = new char[5000];
+        Arrays.fill(text, 'z');
+        List<Object[]> rows = Arrays.asList(new Object[]{1, bytes, new String(text)}, new Object[]{2, null, "short"});
+        for (boolean ordered : new boolean[]{true, false}) {
+            ResultSet resultSet = StubResultSet.of(labels, types, rows);
+            RowBatch batch = new RowBatch(labels.length, 16);
+            batch.fill(resultSet, new RowFormatter(resultSet.getMetaData(), new LobHandler(100, null, null), true), 1);
+            assertNotNull(batch.getLargeObject(0, 2));
+            assertNotNull(batch.getLargeObject(0, 3));
+            ResultDigest streamed = new ResultDigest(ordered);
+            streamed.add(batch);
+            batch.releaseLargeObjects();
+            assertEquals(digest(labels, types, rows, ordered), streamed.toResultLine());
+        }
+    }
+
+    private static String digest(String[] labels, int[] types, List<Object[]> rows, boolean ordered) throws SQLException {
+        return ResultDigest.compute(StubResultSet.of(labels, types, rows), ordered).toResultLine();
+    }
+
+    @Test
+    void testOrderedDigestDependsOnOrder() throws SQLException {
+        List<Object[]> rows = rows();
+        List<Object[]> shuffled = new ArrayList<>(rows);
+        Collections.reverse(shuffled);
+
+        ResultDigest first = digest(rows, true);
+        assertEquals(100, first.getRowCount());
+        String hex = first.toHex();
+        assertEquals(32, hex.length());
+        assertEquals(hex, digest(rows(), true).toHex());
+        assertNotEquals(hex, digest(shuffled, true).toHex());
+    }
+
+    @Test
+    void testUnorderedDigestIgnoresOrderButCountsDuplicates() throws SQLException {
+        List<Object[]> rows = rows();
+        List<Object[]> shuffled = new ArrayList<>(rows);
+        Collections.shuffle(shuffled);
+        List<Object[]> duplicated = new ArrayList<>(rows);
+        duplicated.add(rows.get(3));
+
+        String hex = digest(rows, false).toHex();
+        assertEquals(hex, digest(shuffled, false).toHex());
+        assertNotEquals(hex, digest(duplicated, false).toHex());
+    }
+
+    @Test
+    void testNullDiffersFromEmptyAndCellBoundariesMatter() throws SQLException {
+        String nullRow = digest(Collections.singletonList(new Object[]{1, null}), true).toHex();
+        String emptyRow = digest(Collections.singletonList(new Object[]{1, ""}), true).toHex();
+        assertNotEquals(nullRow, emptyRow);
+
+        ResultSet left = StubResultSet.of(new String[]{"a", "b"}, new int[]{Types.VARCHAR, Types.VARCHAR},
+                Collections.singletonList(new Object[]{"ab", "c"}));
+        ResultSet right = StubResultSet.of(new String[]{"a", "b"}, new int[]{Types.VARCHAR, Types.VARCHAR},
+                Arrays.asList(new Object[][]{{"a", "bc"}}));
+        assertNotEquals(ResultDigest.compute(left, false).toHex(), ResultDigest.compute(right, false).toHex());
+    }
+}
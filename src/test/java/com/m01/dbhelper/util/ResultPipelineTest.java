@@ -0,0 +1,300 @@
+package com.m01.dbhelper.util;
+
+import com.m01.dbhelper.common.ExportFormat;
+import com.m01.dbhelper.common.SqlTask;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.sql.ResultSet;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ResultPipelineTest {
+
+    @TempDir
+    Path tempDir;
+
+    private List<Object[]> rows(int count) {
+        List<Object[]> rows = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            rows.add(new Object[]{(long) i, i % 7 == 0 ? null : "name " + i});
+        }
+        return rows;
+    }
+
+    private ResultSet resultSet(List<Object[]> rows) {
+        return StubResultSet.of(new String[]{"id", "name"}, new int[]{Types.BIGINT, Types.VARCHAR}, rows);
+    }
+
+    private SqlTask exportTask() {
+        SqlTask task = new SqlTask();
+        task.setTaskName("t");
+        task.setExportFormat(ExportFormat.CSV);
+        task.setExportPath(tempDir.resolve("export").toString());
+        return task;
+    }
+
+    @Test
+    void testSinksShareOneFetch() throws Exception {
+        List<Object[]> rows = rows(1000);
+        Path pipelineFile = tempDir.resolve("pipeline.txt");
+        Path directFile = tempDir.resolve("direct.txt");
+
+        try (ResultLogger logger = new ResultLogger(pipelineFile.toString())) {
+            ResultSinkContext context = new ResultSinkContext("s", exportTask(), 1, "SELECT id, name FROM t", logger, null);
+            List<ResultSink> sinks = ResultSinks.create(Arrays.asList("file", "digest", "export"));
+            assertEquals(1000, new ResultPipeline(sinks).run(resultSet(rows), context));
+        }
+        try (ResultLogger logger = new ResultLogger(directFile.toString())) {
+            logger.logResults(resultSet(rows), "s", "t", "SELECT id, name FROM t");
+            logger.log(ResultDigest.compute(resultSet(rows), true).toResultLine());
+            logger.log("Query Results - Exported 1000 rows to " + QueryResultExporter.exportFile(
+                    tempDir.resolve("export"), "s", "t", 1, ExportFormat.CSV));
+        }
+
+        assertEquals(new String(Files.readAllBytes(directFile), Charset.defaultCharset()),
+                new String(Files.readAllBytes(pipelineFile), Charset.defaultCharset()));
+        Path exported = tempDir.resolve("export").resolve("s-t-1.csv");
+        Path expected = tempDir.resolve("expected.csv");
+        QueryResultExporter.export(resultSet(rows), ExportFormat.CSV, expected);
+        assertArrayEquals(Files.readAllBytes(expected), Files.readAllBytes(exported));
+    }
+
+    @Test
+    void testFileSinkStopsWritingAtRowLimit() throws Exception {
+        Path file = tempDir.resolve("limited.txt");
+        SqlTask task = new SqlTask();
+        task.setTaskName("t");
+        task.setResultRowLimit(300);
+        try (ResultLogger logger = new ResultLogger(file.toString())) {
+            ResultSinkContext context = new ResultSinkContext("s", task, 1, "SELECT id, name FROM t", logger, null);
+            assertEquals(1000, new ResultPipeline(ResultSinks.create(Collections.singletonList("file"))).run(resultSet(rows(1000)), context));
+        }
+
+        List<String> lines = Files.readAllLines(file, Charset.defaultCharset());
+        assertTrue(lines.contains("Row 300: 299, name 299"));
+        assertFalse(lines.stream().anyMatch(line -> line.startsWith("Row 301:")));
+        assertEquals("Rows not written: 700 (resultRowLimit 300)", lines.get(lines.size() - 2));
+        assertEquals("Total rows: 1000", lines.get(lines.size() - 1));
+    }
+
+    @Test
+    void testRowsPastTheFileLimitAreOnlyCounted() throws Exception {
+        // 超出上限的行一旦被渲染就会失败
+        Object unreadable = new Object() {
+            @Override
+            public String toString() {
+                throw new IllegalStateException("row past the limit was rendered");
+            }
+        };
+        List<Object[]> rows = rows(1000);
+        for (int i = 10; i < rows.size(); i++) {
+            rows.get(i)[1] = unreadable;
+        }
+        Path file = tempDir.resolve("counted.txt");
+        SqlTask task = new SqlTask();
+        task.setTaskName("t");
+        task.setResultRowLimit(10);
+        try (ResultLogger logger = new ResultLogger(file.toString())) {
+            ResultSinkContext context = new ResultSinkContext("s", task, 1, "SELECT id, name FROM t", logger, null);
+            assertEquals(1000, new ResultPipeline(ResultSinks.create(Collections.singletonList("file"))).run(resultSet(rows), context));
+        }
+
+        List<String> lines = Files.readAllLines(file, Charset.defaultCharset());
+        assertTrue(lines.contains("Row 10: 9, name 9"));
+        assertFalse(lines.stream().anyMatch(line -> line.startsWith("Row 11:")));
+        assertEquals("Rows not written: 990 (resultRowLimit 10)", lines.get(lines.size() - 2));
+        assertEquals("Total rows: 1000", lines.get(lines.size() - 1));
+    }
+
+    @Test
+    void testOnlyReadableSinksPreviewLargeObjects() throws Exception {
+        String[] labels = {"id", "data", "doc"};
+        int[] types = {Types.BIGINT, Types.BLOB, Types.CLOB};
+        char[] text = new char[40];
+        Arrays.fill(text, 'x');
+        List<Object[]> rows = Collections.singletonList(new Object[]{1L, new byte[40], new String(text)});
+        text[39] = 'y';
+        List<Object[]> changed = Collections.singletonList(new Object[]{1L, new byte[40], new String(text)});
+        Path file = tempDir.resolve("lob.txt");
+        SqlTask task = exportTask();
+        task.setLobPreviewLimit(8);
+
+        try (ResultLogger logger = new ResultLogger(file.toString())) {
+            ResultSinkContext context = new ResultSinkContext("s", task, 1, "SELECT * FROM t", logger, null);
+            List<ResultSink> sinks = ResultSinks.create(Arrays.asList("file", "digest", "export"));
+            assertEquals(1, new ResultPipeline(sinks).run(StubResultSet.of(labels, types, rows), context));
+        }
+
+        // 结果文件只显示预览，摘要和导出使用完整值，只在预览之后不同的值也能区分
+        List<String> lines = Files.readAllLines(file, Charset.defaultCharset());
+        assertTrue(lines.contains("Row 1: 1, 0x0000000000000000...[truncated], xxxxxxxx...[truncated]"));
+        String digest = ResultDigest.compute(StubResultSet.of(labels, types, rows), true).toResultLine();
+        assertTrue(lines.contains(digest));
+        assertNotEquals(digest, ResultDigest.compute(StubResultSet.of(labels, types, changed), true).toResultLine());
+        Path expected = tempDir.resolve("expected.csv");
+        QueryResultExporter.export(StubResultSet.of(labels, types, rows), ExportFormat.CSV, expected);
+        byte[] exported = Files.readAllBytes(tempDir.resolve("export").resolve("s-t-1.csv"));
+        assertArrayEquals(Files.readAllBytes(expected), exported);
+        assertTrue(new String(exported, Charset.defaultCharset()).contains((String) rows.get(0)[2]));
+    }
+
+    @Test
+    void testLargeObjectsStreamIntoDigestAndExport() throws Exception {
+        long size = 24L << 20;
+        Supplier<InputStream> blob = () -> new InputStream() {
+            private long position;
+
+            @Override
+            public int read() {
+                return position < size ? (int) (position++ * 31 & 0xFF) : -1;
+            }
+
+            @Override
+            public int read(byte[] buffer, int offset, int length) {
+                if (position >= size) {
+                    return -1;
+                }
+                int n = (int) Math.min(length, size - position);
+                for (int i = 0; i < n; i++) {
+                    buffer[offset + i] = (byte) (position++ * 31);
+                }
+                return n;
+            }
+        };
+        String[] labels = {"id", "data"};
+        int[] types = {Types.BIGINT, Types.BLOB};
+        List<Object[]> rows = Collections.singletonList(new Object[]{1L, blob});
+        SqlTask task = exportTask();
+        task.setLobPreviewLimit(16);
+
+        // 批次中只保留预览，完整值在文件中
+        ResultSet resultSet = StubResultSet.of(labels, types, rows);
+        RowBatch batch = new RowBatch(labels.length, 1);
+        batch.fill(resultSet, new RowFormatter(resultSet.getMetaData(), new LobHandler(16, null, null), true), 1);
+        StringBuilder prefix = new StringBuilder();
+        batch.appendPrefix(0, 2, prefix);
+        assertEquals(2 + 16 * 2, prefix.length());
+        assertEquals(size, batch.getLargeObject(0, 2).getSize());
+        batch.releaseLargeObjects();
+
+        Path file = tempDir.resolve("large.txt");
+        try (ResultLogger logger = new ResultLogger(file.toString())) {
+            ResultSinkContext context = new ResultSinkContext("s", task, 1, "SELECT * FROM t", logger, null);
+            List<ResultSink> sinks = ResultSinks.create(Arrays.asList("digest", "export"));
+            assertEquals(1, new ResultPipeline(sinks).run(StubResultSet.of(labels, types, rows), context));
+        }
+
+        MessageDigest md5 = MessageDigest.getInstance("MD5");
+        md5.update(new byte[]{1, 0, 0, 0, 1, 0, '1'});
+        long textLength = 2 + size * 2;
+        md5.update(new byte[]{1, (byte) (textLength >>> 24), (byte) (textLength >>> 16), (byte) (textLength >>> 8),
+                (byte) textLength, 0, '0', 0, 'x'});
+        byte[] hex = new byte[4];
+        for (long i = 0; i < size; i++) {
+            int b = (int) (i * 31 & 0xFF);
+            hex[1] = (byte) Character.forDigit(b >> 4, 16);
+            hex[3] = (byte) Character.forDigit(b & 0xF, 16);
+            md5.update(hex);
+        }
+        md5.update((byte) 2);
+        StringBuilder expected = new StringBuilder();
+        for (byte b : md5.digest()) {
+            expected.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+        }
+        List<String> lines = Files.readAllLines(file, Charset.defaultCharset());
+        assertTrue(lines.contains("Query Results - Digest (ordered): " + expected + ", rows: 1"), lines.toString());
+
+        Path exported = tempDir.resolve("export").resolve("s-t-1.csv");
+        assertEquals("id,data\r\n".length() + "1,".length() + textLength + 2, Files.size(exported));
+        try (BufferedReader reader = Files.newBufferedReader(exported, StandardCharsets.UTF_8)) {
+            assertEquals("id,data", reader.readLine());
+            char[] head = new char[10];
+            assertEquals(10, reader.read(head));
+            assertEquals("1,0x001f3e", new String(head));
+        }
+    }
+
+    @Test
+    void testExportSinkWritesColumnarFiles() throws Exception {
+        SqlTask task = exportTask();
+        task.setExportFormat(ExportFormat.COLUMNAR);
+        Path file = tempDir.resolve("columnar.txt");
+        try (ResultLogger logger = new ResultLogger(file.toString())) {
+            ResultSinkContext context = new ResultSinkContext("s", task, 1, "SELECT id, name FROM t", logger, null);
+            List<ResultSink> sinks = ResultSinks.create(Arrays.asList("file", "export"));
+            assertEquals(100, new ResultPipeline(sinks).run(resultSet(rows(100)), context));
+        }
+
+        Path exported = tempDir.resolve("export").resolve("s-t-1.dbc");
+        assertTrue(Files.readAllLines(file, Charset.defaultCharset()).contains("Query Results - Exported 100 rows to " + exported));
+        try (ColumnarResultReader reader = new ColumnarResultReader(exported)) {
+            assertEquals("name 99", reader.readColumn(0, 1).getString(99));
+        }
+    }
+
+    @Test
+    void testFailingSinkDoesNotStopTheOthers() throws Exception {
+        Path file = tempDir.resolve("result.txt");
+        ResultSink failing = new ResultSink() {
+            @Override
+            public String getName() {
+                return "failing";
+            }
+
+            @Override
+            public void start(ResultSinkContext context, ResultColumns columns) {
+            }
+
+            @Override
+            public void accept(RowBatch batch) throws IOException {
+                throw new IOException("disk full");
+            }
+
+            @Override
+            public void finish(long rowCount) {
+                fail("finish called on a failed sink");
+            }
+        };
+
+        IOException error;
+        try (ResultLogger logger = new ResultLogger(file.toString())) {
+            ResultSinkContext context = new ResultSinkContext("s", exportTask(), 2, "SELECT id, name FROM t", logger, null);
+            error = assertThrows(IOException.class, () ->
+                    new ResultPipeline(Arrays.asList(failing, ResultSinks.create("unordered-digest"))).run(resultSet(rows(600)), context));
+        }
+
+        assertEquals("Result sink failing failed: disk full", error.getMessage());
+        String content = new String(Files.readAllBytes(file), Charset.defaultCharset());
+        assertTrue(content.contains(ResultDigest.compute(resultSet(rows(600)), false).toResultLine()));
+    }
+
+    @Test
+    void testUnknownSinkIsRejected() {
+        IOException error = assertThrows(IOException.class, () -> ResultSinks.create(Collections.singletonList("nope")));
+        assertEquals("Unknown result sink: nope", error.getMessage());
+        assertTrue(ResultSinks.names().containsAll(Arrays.asList("file", "digest", "unordered-digest", "export", "binary")));
+    }
+
+    @Test
+    void testEverySinkLookupCreatesANewInstance() throws IOException {
+        ResultSink first = ResultSinks.create("digest");
+        ResultSink second = ResultSinks.create("digest");
+        assertNotSame(first, second);
+        assertEquals(DigestResultSink.class, second.getClass());
+    }
+}
@@ -0,0 +1,152 @@
+package com.m01.dbhelper.util;
+
+import com.m01.dbhelper.common.ResultCompression;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ResultSegmentsTest {
+
+    @TempDir
+    Path tempDir;
+
+    private List<String> readAll(Path resultFile) throws IOException {
+        List<String> lines = new ArrayList<>();
+        try (BufferedReader reader = ResultSegments.openReader(resultFile, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                lines.add(line);
+            }
+        }
+        return lines;
+    }
+
+    private void writeLines(Path resultFile, ResultRotation rotation, int from, int to) throws IOException {
+        try (AsyncResultWriter writer = new AsyncResultWriter(resultFile, StandardCharsets.UTF_8, 16, rotation)) {
+            for (int i = from; i < to; i++) {
+                writer.writeLine("line " + i);
+                if (i % 100 == 0) {
+                    writer.flush();
+                }
+            }
+        }
+    }
+
+    @Test
+    void testSizeRotationKeepsAllLinesInOrder() throws IOException {
+        Path resultFile = tempDir.resolve("result.txt");
+        ResultRotation rotation = new ResultRotation(1000, 0, ResultCompression.NONE);
+
+        writeLines(resultFile, rotation, 0, 500);
+        writeLines(resultFile, rotation, 500, 1000);
+
+        List<Path> rotated = ResultSegments.rotatedSegments(resultFile);
+        assertTrue(rotated.size() > 5);
+        assertEquals(tempDir.resolve("result.txt.000001"), rotated.get(0));
+        for (Path segment : rotated) {
+            assertTrue(Files.size(segment) <= 1000 + 20, segment + " is too large");
+        }
+
+        List<String> lines = readAll(resultFile);
+        assertEquals(1000, lines.size());
+        for (int i = 0; i < lines.size(); i++) {
+            assertEquals("line " + i, lines.get(i));
+        }
+    }
+
+    @Test
+    void testGzipSegmentsAreReadTransparently() throws IOException {
+        Path resultFile = tempDir.resolve("result.txt");
+        ResultRotation rotation = new ResultRotation(2000, 0, ResultCompression.GZIP);
+
+        writeLines(resultFile, rotation, 0, 3000);
+        // 再次打开时追加新的 gzip member
+        writeLines(resultFile, rotation, 3000, 3010);
+
+        assertTrue(Files.exists(tempDir.resolve("result.txt.gz")));
+        assertFalse(Files.exists(resultFile));
+        assertTrue(ResultSegments.rotatedSegments(resultFile).get(0).getFileName().toString().endsWith(".000001.gz"));
+
+        List<String> lines = readAll(resultFile);
+        assertEquals(3010, lines.size());
+        assertEquals("line 0", lines.get(0));
+        assertEquals("line 3009", lines.get(3009));
+    }
+
+    @Test
+    void testNoRotationWritesSingleFile() throws IOException {
+        Path resultFile = tempDir.resolve("plain.txt");
+
+        writeLines(resultFile, ResultRotation.none(), 0, 10);
+
+        assertTrue(ResultSegments.rotatedSegments(resultFile).isEmpty());
+        assertEquals(10, readAll(resultFile).size());
+    }
+
+    @Test
+    void testMergeSegmentsAppendsInGivenOrder() throws IOException {
+        for (ResultCompression compression : ResultCompression.values()) {
+            Path resultFile = tempDir.resolve("merged-" + compression + ".txt");
+            try (ResultLogger logger = new ResultLogger(resultFile.toString(), new ResultRotation(0, 0, compression))) {
+                logger.log("head");
+                ResultLogger first = logger.newSegment(0);
+                ResultLogger second = logger.newSegment(1);
+                second.log("second 1");
+                first.log("first 1");
+                second.log("second 2");
+                logger.mergeSegments(Arrays.asList(first, second));
+                logger.log("tail");
+            }
+
+            assertEquals(Arrays.asList("head", "first 1", "second 1", "second 2", "tail"), readAll(resultFile), compression.name());
+            try (Stream<Path> files = Files.list(tempDir)) {
+                assertEquals(0, files.filter(p -> p.getFileName().toString().contains(".part")).count());
+            }
+        }
+    }
+
+    @Test
+    void testMergeSegmentsRotatesAtTheSizeLimit() throws IOException {
+        for (ResultCompression compression : ResultCompression.values()) {
+            Path resultFile = tempDir.resolve("limited-" + compression + ".txt");
+            List<String> expected = new ArrayList<>();
+            try (ResultLogger logger = new ResultLogger(resultFile.toString(), new ResultRotation(200, 0, compression))) {
+                logger.log("head");
+                expected.add("head");
+                List<ResultLogger> segments = new ArrayList<>();
+                for (int s = 0; s < 3; s++) {
+                    ResultLogger segment = logger.newSegment(s);
+                    for (int i = 0; i < 40; i++) {
+                        segment.log("segment " + s + " line " + i);
+                        expected.add("segment " + s + " line " + i);
+                    }
+                    segments.add(segment);
+                }
+                logger.mergeSegments(segments);
+            }
+
+            assertEquals(expected, readAll(resultFile), compression.name());
+            List<Path> rotated = ResultSegments.rotatedSegments(resultFile);
+            assertTrue(rotated.size() >= (compression == ResultCompression.NONE ? 10 : 2), compression.name());
+            if (compression == ResultCompression.NONE) {
+                // 未压缩的分段在行边界处拆开，每个文件都不超过上限
+                for (Path segment : ResultSegments.allSegments(resultFile)) {
+                    assertTrue(Files.size(segment) <= 200, segment + " is too large");
+                    byte[] bytes = Files.readAllBytes(segment);
+                    assertEquals('\n', bytes[bytes.length - 1], segment + " does not end at a line");
+                }
+            }
+        }
+    }
+}
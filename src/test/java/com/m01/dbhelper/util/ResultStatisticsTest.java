@@ -0,0 +1,74 @@
+package com.m01.dbhelper.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ResultStatisticsTest {
+
+    private static final String[] LABELS = {"id", "score", "name"};
+    private static final int[] TYPES = {Types.BIGINT, Types.DOUBLE, Types.VARCHAR};
+
+    @Test
+    void testColumnStatistics() throws SQLException {
+        List<Object[]> rows = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            rows.add(new Object[]{(long) i, i % 10 == 0 ? null : i / 2.0, "name-" + (i % 50)});
+        }
+        ResultStatistics statistics = ResultStatistics.compute(StubResultSet.of(LABELS, TYPES, rows));
+        assertEquals(1000, statistics.getRowCount());
+
+        ColumnStatistics id = statistics.getColumn(1);
+        assertEquals(1000, id.getCount());
+        assertEquals(0, id.getNullCount());
+        assertEquals("0", id.getMin());
+        assertEquals("999", id.getMax());
+        assertEquals("499500", id.getSum());
+        assertEquals(1000, id.getDistinctEstimate(), 20);
+
+        ColumnStatistics score = statistics.getColumn(2);
+        assertEquals(900, score.getCount());
+        assertEquals(100, score.getNullCount());
+        assertEquals("0.5", score.getMin());
+        assertEquals("499.5", score.getMax());
+
+        ColumnStatistics name = statistics.getColumn(3);
+        assertEquals("name-0", name.getMin());
+        assertEquals("name-9", name.getMax());
+        assertNull(name.getSum());
+        assertEquals(50, name.getDistinctEstimate(), 2);
+
+        List<String> lines = statistics.toResultLines();
+        assertEquals("Query Results - Statistics: 1000 rows, 3 columns", lines.get(0));
+        assertEquals("Column: id, type: integral, count: 1000, nulls: 0, distinct: ~"
+                + id.getDistinctEstimate() + ", min: 0, max: 999, sum: 499500", lines.get(1));
+    }
+
+    @Test
+    void testIntegralSumOverflowFallsBackToDouble() {
+        ColumnStatistics column = new ColumnStatistics("big", true, false);
+        column.addLong(Long.MAX_VALUE);
+        column.addLong(Long.MAX_VALUE);
+        column.addNull();
+        assertEquals(String.valueOf(2.0 * Long.MAX_VALUE), column.getSum());
+        assertEquals(1, column.getNullCount());
+        assertEquals(1, column.getDistinctEstimate());
+    }
+
+    @Test
+    void testHyperLogLogAccuracy() {
+        HyperLogLog first = new HyperLogLog();
+        HyperLogLog second = new HyperLogLog();
+        for (long i = 0; i < 200_000; i++) {
+            (i % 2 == 0 ? first : second).add(Murmur3.fmix64(i));
+        }
+        assertEquals(100_000, first.estimate(), 100_000 * 0.03);
+        first.merge(second);
+        assertEquals(200_000, first.estimate(), 200_000 * 0.03);
+    }
+}
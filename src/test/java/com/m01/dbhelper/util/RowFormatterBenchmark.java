@@ -0,0 +1,117 @@
+package com.m01.dbhelper.util;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the previous getString/concatenation row rendering with {@link RowFormatter}
+ * on a wide table of mixed column types.
+ * <p>
+ * Run with {@code mvn test-compile exec:java -Dexec.classpathScope=test
+ * -Dexec.mainClass=com.m01.dbhelper.util.RowFormatterBenchmark}, adding {@code -prof gc}
+ * through the JMH command line shows the allocation rate per row.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RowFormatterBenchmark {
+    private static final int ROWS = 1000;
+    private static final int COLUMN_GROUPS = 8;
+
+    private List<Object[]> rows;
+    private String[] labels;
+    private int[] types;
+    private ResultSet resultSet;
+
+    @Setup(Level.Trial)
+    public void createRows() {
+        labels = new String[COLUMN_GROUPS * 4];
+        types = new int[COLUMN_GROUPS * 4];
+        for (int g = 0; g < COLUMN_GROUPS; g++) {
+            labels[g * 4] = "id" + g;
+            types[g * 4] = Types.BIGINT;
+            labels[g * 4 + 1] = "amount" + g;
+            types[g * 4 + 1] = Types.DOUBLE;
+            labels[g * 4 + 2] = "name" + g;
+            types[g * 4 + 2] = Types.VARCHAR;
+            labels[g * 4 + 3] = "hash" + g;
+            types[g * 4 + 3] = Types.VARBINARY;
+        }
+        rows = new ArrayList<>(ROWS);
+        for (int r = 0; r < ROWS; r++) {
+            Object[] row = new Object[labels.length];
+            for (int g = 0; g < COLUMN_GROUPS; g++) {
+                row[g * 4] = (long) r * 7919 + g;
+                row[g * 4 + 1] = r * 1.25 + g;
+                row[g * 4 + 2] = "name-" + r;
+                row[g * 4 + 3] = new byte[]{(byte) r, (byte) g, 1, 2, 3, 4, 5, 6};
+            }
+            rows.add(row);
+        }
+    }
+
+    @Setup(Level.Invocation)
+    public void openResultSet() {
+        resultSet = StubResultSet.of(labels, types, rows);
+    }
+
+    @Benchmark
+    public void getStringConcatenation(Blackhole blackhole) throws SQLException {
+        ResultSetMetaData metaData = resultSet.getMetaData();
+        int columnCount = metaData.getColumnCount();
+        int rowCount = 0;
+        while (resultSet.next()) {
+            rowCount++;
+            StringBuilder row = new StringBuilder("Row " + rowCount + ": ");
+            for (int i = 1; i <= columnCount; i++) {
+                row.append(resultSet.getString(i));
+                if (i < columnCount) {
+                    row.append(", ");
+                }
+            }
+            blackhole.consume(row.toString());
+        }
+    }
+
+    @Benchmark
+    public void typedRowFormatter(Blackhole blackhole) throws SQLException {
+        RowFormatter formatter = new RowFormatter(resultSet.getMetaData());
+        StringBuilder row = new StringBuilder(256);
+        int rowCount = 0;
+        while (resultSet.next()) {
+            rowCount++;
+            row.setLength(0);
+            row.append("Row ").append(rowCount).append(": ");
+            formatter.appendRow(resultSet, row, ", ");
+            blackhole.consume(row.toString());
+        }
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(RowFormatterBenchmark.class.getSimpleName()).build()).run();
+    }
+}
@@ -0,0 +1,85 @@
+package com.m01.dbhelper.util;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.file.Path;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RowFormatterTest {
+
+    private static final String[] LABELS = {"tiny", "big", "unsigned_big", "real", "float", "double",
+            "decimal", "flag", "bytes", "text", "empty"};
+    private static final int[] TYPES = {Types.TINYINT, Types.BIGINT, Types.BIGINT, Types.REAL, Types.FLOAT,
+            Types.DOUBLE, Types.DECIMAL, Types.BOOLEAN, Types.VARBINARY, Types.VARCHAR, Types.INTEGER};
+    private static final boolean[] UNSIGNED = {false, false, true, false, false, false, false, false, false, false, false};
+
+    @TempDir
+    Path tempDir;
+
+    private static ResultSet resultSet() {
+        return StubResultSet.of(LABELS, TYPES, UNSIGNED, Collections.singletonList(new Object[]{
+                (byte) -7, Long.MIN_VALUE, new BigInteger("18446744073709551615"), 0.1f, 0.1d, 2.5d,
+                new BigDecimal("12.340"), true, new byte[]{0x0A, (byte) 0xFF}, "a|b", null}));
+    }
+
+    @Test
+    void testRendersEachType() throws SQLException {
+        ResultSet resultSet = resultSet();
+        RowFormatter formatter = new RowFormatter(resultSet.getMetaData());
+        StringBuilder row = new StringBuilder();
+        assertTrue(resultSet.next());
+        formatter.appendRow(resultSet, row, " | ");
+        assertEquals("-7 | -9223372036854775808 | 18446744073709551615 | 0.1 | 0.1 | 2.5 | 12.340 | true"
+                + " | 0x0aff | a|b | null", row.toString());
+        assertEquals(RowFormatter.KIND_LONG, formatter.kindOf(2));
+        assertEquals(RowFormatter.KIND_STRING, formatter.kindOf(3));
+        assertEquals(RowFormatter.KIND_FLOAT, formatter.kindOf(4));
+        assertEquals(RowFormatter.KIND_DOUBLE, formatter.kindOf(5));
+    }
+
+    @Test
+    void testBatchKeepsSinglePrecisionAndUnsignedValues() throws SQLException {
+        ResultSet resultSet = resultSet();
+        ResultColumns columns = new ResultColumns(resultSet.getMetaData());
+        RowBatch batch = new RowBatch(LABELS.length, 16);
+        assertEquals(1, batch.fill(resultSet, new RowFormatter(resultSet.getMetaData()), 1));
+
+        assertTrue(columns.isIntegral(2));
+        assertFalse(columns.isIntegral(3));
+        assertEquals("18446744073709551615", batch.getString(0, 3));
+        assertTrue(columns.isFloatingPoint(4));
+        assertTrue(columns.isSinglePrecision(4));
+        assertFalse(columns.isSinglePrecision(5));
+        assertEquals("0.1", batch.getString(0, 4));
+        assertEquals(0.1f, (float) batch.getDouble(0, 4));
+        assertTrue(batch.isNull(0, 11));
+    }
+
+    @Test
+    void testColumnarFileKeepsRenderedValues() throws Exception {
+        Path file = tempDir.resolve("types.dbc");
+        assertEquals(1, ColumnarResultWriter.export(resultSet(), file));
+        try (ColumnarResultReader reader = new ColumnarResultReader(file)) {
+            List<String> cells = new ArrayList<>();
+            for (int c = 0; c < LABELS.length; c++) {
+                cells.add(reader.readColumn(0, c).getString(0));
+            }
+            assertEquals(Arrays.asList("-7", "-9223372036854775808", "18446744073709551615", "0.1", "0.1", "2.5",
+                    "12.340", "true", "0x0aff", "a|b", null), cells);
+            assertTrue(reader.readColumn(0, 3).isSinglePrecision());
+            assertEquals("0.1", reader.getMin(0, 3));
+            assertFalse(reader.readColumn(0, 2).isIntegral());
+        }
+    }
+}
@@ -0,0 +1,304 @@
+package com.m01.dbhelper.util;
+
+import com.m01.dbhelper.common.DbType;
+import com.m01.dbhelper.common.ResultVerbosity;
+import com.m01.dbhelper.common.SqlSchedule;
+import com.m01.dbhelper.common.SqlTask;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.lang.reflect.Proxy;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.Driver;
+import java.sql.DriverManager;
+import java.sql.DriverPropertyInfo;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.logging.Logger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SqlExecutorTest {
+
+    @TempDir
+    Path tempDir;
+
+    /**
+     * Builds a schedule whose last statement is invalid, so that the "stop" policy
+     * ends it during validation without needing a database
+     */
+    private SqlSchedule invalidSchedule(String name, Path resultFile) {
+        SqlTask task = new SqlTask();
+        task.setTaskName(name + "-task");
+        List<String> sqlList = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            sqlList.add("SELECT " + i + " FROM dual_" + name);
+        }
+        sqlList.add("SELECT FROM WHERE");
+        task.setSqlList(sqlList);
+
+        SqlSchedule schedule = new SqlSchedule();
+        schedule.setScheduleName(name);
+        schedule.setPolicyWhenError("stop");
+        schedule.setDbType(DbType.MYSQL);
+        schedule.setResultFilePath(resultFile.toString());
+        schedule.setTaskList(Collections.singletonList(task));
+        return schedule;
+    }
+
+    @Test
+    void testValidationFailureStopsBeforeConnecting() throws Exception {
+        Path resultFile = tempDir.resolve("result.txt");
+
+        assertFalse(SqlExecutor.executeSchedule(invalidSchedule("single", resultFile)));
+
+        String content = new String(Files.readAllBytes(resultFile), Charset.defaultCharset());
+        assertTrue(content.startsWith("SQL Execution Results - "));
+        assertTrue(content.contains("single-single-task-SELECT FROM WHERE" + System.lineSeparator() + "parse fail: Invalid SQL syntax"));
+        assertTrue(content.contains("Schedule: single - Execution stopped due to validation failures"));
+        assertFalse(content.contains("Connecting to database"));
+    }
+
+    @Test
+    void testConcurrentSchedulesWriteToTheirOwnFiles() throws Exception {
+        List<String> names = Arrays.asList("alpha", "beta", "gamma", "delta");
+        ExecutorService pool = Executors.newFixedThreadPool(names.size());
+        try {
+            List<Future<Boolean>> results = new ArrayList<>();
+            for (String name : names) {
+                SqlSchedule schedule = invalidSchedule(name, tempDir.resolve(name + ".txt"));
+                results.add(pool.submit(() -> new SqlExecutor(schedule).execute()));
+            }
+            for (Future<Boolean> result : results) {
+                assertFalse(result.get());
+            }
+        } finally {
+            pool.shutdown();
+        }
+
+        for (String name : names) {
+            String content = new String(Files.readAllBytes(tempDir.resolve(name + ".txt")), Charset.defaultCharset());
+            for (String other : names) {
+                assertEquals(name.equals(other), content.contains("Schedule: " + other + " - "), name + " contains " + other);
+            }
+            assertTrue(content.contains("SELECT 49 FROM dual_" + name));
+        }
+    }
+
+    @Test
+    void testEventLogRecordsValidationTimings() throws Exception {
+        Path eventLog = tempDir.resolve("events.jsonl");
+        SqlSchedule schedule = invalidSchedule("events", tempDir.resolve("result.txt"));
+        schedule.setEventLogPath(eventLog.toString());
+
+        assertFalse(new SqlExecutor(schedule).execute());
+
+        List<String> lines = Files.readAllLines(eventLog);
+        assertEquals(2 + 51 + 2, lines.size());
+        assertTrue(lines.get(0).contains("\"event\":\"schedule_start\",\"schedule\":\"events\""));
+        assertTrue(lines.get(1).contains("\"event\":\"task_start\"") && lines.get(1).contains("\"phase\":\"validate\""));
+        assertTrue(lines.get(2).contains("\"statement\":1,\"sql\":\"SELECT 0 FROM dual_events\",\"parseMicros\":"));
+        assertTrue(lines.get(2).endsWith("\"valid\":true}"));
+        assertTrue(lines.get(52).contains("\"statement\":51,\"sql\":\"SELECT FROM WHERE\""));
+        assertTrue(lines.get(52).endsWith("\"valid\":false}"));
+        assertTrue(lines.get(53).contains("\"event\":\"task_end\"") && lines.get(53).endsWith("\"statements\":0,\"success\":false}"));
+        assertTrue(lines.get(54).contains("\"event\":\"schedule_end\"") && lines.get(54).endsWith("\"success\":false}"));
+    }
+
+    @Test
+    void testErrorsVerbosityWritesOnlyFailuresAndCounters() throws Exception {
+        Path resultFile = tempDir.resolve("errors.txt");
+        SqlSchedule schedule = invalidSchedule("quiet", resultFile);
+        schedule.setResultVerbosity(ResultVerbosity.ERRORS);
+
+        assertFalse(new SqlExecutor(schedule).execute());
+
+        String content = new String(Files.readAllBytes(resultFile), Charset.defaultCharset());
+        assertFalse(content.contains("parse success"));
+        assertFalse(content.contains("SELECT 0 FROM dual_quiet"));
+        assertTrue(content.contains("quiet-quiet-task-SELECT FROM WHERE" + System.lineSeparator() + "parse fail: Invalid SQL syntax"));
+        assertTrue(content.contains("Schedule: quiet - Summary: valid: 50, invalid: 1, succeeded: 0, failed: 0"));
+    }
+
+    @Test
+    void testPipelinedExecutionStopsBeforeInvalidStatement() throws Exception {
+        Path script = tempDir.resolve("script.sql");
+        Files.write(script, "INSERT INTO t VALUES (2);\nUPDATE t SET a = 3;\nSELECT FROM WHERE;\nINSERT INTO t VALUES (4);"
+                .getBytes(StandardCharsets.UTF_8));
+        List<String> log = new CopyOnWriteArrayList<>();
+        SqlSchedule schedule = pipelinedSchedule("pipe", "stop", log,
+                Arrays.asList("INSERT INTO t VALUES (1)", script.toString(), "INSERT INTO t VALUES (5)"));
+
+        assertFalse(new SqlExecutor(schedule).execute());
+
+        // 非法语句之前的语句已执行并随任务回滚，之后的语句没有执行
+        assertEquals(Arrays.asList("connect", "INSERT INTO t VALUES (1)", "INSERT INTO t VALUES (2)", "UPDATE t SET a = 3",
+                "rollback", "close"), log);
+        String content = new String(Files.readAllBytes(tempDir.resolve("pipe.txt")), Charset.defaultCharset());
+        assertTrue(content.contains("pipe-pipe-task-SELECT FROM WHERE" + System.lineSeparator() + "parse fail: Invalid SQL syntax"));
+        assertTrue(content.contains("Schedule: pipe - Execution stopped due to validation failures"));
+    }
+
+    @Test
+    void testPipelinedExecutionSkipsInvalidStatementsUnderContinue() throws Exception {
+        List<String> sqlList = new ArrayList<>();
+        for (int i = 0; i < 40; i++) {
+            sqlList.add(i == 7 ? "SELECT FROM WHERE" : "DELETE FROM t WHERE id = " + i);
+        }
+        List<String> log = new CopyOnWriteArrayList<>();
+        SqlSchedule schedule = pipelinedSchedule("flow", "continue", log, sqlList);
+        schedule.setPipelineQueueSize(4);
+
+        assertTrue(new SqlExecutor(schedule).execute());
+
+        assertEquals(1 + 39 + 2, log.size());
+        assertEquals("DELETE FROM t WHERE id = 8", log.get(8));
+        assertEquals(Arrays.asList("commit", "close"), log.subList(40, 42));
+    }
+
+    @Test
+    void testParseAndExecuteEventsShareStatementOrdinals() throws Exception {
+        for (boolean pipelined : new boolean[]{false, true}) {
+            String name = pipelined ? "joined-pipe" : "joined";
+            Path eventLog = tempDir.resolve(name + ".jsonl");
+            SqlSchedule schedule = pipelinedSchedule(name, "continue", new CopyOnWriteArrayList<>(),
+                    Arrays.asList("DELETE FROM t WHERE id = 1", "SELECT FROM WHERE", "DELETE FROM t WHERE id = 3"));
+            schedule.setPipelinedExecution(pipelined);
+            schedule.setEventLogPath(eventLog.toString());
+
+            assertTrue(new SqlExecutor(schedule).execute());
+
+            List<String> parsed = new ArrayList<>();
+            List<String> executed = new ArrayList<>();
+            for (String line : Files.readAllLines(eventLog)) {
+                String statement = line.replaceAll(".*(\"statement\":\\d+,\"sql\":\"[^\"]*\").*", "$1");
+                if (line.contains("\"event\":\"statement_parse\"")) {
+                    parsed.add(statement);
+                } else if (line.contains("\"event\":\"statement_execute\"")) {
+                    executed.add(statement);
+                }
+            }
+            // 跳过的无效语句之后，两个阶段的事件仍按同一序号对应
+            assertEquals(Arrays.asList("\"statement\":1,\"sql\":\"DELETE FROM t WHERE id = 1\"",
+                    "\"statement\":2,\"sql\":\"SELECT FROM WHERE\"",
+                    "\"statement\":3,\"sql\":\"DELETE FROM t WHERE id = 3\""), parsed, name);
+            assertEquals(Arrays.asList(parsed.get(0), parsed.get(2)), executed, name);
+        }
+    }
+
+    private SqlSchedule pipelinedSchedule(String name, String policy, List<String> log, List<String> sqlList)
+            throws SQLException {
+        RecordingDriver.register(name, log);
+        SqlTask task = new SqlTask();
+        task.setTaskName(name + "-task");
+        task.setSqlList(sqlList);
+
+        SqlSchedule schedule = new SqlSchedule();
+        schedule.setScheduleName(name);
+        schedule.setPolicyWhenError(policy);
+        schedule.setDbType(DbType.POSTGRESQL);
+        schedule.setDbUrl("jdbc:recording:" + name);
+        schedule.setResultFilePath(tempDir.resolve(name + ".txt").toString());
+        schedule.setPipelinedExecution(true);
+        schedule.setTaskList(Collections.singletonList(task));
+        return schedule;
+    }
+
+    /**
+     * A JDBC driver whose connections record the statements they execute and how they end
+     */
+    private static final class RecordingDriver implements Driver {
+        private final String url;
+        private final List<String> log;
+
+        private RecordingDriver(String url, List<String> log) {
+            this.url = url;
+            this.log = log;
+        }
+
+        static void register(String name, List<String> log) throws SQLException {
+            DriverManager.registerDriver(new RecordingDriver("jdbc:recording:" + name, log));
+        }
+
+        @Override
+        public Connection connect(String url, Properties info) {
+            if (!acceptsURL(url)) {
+                return null;
+            }
+            log.add("connect");
+            Statement statement = (Statement) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[]{Statement.class},
+                    (proxy, method, args) -> {
+                        switch (method.getName()) {
+                            case "executeUpdate":
+                                log.add((String) args[0]);
+                                return 1;
+                            case "execute":
+                                log.add((String) args[0]);
+                                return false;
+                            case "getUpdateCount":
+                                return 1;
+                            default:
+                                return null;
+                        }
+                    });
+            return (Connection) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[]{Connection.class},
+                    (proxy, method, args) -> {
+                        switch (method.getName()) {
+                            case "createStatement":
+                                return statement;
+                            case "commit":
+                            case "rollback":
+                            case "close":
+                                log.add(method.getName());
+                                return null;
+                            default:
+                                return null;
+                        }
+                    });
+        }
+
+        @Override
+        public boolean acceptsURL(String url) {
+            return this.url.equals(url);
+        }
+
+        @Override
+        public DriverPropertyInfo[] getPropertyInfo(String url, Properties info) {
+            return new DriverPropertyInfo[0];
+        }
+
+        @Override
+        public int getMajorVersion() {
+            return 1;
+        }
+
+        @Override
+        public int getMinorVersion() {
+            return 0;
+        }
+
+        @Override
+        public boolean jdbcCompliant() {
+            return false;
+        }
+
+        @Override
+        public Logger getParentLogger() throws SQLFeatureNotSupportedException {
+            throw new SQLFeatureNotSupportedException();
+        }
+    }
+}
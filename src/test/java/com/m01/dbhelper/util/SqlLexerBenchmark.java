@@ -0,0 +1,171 @@
+package com.m01.dbhelper.util;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+/**
+ * Compares the previous removeComments + splitBySemicolon + keyword regex pipeline with
+ * {@link SqlLexer} on a 1 MiB script of commented INSERT and SELECT statements. The script is
+ * ASCII, so one operation per second is one MiB per second.
+ * <p>
+ * Run with {@code mvn test-compile exec:java -Dexec.classpathScope=test
+ * -Dexec.mainClass=com.m01.dbhelper.util.SqlLexerBenchmark}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SqlLexerBenchmark {
+    private static final int SCRIPT_BYTES = 1 << 20;
+    private static final Pattern SQL_KEYWORDS = Pattern.compile(
+            "(?i)^\\s*(SELECT|INSERT|UPDATE|DELETE|CREATE|DROP|ALTER|TRUNCATE|MERGE|WITH|BEGIN|CALL|DECLARE)\\b");
+
+    private String script;
+
+    @Setup(Level.Trial)
+    public void createScript() {
+        StringBuilder builder = new StringBuilder(SCRIPT_BYTES + 256);
+        for (int i = 0; builder.length() < SCRIPT_BYTES; i++) {
+            builder.append("-- row ").append(i).append('\n');
+            if (i % 4 == 0) {
+                builder.append("SELECT id, name /* columns */ FROM users WHERE note = 'a;b -- c' AND id = ")
+                        .append(i).append(";\n");
+            } else {
+                builder.append("INSERT INTO users (id, name, note) VALUES (").append(i)
+                        .append(", 'name ").append(i).append("', 'it''s \"quoted\"');\n");
+            }
+        }
+        builder.setLength(SCRIPT_BYTES);
+        script = builder.toString();
+    }
+
+    @Benchmark
+    public void previousStripSplitAndMatch(Blackhole blackhole) {
+        for (String sql : splitBySemicolon(removeComments(script))) {
+            blackhole.consume(SQL_KEYWORDS.matcher(sql).lookingAt());
+        }
+    }
+
+    @Benchmark
+    public void lexerSplitAndClassify(Blackhole blackhole) {
+        for (String sql : SqlLexer.split(script, null)) {
+            blackhole.consume(SqlLexer.leadingKeyword(sql));
+        }
+    }
+
+    @Benchmark
+    public void lexerStatementsKeepingComments(Blackhole blackhole) {
+        SqlLexer lexer = new SqlLexer(Dialects.of(null), true);
+        SqlLexer.TextInput input = new SqlLexer.TextInput(script);
+        while (lexer.next(input)) {
+            blackhole.consume(lexer.getStatement());
+            blackhole.consume(lexer.getKeyword());
+        }
+    }
+
+    private static String removeComments(String sql) {
+        StringBuilder result = new StringBuilder();
+        boolean inLineComment = false;
+        boolean inBlockComment = false;
+        boolean inString = false;
+        char stringChar = 0;
+        for (int i = 0; i < sql.length(); i++) {
+            char c = sql.charAt(i);
+            char nextChar = (i < sql.length() - 1) ? sql.charAt(i + 1) : 0;
+            if (!inLineComment && !inBlockComment) {
+                if (!inString && (c == '\'' || c == '"')) {
+                    inString = true;
+                    stringChar = c;
+                    result.append(c);
+                    continue;
+                } else if (inString && c == stringChar && (i == 0 || sql.charAt(i - 1) != '\\')) {
+                    inString = false;
+                    result.append(c);
+                    continue;
+                }
+            }
+            if (inString) {
+                result.append(c);
+                continue;
+            }
+            if (!inBlockComment && !inLineComment && c == '-' && nextChar == '-') {
+                inLineComment = true;
+                i++;
+                continue;
+            }
+            if (!inLineComment && !inBlockComment && c == '/' && nextChar == '*') {
+                inBlockComment = true;
+                i++;
+                continue;
+            }
+            if (inLineComment && (c == '\n' || c == '\r')) {
+                inLineComment = false;
+                result.append(c);
+                continue;
+            }
+            if (inBlockComment && c == '*' && nextChar == '/') {
+                inBlockComment = false;
+                i++;
+                continue;
+            }
+            if (!inLineComment && !inBlockComment) {
+                result.append(c);
+            }
+        }
+        return result.toString();
+    }
+
+    private static List<String> splitBySemicolon(String sqlText) {
+        List<String> result = new ArrayList<>();
+        StringBuilder currentSql = new StringBuilder();
+        boolean inString = false;
+        char stringChar = 0;
+        for (int i = 0; i < sqlText.length(); i++) {
+            char c = sqlText.charAt(i);
+            if (!inString && (c == '\'' || c == '"')) {
+                inString = true;
+                stringChar = c;
+            } else if (inString && c == stringChar && (i == 0 || sqlText.charAt(i - 1) != '\\')) {
+                inString = false;
+            }
+            if (c == ';' && !inString) {
+                String sql = currentSql.toString().trim();
+                if (!sql.isEmpty()) {
+                    result.add(sql);
+                }
+                currentSql = new StringBuilder();
+            } else {
+                currentSql.append(c);
+            }
+        }
+        String lastSql = currentSql.toString().trim();
+        if (!lastSql.isEmpty()) {
+            result.add(lastSql);
+        }
+        return result;
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(SqlLexerBenchmark.class.getSimpleName()).build()).run();
+    }
+}
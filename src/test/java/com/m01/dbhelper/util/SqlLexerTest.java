@@ -0,0 +1,74 @@
+package com.m01.dbhelper.util;
+
+import com.m01.dbhelper.common.DbType;
+import com.m01.dbhelper.common.StatementKind;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SqlLexerTest {
+
+    @Test
+    void testPostgreSqlDollarQuotesAndNestedComments() {
+        String script = "CREATE FUNCTION f() RETURNS int AS $body$ BEGIN RETURN 1; END; $body$ LANGUAGE plpgsql;\n"
+                + "/* outer /* inner; */ still comment; */ SELECT $$a;b$$, $1, 'it''s;' FROM t;\n"
+                + "SELECT \"col;\" FROM t";
+        List<ParsedStatement> statements = SqlLexer.statements(script, null, DbType.POSTGRESQL);
+
+        assertEquals(3, statements.size());
+        assertEquals("CREATE FUNCTION f() RETURNS int AS $body$ BEGIN RETURN 1; END; $body$ LANGUAGE plpgsql",
+                statements.get(0).getSql());
+        assertEquals("SELECT $$a;b$$, $1, 'it''s;' FROM t", statements.get(1).getSql());
+        assertEquals("SELECT \"col;\" FROM t", statements.get(2).getSql());
+        for (ParsedStatement statement : statements) {
+            assertEquals(script.indexOf(statement.getSql()), statement.getOffset());
+        }
+    }
+
+    @Test
+    void testMySqlDelimiterBackticksAndHashComments() {
+        String script = "# setup; script\n"
+                + "SELECT `a;b`, 'x\\';y' FROM t;\n"
+                + "DELIMITER $$\n"
+                + "CREATE PROCEDURE p() BEGIN SELECT 1; SELECT 2; END$$\n"
+                + "DELIMITER ;\n"
+                + "CALL p();";
+
+        assertEquals(Arrays.asList("SELECT `a;b`, 'x\\';y' FROM t",
+                "CREATE PROCEDURE p() BEGIN SELECT 1; SELECT 2; END",
+                "CALL p()"), SqlLexer.split(script, DbType.MYSQL));
+    }
+
+    @Test
+    void testSqliteBracketIdentifiers() {
+        assertEquals(Arrays.asList("SELECT [a;b] FROM t", "SELECT 'x\\'", "SELECT 2"),
+                SqlLexer.split("SELECT [a;b] FROM t; SELECT 'x\\'; SELECT 2", DbType.SQLITE));
+    }
+
+    @Test
+    void testStripCommentsKeepsQuotedText() {
+        assertEquals("SELECT '-- no', \"/* no */\" \nFROM t",
+                SqlLexer.stripComments("SELECT '-- no', \"/* no */\" -- yes\nFROM /* yes */t", null));
+        // 只有 MySQL 把 # 当作注释
+        assertEquals("SELECT 1 \n", SqlLexer.stripComments("SELECT 1 # c\n", DbType.MYSQL));
+        assertEquals("SELECT 1 # c\n", SqlLexer.stripComments("SELECT 1 # c\n", DbType.POSTGRESQL));
+    }
+
+    @Test
+    void testLeadingKeyword() {
+        assertEquals("SELECT", SqlLexer.leadingKeyword("  -- c\n /* c */ select 1"));
+        assertEquals("WITH", SqlLexer.leadingKeyword("With x AS (SELECT 1) SELECT * FROM x"));
+        assertNull(SqlLexer.leadingKeyword("SELECTX 1"));
+        assertNull(SqlLexer.leadingKeyword("(SELECT 1)"));
+        assertEquals(StatementKind.DML, SqlLexer.kindOf(SqlLexer.leadingKeyword("insert into t values (1)")));
+        assertEquals(StatementKind.OTHER, SqlLexer.kindOf(null));
+        assertEquals(StatementKind.QUERY, SqlLexer.kindOf(SqlLexer.leadingKeyword("SHOW TABLES")));
+        assertEquals(StatementKind.TRANSACTION, SqlLexer.kindOf(SqlLexer.leadingKeyword("start transaction")));
+        assertEquals(StatementKind.SESSION, SqlLexer.kindOf(SqlLexer.leadingKeyword("SET search_path = s")));
+        // 带 WITH 的语句只有解析后才知道是查询还是 DML
+        assertEquals(StatementKind.OTHER, SqlLexer.kindOf("WITH"));
+    }
+}
@@ -0,0 +1,111 @@
+package com.m01.dbhelper.util;
+
+import com.m01.dbhelper.common.DbType;
+import com.m01.dbhelper.common.SqlTask;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SqlScriptIndexTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void testIndexedStatementsMatchTheReader() throws IOException {
+        StringBuilder script = new StringBuilder("-- header; comment\n");
+        for (int i = 0; i < 500; i++) {
+            script.append("INSERT INTO 用户 VALUES (").append(i).append(", 'a;b😀', $$x;y$$) /* c */;\r\n");
+        }
+        script.append("SELECT 1");
+        Path file = tempDir.resolve("script.sql");
+        Files.write(file, script.toString().getBytes(StandardCharsets.UTF_8));
+
+        SqlScriptIndex index = SqlScriptIndex.open(file, StandardCharsets.UTF_8, DbType.POSTGRESQL);
+        assertTrue(Files.exists(SqlScriptIndex.sidecar(file)));
+        List<ParsedStatement> expected = SqlValidator.readStatements(file.toString(), StandardCharsets.UTF_8, DbType.POSTGRESQL);
+        assertEquals(expected.size(), index.size());
+        assertStatements(expected, index.read(0, index.size()));
+
+        // 按字节范围拆分读取的结果与整体读取一致，也可以从任意一条语句开始读取
+        SqlScriptIndex loaded = SqlScriptIndex.open(file, StandardCharsets.UTF_8, DbType.POSTGRESQL);
+        int[] bounds = loaded.split(4);
+        assertEquals(5, bounds.length);
+        List<ParsedStatement> ranges = new ArrayList<>();
+        for (int i = 0; i + 1 < bounds.length; i++) {
+            ranges.addAll(loaded.read(bounds[i], bounds[i + 1]));
+        }
+        assertStatements(expected, ranges);
+        assertStatements(expected.subList(300, 301), loaded.read(300, 301));
+        assertEquals(index.getOffset(300), loaded.getOffset(300));
+        assertEquals(index.getLength(300), loaded.getLength(300));
+    }
+
+    @Test
+    void testChangedFileIsSplitAgainFromTheFirstChange() throws IOException {
+        Path file = tempDir.resolve("append.sql");
+        Files.write(file, "SELECT 1;\nSELECT 2;\nSELECT 3".getBytes(StandardCharsets.UTF_8));
+        SqlScriptIndex first = SqlScriptIndex.open(file, StandardCharsets.UTF_8, DbType.SQLITE);
+        assertEquals(3, first.size());
+
+        // 追加到未结束的最后一条语句上，它必须重新拆分
+        Files.write(file, " + 4;\nSELECT 5;".getBytes(StandardCharsets.UTF_8), StandardOpenOption.APPEND);
+        Files.setLastModifiedTime(file, FileTime.fromMillis(Files.getLastModifiedTime(file).toMillis() + 2000));
+        SqlScriptIndex appended = SqlScriptIndex.open(file, StandardCharsets.UTF_8, DbType.SQLITE);
+        assertStatements(SqlValidator.readStatements(file.toString(), StandardCharsets.UTF_8, DbType.SQLITE),
+                appended.read(0, appended.size()));
+        assertEquals("SELECT 3 + 4", appended.read(2, 3).get(0).getSql());
+        assertEquals(first.getLength(0), appended.getLength(0));
+
+        // 前面的注释吞掉了原来的语句边界
+        Files.write(file, "SELECT 1;\n/* SELECT 2;\nSELECT 3 */ SELECT 4;\nSELECT 5;".getBytes(StandardCharsets.UTF_8));
+        Files.setLastModifiedTime(file, FileTime.fromMillis(Files.getLastModifiedTime(file).toMillis() + 4000));
+        SqlScriptIndex edited = SqlScriptIndex.open(file, StandardCharsets.UTF_8, DbType.SQLITE);
+        assertStatements(SqlValidator.readStatements(file.toString(), StandardCharsets.UTF_8, DbType.SQLITE),
+                edited.read(0, edited.size()));
+        assertEquals(3, edited.size());
+    }
+
+    @Test
+    void testParallelValidatorReadsIndexedFilesByRange() throws IOException {
+        StringBuilder script = new StringBuilder();
+        for (int i = 0; i < 200; i++) {
+            script.append(i == 150 ? "SELECT FROM WHERE" : "SELECT " + i + " FROM t").append(";\n");
+        }
+        Path file = tempDir.resolve("parallel.sql");
+        Files.write(file, script.toString().getBytes(StandardCharsets.UTF_8));
+        SqlTask task = new SqlTask();
+        task.setSqlList(Collections.singletonList(file.toString()));
+
+        for (int run = 0; run < 2; run++) {
+            ParallelValidator.Entry entry = new ParallelValidator(new ValidationCache(1000), DbType.MYSQL, 4,
+                    StandardCharsets.UTF_8, null, ParseBudget.DEFAULT, true)
+                    .validate(Collections.singletonList(task), new boolean[]{false}, false).get(0).get(0);
+            assertNull(entry.getError());
+            assertEquals(200, entry.getStatements().size());
+            assertEquals("SELECT 199 FROM t", entry.getStatements().get(199).getSql());
+            assertFalse(entry.isValid(150));
+            assertTrue(entry.isValid(149));
+        }
+    }
+
+    private static void assertStatements(List<ParsedStatement> expected, List<ParsedStatement> actual) {
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(expected.get(i).getSql(), actual.get(i).getSql());
+            assertEquals(expected.get(i).getOffset(), actual.get(i).getOffset());
+            assertEquals(expected.get(i).getSource(), actual.get(i).getSource());
+        }
+    }
+}
@@ -0,0 +1,116 @@
+package com.m01.dbhelper.util;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SqlScriptReaderTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void testSplitsOutsideQuotesAndComments() throws IOException {
+        String script = "-- header; comment\n"
+                + "SELECT 'a;b' FROM t /* inner; */ WHERE x = 1 ;\n"
+                + "/* only a comment */;\n"
+                + "INSERT INTO t VALUES ('it''s', \"q;\", 'x\\'y;') -- tail\n"
+                + ";  UPDATE t SET a = 1";
+        List<ParsedStatement> statements = readAll(write(script.getBytes(StandardCharsets.UTF_8)), StandardCharsets.UTF_8, 1 << 20);
+
+        assertEquals(3, statements.size());
+        assertEquals("SELECT 'a;b' FROM t /* inner; */ WHERE x = 1", statements.get(0).getSql());
+        assertEquals("INSERT INTO t VALUES ('it''s', \"q;\", 'x\\'y;')", statements.get(1).getSql());
+        assertEquals("UPDATE t SET a = 1", statements.get(2).getSql());
+        for (ParsedStatement statement : statements) {
+            assertEquals(script.indexOf(statement.getSql()), statement.getOffset());
+        }
+    }
+
+    @Test
+    void testByteOffsetsAcrossWindowsAndMultiByteCharacters() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        List<String> expected = new ArrayList<>();
+        List<Integer> offsets = new ArrayList<>();
+        for (int i = 0; i < 3000; i++) {
+            String sql = "INSERT INTO 用户 VALUES (" + i + ", '名字😀" + i + "')";
+            offsets.add(out.size());
+            expected.add(sql);
+            byte[] bytes = (sql + ";\n").getBytes(StandardCharsets.UTF_8);
+            out.write(bytes, 0, bytes.length);
+        }
+        // 窗口大小不是字符边界的整数倍，多字节字符会跨越窗口
+        List<ParsedStatement> statements = readAll(write(out.toByteArray()), StandardCharsets.UTF_8, 4099);
+
+        assertEquals(expected.size(), statements.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(expected.get(i), statements.get(i).getSql());
+            assertEquals((long) offsets.get(i), statements.get(i).getOffset());
+        }
+    }
+
+    @Test
+    void testByteOrderMarkOverridesCharset() throws IOException {
+        byte[] text = "SELECT 'ä' FROM t;SELECT 2".getBytes(StandardCharsets.UTF_16LE);
+        byte[] bytes = new byte[text.length + 2];
+        bytes[0] = (byte) 0xff;
+        bytes[1] = (byte) 0xfe;
+        System.arraycopy(text, 0, bytes, 2, text.length);
+        Path file = write(bytes);
+
+        try (SqlScriptReader reader = new SqlScriptReader(file, StandardCharsets.ISO_8859_1)) {
+            assertEquals(StandardCharsets.UTF_16LE, reader.getCharset());
+            assertEquals("SELECT 'ä' FROM t", reader.next().getSql());
+            ParsedStatement second = reader.next();
+            assertEquals("SELECT 2", second.getSql());
+            assertEquals(2 + 18 * 2, second.getOffset());
+            assertFalse(reader.hasNext());
+        }
+    }
+
+    @Test
+    void testVariableWidthCharsetOffsets() throws IOException {
+        Charset gbk = Charset.forName("GBK");
+        String script = "SELECT '中文' FROM t;\nSELECT 2;";
+        List<ParsedStatement> statements = readAll(write(script.getBytes(gbk)), gbk, 1 << 20);
+
+        assertEquals("SELECT '中文' FROM t", statements.get(0).getSql());
+        assertEquals("SELECT '中文' FROM t;\n".getBytes(gbk).length, statements.get(1).getOffset());
+    }
+
+    @Test
+    void testMalformedInputIsReported() throws IOException {
+        Path file = write(new byte[]{'S', 'E', 'L', (byte) 0xc3, (byte) 0x28, ';'});
+        try (SqlScriptReader reader = new SqlScriptReader(file, StandardCharsets.UTF_8)) {
+            UncheckedIOException e = assertThrows(UncheckedIOException.class, reader::hasNext);
+            assertTrue(e.getCause().getMessage().contains("UTF-8"));
+        }
+    }
+
+    private Path write(byte[] bytes) throws IOException {
+        Path file = Files.createTempFile(tempDir, "script", ".sql");
+        Files.write(file, bytes);
+        return file;
+    }
+
+    private static List<ParsedStatement> readAll(Path file, Charset charset, int windowBytes) throws IOException {
+        List<ParsedStatement> statements = new ArrayList<>();
+        try (SqlScriptReader reader = new SqlScriptReader(file, charset, null, windowBytes)) {
+            while (reader.hasNext()) {
+                statements.add(reader.next());
+            }
+        }
+        return statements;
+    }
+}
@@ -1,6 +1,8 @@
 package com.m01.dbhelper.util;
 
 import com.m01.dbhelper.common.DbType;
+import com.m01.dbhelper.common.StatementKind;
+import com.m01.dbhelper.common.Verdict;
 import net.sf.jsqlparser.JSQLParserException;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.Assertions;
@@ -8,6 +10,7 @@ import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.CsvSource;
 import org.junit.jupiter.params.provider.MethodSource;
 import org.junit.jupiter.params.provider.ValueSource;
 
@@ -174,4 +177,89 @@ class SqlValidatorTest {
         Assertions.assertTrue(statements.get(0).contains("'Hello; world'"));
         Assertions.assertTrue(statements.get(1).contains("SELECT"));
     }
+
+    @Test
+    @DisplayName("测试读取语句时保留原始文本和位置，验证时保存语法树")
+    void testReadStatements() throws IOException {
+        String content = new String(Files.readAllBytes(tempSqlFile));
+        List<ParsedStatement> statements = SqlValidator.readStatements(tempSqlFile.toString(), DbType.MYSQL);
+
+        Assertions.assertEquals(3, statements.size());
+        Assertions.assertEquals("SELECT * FROM users", statements.get(0).getSql());
+        Assertions.assertEquals("INSERT INTO products (name, price) VALUES ('Product 1', 10.99)", statements.get(1).getSql());
+        Assertions.assertEquals("UPDATE orders SET status = 'shipped' WHERE id = 1", statements.get(2).getSql());
+        for (ParsedStatement statement : statements) {
+            Assertions.assertEquals(content.indexOf(statement.getSql()), statement.getOffset());
+            Assertions.assertEquals(tempSqlFile.toString(), statement.getSource());
+            Assertions.assertFalse(statement.hasAst());
+            Assertions.assertTrue(SqlValidator.validate(statement, DbType.MYSQL));
+            Assertions.assertTrue(statement.hasAst());
+        }
+        Assertions.assertEquals(StatementKind.QUERY, statements.get(0).getKind());
+        Assertions.assertEquals(StatementKind.DML, statements.get(1).getKind());
+    }
+
+    @Test
+    @DisplayName("测试整体解析失败时按分号拆分并在验证时逐条解析")
+    void testParseStatementsFallback() {
+        String sql = "WITH t AS (SELECT 1 AS x)\nSELECT x FROM t; -- trailing ; comment\nSELECT (1 FROM t;\n/* only a comment */;";
+        List<ParsedStatement> statements = SqlValidator.parseStatements(sql, null, DbType.MYSQL);
+
+        Assertions.assertEquals(2, statements.size());
+        Assertions.assertEquals("WITH t AS (SELECT 1 AS x)\nSELECT x FROM t", statements.get(0).getSql());
+        Assertions.assertEquals("SELECT (1 FROM t", statements.get(1).getSql());
+        Assertions.assertFalse(statements.get(0).hasAst());
+
+        Assertions.assertTrue(SqlValidator.validate(statements.get(0), DbType.MYSQL));
+        Assertions.assertTrue(statements.get(0).hasAst());
+        Assertions.assertEquals(StatementKind.QUERY, statements.get(0).getKind());
+        Assertions.assertFalse(SqlValidator.validate(statements.get(1), DbType.MYSQL));
+    }
+
+    @Test
+    @DisplayName("测试重新解析语法树时使用方言改写和解析预算")
+    void testGetAstReparsesWithDialect() {
+        ParsedStatement statement = new ParsedStatement("SELECT \"id\" FROM \"users\" WHERE \"id\" = 1");
+        Assertions.assertFalse(statement.hasAst());
+        Assertions.assertNotNull(statement.getAst(DbType.POSTGRESQL, ParseBudget.DEFAULT));
+        Assertions.assertTrue(statement.hasAst());
+        Assertions.assertEquals(StatementKind.QUERY, statement.getKind());
+
+        Assertions.assertNull(new ParsedStatement("SELECT (1 FROM t").getAst(DbType.MYSQL, ParseBudget.DEFAULT));
+    }
+
+    @ParameterizedTest(name = "测试语句分类 {0}")
+    @CsvSource(delimiter = '|', value = {
+        "WITH t AS (SELECT 1 AS x) SELECT x FROM t | QUERY | true",
+        "VALUES (1, 2) | QUERY | true",
+        "SHOW TABLES | QUERY | true",
+        "EXPLAIN SELECT * FROM users | QUERY | true",
+        "INSERT INTO users (id) VALUES (1) RETURNING id | DML | true",
+        "UPDATE users SET name = 'x' WHERE id = 1 | DML | false",
+        "CREATE TABLE test (id INT) | DDL | false",
+        "COMMIT | TRANSACTION | false",
+        "SET search_path = app | SESSION | false",
+        "CALL refresh_stats() | OTHER | ",
+    })
+    void testClassifiesStatementsWhenValidating(String sql, StatementKind kind, Boolean returnsRows) {
+        ParsedStatement statement = new ParsedStatement(sql);
+        Assertions.assertTrue(SqlValidator.validate(statement, DbType.POSTGRESQL));
+        Assertions.assertEquals(kind, statement.getKind());
+        Assertions.assertEquals(returnsRows, statement.returnsRows());
+    }
+
+    @Test
+    @DisplayName("测试未解析的语句按关键字分类")
+    void testClassifiesUnparsedStatementsByKeyword() {
+        Assertions.assertEquals(StatementKind.OTHER, new ParsedStatement("WITH t AS (SELECT 1) SELECT * FROM t").getKind());
+        // DML 是否带 RETURNING 只有解析后才知道，执行时由 execute 的返回值判断
+        Assertions.assertNull(new ParsedStatement("DELETE FROM t RETURNING id").returnsRows());
+        Assertions.assertEquals(Boolean.TRUE, new ParsedStatement("SHOW TABLES").returnsRows());
+
+        ParsedStatement insert = new ParsedStatement("INSERT INTO t (a) VALUES (1), (2)");
+        Assertions.assertEquals(Verdict.VALID, new InsertFastPath(new ValidationCache(10), 0).check(insert, DbType.MYSQL,
+                ParseBudget.DEFAULT));
+        Assertions.assertFalse(insert.hasAst());
+        Assertions.assertEquals(Boolean.FALSE, insert.returnsRows());
+    }
 }
@@ -0,0 +1,133 @@
+package com.m01.dbhelper.util;
+
+import java.io.ByteArrayInputStream;
+import java.io.StringReader;
+import java.lang.reflect.Proxy;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * In-memory ResultSet for tests, backed by a list of rows
+ */
+final class StubResultSet {
+
+    private StubResultSet() {
+    }
+
+    /**
+     * Creates a forward-only ResultSet over the given rows
+     *
+     * @param labels   column labels
+     * @param sqlTypes column types from {@link java.sql.Types}
+     * @param rows     row values, null entries are SQL NULL; a {@link Supplier} value provides a
+     *                 new stream for every {@code getBinaryStream} or {@code getCharacterStream} call
+     * @return the result set
+     */
+    static ResultSet of(String[] labels, int[] sqlTypes, List<Object[]> rows) {
+        return of(labels, sqlTypes, new boolean[labels.length], rows);
+    }
+
+    /**
+     * Creates a forward-only ResultSet over the given rows
+     *
+     * @param labels   column labels
+     * @param sqlTypes column types from {@link java.sql.Types}
+     * @param unsigned whether a numeric column is unsigned
+     * @param rows     row values, null entries are SQL NULL
+     * @return the result set
+     */
+    static ResultSet of(String[] labels, int[] sqlTypes, boolean[] unsigned, List<Object[]> rows) {
+        ResultSetMetaData metaData = (ResultSetMetaData) Proxy.newProxyInstance(
+                StubResultSet.class.getClassLoader(), new Class<?>[]{ResultSetMetaData.class},
+                (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "getColumnCount":
+                            return labels.length;
+                        case "getColumnName":
+                        case "getColumnLabel":
+                            return labels[(Integer) args[0] - 1];
+                        case "getColumnType":
+                            return sqlTypes[(Integer) args[0] - 1];
+                        case "getColumnTypeName":
+                            return String.valueOf(sqlTypes[(Integer) args[0] - 1]);
+                        case "isSigned":
+                            return !unsigned[(Integer) args[0] - 1];
+                        default:
+                            throw new UnsupportedOperationException(method.getName());
+                    }
+                });
+
+        int[] cursor = {-1};
+        boolean[] lastNull = {false};
+        return (ResultSet) Proxy.newProxyInstance(
+                StubResultSet.class.getClassLoader(), new Class<?>[]{ResultSet.class},
+                (proxy, method, args) -> {
+                    String name = method.getName();
+                    switch (name) {
+                        case "next":
+                            cursor[0]++;
+                            return cursor[0] < rows.size();
+                        case "getMetaData":
+                            return metaData;
+                        case "wasNull":
+                            return lastNull[0];
+                        case "close":
+                            return null;
+                        case "isClosed":
+                            return false;
+                        default:
+                            break;
+                    }
+                    if (!name.startsWith("get") || args == null || !(args[0] instanceof Integer)) {
+                        throw new UnsupportedOperationException(name);
+                    }
+                    if (cursor[0] < 0 || cursor[0] >= rows.size()) {
+                        throw new SQLException("Cursor is not on a row");
+                    }
+                    Object value = rows.get(cursor[0])[(Integer) args[0] - 1];
+                    lastNull[0] = value == null;
+                    return convert(name, value);
+                });
+    }
+
+    private static Object convert(String getter, Object value) {
+        if (value instanceof Supplier && (getter.equals("getBinaryStream") || getter.equals("getCharacterStream"))) {
+            return ((Supplier<?>) value).get();
+        }
+        switch (getter) {
+            case "getString":
+                return value == null ? null : value instanceof byte[]
+                        ? new String((byte[]) value, StandardCharsets.UTF_8) : value.toString();
+            case "getLong":
+                return value == null ? 0L : ((Number) value).longValue();
+            case "getInt":
+                return value == null ? 0 : ((Number) value).intValue();
+            case "getDouble":
+                return value == null ? 0d : ((Number) value).doubleValue();
+            case "getFloat":
+                return value == null ? 0f : ((Number) value).floatValue();
+            case "getBoolean":
+                return value != null && (Boolean) value;
+            case "getBigDecimal":
+                return value == null ? null : new BigDecimal(value.toString());
+            case "getBytes":
+                return value == null ? null : value instanceof byte[]
+                        ? value : value.toString().getBytes(StandardCharsets.UTF_8);
+            case "getBinaryStream":
+                return value == null ? null : new ByteArrayInputStream(value instanceof byte[]
+                        ? (byte[]) value : value.toString().getBytes(StandardCharsets.UTF_8));
+            case "getCharacterStream":
+                return value == null ? null : new StringReader(value instanceof byte[]
+                        ? new String((byte[]) value, StandardCharsets.UTF_8) : value.toString());
+            case "getObject":
+                return value;
+            default:
+                throw new UnsupportedOperationException(getter);
+        }
+    }
+}
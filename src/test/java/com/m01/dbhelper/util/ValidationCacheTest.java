@@ -0,0 +1,93 @@
+package com.m01.dbhelper.util;
+
+import com.m01.dbhelper.common.DbType;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ValidationCacheTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void testMemoryTierReusesVerdictsPerDbType() {
+        ValidationCache cache = new ValidationCache(2);
+        assertTrue(cache.isValidSql("SELECT 1 FROM a", DbType.MYSQL));
+        assertFalse(cache.isValidSql("SELECT FROM WHERE", DbType.MYSQL));
+        assertTrue(cache.isValidSql("SELECT 1 FROM a", DbType.MYSQL));
+        assertEquals(1, cache.getHits());
+        assertTrue(cache.isValidSql("SELECT 1 FROM a", DbType.POSTGRESQL));
+        assertEquals(3, cache.getMisses());
+        // 容量为 2，最早使用的 SELECT FROM WHERE 已被淘汰
+        assertFalse(cache.isValidSql("SELECT FROM WHERE", DbType.MYSQL));
+        assertEquals(4, cache.getMisses());
+    }
+
+    @Test
+    void testFileTierSurvivesReopen() throws Exception {
+        Path file = tempDir.resolve("cache").resolve("validation.bin");
+        try (ValidationCache cache = new ValidationCache(10, file)) {
+            for (int i = 0; i < 100; i++) {
+                assertTrue(cache.isValidSql("SELECT " + i + " FROM t", DbType.MYSQL));
+            }
+            assertFalse(cache.isValidSql("SELECT FROM WHERE", DbType.MYSQL));
+        }
+        // 模拟异常中断留下的半条记录
+        Files.write(file, new byte[]{1, 2, 3}, StandardOpenOption.APPEND);
+
+        try (ValidationCache cache = new ValidationCache(10, file)) {
+            for (int i = 0; i < 100; i++) {
+                assertTrue(cache.isValidSql("SELECT " + i + " FROM t", DbType.MYSQL));
+            }
+            assertFalse(cache.isValidSql("SELECT FROM WHERE", DbType.MYSQL));
+            assertEquals(101, cache.getHits());
+            assertEquals(0, cache.getMisses());
+            assertTrue(cache.isValidSql("SELECT 1 FROM t", DbType.SQLITE));
+            assertEquals(1, cache.getMisses());
+        }
+    }
+
+    @Test
+    void testConcurrentMissesAreWrittenInBlocksAndOnClose() throws Exception {
+        Path file = tempDir.resolve("validation.bin");
+        int threads = 4;
+        int perThread = 700;
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        try (ValidationCache cache = new ValidationCache(100_000, file)) {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                int base = t * perThread;
+                futures.add(pool.submit(() -> {
+                    for (int i = base; i < base + perThread; i++) {
+                        assertTrue(cache.isValidSql("SELECT " + i + " FROM t", DbType.MYSQL));
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+            assertEquals(threads * perThread, cache.getMisses());
+        } finally {
+            pool.shutdown();
+        }
+
+        try (ValidationCache cache = new ValidationCache(10, file)) {
+            for (int i = 0; i < threads * perThread; i++) {
+                assertTrue(cache.isValidSql("SELECT " + i + " FROM t", DbType.MYSQL));
+            }
+            assertEquals(threads * perThread, cache.getHits());
+            assertEquals(0, cache.getMisses());
+        }
+    }
+}